@@ -10,7 +10,10 @@ import java.util.Map;
 public class JpaConfig {
     @Bean
     public HibernatePropertiesCustomizer hibernatePropertiesCustomizer() {
-        return hibernateProperties -> 
+        return hibernateProperties -> {
             hibernateProperties.put("hibernate.types.print.banner", false);
+            // 让 @Type 指定的 UserType 也由 Spring 创建，JsonMapType 需要注入 JsonCodec
+            hibernateProperties.put("hibernate.cdi.extensions", true);
+        };
     }
 } 
\ No newline at end of file
@@ -0,0 +1,130 @@
+package com.qvtu.mallshopping.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.qvtu.mallshopping.util.JsonCodec;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.type.SqlTypes;
+import org.hibernate.usertype.UserType;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 将 Map<String, Object> 映射为 JSON/JSONB 列。
+ * 脏检查按 Map 的内容比较，快照为深拷贝，元数据没有变化时不会产生 UPDATE。
+ * 由 Hibernate 通过 Spring 的 BeanContainer 创建（见 JpaConfig），使用共享的 JsonCodec。
+ */
+public class JsonMapType implements UserType<Map<String, Object>> {
+    private final JsonCodec jsonCodec;
+
+    public JsonMapType(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
+
+    @Override
+    public int getSqlType() {
+        return SqlTypes.JSON;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public Class<Map<String, Object>> returnedClass() {
+        return (Class) Map.class;
+    }
+
+    @Override
+    public boolean equals(Map<String, Object> x, Map<String, Object> y) {
+        return Objects.equals(x, y);
+    }
+
+    @Override
+    public int hashCode(Map<String, Object> x) {
+        return Objects.hashCode(x);
+    }
+
+    @Override
+    public Map<String, Object> nullSafeGet(ResultSet rs, int position, SharedSessionContractImplementor session, Object owner)
+            throws SQLException {
+        String value = rs.getString(position);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return jsonCodec.readMap(value);
+        } catch (JsonProcessingException e) {
+            throw new HibernateException("Error converting JSON to map", e);
+        }
+    }
+
+    @Override
+    public void nullSafeSet(PreparedStatement st, Map<String, Object> value, int index, SharedSessionContractImplementor session)
+            throws SQLException {
+        if (value == null) {
+            st.setNull(index, Types.OTHER);
+        } else {
+            st.setObject(index, toJson(value), Types.OTHER);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> deepCopy(Map<String, Object> value) {
+        return (Map<String, Object>) copy(value);
+    }
+
+    @Override
+    public boolean isMutable() {
+        return true;
+    }
+
+    @Override
+    public Serializable disassemble(Map<String, Object> value) {
+        return value != null ? toJson(value) : null;
+    }
+
+    @Override
+    public Map<String, Object> assemble(Serializable cached, Object owner) {
+        if (cached == null) {
+            return null;
+        }
+        try {
+            return jsonCodec.readMap((String) cached);
+        } catch (JsonProcessingException e) {
+            throw new HibernateException("Error converting JSON to map", e);
+        }
+    }
+
+    private String toJson(Map<String, Object> value) {
+        try {
+            return jsonCodec.write(value);
+        } catch (JsonProcessingException e) {
+            throw new HibernateException("Error converting map to JSON", e);
+        }
+    }
+
+    // JSON 中的标量都是不可变对象，只需要复制 Map 和 List
+    private static Object copy(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(String.valueOf(k), copy(v)));
+            return copy;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(copy(item));
+            }
+            return copy;
+        }
+        return value;
+    }
+}
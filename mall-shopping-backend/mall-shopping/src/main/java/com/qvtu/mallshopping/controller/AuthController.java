@@ -70,7 +70,10 @@ public class AuthController {
             String token = bearerToken.substring(7);
             
             // 从令牌中获取用户ID
-            Long userId = jwtTokenProvider.getUserIdFromJWT(token);
+            Long userId = jwtTokenProvider.parseUserId(token);
+            if (userId == null) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
             
             // 获取用户信息
             Customer customer = customerService.getCustomerById(userId);
@@ -106,14 +109,12 @@ public class AuthController {
             }
             String token = bearerToken.substring(7);
             
-            // 验证令牌
-            if (!jwtTokenProvider.validateToken(token)) {
+            // 验证令牌并获取用户ID
+            Long userId = jwtTokenProvider.parseUserId(token);
+            if (userId == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
             
-            // 从令牌中获取用户ID
-            Long userId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 生成新的JWT令牌
             String newToken = jwtTokenProvider.generateToken(userId);
             
@@ -194,14 +195,12 @@ public class AuthController {
             }
             String token = bearerToken.substring(7);
             
-            // 验证令牌
-            if (!jwtTokenProvider.validateToken(token)) {
+            // 验证令牌并获取用户ID
+            Long userId = jwtTokenProvider.parseUserId(token);
+            if (userId == null) {
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
             }
             
-            // 从令牌中获取用户ID
-            Long userId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 获取请求中的电子邮件和新密码
             String email = request.get("email");
             String newPassword = request.get("password");
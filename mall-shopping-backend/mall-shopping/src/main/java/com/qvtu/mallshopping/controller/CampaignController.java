@@ -6,6 +6,7 @@ import com.qvtu.mallshopping.model.Campaign;
 import com.qvtu.mallshopping.repository.CampaignRepository;
 import com.qvtu.mallshopping.service.CampaignService;
 import com.qvtu.mallshopping.util.CampaignDataGenerator;
+import com.qvtu.mallshopping.util.JsonCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -28,6 +29,9 @@ public class CampaignController {
     @Autowired
     private CampaignRepository campaignRepository;
 
+    @Autowired
+    private JsonCodec jsonCodec;
+
     @GetMapping
     public Map<String, Object> getCampaigns(
         @RequestParam(required = false) String q,
@@ -54,7 +58,7 @@ public class CampaignController {
     public ResponseEntity<Map<String, Object>> generateTestData(
             @RequestParam(defaultValue = "5") Integer count) {
         try {
-            CampaignDataGenerator generator = new CampaignDataGenerator();
+            CampaignDataGenerator generator = new CampaignDataGenerator(jsonCodec);
             List<Campaign> campaigns = generator.generateCampaigns(count);
             
             List<Map<String, Object>> results = new ArrayList<>();
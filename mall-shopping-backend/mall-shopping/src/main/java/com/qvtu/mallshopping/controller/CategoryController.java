@@ -2,6 +2,7 @@ package com.qvtu.mallshopping.controller;
 
 import com.qvtu.mallshopping.model.Category;
 import com.qvtu.mallshopping.service.CategoryService;
+import com.qvtu.mallshopping.service.CategoryTreeCache;
 import com.qvtu.mallshopping.dto.CategoryResponseDTO;
 import com.qvtu.mallshopping.dto.CategoryCreateRequest;
 import com.qvtu.mallshopping.exception.ResourceNotFoundException;
@@ -68,6 +69,77 @@ public class CategoryController {
         }
     }
 
+    // 面包屑：从顶级分类到当前分类
+    @GetMapping("/{id}/breadcrumb")
+    public ResponseEntity<Map<String, Object>> getBreadcrumb(@PathVariable Long id) {
+        try {
+            List<Map<String, Object>> breadcrumb = categoryService.getBreadcrumb(id).stream()
+                .map(this::formatPathEntry)
+                .collect(Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("breadcrumb", breadcrumb);
+            return ResponseEntity.ok(response);
+
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(notFound(id));
+        }
+    }
+
+    // 祖先分类：从顶级分类到父分类，不含当前分类
+    @GetMapping("/{id}/ancestors")
+    public ResponseEntity<Map<String, Object>> getAncestors(@PathVariable Long id) {
+        try {
+            List<Map<String, Object>> ancestors = categoryService.getAncestors(id).stream()
+                .map(this::formatPathEntry)
+                .collect(Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("product_categories", ancestors);
+            response.put("count", ancestors.size());
+            return ResponseEntity.ok(response);
+
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(notFound(id));
+        }
+    }
+
+    // 全部后代分类，按路径排序
+    @GetMapping("/{id}/descendants")
+    public ResponseEntity<Map<String, Object>> getDescendants(@PathVariable Long id) {
+        try {
+            List<Map<String, Object>> descendants = categoryService.getDescendants(id).stream()
+                .map(this::formatPathEntry)
+                .collect(Collectors.toList());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("product_categories", descendants);
+            response.put("count", descendants.size());
+            return ResponseEntity.ok(response);
+
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(notFound(id));
+        }
+    }
+
+    private Map<String, Object> formatPathEntry(Category category) {
+        Map<String, Object> formatted = new HashMap<>();
+        formatted.put("id", category.getId());
+        formatted.put("name", category.getName());
+        formatted.put("handle", category.getHandle());
+        formatted.put("parent_category_id", category.getParentCategoryId());
+        formatted.put("path", category.getPath());
+        return formatted;
+    }
+
+    private Map<String, Object> notFound(Long id) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("message", "Product category with id: " + id + " was not found");
+        errorResponse.put("type", "not_found");
+        errorResponse.put("code", "UNKNOWN");
+        return errorResponse;
+    }
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> listCategories(
             @RequestParam(required = false) String name,
@@ -76,7 +148,7 @@ public class CategoryController {
             @RequestParam(defaultValue = "20") int size
     ) {
         try {
-            Page<Category> categoryPage;
+            Page<CategoryTreeCache.CategoryNode> categoryPage;
             if (parentId != null) {
                 categoryPage = categoryService.getCategoriesByParent(parentId, PageRequest.of(page, size));
             } else if (name != null && !name.trim().isEmpty()) {
@@ -84,28 +156,30 @@ public class CategoryController {
             } else {
                 categoryPage = categoryService.getTopLevelCategories(PageRequest.of(page, size));
             }
+            CategoryTreeCache.Snapshot tree = categoryService.getCategoryTree();
 
             // 转换为前端期望的格式
             List<Map<String, Object>> formattedCategories = categoryPage.getContent().stream()
                 .map(category -> {
                     Map<String, Object> formatted = new HashMap<>();
-                    formatted.put("id", category.getId());
-                    formatted.put("name", category.getName());
-                    formatted.put("handle", category.getHandle());
-                    formatted.put("description", category.getDescription());
-                    formatted.put("is_internal", category.getIsInternal());
-                    formatted.put("is_active", category.getIsActive());
-                    formatted.put("rank", category.getRank());
-                    formatted.put("parent_category_id", category.getParentCategoryId());
-                    formatted.put("created_at", category.getCreatedAt());
-                    formatted.put("updated_at", category.getUpdatedAt());
+                    formatted.put("id", category.id());
+                    formatted.put("name", category.name());
+                    formatted.put("handle", category.handle());
+                    formatted.put("description", category.description());
+                    formatted.put("is_internal", category.isInternal());
+                    formatted.put("is_active", category.isActive());
+                    formatted.put("rank", category.rank());
+                    formatted.put("parent_category_id", category.parentId());
+                    formatted.put("created_at", category.createdAt());
+                    formatted.put("updated_at", category.updatedAt());
                     formatted.put("deleted_at", null);
                     
                     // 处理父分类
-                    if (category.getParentCategory() != null) {
+                    CategoryTreeCache.CategoryNode parent = tree.get(category.parentId());
+                    if (parent != null) {
                         Map<String, Object> parentCategory = new HashMap<>();
-                        parentCategory.put("id", category.getParentCategory().getId());
-                        parentCategory.put("name", category.getParentCategory().getName());
+                        parentCategory.put("id", parent.id());
+                        parentCategory.put("name", parent.name());
                         // ... 其他父分类字段
                         formatted.put("parent_category", parentCategory);
                     } else {
@@ -113,17 +187,15 @@ public class CategoryController {
                     }
                     
                     // 处理子分类
-                    formatted.put("category_children", category.getChildren() == null ? 
-                        new ArrayList<>() : 
-                        category.getChildren().stream()
-                            .map(child -> {
-                                Map<String, Object> childMap = new HashMap<>();
-                                childMap.put("id", child.getId());
-                                childMap.put("name", child.getName());
-                                // ... 其他子分类字段
-                                return childMap;
-                            })
-                            .collect(Collectors.toList()));
+                    formatted.put("category_children", tree.children(category.id()).stream()
+                        .map(child -> {
+                            Map<String, Object> childMap = new HashMap<>();
+                            childMap.put("id", child.id());
+                            childMap.put("name", child.name());
+                            // ... 其他子分类字段
+                            return childMap;
+                        })
+                        .collect(Collectors.toList()));
                     
                     return formatted;
                 })
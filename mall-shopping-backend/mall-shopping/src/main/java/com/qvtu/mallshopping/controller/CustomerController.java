@@ -8,6 +8,7 @@ import com.qvtu.mallshopping.dto.CustomerRegisterRequest;
 import com.qvtu.mallshopping.model.Customer;
 import com.qvtu.mallshopping.model.Address;
 import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.service.CustomerGroupImportService;
 import com.qvtu.mallshopping.service.CustomerService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +17,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import jakarta.validation.Valid;
 
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -31,12 +33,24 @@ public class CustomerController {
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private CustomerGroupImportService customerGroupImportService;
+
     @GetMapping
     public ResponseEntity<Map<String, Object>> listCustomers(
         @RequestParam(defaultValue = "0") int page,
-        @RequestParam(defaultValue = "10") int size
+        @RequestParam(defaultValue = "10") int size,
+        @RequestParam(required = false) String cursor
     ) {
         log.info("收到获取客户列表请求, page: {}, size: {}", page, size);
+        // 传入 cursor 参数（可为空）时使用游标分页
+        if (cursor != null) {
+            try {
+                return ResponseEntity.ok(customerService.listCustomersByCursor(cursor, size));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+            }
+        }
         Map<String, Object> response = customerService.listCustomers(page, size);
         return ResponseEntity.ok(response);
     }
@@ -172,9 +186,11 @@ public class CustomerController {
             }
             
             Object customerIdsObj = requestBody.get("customer_ids");
-            log.info("customer_ids 类型: {}, 值: {}", 
-                     customerIdsObj != null ? customerIdsObj.getClass().getName() : "null", 
-                     customerIdsObj);
+            if (log.isDebugEnabled()) {
+                log.debug("customer_ids 类型: {}, 值: {}", 
+                         customerIdsObj != null ? customerIdsObj.getClass().getName() : "null", 
+                         customerIdsObj);
+            }
             
             List<String> customerIds;
             if (customerIdsObj instanceof List) {
@@ -219,9 +235,11 @@ public class CustomerController {
             }
             
             Object customerIdsObj = requestBody.get("customer_ids");
-            log.info("customer_ids 类型: {}, 值: {}", 
-                     customerIdsObj != null ? customerIdsObj.getClass().getName() : "null", 
-                     customerIdsObj);
+            if (log.isDebugEnabled()) {
+                log.debug("customer_ids 类型: {}, 值: {}", 
+                         customerIdsObj != null ? customerIdsObj.getClass().getName() : "null", 
+                         customerIdsObj);
+            }
             
             List<String> customerIds;
             if (customerIdsObj instanceof List) {
@@ -268,12 +286,18 @@ public class CustomerController {
     public ResponseEntity<Map<String, Object>> listCustomersInGroup(
         @PathVariable Long id,
         @RequestParam(defaultValue = "0") int page,
-        @RequestParam(defaultValue = "10") int size
+        @RequestParam(defaultValue = "10") int size,
+        @RequestParam(required = false) String cursor
     ) {
         log.info("收到获取客户群组中的客户列表请求, 群组ID: {}, page: {}, size: {}", id, page, size);
         try {
-            Map<String, Object> response = customerService.listCustomersInGroup(id, page, size);
+            // 传入 cursor 参数（可为空）时使用游标分页
+            Map<String, Object> response = cursor != null
+                ? customerService.listCustomersInGroupByCursor(id, cursor, size)
+                : customerService.listCustomersInGroup(id, page, size);
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
         } catch (Exception e) {
@@ -282,6 +306,38 @@ public class CustomerController {
         }
     }
 
+    // 按上传的名单（CSV 或 NDJSON）替换群组成员
+    @PutMapping(value = "/groups/{id}/customers/import",
+        consumes = {CustomerGroupImportService.CSV, CustomerGroupImportService.NDJSON})
+    public ResponseEntity<Map<String, Object>> importCustomersToGroup(
+        @PathVariable Long id,
+        @RequestHeader("Content-Type") String contentType,
+        @RequestParam(value = "allow_empty", defaultValue = "false") boolean allowEmpty,
+        InputStream body
+    ) {
+        log.info("收到导入客户群组成员请求, 群组ID: {}, 格式: {}", id, contentType);
+        try {
+            return ResponseEntity.ok(customerGroupImportService.importMembers(id, contentType, body, allowEmpty));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            log.error("导入客户群组成员失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    // 查询正在进行的导入的进度，没有导入时 import 为 null
+    @GetMapping("/groups/{id}/customers/import")
+    public ResponseEntity<Map<String, Object>> getCustomerGroupImport(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("import", customerGroupImportService.getProgress(id));
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/customers")
     public ResponseEntity<Map<String, Object>> registerCustomer(@Valid @RequestBody CustomerRegisterRequest request) {
         Customer customer = customerService.registerCustomer(request);
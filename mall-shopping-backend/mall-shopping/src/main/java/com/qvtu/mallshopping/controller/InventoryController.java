@@ -47,10 +47,17 @@ public class InventoryController {
     @GetMapping
     public ResponseEntity<Map<String, Object>> listInventories(
             @RequestParam(required = false) Integer offset,
-            @RequestParam(required = false) Integer limit) {
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
         try {
-            Map<String, Object> result = inventoryService.listInventories(offset, limit);
+            // 传入 cursor 参数（可为空）时使用游标分页
+            Map<String, Object> result = cursor != null
+                ? inventoryService.listInventoriesByCursor(cursor, limit)
+                : inventoryService.listInventories(offset, limit);
             return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Collections.singletonMap("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Collections.singletonMap("message", e.getMessage()));
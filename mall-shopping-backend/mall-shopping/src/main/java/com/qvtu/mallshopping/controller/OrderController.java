@@ -5,33 +5,56 @@ import com.qvtu.mallshopping.dto.UpdateOrderRequest;
 import com.qvtu.mallshopping.dto.ArchiveOrderRequest;
 import com.qvtu.mallshopping.dto.CompleteOrderRequest;
 import com.qvtu.mallshopping.dto.FulfillOrderRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qvtu.mallshopping.service.OrderBatchService;
 import com.qvtu.mallshopping.service.OrderService;
+import com.qvtu.mallshopping.service.OrderStateMachine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
     private static final Logger log = LoggerFactory.getLogger(OrderController.class);
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
     private final OrderService orderService;
+    private final OrderBatchService orderBatchService;
+    private final ObjectMapper objectMapper;
     
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderBatchService orderBatchService, ObjectMapper objectMapper) {
         this.orderService = orderService;
+        this.orderBatchService = orderBatchService;
+        this.objectMapper = objectMapper;
     }
     
     @GetMapping
     public ResponseEntity<Map<String, Object>> listOrders(
         @RequestParam(defaultValue = "0") int offset,
-        @RequestParam(defaultValue = "10") int limit
+        @RequestParam(defaultValue = "10") int limit,
+        @RequestParam(required = false) String cursor
     ) {
         try {
             log.debug("Received list orders request with offset: {} and limit: {}", offset, limit);
-            Map<String, Object> response = orderService.listOrders(offset, limit);
+            // 传入 cursor 参数（可为空）时使用游标分页
+            Map<String, Object> response = cursor != null
+                ? orderService.listOrdersByCursor(cursor, limit)
+                : orderService.listOrders(offset, limit);
             return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             log.error("Error listing orders: ", e);
             return ResponseEntity.internalServerError()
@@ -89,12 +112,14 @@ public class OrderController {
     ) {
         try {
             log.info("Received update order request for ID: {}", id);
-            log.info("Request body: {}", request);
+            log.debug("Request body: {}", request);
             
             Map<String, Object> result = orderService.updateOrder(id, request);
             
-            log.info("Order updated successfully");
+            log.info("Order {} updated successfully", id);
             return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             log.error("Failed to update order: {}", e.getMessage());
             return ResponseEntity.internalServerError()
@@ -130,11 +155,21 @@ public class OrderController {
     }
 
     @GetMapping("/{id}/changes")
-    public ResponseEntity<?> getOrderChanges(@PathVariable Long id) {
+    public ResponseEntity<?> getOrderChanges(
+        @PathVariable Long id,
+        @RequestParam(defaultValue = "0") int offset,
+        @RequestParam(required = false) Integer limit
+    ) {
         try {
+            // 传入 limit 时分页返回变更历史
+            if (limit != null) {
+                return ResponseEntity.ok(orderService.getOrderChanges(id, offset, limit));
+            }
             return ResponseEntity.ok(Map.of(
                 "order_changes", orderService.getOrderChanges(id)
             ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                 .body(Map.of("message", e.getMessage()));
@@ -174,4 +209,67 @@ public class OrderController {
             log.debug("=== Ending fulfillOrder ===");
         }
     }
-} 
\ No newline at end of file
+
+    // 批量接口使用固定路径，避免被 /{id}/archive 等单个订单的路径匹配
+    @PostMapping("/batch/archive")
+    public ResponseEntity<?> batchArchive(@RequestBody Map<String, Object> request) {
+        return batchTransition(OrderStateMachine.Transition.ARCHIVE, request);
+    }
+
+    @PostMapping("/batch/cancel")
+    public ResponseEntity<?> batchCancel(@RequestBody Map<String, Object> request) {
+        return batchTransition(OrderStateMachine.Transition.CANCEL, request);
+    }
+
+    @PostMapping("/batch/complete")
+    public ResponseEntity<?> batchComplete(@RequestBody Map<String, Object> request) {
+        return batchTransition(OrderStateMachine.Transition.COMPLETE, request);
+    }
+
+    /**
+     * 请求体为 {"order_ids": [...]}。每个订单的结果作为一行 JSON 流式返回，
+     * 不满足状态条件的订单不影响其他订单。
+     */
+    private ResponseEntity<?> batchTransition(OrderStateMachine.Transition transition, Map<String, Object> request) {
+        List<Long> orderIds;
+        try {
+            orderIds = toIds(request.get("order_ids"));
+            if (orderIds.isEmpty()) {
+                throw new IllegalArgumentException("order_ids is required");
+            }
+            if (orderIds.size() > OrderBatchService.MAX_ORDERS) {
+                throw new IllegalArgumentException("At most " + OrderBatchService.MAX_ORDERS + " orders can be processed per request");
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+
+        StreamingResponseBody body = out -> orderBatchService.transition(transition, orderIds, result -> writeLine(out, result));
+        return ResponseEntity.ok().contentType(NDJSON).body(body);
+    }
+
+    private void writeLine(OutputStream out, Map<String, Object> result) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(result));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Long> toIds(Object value) {
+        if (!(value instanceof List<?> values)) {
+            throw new IllegalArgumentException("order_ids must be an array");
+        }
+        List<Long> ids = new ArrayList<>(values.size());
+        for (Object id : values) {
+            try {
+                ids.add(Long.valueOf(String.valueOf(id)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid order id: " + id);
+            }
+        }
+        return ids;
+    }
+}
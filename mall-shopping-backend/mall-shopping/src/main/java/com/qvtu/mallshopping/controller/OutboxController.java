@@ -0,0 +1,37 @@
+package com.qvtu.mallshopping.controller;
+
+import com.qvtu.mallshopping.service.OutboxDispatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/outbox")
+public class OutboxController {
+    private static final Logger log = LoggerFactory.getLogger(OutboxController.class);
+
+    private final OutboxDispatcher outboxDispatcher;
+
+    public OutboxController(OutboxDispatcher outboxDispatcher) {
+        this.outboxDispatcher = outboxDispatcher;
+    }
+
+    // 发件箱投递统计：累计发布、投递、失败数量，待投递数量和投递吞吐量
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        try {
+            Map<String, Object> response = new HashMap<>();
+            response.put("stats", outboxDispatcher.getStats());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("获取发件箱统计失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+}
@@ -17,10 +17,18 @@ public class PaymentController {
     @GetMapping
     public ResponseEntity<?> listPayments(
         @RequestParam(required = false) Integer offset,
-        @RequestParam(required = false) Integer limit
+        @RequestParam(required = false) Integer limit,
+        @RequestParam(required = false) String cursor
     ) {
         try {
+            // 传入 cursor 参数（可为空）时使用游标分页
+            if (cursor != null) {
+                return ResponseEntity.ok(paymentService.listPaymentsByCursor(cursor, limit));
+            }
             return ResponseEntity.ok(paymentService.listPayments(offset, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.internalServerError()
                 .body(Map.of("message", e.getMessage()));
@@ -6,6 +6,7 @@ import com.qvtu.mallshopping.model.Product;
 import com.qvtu.mallshopping.model.ProductOption;
 import com.qvtu.mallshopping.enums.ProductStatus;
 import com.qvtu.mallshopping.model.ProductVariant;
+import com.qvtu.mallshopping.service.ProductSearchService;
 import com.qvtu.mallshopping.service.ProductService;
 import lombok.Data;
 import org.springframework.http.HttpStatus;
@@ -23,9 +24,11 @@ import java.util.stream.Collectors;
 public class ProductController {
 
     private final ProductService productService;
+    private final ProductSearchService productSearchService;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ProductSearchService productSearchService) {
         this.productService = productService;
+        this.productSearchService = productSearchService;
     }
 
     @PostMapping
@@ -99,11 +102,21 @@ public class ProductController {
     @GetMapping
     public ResponseEntity<Map<String, Object>> listProducts(
             @RequestParam(required = false) String title,
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) ProductStatus status,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
-        List<Product> products = productService.listProducts(title, status, page, size);
-        long total = productService.countProducts(title, status);
+        List<Product> products;
+        long total;
+        if (q != null && !q.isBlank()) {
+            // q 走全文检索，结果和总数一次查询得到；title 仍只按标题筛选
+            ProductService.ProductSearchResult result = productService.searchProducts(q, status, page, size);
+            products = result.products();
+            total = result.count();
+        } else {
+            products = productService.listProducts(title, status, page, size);
+            total = productService.countProducts(title, status);
+        }
         
         Map<String, Object> response = new HashMap<>();
         response.put("products", products);
@@ -114,6 +127,40 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    // 全文检索：标题、副标题、描述和变体 SKU，按相关度排序，查询词按前缀匹配
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) ProductStatus status,
+            @RequestParam(name = "collection_id", required = false) Long collectionId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "10") int limit) {
+        ProductSearchService.SearchResult result = productSearchService.search(
+                query, status, collectionId, Math.max(0, offset), Math.min(Math.max(1, limit), 100));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("products", result.hits().stream().map(ProductController::formatSearchHit).collect(Collectors.toList()));
+        response.put("count", result.count());
+        if (!result.facets().isEmpty()) {
+            response.put("facets", result.facets());
+        }
+        response.put("offset", offset);
+        response.put("limit", limit);
+        return ResponseEntity.ok(response);
+    }
+
+    static Map<String, Object> formatSearchHit(ProductSearchService.SearchHit hit) {
+        Map<String, Object> formatted = new HashMap<>();
+        formatted.put("id", hit.id());
+        formatted.put("title", hit.title());
+        formatted.put("subtitle", hit.subtitle());
+        formatted.put("handle", hit.handle());
+        formatted.put("thumbnail", hit.thumbnail());
+        formatted.put("status", hit.status());
+        formatted.put("score", hit.score());
+        return formatted;
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateProduct(
             @PathVariable Long id,
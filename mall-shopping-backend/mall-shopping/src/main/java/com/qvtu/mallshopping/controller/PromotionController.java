@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.HashMap;
 
 import com.qvtu.mallshopping.dto.PromotionCreateRequest;
+import com.qvtu.mallshopping.dto.PromotionEvaluationRequest;
 import com.qvtu.mallshopping.dto.RuleAttributeDTO;
 import com.qvtu.mallshopping.dto.RuleValueDTO;
 import com.qvtu.mallshopping.dto.RuleDTO;
@@ -64,6 +65,22 @@ public class PromotionController {
         }
     }
 
+    @PostMapping("/evaluate")
+    public ResponseEntity<Map<String, Object>> evaluatePromotions(@RequestBody PromotionEvaluationRequest request) {
+        log.info("收到评估自动促销请求");
+        try {
+            Map<String, Object> response = promotionService.evaluatePromotions(request);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } catch (Exception e) {
+            log.error("评估自动促销失败", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
     @GetMapping("/rule-attributes")
     public ResponseEntity<Map<String, Object>> listRuleAttributes(
         @RequestParam(required = false) String rule_type
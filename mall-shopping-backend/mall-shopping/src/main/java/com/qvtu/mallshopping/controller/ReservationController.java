@@ -3,6 +3,7 @@ package com.qvtu.mallshopping.controller;
 import com.qvtu.mallshopping.dto.ReservationCreateRequest;
 import com.qvtu.mallshopping.dto.ReservationUpdateRequest;
 import com.qvtu.mallshopping.service.ReservationService;
+import com.qvtu.mallshopping.exception.InsufficientInventoryException;
 import com.qvtu.mallshopping.exception.ResourceNotFoundException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -27,6 +28,12 @@ public class ReservationController {
         } catch (ResourceNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                 .body(Collections.singletonMap("message", e.getMessage()));
+        } catch (InsufficientInventoryException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Collections.singletonMap("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Collections.singletonMap("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Collections.singletonMap("message", e.getMessage()));
@@ -36,11 +43,18 @@ public class ReservationController {
     @GetMapping
     public ResponseEntity<Map<String, Object>> listReservations(
         @RequestParam(required = false) Integer offset,
-        @RequestParam(required = false) Integer limit
+        @RequestParam(required = false) Integer limit,
+        @RequestParam(required = false) String cursor
     ) {
         try {
-            Map<String, Object> result = reservationService.listReservations(offset, limit);
+            // 传入 cursor 参数（可为空）时使用游标分页
+            Map<String, Object> result = cursor != null
+                ? reservationService.listReservationsByCursor(cursor, limit)
+                : reservationService.listReservations(offset, limit);
             return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                .body(Collections.singletonMap("message", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Collections.singletonMap("message", e.getMessage()));
@@ -0,0 +1,198 @@
+package com.qvtu.mallshopping.controller;
+
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.model.Cart;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.security.JwtTokenProvider;
+import com.qvtu.mallshopping.service.CartService;
+import com.qvtu.mallshopping.service.OrderService;
+import com.qvtu.mallshopping.service.OrderTotals;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 商城前台购物车接口，路径和返回结构与 Medusa store API 保持一致。
+ * 相关文档: https://docs.medusajs.com/api/store#carts
+ */
+@RestController
+@RequestMapping("/store/carts")
+public class StoreCartController {
+
+    private final CartService cartService;
+    private final OrderService orderService;
+    private final JwtTokenProvider jwtTokenProvider;
+
+    public StoreCartController(CartService cartService, OrderService orderService, JwtTokenProvider jwtTokenProvider) {
+        this.cartService = cartService;
+        this.orderService = orderService;
+        this.jwtTokenProvider = jwtTokenProvider;
+    }
+
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> createCart(@RequestBody(required = false) Map<String, Object> request) {
+        Map<String, Object> body = request != null ? request : Map.of();
+        return handle(() -> cartResponse(cartService.createCart(
+            (String) body.get("region_id"), (String) body.get("email"), metadataOf(body))));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> getCart(@PathVariable String id) {
+        return handle(() -> cartResponse(cartService.getCart(id)));
+    }
+
+    @PostMapping("/{id}")
+    public ResponseEntity<Map<String, Object>> updateCart(@PathVariable String id, @RequestBody Map<String, Object> request) {
+        return handle(() -> cartResponse(cartService.updateCart(
+            id, (String) request.get("region_id"), (String) request.get("email"), metadataOf(request))));
+    }
+
+    @PostMapping("/{id}/line-items")
+    public ResponseEntity<Map<String, Object>> addLineItem(@PathVariable String id, @RequestBody Map<String, Object> request) {
+        return handle(() -> cartResponse(cartService.addLineItem(
+            id, toLong(request.get("variant_id"), "variant_id"), toInt(request.get("quantity"), "quantity"))));
+    }
+
+    @PostMapping("/{id}/line-items/{lineId}")
+    public ResponseEntity<Map<String, Object>> updateLineItem(
+            @PathVariable String id,
+            @PathVariable String lineId,
+            @RequestBody Map<String, Object> request) {
+        return handle(() -> cartResponse(cartService.updateLineItem(id, lineId, toInt(request.get("quantity"), "quantity"))));
+    }
+
+    @DeleteMapping("/{id}/line-items/{lineId}")
+    public ResponseEntity<Map<String, Object>> deleteLineItem(@PathVariable String id, @PathVariable String lineId) {
+        return handle(() -> {
+            Map<String, Object> response = new HashMap<>();
+            response.put("id", lineId);
+            response.put("object", "line-item");
+            response.put("deleted", true);
+            response.put("parent", formatCart(cartService.deleteLineItem(id, lineId)));
+            return response;
+        });
+    }
+
+    // 登录客户接管购物车
+    @PostMapping("/{id}/customer")
+    public ResponseEntity<Map<String, Object>> transferCart(
+            @PathVariable String id,
+            @RequestHeader(value = "Authorization", required = false) String bearerToken) {
+        Long customerId = bearerToken != null && bearerToken.startsWith("Bearer ")
+            ? jwtTokenProvider.parseUserId(bearerToken.substring(7))
+            : null;
+        if (customerId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return handle(() -> cartResponse(cartService.transferCart(id, customerId, null)));
+    }
+
+    @PostMapping("/{id}/complete")
+    public ResponseEntity<Map<String, Object>> completeCart(@PathVariable String id) {
+        return handle(() -> {
+            Order order = cartService.completeCart(id);
+            Map<String, Object> response = new HashMap<>();
+            response.put("type", "order");
+            response.put("order", orderService.getOrder(order.getId()));
+            return response;
+        });
+    }
+
+    private ResponseEntity<Map<String, Object>> handle(Supplier<Map<String, Object>> action) {
+        try {
+            return ResponseEntity.ok(action.get());
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error(e.getMessage(), "not_found"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e.getMessage(), "invalid_data"));
+        }
+    }
+
+    private Map<String, Object> cartResponse(Cart cart) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("cart", formatCart(cart));
+        return response;
+    }
+
+    private Map<String, Object> formatCart(Cart cart) {
+        Map<String, Object> formatted = new HashMap<>();
+        formatted.put("id", cart.getId());
+        formatted.put("region_id", cart.getRegionId());
+        formatted.put("customer_id", cart.getCustomerId() != null ? cart.getCustomerId().toString() : null);
+        formatted.put("email", cart.getEmail());
+        formatted.put("currency_code", cart.getCurrencyCode());
+        formatted.put("metadata", cart.getMetadata());
+        formatted.put("created_at", cart.getCreatedAt());
+        formatted.put("updated_at", cart.getUpdatedAt());
+
+        OrderTotals totals = cart.totals();
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (Cart.LineItem item : cart.getItems()) {
+            long lineTotal = totals.getLineTotal(item.getId());
+            long lineDiscount = totals.getLineDiscount(item.getId());
+
+            Map<String, Object> line = new HashMap<>();
+            line.put("id", item.getId());
+            line.put("cart_id", cart.getId());
+            line.put("title", item.getTitle());
+            line.put("product_title", item.getProductTitle());
+            line.put("product_id", item.getProductId());
+            line.put("variant_id", item.getVariantId());
+            line.put("variant_sku", item.getSku());
+            line.put("thumbnail", item.getThumbnail());
+            line.put("quantity", item.getQuantity());
+            line.put("unit_price", amount(item.getUnitPrice()));
+            line.put("subtotal", amount(lineTotal));
+            line.put("discount_total", amount(lineDiscount));
+            line.put("total", amount(lineTotal - lineDiscount));
+            line.put("created_at", item.getCreatedAt());
+            items.add(line);
+        }
+        formatted.put("items", items);
+        formatted.put("item_total", amount(totals.getItemTotal()));
+        formatted.put("subtotal", amount(totals.getItemTotal()));
+        formatted.put("tax_total", amount(totals.getTaxTotal()));
+        formatted.put("shipping_total", amount(totals.getShippingTotal()));
+        formatted.put("discount_total", amount(totals.getDiscountTotal()));
+        formatted.put("total", amount(totals.getTotal()));
+        return formatted;
+    }
+
+    private static BigDecimal amount(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> metadataOf(Map<String, Object> request) {
+        return (Map<String, Object>) request.get("metadata");
+    }
+
+    private static Long toLong(Object value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return Long.valueOf(value.toString());
+    }
+
+    private static int toInt(Object value, String field) {
+        if (value == null) {
+            throw new IllegalArgumentException(field + " is required");
+        }
+        return Integer.parseInt(value.toString());
+    }
+
+    private static Map<String, Object> error(String message, String type) {
+        Map<String, Object> errorResponse = new HashMap<>();
+        errorResponse.put("message", message);
+        errorResponse.put("type", type);
+        errorResponse.put("code", "UNKNOWN");
+        return errorResponse;
+    }
+}
@@ -3,7 +3,8 @@ package com.qvtu.mallshopping.controller;
 import com.qvtu.mallshopping.model.Customer;
 import com.qvtu.mallshopping.model.Address;
 import com.qvtu.mallshopping.service.CustomerService;
-import com.qvtu.mallshopping.security.JwtTokenProvider;
+import com.qvtu.mallshopping.service.CustomerProfileCache;
+import com.qvtu.mallshopping.security.StoreCustomerAuthenticationFilter;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.http.HttpStatus;
@@ -16,11 +17,11 @@ import java.util.Map;
 public class StoreCustomerController {
     
     private final CustomerService customerService;
-    private final JwtTokenProvider jwtTokenProvider;
+    private final CustomerProfileCache customerProfileCache;
     
-    public StoreCustomerController(CustomerService customerService, JwtTokenProvider jwtTokenProvider) {
+    public StoreCustomerController(CustomerService customerService, CustomerProfileCache customerProfileCache) {
         this.customerService = customerService;
-        this.jwtTokenProvider = jwtTokenProvider;
+        this.customerProfileCache = customerProfileCache;
     }
 
     @PostMapping
@@ -126,32 +127,16 @@ public class StoreCustomerController {
      */
     @GetMapping("/me")
     public ResponseEntity<Map<String, Object>> getCurrentCustomer(
-            @RequestHeader("Authorization") String bearerToken,
+            @RequestAttribute(StoreCustomerAuthenticationFilter.CUSTOMER_ID) Long customerId,
             @RequestHeader("x-publishable-api-key") String publishableApiKey) {
         
         try {
             // 验证publishable API key
             // TODO: 添加publishableApiKey的验证逻辑
             
-            // 从Authorization头中提取令牌
-            if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            String token = bearerToken.substring(7);
-            
-            // 验证JWT令牌
-            if (!jwtTokenProvider.validateToken(token)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            
-            // 从令牌中获取用户ID
-            Long customerId = jwtTokenProvider.getUserIdFromJWT(token);
-            
-            // 获取客户信息
-            Customer customer = customerService.getCustomerById(customerId);
-            
-            // 格式化响应
-            Map<String, Object> customerData = formatCustomerResponse(customer);
+            // 获取客户信息，资料在修改前短期缓存
+            Map<String, Object> customerData = customerProfileCache.get(customerId,
+                    id -> formatCustomerResponse(customerService.getCustomerById(id)));
             Map<String, Object> response = new HashMap<>();
             response.put("customer", customerData);
             
@@ -170,7 +155,7 @@ public class StoreCustomerController {
      */
     @PostMapping("/me")
     public ResponseEntity<Map<String, Object>> updateCurrentCustomer(
-            @RequestHeader("Authorization") String bearerToken,
+            @RequestAttribute(StoreCustomerAuthenticationFilter.CUSTOMER_ID) Long customerId,
             @RequestHeader("x-publishable-api-key") String publishableApiKey,
             @RequestBody Map<String, Object> request) {
         
@@ -178,20 +163,6 @@ public class StoreCustomerController {
             // 验证publishable API key
             // TODO: 添加publishableApiKey的验证逻辑
             
-            // 从Authorization头中提取令牌
-            if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            String token = bearerToken.substring(7);
-            
-            // 验证JWT令牌
-            if (!jwtTokenProvider.validateToken(token)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            
-            // 从令牌中获取用户ID
-            Long customerId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 从请求体中获取更新信息
             String companyName = (String) request.get("company_name");
             String firstName = (String) request.get("first_name");
@@ -224,7 +195,7 @@ public class StoreCustomerController {
      */
     @GetMapping("/me/addresses")
     public ResponseEntity<Map<String, Object>> getCustomerAddresses(
-            @RequestHeader("Authorization") String bearerToken,
+            @RequestAttribute(StoreCustomerAuthenticationFilter.CUSTOMER_ID) Long customerId,
             @RequestHeader("x-publishable-api-key") String publishableApiKey,
             @RequestParam(defaultValue = "10") int limit,
             @RequestParam(defaultValue = "0") int offset) {
@@ -233,20 +204,6 @@ public class StoreCustomerController {
             // 验证publishable API key
             // TODO: 添加publishableApiKey的验证逻辑
             
-            // 从Authorization头中提取令牌
-            if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            String token = bearerToken.substring(7);
-            
-            // 验证JWT令牌
-            if (!jwtTokenProvider.validateToken(token)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            
-            // 从令牌中获取用户ID
-            Long customerId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 获取客户地址列表
             Map<String, Object> result = customerService.getCustomerAddresses(customerId, limit, offset);
             
@@ -265,7 +222,7 @@ public class StoreCustomerController {
      */
     @PostMapping("/me/addresses")
     public ResponseEntity<Map<String, Object>> addCustomerAddress(
-            @RequestHeader("Authorization") String bearerToken,
+            @RequestAttribute(StoreCustomerAuthenticationFilter.CUSTOMER_ID) Long customerId,
             @RequestHeader("x-publishable-api-key") String publishableApiKey,
             @RequestBody Map<String, Object> request) {
         
@@ -273,20 +230,6 @@ public class StoreCustomerController {
             // 验证publishable API key
             // TODO: 添加publishableApiKey的验证逻辑
             
-            // 从Authorization头中提取令牌
-            if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            String token = bearerToken.substring(7);
-            
-            // 验证JWT令牌
-            if (!jwtTokenProvider.validateToken(token)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            
-            // 从令牌中获取用户ID
-            Long customerId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 从请求体中获取地址信息
             String firstName = (String) request.get("first_name");
             String lastName = (String) request.get("last_name");
@@ -329,27 +272,13 @@ public class StoreCustomerController {
     @GetMapping("/me/addresses/{address_id}")
     public ResponseEntity<Map<String, Object>> getCustomerAddress(
             @PathVariable("address_id") Long addressId,
-            @RequestHeader("Authorization") String bearerToken,
+            @RequestAttribute(StoreCustomerAuthenticationFilter.CUSTOMER_ID) Long customerId,
             @RequestHeader("x-publishable-api-key") String publishableApiKey) {
         
         try {
             // 验证publishable API key
             // TODO: 添加publishableApiKey的验证逻辑
             
-            // 从Authorization头中提取令牌
-            if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            String token = bearerToken.substring(7);
-            
-            // 验证JWT令牌
-            if (!jwtTokenProvider.validateToken(token)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            
-            // 从令牌中获取用户ID
-            Long customerId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 获取客户特定地址
             Address address = customerService.getCustomerAddress(customerId, addressId);
             
@@ -374,7 +303,7 @@ public class StoreCustomerController {
     @PostMapping("/me/addresses/{address_id}")
     public ResponseEntity<Map<String, Object>> updateCustomerAddress(
             @PathVariable("address_id") Long addressId,
-            @RequestHeader("Authorization") String bearerToken,
+            @RequestAttribute(StoreCustomerAuthenticationFilter.CUSTOMER_ID) Long customerId,
             @RequestHeader("x-publishable-api-key") String publishableApiKey,
             @RequestBody Map<String, Object> request) {
         
@@ -382,20 +311,6 @@ public class StoreCustomerController {
             // 验证publishable API key
             // TODO: 添加publishableApiKey的验证逻辑
             
-            // 从Authorization头中提取令牌
-            if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            String token = bearerToken.substring(7);
-            
-            // 验证JWT令牌
-            if (!jwtTokenProvider.validateToken(token)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            
-            // 从令牌中获取用户ID
-            Long customerId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 从请求体中获取要更新的地址字段
             String firstName = request.containsKey("first_name") ? (String) request.get("first_name") : null;
             String lastName = request.containsKey("last_name") ? (String) request.get("last_name") : null;
@@ -444,27 +359,13 @@ public class StoreCustomerController {
     @DeleteMapping("/me/addresses/{address_id}")
     public ResponseEntity<Map<String, Object>> deleteCustomerAddress(
             @PathVariable("address_id") Long addressId,
-            @RequestHeader("Authorization") String bearerToken,
+            @RequestAttribute(StoreCustomerAuthenticationFilter.CUSTOMER_ID) Long customerId,
             @RequestHeader("x-publishable-api-key") String publishableApiKey) {
         
         try {
             // 验证publishable API key
             // TODO: 添加publishableApiKey的验证逻辑
             
-            // 从Authorization头中提取令牌
-            if (bearerToken == null || !bearerToken.startsWith("Bearer ")) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            String token = bearerToken.substring(7);
-            
-            // 验证JWT令牌
-            if (!jwtTokenProvider.validateToken(token)) {
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
-            }
-            
-            // 从令牌中获取用户ID
-            Long customerId = jwtTokenProvider.getUserIdFromJWT(token);
-            
             // 删除地址
             Long deletedAddressId = customerService.deleteCustomerAddress(customerId, addressId);
             
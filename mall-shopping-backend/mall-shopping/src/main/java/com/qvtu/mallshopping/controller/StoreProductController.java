@@ -0,0 +1,81 @@
+package com.qvtu.mallshopping.controller;
+
+import com.qvtu.mallshopping.enums.ProductStatus;
+import com.qvtu.mallshopping.service.ProductCardService;
+import com.qvtu.mallshopping.service.ProductSearchService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/store/products")
+public class StoreProductController {
+
+    private final ProductSearchService productSearchService;
+    private final ProductCardService productCardService;
+
+    public StoreProductController(ProductSearchService productSearchService, ProductCardService productCardService) {
+        this.productSearchService = productSearchService;
+        this.productCardService = productCardService;
+    }
+
+    // 商城前台商品列表：卡片在数据库中已是 JSON，直接拼接输出，不再反序列化
+    @GetMapping
+    public ResponseEntity<String> listProducts(
+            @RequestParam(name = "collection_id", required = false) Long collectionId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "12") int limit) {
+        offset = Math.max(0, offset);
+        limit = Math.min(Math.max(1, limit), 100);
+        ProductCardService.CardPage page = productCardService.listPublishedCards(collectionId, offset, limit);
+
+        String body = "{\"products\":[" + String.join(",", page.products()) + "],\"count\":" + page.count()
+                + ",\"offset\":" + offset + ",\"limit\":" + limit + "}";
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/{handle}")
+    public ResponseEntity<?> getProduct(@PathVariable String handle) {
+        return productCardService.getPublishedCard(handle)
+                .<ResponseEntity<?>>map(card -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body("{\"product\":" + card + "}"))
+                .orElseGet(() -> {
+                    Map<String, Object> errorResponse = new HashMap<>();
+                    errorResponse.put("message", "Product with handle: " + handle + " was not found");
+                    errorResponse.put("type", "not_found");
+                    errorResponse.put("code", "UNKNOWN");
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorResponse);
+                });
+    }
+
+    // 商城前台搜索，只返回已发布的商品
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchProducts(
+            @RequestParam("q") String query,
+            @RequestParam(name = "collection_id", required = false) Long collectionId,
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(defaultValue = "12") int limit) {
+        ProductSearchService.SearchResult result = productSearchService.search(
+                query, ProductStatus.PUBLISHED, collectionId, Math.max(0, offset), Math.min(Math.max(1, limit), 100));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("products", result.hits().stream().map(ProductController::formatSearchHit).collect(Collectors.toList()));
+        response.put("count", result.count());
+        if (!result.facets().isEmpty()) {
+            response.put("facets", result.facets());
+        }
+        response.put("offset", offset);
+        response.put("limit", limit);
+        return ResponseEntity.ok(response);
+    }
+}
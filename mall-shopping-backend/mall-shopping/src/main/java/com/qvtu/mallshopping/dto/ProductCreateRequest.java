@@ -19,6 +19,7 @@ public class ProductCreateRequest {
 
     private List<ProductOptionDTO> options;
     private List<ProductVariantDTO> variants;
+    private List<Long> categoryIds;
     private Map<String, Object> metadata;
 
     // 商品尺寸和重量
@@ -0,0 +1,29 @@
+package com.qvtu.mallshopping.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class PromotionEvaluationRequest {
+    private List<Item> items;
+
+    @JsonProperty("customer_group_ids")
+    private List<String> customerGroupIds;
+
+    @Data
+    public static class Item {
+        @JsonProperty("product_id")
+        private String productId;
+
+        @JsonProperty("category_ids")
+        private List<String> categoryIds;
+
+        private Integer quantity;
+
+        @JsonProperty("unit_price")
+        private BigDecimal unitPrice;
+    }
+}
@@ -0,0 +1,27 @@
+package com.qvtu.mallshopping.exception;
+
+public class InsufficientInventoryException extends RuntimeException {
+    private final Long inventoryItemId;
+    private final Long locationId;
+    private final int requestedQuantity;
+
+    public InsufficientInventoryException(Long inventoryItemId, Long locationId, int requestedQuantity) {
+        super(String.format("Insufficient inventory for item %s at location %s: requested %d",
+            inventoryItemId, locationId, requestedQuantity));
+        this.inventoryItemId = inventoryItemId;
+        this.locationId = locationId;
+        this.requestedQuantity = requestedQuantity;
+    }
+
+    public Long getInventoryItemId() {
+        return inventoryItemId;
+    }
+
+    public Long getLocationId() {
+        return locationId;
+    }
+
+    public int getRequestedQuantity() {
+        return requestedQuantity;
+    }
+}
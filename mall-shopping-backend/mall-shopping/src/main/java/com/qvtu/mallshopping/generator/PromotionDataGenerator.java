@@ -1,9 +1,9 @@
 package com.qvtu.mallshopping.generator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.javafaker.Faker;
 import com.qvtu.mallshopping.dto.PromotionCreateRequest.ApplicationMethod;
 import com.qvtu.mallshopping.model.Promotion;
+import com.qvtu.mallshopping.util.JsonCodec;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
@@ -12,12 +12,12 @@ import java.util.*;
 public class PromotionDataGenerator {
     private final Faker faker;
     private final Random random;
-    private final ObjectMapper objectMapper;
+    private final JsonCodec jsonCodec;
 
-    public PromotionDataGenerator() {
+    public PromotionDataGenerator(JsonCodec jsonCodec) {
         this.faker = new Faker(new Locale("zh-CN"));
         this.random = new Random();
-        this.objectMapper = new ObjectMapper();
+        this.jsonCodec = jsonCodec;
     }
 
     public Promotion generatePromotion() {
@@ -49,8 +49,8 @@ public class PromotionDataGenerator {
                 .isAutomatic(random.nextBoolean())
                 .campaignId(faker.idNumber().valid())
                 .status(status)
-                .rules(objectMapper.writeValueAsString(rules))
-                .applicationMethod(objectMapper.writeValueAsString(applicationMethod))
+                .rules(jsonCodec.write(rules))
+                .applicationMethod(jsonCodec.write(applicationMethod))
                 .build();
         } catch (Exception e) {
             log.error("生成随机促销活动失败", e);
@@ -1,13 +1,15 @@
 package com.qvtu.mallshopping.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
-import org.hibernate.annotations.JdbcTypeCode;
-import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 import java.util.Map;
 
@@ -16,7 +18,7 @@ import java.util.Map;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "addresses")
+@Table(name = "addresses", indexes = @Index(name = "idx_addresses_customer_id_id", columnList = "customer_id, id"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Address {
     @Id
@@ -25,6 +27,9 @@ public class Address {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "customer_id")
+    // Customer 的 equals/hashCode 包含地址列表，这里排除反向引用，避免互相递归
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Customer customer;
     
     @Column(name = "address_name")
@@ -47,7 +52,7 @@ public class Address {
     @Column(name = "is_default_billing")
     private boolean isDefaultBilling;
 
-    @JdbcTypeCode(SqlTypes.JSON)
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata;
 
@@ -0,0 +1,103 @@
+package com.qvtu.mallshopping.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.qvtu.mallshopping.service.OrderTotals;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 商城前台的购物车，只保存在 CartStore 的内存中，空闲时才序列化到 carts 表。
+ * 金额以分为单位的 long 保存，合计由 OrderTotals 按差额维护，下单时才转换为订单和订单项。
+ */
+@Data
+public class Cart {
+    private String id;
+    private String regionId;
+    private Long customerId;
+    private String email;
+    private String currencyCode;
+    private List<LineItem> items = new ArrayList<>();
+    private Map<String, Object> metadata;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+
+    // 不写入快照，从快照恢复后按商品行重建
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private OrderTotals totals;
+
+    @Data
+    public static class LineItem {
+        private String id;
+        private Long variantId;
+        private Long productId;
+        private String title;
+        private String productTitle;
+        private String thumbnail;
+        private String sku;
+        // 加购时商品所属的分类，从快照恢复后重建合计时仍能匹配按分类的促销
+        private List<String> categoryIds;
+        private long unitPrice;
+        private int quantity;
+        private LocalDateTime createdAt;
+    }
+
+    public OrderTotals totals() {
+        if (totals == null) {
+            totals = new OrderTotals();
+            for (LineItem item : items) {
+                totals.putLine(item.getId(), productIdOf(item), item.getCategoryIds(), item.getUnitPrice(), item.getQuantity());
+            }
+        }
+        return totals;
+    }
+
+    public static String productIdOf(LineItem item) {
+        return item.getProductId() != null ? item.getProductId().toString() : null;
+    }
+
+    // 返回给调用方的副本，调用方读取时不会和后续修改交错
+    public Cart copy() {
+        Cart copy = new Cart();
+        copy.setId(id);
+        copy.setRegionId(regionId);
+        copy.setCustomerId(customerId);
+        copy.setEmail(email);
+        copy.setCurrencyCode(currencyCode);
+        copy.setMetadata(metadata != null ? new HashMap<>(metadata) : null);
+        copy.setCreatedAt(createdAt);
+        copy.setUpdatedAt(updatedAt);
+        List<LineItem> itemCopies = new ArrayList<>(items.size());
+        for (LineItem item : items) {
+            LineItem itemCopy = new LineItem();
+            itemCopy.setId(item.getId());
+            itemCopy.setVariantId(item.getVariantId());
+            itemCopy.setProductId(item.getProductId());
+            itemCopy.setTitle(item.getTitle());
+            itemCopy.setProductTitle(item.getProductTitle());
+            itemCopy.setThumbnail(item.getThumbnail());
+            itemCopy.setSku(item.getSku());
+            itemCopy.setCategoryIds(item.getCategoryIds());
+            itemCopy.setUnitPrice(item.getUnitPrice());
+            itemCopy.setQuantity(item.getQuantity());
+            itemCopy.setCreatedAt(item.getCreatedAt());
+            itemCopies.add(itemCopy);
+        }
+        copy.setItems(itemCopies);
+        copy.totals = totals != null ? totals.copy() : null;
+        return copy;
+    }
+}
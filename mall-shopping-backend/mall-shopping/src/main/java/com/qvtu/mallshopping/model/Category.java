@@ -13,7 +13,7 @@ import java.util.Map;
 
 @Data
 @Entity
-@Table(name = "categories")
+@Table(name = "categories", indexes = @Index(name = "idx_categories_path", columnList = "path"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Category {
     @Id
@@ -37,12 +37,17 @@ public class Category {
     @Column(name = "rank")
     private Integer rank = 0;
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    // 物化路径，形如 /1/5/12/，祖先和后代都可以一次查询得到；
+    // 使用 C 排序规则，前缀 LIKE 查询才能走 B-tree 索引
+    @Column(name = "path", length = 1024, columnDefinition = "varchar(1024) collate \"C\"")
+    private String path;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_category_id")
     @ToString.Exclude
     private Category parentCategory;
 
-    @OneToMany(mappedBy = "parentCategory", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "parentCategory", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @ToString.Exclude
     private List<Category> children = new ArrayList<>();
 
@@ -1,12 +1,12 @@
 package com.qvtu.mallshopping.model;
 
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.hibernate.annotations.Type;
-import com.vladmihalcea.hibernate.type.json.JsonType;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.qvtu.mallshopping.dto.SimpleProductDTO;
@@ -47,7 +47,7 @@ public class Collection {
     @UpdateTimestamp
     private LocalDateTime updatedAt;
 
-    @Type(JsonType.class)
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "json")
     private Map<String, Object> metadata;
 
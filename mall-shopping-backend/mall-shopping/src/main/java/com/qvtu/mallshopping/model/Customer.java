@@ -1,15 +1,13 @@
 package com.qvtu.mallshopping.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.vladmihalcea.hibernate.type.json.JsonType;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.Builder;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
-import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.annotations.Type;
-import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -21,7 +19,7 @@ import java.util.Map;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "customers")
+@Table(name = "customers", indexes = @Index(name = "idx_customers_created_at_id", columnList = "created_at, id"))
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Customer {
     @Id
@@ -58,7 +56,7 @@ public class Customer {
     private Boolean hasAccount;
 
     @Column(columnDefinition = "jsonb")
-    @JdbcTypeCode(SqlTypes.JSON)
+    @Type(JsonMapType.class)
     private Map<String, Object> metadata;
 
     @Column(name = "created_at")
@@ -1,11 +1,11 @@
 package com.qvtu.mallshopping.model;
 
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import com.vladmihalcea.hibernate.type.json.JsonType;
 import org.hibernate.annotations.Type;
 
 import java.time.LocalDateTime;
@@ -30,7 +30,7 @@ public class CustomerGroup {
     @ManyToMany(mappedBy = "customerGroups")
     private List<Customer> customers = new ArrayList<>();
 
-    @Type(JsonType.class)
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata;
 
@@ -1,6 +1,6 @@
 package com.qvtu.mallshopping.model;
 
-import com.vladmihalcea.hibernate.type.json.JsonType;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.Type;
@@ -9,7 +9,7 @@ import java.util.Map;
 
 @Data
 @Entity
-@Table(name = "inventories")
+@Table(name = "inventories", indexes = @Index(name = "idx_inventories_created_at_id", columnList = "created_at, id"))
 public class Inventory {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,7 +31,7 @@ public class Inventory {
     @JoinColumn(name = "location_id")
     private Location location; // 库存位置
 
-    @Type(JsonType.class)
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata; // 元数据
 
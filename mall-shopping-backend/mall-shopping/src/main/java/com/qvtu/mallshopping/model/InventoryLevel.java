@@ -1,10 +1,10 @@
 package com.qvtu.mallshopping.model;
 
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.util.Map;
-import com.vladmihalcea.hibernate.type.json.JsonType;
 import org.hibernate.annotations.Type;
 
 @Data
@@ -27,7 +27,7 @@ public class InventoryLevel {
     private Integer reservedQuantity;
     private Integer incomingQuantity;
 
-    @Type(JsonType.class)
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata;
 
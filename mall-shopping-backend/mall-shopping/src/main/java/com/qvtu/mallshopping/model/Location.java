@@ -1,9 +1,9 @@
 package com.qvtu.mallshopping.model;
 
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
-import com.vladmihalcea.hibernate.type.json.JsonType;
 import org.hibernate.annotations.Type;
 import java.util.Map;
 import java.util.List;
@@ -30,7 +30,7 @@ public class Location {
     private String phone;
     private String province;
     
-    @Type(JsonType.class)
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata;
     
@@ -2,8 +2,9 @@ package com.qvtu.mallshopping.model;
 
 import com.qvtu.mallshopping.enums.PaymentStatus;
 import com.qvtu.mallshopping.enums.FulfillmentStatus;
-import com.qvtu.mallshopping.config.JpaJsonConverter;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.math.BigDecimal;
@@ -13,7 +14,7 @@ import com.qvtu.mallshopping.enums.OrderStatus;
 
 @Data
 @Entity
-@Table(name = "orders")
+@Table(name = "orders", indexes = @Index(name = "idx_orders_created_at_id", columnList = "created_at, id"))
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -69,7 +70,7 @@ public class Order {
     
     private BigDecimal total;
     
-    @Convert(converter = JpaJsonConverter.class)
+    @Type(JsonMapType.class)
     private Map<String, Object> metadata;
     
     @Column(name = "created_at")
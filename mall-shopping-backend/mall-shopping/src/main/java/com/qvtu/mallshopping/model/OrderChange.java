@@ -1,13 +1,15 @@
 package com.qvtu.mallshopping.model;
 
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
 import java.time.LocalDateTime;
 import java.util.Map;
 
 @Data
 @Entity
-@Table(name = "order_changes")
+@Table(name = "order_changes", indexes = @Index(name = "idx_order_changes_order_id_created_at", columnList = "order_id, created_at"))
 public class OrderChange {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -58,6 +60,11 @@ public class OrderChange {
     @Column(name = "canceled_at")
     private LocalDateTime canceledAt;
     
+    // 由订单事件投影生成时对应的事件 ID
+    @Column(name = "event_id", unique = true)
+    private Long eventId;
+    
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata;
     
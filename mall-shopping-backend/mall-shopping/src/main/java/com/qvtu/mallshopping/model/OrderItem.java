@@ -1,7 +1,8 @@
 package com.qvtu.mallshopping.model;
 
-import com.qvtu.mallshopping.config.JpaJsonConverter;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -61,7 +62,7 @@ public class OrderItem {
     @Column(name = "discount_total")
     private BigDecimal discountTotal;
     
-    @Convert(converter = JpaJsonConverter.class)
+    @Type(JsonMapType.class)
     private Map<String, Object> metadata;
     
     @Column(name = "created_at")
@@ -1,7 +1,8 @@
 package com.qvtu.mallshopping.model;
 
-import com.qvtu.mallshopping.config.JpaJsonConverter;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -10,7 +11,7 @@ import java.util.List;
 
 @Data
 @Entity
-@Table(name = "payments")
+@Table(name = "payments", indexes = @Index(name = "idx_payments_created_at_id", columnList = "created_at, id"))
 public class Payment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -27,7 +28,7 @@ public class Payment {
     @Column(name = "provider_id")
     private String providerId;
     
-    @Convert(converter = JpaJsonConverter.class)
+    @Type(JsonMapType.class)
     private Map<String, Object> data;
     
     @Column(name = "captured_at")
@@ -1,7 +1,8 @@
 package com.qvtu.mallshopping.model;
 
-import com.qvtu.mallshopping.config.JpaJsonConverter;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -38,8 +39,9 @@ public class PaymentCollection {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
     
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
-    private String metadata;
+    private Map<String, Object> metadata;
     
     @Enumerated(EnumType.STRING)
     @Column(name = "status")
@@ -1,7 +1,8 @@
 package com.qvtu.mallshopping.model;
 
-import com.qvtu.mallshopping.config.JpaJsonConverter;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -23,10 +24,10 @@ public class PaymentSession {
     @Column(name = "provider_id")
     private String providerId;
     
-    @Convert(converter = JpaJsonConverter.class)
+    @Type(JsonMapType.class)
     private Map<String, Object> data;
     
-    @Convert(converter = JpaJsonConverter.class)
+    @Type(JsonMapType.class)
     private Map<String, Object> context;
     
     private String status;
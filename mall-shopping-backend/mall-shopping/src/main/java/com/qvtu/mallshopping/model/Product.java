@@ -62,6 +62,14 @@ public class Product {
     @JsonIgnore
     private Collection collection;
 
+    // 商品所属的分类，按分类的促销规则用它匹配商品行
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(name = "product_categories",
+            joinColumns = @JoinColumn(name = "product_id"),
+            inverseJoinColumns = @JoinColumn(name = "category_id"))
+    @JsonIgnore
+    private List<Category> categories = new ArrayList<>();
+
     @Override
     public String toString() {
         return "Product{" +
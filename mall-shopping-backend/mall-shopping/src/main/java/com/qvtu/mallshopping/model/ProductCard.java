@@ -0,0 +1,43 @@
+package com.qvtu.mallshopping.model;
+
+import com.qvtu.mallshopping.config.JsonMapType;
+import com.qvtu.mallshopping.enums.ProductStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.Type;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 商城前台的商品卡片读模型：商品、选项、变体价格和商品系列预先组装成一份 JSON。
+ * 由 ProductCardService 在商品或商品系列变更的同一事务中刷新，前台读取时只查这一张表。
+ */
+@Data
+@Entity
+@Table(name = "product_cards", indexes = {
+    @Index(name = "idx_product_cards_handle", columnList = "handle"),
+    @Index(name = "idx_product_cards_status_product", columnList = "status, product_id"),
+    @Index(name = "idx_product_cards_collection_product", columnList = "collection_id, product_id")
+})
+public class ProductCard {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    private String handle;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ProductStatus status;
+
+    @Column(name = "collection_id")
+    private Long collectionId;
+
+    @Type(JsonMapType.class)
+    @Column(columnDefinition = "json", nullable = false)
+    private Map<String, Object> card;
+
+    @Column(name = "refreshed_at")
+    private LocalDateTime refreshedAt;
+}
@@ -1,15 +1,15 @@
 package com.qvtu.mallshopping.model;
 
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDateTime;
-import com.vladmihalcea.hibernate.type.json.JsonType;
 import org.hibernate.annotations.Type;
 import java.util.Map;
 
 @Data
 @Entity
-@Table(name = "reservations")
+@Table(name = "reservations", indexes = @Index(name = "idx_reservations_created_at_id", columnList = "created_at, id"))
 public class Reservation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,7 +33,7 @@ public class Reservation {
 
     private String description;
 
-    @Type(JsonType.class)
+    @Type(JsonMapType.class)
     @Column(columnDefinition = "jsonb")
     private Map<String, Object> metadata;
 
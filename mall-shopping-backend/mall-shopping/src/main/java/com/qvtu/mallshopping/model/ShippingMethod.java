@@ -1,7 +1,8 @@
 package com.qvtu.mallshopping.model;
 
-import com.qvtu.mallshopping.config.JpaJsonConverter;
+import com.qvtu.mallshopping.config.JsonMapType;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Type;
 import lombok.Data;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -29,10 +30,10 @@ public class ShippingMethod {
     @Column(name = "shipping_option_id")
     private String shippingOptionId;
     
-    @Convert(converter = JpaJsonConverter.class)
+    @Type(JsonMapType.class)
     private Map<String, Object> data;
     
-    @Convert(converter = JpaJsonConverter.class)
+    @Type(JsonMapType.class)
     private Map<String, Object> metadata;
     
     private BigDecimal total;
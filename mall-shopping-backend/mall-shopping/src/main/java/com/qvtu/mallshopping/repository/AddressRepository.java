@@ -2,8 +2,34 @@ package com.qvtu.mallshopping.repository;
 
 import com.qvtu.mallshopping.model.Address;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface AddressRepository extends JpaRepository<Address, Long> {
-} 
\ No newline at end of file
+    // 以下查询都走 (customer_id, id) 索引，不加载客户的地址集合
+
+    // 按 offset/limit 分页，与原来的地址列表顺序一致
+    @Query("select a from Address a where a.customer.id = :customerId order by a.id limit :limit offset :offset")
+    List<Address> findPageByCustomerId(@Param("customerId") Long customerId, @Param("limit") int limit,
+                                       @Param("offset") int offset);
+
+    long countByCustomerId(Long customerId);
+
+    boolean existsByCustomerId(Long customerId);
+
+    @Query("select a from Address a where a.customer.id = :customerId and a.isDefaultBilling = true order by a.id limit 1")
+    Optional<Address> findDefaultBillingByCustomerId(@Param("customerId") Long customerId);
+
+    @Query("select a from Address a where a.customer.id = :customerId and a.isDefaultShipping = true order by a.id limit 1")
+    Optional<Address> findDefaultShippingByCustomerId(@Param("customerId") Long customerId);
+
+    // 一次加载一页客户的地址
+    @Query("select a from Address a where a.customer.id in :customerIds order by a.id")
+    List<Address> findByCustomerIdIn(@Param("customerIds") Collection<Long> customerIds);
+}
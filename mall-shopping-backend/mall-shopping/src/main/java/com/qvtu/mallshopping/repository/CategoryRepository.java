@@ -4,8 +4,13 @@ import com.qvtu.mallshopping.model.Category;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     // 查找顶级分类（没有父分类的）
@@ -25,4 +30,24 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     
     // 根据父分类统计子分类数量
     long countByParentCategory(Category parentCategory);
+
+    // 一次查询加载全部分类及其元数据，用于重建分类树缓存
+    @Query("select distinct c from Category c left join fetch c.metadata")
+    List<Category> findAllWithMetadata();
+
+    // 按物化路径前缀查询全部后代（不含自身）
+    @Query("select c from Category c where c.path like concat(:path, '%') and c.path <> :path order by c.path")
+    List<Category> findDescendantsByPath(@Param("path") String path);
+
+    // 分类及其全部后代的 ID
+    @Query("select c.id from Category c where c.path like concat(:path, '%')")
+    List<Long> findSubtreeIdsByPath(@Param("path") String path);
+
+    // 移动子树时批量替换路径前缀，执行后清空持久化上下文，避免读到旧路径
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Category c set c.path = concat(:newPath, substring(c.path, length(:oldPath) + 1)) "
+         + "where c.path like concat(:oldPath, '%')")
+    int replacePathPrefix(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+
+    long countByPathIsNull();
 }
@@ -4,8 +4,12 @@ import com.qvtu.mallshopping.model.Customer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +21,39 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     boolean existsByEmail(String email);
 
     Optional<Customer> findByResetPasswordTokenEquals(String resetPasswordToken);
+
+    // 游标分页：按 (created_at, id) 倒序，不做 count
+    @Query("select c from Customer c where c.createdAt is not null order by c.createdAt desc, c.id desc")
+    List<Customer> findKeysetPage(Pageable pageable);
+
+    @Query("select c from Customer c where (c.createdAt < :createdAt "
+         + "or (c.createdAt = :createdAt and c.id < :id)) order by c.createdAt desc, c.id desc")
+    List<Customer> findKeysetPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    // created_at 为空的行排在最后，按 id 倒序
+    @Query("select c from Customer c where c.createdAt is null and c.id < :id order by c.id desc")
+    List<Customer> findUndatedPageBefore(@Param("id") Long id, Pageable pageable);
+
+    // 群组成员分页：经关联表连接，在数据库中排序和截取，不加载群组的全部成员
+    @Query("select c from Customer c join c.customerGroups g where g.id = :groupId "
+         + "order by c.createdAt desc nulls last, c.id desc")
+    List<Customer> findPageInGroup(@Param("groupId") Long groupId, Pageable pageable);
+
+    // 游标分页的第一页，created_at 为空的成员由 findUndatedPageInGroupBefore 接着读
+    @Query("select c from Customer c join c.customerGroups g where g.id = :groupId and c.createdAt is not null "
+         + "order by c.createdAt desc, c.id desc")
+    List<Customer> findDatedPageInGroup(@Param("groupId") Long groupId, Pageable pageable);
+
+    @Query("select c from Customer c join c.customerGroups g where g.id = :groupId and (c.createdAt < :createdAt "
+         + "or (c.createdAt = :createdAt and c.id < :id)) order by c.createdAt desc, c.id desc")
+    List<Customer> findPageInGroupAfter(@Param("groupId") Long groupId, @Param("createdAt") LocalDateTime createdAt,
+                                        @Param("id") Long id, Pageable pageable);
+
+    @Query("select c from Customer c join c.customerGroups g where g.id = :groupId and c.createdAt is null and c.id < :id "
+         + "order by c.id desc")
+    List<Customer> findUndatedPageInGroupBefore(@Param("groupId") Long groupId, @Param("id") Long id, Pageable pageable);
+
+    // 使用统计信息估算总行数，避免对大表做 count(*)
+    @Query(value = "select coalesce((select cast(greatest(reltuples, 0) as bigint) from pg_class where relname = 'customers'), 0)", nativeQuery = true)
+    long estimateCount();
 } 
\ No newline at end of file
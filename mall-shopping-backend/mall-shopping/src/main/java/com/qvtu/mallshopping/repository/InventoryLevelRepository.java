@@ -4,9 +4,41 @@ import com.qvtu.mallshopping.model.InventoryLevel;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface InventoryLevelRepository extends JpaRepository<InventoryLevel, Long> {
     Page<InventoryLevel> findByInventoryIdAndDeletedAtIsNull(Long inventoryId, Pageable pageable);
+
+    boolean existsByInventoryIdAndLocationIdAndDeletedAtIsNull(Long inventoryId, Long locationId);
+
+    List<InventoryLevel> findByInventoryIdInAndDeletedAtIsNull(Collection<Long> inventoryIds);
+
+    // 条件更新预留数量：只有可用库存足够时才会更新成功，返回更新的行数
+    @Modifying
+    @Query("update InventoryLevel l set l.reservedQuantity = coalesce(l.reservedQuantity, 0) + :quantity, l.updatedAt = :now "
+         + "where l.inventory.id = :inventoryId and l.location.id = :locationId and l.deletedAt is null "
+         + "and coalesce(l.stockedQuantity, 0) - coalesce(l.reservedQuantity, 0) >= :quantity")
+    int reserve(@Param("inventoryId") Long inventoryId, @Param("locationId") Long locationId,
+                @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
+    // 允许缺货下单时不检查可用库存
+    @Modifying
+    @Query("update InventoryLevel l set l.reservedQuantity = coalesce(l.reservedQuantity, 0) + :quantity, l.updatedAt = :now "
+         + "where l.inventory.id = :inventoryId and l.location.id = :locationId and l.deletedAt is null")
+    int reserveWithBackorder(@Param("inventoryId") Long inventoryId, @Param("locationId") Long locationId,
+                             @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("update InventoryLevel l set l.reservedQuantity = greatest(coalesce(l.reservedQuantity, 0) - :quantity, 0), l.updatedAt = :now "
+         + "where l.inventory.id = :inventoryId and l.location.id = :locationId and l.deletedAt is null")
+    int release(@Param("inventoryId") Long inventoryId, @Param("locationId") Long locationId,
+                @Param("quantity") int quantity, @Param("now") LocalDateTime now);
 } 
\ No newline at end of file
@@ -4,7 +4,13 @@ import com.qvtu.mallshopping.model.Inventory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -13,4 +19,25 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     Page<Inventory> findAll(Pageable pageable);
     Page<Inventory> findByDeletedAtIsNull(Pageable pageable);
     Optional<Inventory> findByIdAndDeletedAtIsNull(Long id);
+
+    // 原子增减库存总量，避免读-改-写丢失更新
+    @Modifying
+    @Query("update Inventory i set i.quantity = coalesce(i.quantity, 0) + :delta, i.updatedAt = :now where i.id = :id")
+    int adjustQuantity(@Param("id") Long id, @Param("delta") int delta, @Param("now") LocalDateTime now);
+
+    // 游标分页：按 (created_at, id) 倒序，不做 count
+    @Query("select i from Inventory i where i.deletedAt is null and i.createdAt is not null order by i.createdAt desc, i.id desc")
+    List<Inventory> findKeysetPage(Pageable pageable);
+
+    @Query("select i from Inventory i where i.deletedAt is null and (i.createdAt < :createdAt "
+         + "or (i.createdAt = :createdAt and i.id < :id)) order by i.createdAt desc, i.id desc")
+    List<Inventory> findKeysetPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    // created_at 为空的行排在最后，按 id 倒序
+    @Query("select i from Inventory i where i.deletedAt is null and i.createdAt is null and i.id < :id order by i.id desc")
+    List<Inventory> findUndatedPageBefore(@Param("id") Long id, Pageable pageable);
+
+    // 使用统计信息估算总行数，避免对大表做 count(*)
+    @Query(value = "select coalesce((select cast(greatest(reltuples, 0) as bigint) from pg_class where relname = 'inventories'), 0)", nativeQuery = true)
+    long estimateCount();
 } 
\ No newline at end of file
@@ -2,8 +2,17 @@ package com.qvtu.mallshopping.repository;
 
 import com.qvtu.mallshopping.model.OrderChange;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface OrderChangeRepository extends JpaRepository<OrderChange, Long> {
     List<OrderChange> findByOrderIdOrderByCreatedAtDesc(Long orderId);
-} 
\ No newline at end of file
+
+    // 按任意偏移量分页，offset 不要求是 limit 的整数倍
+    @Query(value = "select * from order_changes where order_id = :orderId "
+         + "order by created_at desc, id desc limit :limit offset :offset", nativeQuery = true)
+    List<OrderChange> findPageByOrderId(@Param("orderId") Long orderId, @Param("offset") int offset, @Param("limit") int limit);
+
+    long countByOrderId(Long orderId);
+}
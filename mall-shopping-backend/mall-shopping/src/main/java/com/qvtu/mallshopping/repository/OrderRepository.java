@@ -1,9 +1,61 @@
 package com.qvtu.mallshopping.repository;
 
 import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.model.PaymentCollection;
+import com.qvtu.mallshopping.util.KeysetCursor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
-} 
\ No newline at end of file
+    // 第一阶段：只分页查询订单 ID，保证分页正确
+    @Query(value = "select o.id from Order o",
+           countQuery = "select count(o) from Order o")
+    Page<Long> findPageOfIds(Pageable pageable);
+
+    // 第二阶段：按 ID 批量加载订单及订单项
+    @EntityGraph(attributePaths = {"items"})
+    @Query("select distinct o from Order o where o.id in :ids")
+    List<Order> findWithItemsByIdIn(@Param("ids") List<Long> ids);
+
+    // 多个 List 集合不能在同一条语句中 fetch join，配送方式和支付集合分别加载
+    @Query("select distinct o from Order o left join fetch o.shippingMethods where o.id in :ids")
+    List<Order> fetchShippingMethodsByIdIn(@Param("ids") List<Long> ids);
+
+    @Query("select distinct o from Order o left join fetch o.paymentCollections where o.id in :ids")
+    List<Order> fetchPaymentCollectionsByIdIn(@Param("ids") List<Long> ids);
+
+    @Query("select distinct pc from PaymentCollection pc left join fetch pc.paymentProviders where pc.order.id in :ids")
+    List<PaymentCollection> fetchPaymentProvidersByOrderIdIn(@Param("ids") List<Long> ids);
+
+    // 游标分页：按 (created_at, id) 倒序取订单的键，不做 count
+    @Query("select new com.qvtu.mallshopping.util.KeysetCursor(o.createdAt, o.id) from Order o where o.createdAt is not null "
+         + "order by o.createdAt desc, o.id desc")
+    List<KeysetCursor> findKeysetIds(Pageable pageable);
+
+    @Query("select new com.qvtu.mallshopping.util.KeysetCursor(o.createdAt, o.id) from Order o where o.createdAt < :createdAt "
+         + "or (o.createdAt = :createdAt and o.id < :id) order by o.createdAt desc, o.id desc")
+    List<KeysetCursor> findKeysetIdsAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    // created_at 为空的订单排在最后，按 id 倒序
+    @Query("select new com.qvtu.mallshopping.util.KeysetCursor(o.createdAt, o.id) from Order o where o.createdAt is null "
+         + "and o.id < :id order by o.id desc")
+    List<KeysetCursor> findUndatedIdsBefore(@Param("id") Long id, Pageable pageable);
+
+    // 使用统计信息估算总行数，避免对大表做 count(*)
+    @Query(value = "select coalesce((select cast(greatest(reltuples, 0) as bigint) from pg_class where relname = 'orders'), 0)", nativeQuery = true)
+    long estimateCount();
+
+    @EntityGraph(attributePaths = {"items"})
+    @Query("select o from Order o where o.id = :id")
+    Optional<Order> findWithItemsById(@Param("id") Long id);
+}
@@ -1,9 +1,30 @@
 package com.qvtu.mallshopping.repository;
 
 import com.qvtu.mallshopping.model.Payment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
+    // 游标分页：按 (created_at, id) 倒序，不做 count
+    @Query("select p from Payment p where p.createdAt is not null order by p.createdAt desc, p.id desc")
+    List<Payment> findKeysetPage(Pageable pageable);
+
+    @Query("select p from Payment p where (p.createdAt < :createdAt "
+         + "or (p.createdAt = :createdAt and p.id < :id)) order by p.createdAt desc, p.id desc")
+    List<Payment> findKeysetPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    // created_at 为空的行排在最后，按 id 倒序
+    @Query("select p from Payment p where p.createdAt is null and p.id < :id order by p.id desc")
+    List<Payment> findUndatedPageBefore(@Param("id") Long id, Pageable pageable);
+
+    // 使用统计信息估算总行数，避免对大表做 count(*)
+    @Query(value = "select coalesce((select cast(greatest(reltuples, 0) as bigint) from pg_class where relname = 'payments'), 0)", nativeQuery = true)
+    long estimateCount();
 } 
\ No newline at end of file
@@ -0,0 +1,13 @@
+package com.qvtu.mallshopping.repository;
+
+import com.qvtu.mallshopping.model.ProductCard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+// 前台读取走 ProductCardService 中的 JDBC 查询，这里只负责写入和补齐
+public interface ProductCardRepository extends JpaRepository<ProductCard, Long> {
+    @Query("select p.id from Product p where not exists (select c from ProductCard c where c.productId = p.id)")
+    List<Long> findProductIdsWithoutCard();
+}
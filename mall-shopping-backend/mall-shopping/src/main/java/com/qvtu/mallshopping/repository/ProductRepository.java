@@ -4,16 +4,17 @@ import com.qvtu.mallshopping.model.Product;
 import com.qvtu.mallshopping.enums.ProductStatus;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     boolean existsByHandle(String handle);
 
-    List<Product> findByTitleContainingAndStatus(String title, ProductStatus status);
-
     List<Product> findByTitleContainingAndStatus(String title, ProductStatus status, Pageable pageable);
-    
+
     List<Product> findByTitleContaining(String title, Pageable pageable);
 
     List<Product> findByStatus(ProductStatus status, Pageable pageable);
@@ -21,4 +22,15 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     long countByTitleContainingAndStatus(String title, ProductStatus status);
     long countByTitleContaining(String title);
     long countByStatus(ProductStatus status);
+
+    // 构建进程内搜索索引时一次加载商品、变体和商品系列。
+    // 不加 distinct：商品系列的 metadata 是 json 列，PostgreSQL 无法对其去重，Hibernate 6 会自行合并重复的根实体
+    @Query("select p from Product p left join fetch p.variants left join fetch p.collection")
+    List<Product> findAllForIndex();
+
+    @Query("select p from Product p left join fetch p.variants left join fetch p.collection where p.id = :id")
+    Optional<Product> findForIndexById(@Param("id") Long id);
+
+    @Query("select p.id from Product p where p.collection.id = :collectionId")
+    List<Long> findIdsByCollectionId(@Param("collectionId") Long collectionId);
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.qvtu.mallshopping.repository;
+
+import com.qvtu.mallshopping.model.ProductVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
+    // 加入购物车时需要商品标题、缩略图、状态和分类，一次查询带出商品
+    @Query("select v from ProductVariant v join fetch v.product p left join fetch p.categories where v.id = :id")
+    Optional<ProductVariant> findWithProductById(@Param("id") Long id);
+}
@@ -4,6 +4,7 @@ import com.qvtu.mallshopping.model.Promotion;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,4 +17,8 @@ public interface PromotionRepository extends JpaRepository<Promotion, Long> {
     Optional<Promotion> findByCode(String code);
     List<Promotion> findAllByCode(String code);
     Page<Promotion> findByCampaignId(String campaignId, Pageable pageable);
+
+    // 规则引擎评估购物车时使用的生效中自动促销
+    @Query("select p from Promotion p where p.isAutomatic = true and p.status = 'active' and p.deletedAt is null")
+    List<Promotion> findActiveAutomatic();
 } 
\ No newline at end of file
@@ -4,11 +4,38 @@ import com.qvtu.mallshopping.model.Reservation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
     Page<Reservation> findByDeletedAtIsNull(Pageable pageable);
     Page<Reservation> findByInventoryItemIdAndDeletedAtIsNull(Long inventoryItemId, Pageable pageable);
     Page<Reservation> findByLocationIdAndDeletedAtIsNull(Long locationId, Pageable pageable);
+
+    // 软删除，只有第一次删除会返回 1，避免重复释放库存
+    @Modifying
+    @Query("update Reservation r set r.deletedAt = :now, r.updatedAt = :now where r.id = :id and r.deletedAt is null")
+    int markDeleted(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // 游标分页：按 (created_at, id) 倒序，不做 count
+    @Query("select r from Reservation r where r.deletedAt is null and r.createdAt is not null order by r.createdAt desc, r.id desc")
+    List<Reservation> findKeysetPage(Pageable pageable);
+
+    @Query("select r from Reservation r where r.deletedAt is null and (r.createdAt < :createdAt "
+         + "or (r.createdAt = :createdAt and r.id < :id)) order by r.createdAt desc, r.id desc")
+    List<Reservation> findKeysetPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    // created_at 为空的行排在最后，按 id 倒序
+    @Query("select r from Reservation r where r.deletedAt is null and r.createdAt is null and r.id < :id order by r.id desc")
+    List<Reservation> findUndatedPageBefore(@Param("id") Long id, Pageable pageable);
+
+    // 使用统计信息估算总行数，避免对大表做 count(*)
+    @Query(value = "select coalesce((select cast(greatest(reltuples, 0) as bigint) from pg_class where relname = 'reservations'), 0)", nativeQuery = true)
+    long estimateCount();
 } 
\ No newline at end of file
@@ -1,66 +1,77 @@
 package com.qvtu.mallshopping.security;
 
-import io.jsonwebtoken.*;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
+/**
+ * 唯一的 JWT 签发和验证入口，使用 HS512。
+ * 签名密钥在启动时由 jwt.secret 计算一次，解析器不可变、线程安全，所有请求共用；
+ * 每次验证只解析一次令牌，签名、有效期和声明一并得到。
+ */
 @Component
 public class JwtTokenProvider {
     private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
+    private final long jwtExpirationMillis;
 
-    @Value("${jwt.expiration}")
-    private int jwtExpiration;
+    public JwtTokenProvider(
+        @Value("${jwt.secret}") String jwtSecret,
+        @Value("${jwt.expiration}") long jwtExpiration
+    ) {
+        byte[] secret = jwtSecret.getBytes(StandardCharsets.UTF_8);
+        // HS512 要求密钥至少 512 位，过短时启动失败，而不是签出无法验证的令牌
+        if (secret.length * 8 < SignatureAlgorithm.HS512.getMinKeyLength()) {
+            throw new IllegalStateException("jwt.secret must be at least "
+                + SignatureAlgorithm.HS512.getMinKeyLength() / 8 + " bytes for HS512");
+        }
+        this.signingKey = Keys.hmacShaKeyFor(secret);
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.jwtExpirationMillis = jwtExpiration * 1000;
+    }
 
     public String generateToken(Long userId) {
         Date now = new Date();
-        Date expiryDate = new Date(now.getTime() + jwtExpiration * 1000);
+        Date expiryDate = new Date(now.getTime() + jwtExpirationMillis);
 
         return Jwts.builder()
                 .setSubject(Long.toString(userId))
-                .setIssuedAt(new Date())
+                .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
     /**
-     * 从JWT令牌中获取用户ID
+     * 校验签名和有效期并返回令牌的声明。令牌无效时抛出 JwtException 或 IllegalArgumentException
      */
-    public Long getUserIdFromJWT(String token) {
-        try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(jwtSecret)
-                    .parseClaimsJws(token)
-                    .getBody();
-            
-            return Long.parseLong(claims.getSubject());
-        } catch (Exception e) {
-            throw new RuntimeException("Invalid JWT token");
-        }
+    public Claims parseClaims(String token) {
+        return parser.parseClaimsJws(token).getBody();
     }
 
-    public boolean validateToken(String authToken) {
+    /**
+     * 从JWT令牌中获取用户ID，令牌无效或已过期时返回 null
+     */
+    public Long parseUserId(String token) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
-        } catch (SignatureException ex) {
-            logger.error("Invalid JWT signature");
-        } catch (MalformedJwtException ex) {
-            logger.error("Invalid JWT token");
-        } catch (ExpiredJwtException ex) {
-            logger.error("Expired JWT token");
-        } catch (UnsupportedJwtException ex) {
-            logger.error("Unsupported JWT token");
-        } catch (IllegalArgumentException ex) {
-            logger.error("JWT claims string is empty");
+            return Long.parseLong(parseClaims(token).getSubject());
+        } catch (JwtException | IllegalArgumentException e) {
+            // NumberFormatException 也在这里：主题不是用户 ID 的令牌同样无效
+            logger.debug("Rejected JWT token: {}", e.getMessage());
+            return null;
         }
-        return false;
     }
-} 
\ No newline at end of file
+}
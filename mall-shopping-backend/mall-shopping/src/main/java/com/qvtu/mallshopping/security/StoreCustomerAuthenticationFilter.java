@@ -0,0 +1,52 @@
+package com.qvtu.mallshopping.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * 商城前台 /store/customers/me 下接口的登录校验。
+ * 每个请求只解析一次 Authorization 头，经 TokenClaimsCache 得到客户 ID 后放入请求属性，
+ * 控制器通过 @RequestAttribute(CUSTOMER_ID) 读取；令牌缺失或无效时直接返回 401。
+ */
+@Component
+public class StoreCustomerAuthenticationFilter extends OncePerRequestFilter {
+    public static final String CUSTOMER_ID = "com.qvtu.mallshopping.security.StoreCustomerAuthenticationFilter.customerId";
+
+    private static final String PATH = "/store/customers/me";
+    private static final String BEARER = "Bearer ";
+
+    private final TokenClaimsCache tokenClaimsCache;
+
+    public StoreCustomerAuthenticationFilter(TokenClaimsCache tokenClaimsCache) {
+        this.tokenClaimsCache = tokenClaimsCache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !(path.equals(PATH) || path.startsWith(PATH + "/")) || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        Long customerId = header != null && header.startsWith(BEARER)
+            ? tokenClaimsCache.resolveCustomerId(header.substring(BEARER.length()))
+            : null;
+        if (customerId == null) {
+            response.setStatus(HttpStatus.UNAUTHORIZED.value());
+            return;
+        }
+        request.setAttribute(CUSTOMER_ID, customerId);
+        filterChain.doFilter(request, response);
+    }
+}
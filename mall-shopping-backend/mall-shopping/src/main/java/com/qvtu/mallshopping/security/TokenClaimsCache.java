@@ -0,0 +1,74 @@
+package com.qvtu.mallshopping.security;
+
+import com.qvtu.mallshopping.util.ExpiringLruCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已验证令牌的缓存：令牌第一次出现时解析并校验签名一次，之后直接返回其中的客户 ID，
+ * 直到令牌过期。只缓存验证通过且带过期时间的令牌。
+ */
+@Component
+public class TokenClaimsCache {
+    private static final Logger logger = LoggerFactory.getLogger(TokenClaimsCache.class);
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final ExpiringLruCache<String, Long> customerIds;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TokenClaimsCache(
+        JwtTokenProvider jwtTokenProvider,
+        @Value("${jwt.claims-cache.max-entries:10000}") int maxEntries
+    ) {
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.customerIds = new ExpiringLruCache<>(maxEntries);
+    }
+
+    /**
+     * 返回令牌对应的客户 ID，令牌无效或已过期时返回 null。
+     */
+    public Long resolveCustomerId(String token) {
+        long now = System.currentTimeMillis();
+        Long cached = customerIds.get(token, now);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        Claims claims;
+        try {
+            claims = jwtTokenProvider.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.debug("Rejected JWT token: {}", e.getMessage());
+            return null;
+        }
+        Long customerId;
+        try {
+            customerId = Long.parseLong(claims.getSubject());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            customerIds.put(token, customerId, expiration.getTime());
+        }
+        return customerId;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+}
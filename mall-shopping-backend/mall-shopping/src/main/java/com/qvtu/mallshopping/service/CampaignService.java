@@ -1,7 +1,5 @@
 package com.qvtu.mallshopping.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.qvtu.mallshopping.dto.Budget;
 import com.qvtu.mallshopping.dto.CampaignResponse;
 import com.qvtu.mallshopping.dto.CampaignCreateRequest;
 import com.qvtu.mallshopping.dto.CampaignUpdateRequest;
@@ -9,6 +7,7 @@ import com.qvtu.mallshopping.model.Campaign;
 import com.qvtu.mallshopping.model.Promotion;
 import com.qvtu.mallshopping.repository.CampaignRepository;
 import com.qvtu.mallshopping.repository.PromotionRepository;
+import com.qvtu.mallshopping.util.JsonCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
@@ -32,7 +31,7 @@ public class CampaignService {
     private PromotionRepository promotionRepository;
     
     @Autowired
-    private ObjectMapper objectMapper;
+    private JsonCodec jsonCodec;
 
     public Map<String, Object> getCampaigns(String q, int page, int size) {
         log.info("获取活动列表, 页码: {}, 每页数量: {}", page, size);
@@ -70,7 +69,7 @@ public class CampaignService {
 
         try {
             if (campaign.getBudget() != null) {
-                formatted.put("budget", objectMapper.readValue(campaign.getBudget(), Budget.class));
+                formatted.put("budget", jsonCodec.readBudget(campaign.getBudget()));
             }
         } catch (Exception e) {
             log.error("解析活动预算失败", e);
@@ -93,10 +92,7 @@ public class CampaignService {
             
         try {
             if (request.getBudget() != null) {
-                String budgetJson = objectMapper.writeValueAsString(request.getBudget());
-                // 确保 JSON 格式正确
-                objectMapper.readTree(budgetJson);
-                campaign.setBudget(budgetJson);
+                campaign.setBudget(jsonCodec.write(request.getBudget()));
             }
         } catch (Exception e) {
             log.error("序列化预算数据失败", e);
@@ -137,10 +133,7 @@ public class CampaignService {
         
         try {
             if (request.getBudget() != null) {
-                String budgetJson = objectMapper.writeValueAsString(request.getBudget());
-                // 确保 JSON 格式正确
-                objectMapper.readTree(budgetJson);
-                campaign.setBudget(budgetJson);
+                campaign.setBudget(jsonCodec.write(request.getBudget()));
             }
         } catch (Exception e) {
             log.error("序列化预算数据失败", e);
@@ -0,0 +1,222 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.ProductStatus;
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.model.Cart;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.model.ProductVariant;
+import com.qvtu.mallshopping.repository.ProductVariantRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * 商城前台购物车。加购、改数量等操作只修改 CartStore 中的购物车，不写数据库；
+ * 下单时才通过 OrderService 生成订单。
+ */
+@Slf4j
+@Service
+public class CartService {
+    private static final int MAX_QUANTITY = 10_000;
+
+    private final CartStore cartStore;
+    private final ProductVariantRepository productVariantRepository;
+    private final OrderService orderService;
+    private final PromotionRuleEngine promotionRuleEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final String currencyCode;
+
+    public CartService(
+        CartStore cartStore,
+        ProductVariantRepository productVariantRepository,
+        OrderService orderService,
+        PromotionRuleEngine promotionRuleEngine,
+        JdbcTemplate jdbcTemplate,
+        @Value("${store.currency-code:cny}") String currencyCode
+    ) {
+        this.cartStore = cartStore;
+        this.productVariantRepository = productVariantRepository;
+        this.orderService = orderService;
+        this.promotionRuleEngine = promotionRuleEngine;
+        this.jdbcTemplate = jdbcTemplate;
+        this.currencyCode = currencyCode;
+    }
+
+    public Cart createCart(String regionId, String email, Map<String, Object> metadata) {
+        LocalDateTime now = LocalDateTime.now();
+        Cart cart = new Cart();
+        cart.setId("cart_" + UUID.randomUUID().toString().replace("-", ""));
+        cart.setRegionId(regionId);
+        cart.setEmail(email);
+        cart.setCurrencyCode(currencyCode);
+        cart.setMetadata(metadata);
+        cart.setCreatedAt(now);
+        cart.setUpdatedAt(now);
+        return cartStore.create(cart);
+    }
+
+    public Cart getCart(String id) {
+        Cart cart = cartStore.find(id).orElseThrow(() -> notFound(id));
+        price(cart);
+        return cart;
+    }
+
+    public Cart updateCart(String id, String regionId, String email, Map<String, Object> metadata) {
+        return modify(id, cart -> {
+            if (regionId != null) {
+                cart.setRegionId(regionId);
+            }
+            if (email != null) {
+                cart.setEmail(email);
+            }
+            if (metadata != null) {
+                cart.setMetadata(metadata);
+            }
+        });
+    }
+
+    /**
+     * 加入购物车：同一变体合并数量。变体和价格在进入购物车的锁之前查询。
+     */
+    public Cart addLineItem(String id, Long variantId, int quantity) {
+        checkQuantity(quantity, 1);
+        ProductVariant variant = productVariantRepository.findWithProductById(variantId)
+            .filter(v -> v.getProduct().getStatus() == ProductStatus.PUBLISHED)
+            .orElseThrow(() -> new ResourceNotFoundException("Variant", "id", variantId));
+        if (variant.getPrice() == null) {
+            throw new IllegalArgumentException("Variant " + variantId + " does not have a price");
+        }
+        long unitPrice = variant.getPrice().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        List<String> categoryIds = variant.getProduct().getCategories().stream()
+            .map(category -> category.getId().toString())
+            .toList();
+
+        return modify(id, cart -> {
+            for (Cart.LineItem item : cart.getItems()) {
+                if (item.getVariantId().equals(variantId)) {
+                    int merged = item.getQuantity() + quantity;
+                    checkQuantity(merged, 1);
+                    item.setQuantity(merged);
+                    item.setUnitPrice(unitPrice);
+                    cart.totals().updateLine(item.getId(), unitPrice, merged);
+                    return;
+                }
+            }
+            Cart.LineItem item = new Cart.LineItem();
+            item.setId("cali_" + UUID.randomUUID().toString().replace("-", ""));
+            item.setVariantId(variantId);
+            item.setProductId(variant.getProduct().getId());
+            item.setTitle(variant.getTitle());
+            item.setProductTitle(variant.getProduct().getTitle());
+            item.setThumbnail(variant.getProduct().getThumbnail());
+            item.setSku(variant.getSku());
+            item.setCategoryIds(categoryIds);
+            item.setUnitPrice(unitPrice);
+            item.setQuantity(quantity);
+            item.setCreatedAt(LocalDateTime.now());
+            cart.getItems().add(item);
+            cart.totals().putLine(item.getId(), Cart.productIdOf(item), categoryIds, unitPrice, quantity);
+        });
+    }
+
+    // 数量为 0 时删除该行
+    public Cart updateLineItem(String id, String lineId, int quantity) {
+        checkQuantity(quantity, 0);
+        return modify(id, cart -> {
+            Cart.LineItem item = findLine(cart, lineId);
+            if (quantity == 0) {
+                removeLine(cart, item);
+            } else {
+                item.setQuantity(quantity);
+                cart.totals().setQuantity(lineId, quantity);
+            }
+        });
+    }
+
+    public Cart deleteLineItem(String id, String lineId) {
+        return modify(id, cart -> removeLine(cart, findLine(cart, lineId)));
+    }
+
+    // 登录后把匿名购物车转到客户名下
+    public Cart transferCart(String id, Long customerId, String email) {
+        return modify(id, cart -> {
+            cart.setCustomerId(customerId);
+            if (email != null) {
+                cart.setEmail(email);
+            }
+        });
+    }
+
+    /**
+     * 下单：先从 CartStore 取走购物车，保证同一购物车只生成一个订单；写订单失败时放回。
+     */
+    public Order completeCart(String id) {
+        Cart cart = cartStore.remove(id).orElseThrow(() -> notFound(id));
+        if (cart.getItems().isEmpty()) {
+            cartStore.create(cart);
+            throw new IllegalArgumentException("Cart " + id + " has no items");
+        }
+        try {
+            price(cart);
+            Order order = orderService.createOrderFromCart(cart);
+            log.info("Completed cart {} as order {}", id, order.getId());
+            return order;
+        } catch (RuntimeException e) {
+            cartStore.create(cart);
+            throw e;
+        }
+    }
+
+    // 修改前先取得合计，从快照恢复的购物车在这里按修改前的商品行重建；修改后在锁内评估促销，返回的副本带着评估结果
+    private Cart modify(String id, Consumer<Cart> change) {
+        return cartStore.update(id, cart -> {
+            cart.totals();
+            change.accept(cart);
+            cart.setUpdatedAt(LocalDateTime.now());
+            price(cart);
+        }).orElseThrow(() -> notFound(id));
+    }
+
+    /**
+     * 套用当前生效的自动促销。促销快照和客户群组不变时不会重新评估。
+     */
+    private void price(Cart cart) {
+        List<String> groupIds = cart.getCustomerId() != null
+            ? jdbcTemplate.queryForList("select group_id from customer_group_members where customer_id = ?",
+                String.class, cart.getCustomerId())
+            : List.of();
+        OrderTotals totals = cart.totals();
+        totals.applyPromotions(promotionRuleEngine.activeAutomatic(), groupIds);
+        totals.getDiscountTotal();
+    }
+
+    private static void removeLine(Cart cart, Cart.LineItem item) {
+        cart.getItems().remove(item);
+        cart.totals().removeLine(item.getId());
+    }
+
+    private static Cart.LineItem findLine(Cart cart, String lineId) {
+        return cart.getItems().stream()
+            .filter(item -> item.getId().equals(lineId))
+            .findFirst()
+            .orElseThrow(() -> new ResourceNotFoundException("Line item", "id", lineId));
+    }
+
+    private static void checkQuantity(int quantity, int min) {
+        if (quantity < min || quantity > MAX_QUANTITY) {
+            throw new IllegalArgumentException("Quantity must be between " + min + " and " + MAX_QUANTITY);
+        }
+    }
+
+    private static ResourceNotFoundException notFound(String id) {
+        return new ResourceNotFoundException("Cart", "id", id);
+    }
+}
@@ -0,0 +1,233 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.qvtu.mallshopping.model.Cart;
+import com.qvtu.mallshopping.util.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 购物车的进程内存储：条数有上限，空闲超时的购物车移出内存。
+ * 开启持久化时，移出的购物车先写入 carts 表，之后访问时再恢复；关闭时直接丢弃。
+ * carts 表以字符串为主键，hibernate-types 的数组类型会让 Hibernate 无法为它生成批量加载器，所以直接用 JDBC 读写。
+ * 同一购物车的读写、移出和移除都持有按 ID 分段的锁，互相之间串行；读写快照也在这把锁内，
+ * 但不在 ConcurrentHashMap 的 compute 中，避免数据库访问阻塞同一哈希桶里的其他购物车。购物车只在单个实例内有效。
+ */
+@Slf4j
+@Service
+public class CartStore {
+    private static final int LOCK_STRIPES = 1024;
+
+    private final Map<String, Entry> carts = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonCodec jsonCodec;
+    private final int maxCarts;
+    private final long idleNanos;
+    private final boolean persist;
+    private final int retentionDays;
+
+    public CartStore(
+        JdbcTemplate jdbcTemplate,
+        JsonCodec jsonCodec,
+        @Value("${store.cart.max-carts:100000}") int maxCarts,
+        @Value("${store.cart.idle-minutes:30}") int idleMinutes,
+        @Value("${store.cart.persist:true}") boolean persist,
+        @Value("${store.cart.retention-days:30}") int retentionDays
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonCodec = jsonCodec;
+        this.maxCarts = maxCarts;
+        this.idleNanos = TimeUnit.MINUTES.toNanos(idleMinutes);
+        this.persist = persist;
+        this.retentionDays = retentionDays;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSchema() {
+        if (!persist) {
+            return;
+        }
+        jdbcTemplate.execute("create table if not exists carts (id varchar(64) primary key, customer_id bigint, "
+            + "cart json not null, updated_at timestamp not null)");
+        jdbcTemplate.execute("create index if not exists idx_carts_updated_at on carts (updated_at)");
+    }
+
+    public Cart create(Cart cart) {
+        synchronized (lockFor(cart.getId())) {
+            carts.put(cart.getId(), new Entry(cart));
+        }
+        if (carts.size() > maxCarts) {
+            evictLeastRecentlyUsed();
+        }
+        return cart.copy();
+    }
+
+    public Optional<Cart> find(String id) {
+        return update(id, cart -> { });
+    }
+
+    /**
+     * 在购物车的锁内修改，返回修改后的副本；内存中没有时先从快照恢复。
+     */
+    public Optional<Cart> update(String id, Consumer<Cart> change) {
+        synchronized (lockFor(id)) {
+            Entry entry = carts.get(id);
+            if (entry == null) {
+                entry = load(id);
+                if (entry == null) {
+                    return Optional.empty();
+                }
+                carts.put(id, entry);
+            }
+            change.accept(entry.cart);
+            entry.lastAccessedAt = System.nanoTime();
+            return Optional.of(entry.cart.copy());
+        }
+    }
+
+    /**
+     * 移除购物车（下单时），同时删除快照，返回移除前的内容。
+     * 内存中的购物车在锁内移除；只有快照时以删除语句为准，并发的移除只有真正删掉那一行的一方拿到购物车。
+     */
+    public Optional<Cart> remove(String id) {
+        synchronized (lockFor(id)) {
+            Entry entry = carts.remove(id);
+            if (entry == null) {
+                entry = claim(id);
+            } else if (persist) {
+                jdbcTemplate.update("delete from carts where id = ?", id);
+            }
+            return entry != null ? Optional.of(entry.cart.copy()) : Optional.empty();
+        }
+    }
+
+    public int size() {
+        return carts.size();
+    }
+
+    @Scheduled(fixedDelayString = "${store.cart.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        int evicted = evictIdleBefore(System.nanoTime() - idleNanos);
+        if (persist) {
+            // 超过保留期限仍未恢复的购物车直接删除
+            jdbcTemplate.update("delete from carts where updated_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusDays(retentionDays)));
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle carts, {} remain in memory", evicted, carts.size());
+        }
+    }
+
+    int evictIdleBefore(long cutoffNanos) {
+        int evicted = 0;
+        for (String id : new ArrayList<>(carts.keySet())) {
+            if (evict(id, cutoffNanos)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    // 超出上限时一次移出最久未访问的 1%，避免之后每次创建都重新排序
+    private synchronized void evictLeastRecentlyUsed() {
+        int overflow = carts.size() - maxCarts;
+        if (overflow <= 0) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> entries = new ArrayList<>(carts.entrySet());
+        entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccessedAt));
+        int target = Math.min(entries.size(), overflow + Math.max(1, maxCarts / 100));
+        for (int i = 0; i < target; i++) {
+            evict(entries.get(i).getKey(), Long.MAX_VALUE);
+        }
+    }
+
+    private boolean evict(String id, long cutoffNanos) {
+        synchronized (lockFor(id)) {
+            Entry entry = carts.get(id);
+            if (entry == null || entry.lastAccessedAt >= cutoffNanos) {
+                return false;
+            }
+            if (persist) {
+                try {
+                    save(entry.cart);
+                } catch (RuntimeException | JsonProcessingException e) {
+                    // 写入失败时留在内存中，下一轮再试
+                    log.warn("Failed to persist cart {}: {}", id, e.getMessage());
+                    return false;
+                }
+            }
+            carts.remove(id);
+            return true;
+        }
+    }
+
+    private Object lockFor(String id) {
+        return locks[(id.hashCode() & 0x7fffffff) % LOCK_STRIPES];
+    }
+
+    private void save(Cart cart) throws JsonProcessingException {
+        LocalDateTime updatedAt = cart.getUpdatedAt() != null ? cart.getUpdatedAt() : LocalDateTime.now();
+        jdbcTemplate.update("insert into carts (id, customer_id, cart, updated_at) values (?, ?, cast(? as json), ?) "
+                + "on conflict (id) do update set customer_id = excluded.customer_id, cart = excluded.cart, "
+                + "updated_at = excluded.updated_at",
+            cart.getId(), cart.getCustomerId(), jsonCodec.write(cart), Timestamp.valueOf(updatedAt));
+    }
+
+    private Entry load(String id) {
+        if (!persist) {
+            return null;
+        }
+        return read(id, jdbcTemplate.queryForList("select cart from carts where id = ?", String.class, id));
+    }
+
+    // 删除快照并取回内容，没有删到行时返回 null
+    private Entry claim(String id) {
+        if (!persist) {
+            return null;
+        }
+        return read(id, jdbcTemplate.queryForList("delete from carts where id = ? returning cart", String.class, id));
+    }
+
+    private Entry read(String id, List<String> snapshots) {
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        try {
+            return new Entry(jsonCodec.readCart(snapshots.get(0)));
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable cart snapshot {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        private final Cart cart;
+        private volatile long lastAccessedAt;
+
+        private Entry(Cart cart) {
+            this.cart = cart;
+            this.lastAccessedAt = System.nanoTime();
+        }
+    }
+}
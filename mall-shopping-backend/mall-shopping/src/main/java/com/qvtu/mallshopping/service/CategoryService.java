@@ -4,50 +4,80 @@ import com.qvtu.mallshopping.dto.CategoryCreateRequest;
 import com.qvtu.mallshopping.dto.CategoryResponseDTO;
 import com.qvtu.mallshopping.model.Category;
 import com.qvtu.mallshopping.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import com.qvtu.mallshopping.exception.ResourceNotFoundException;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+/**
+ * 分类的列表、子分类和搜索查询由 CategoryTreeCache 的快照提供，不访问数据库；
+ * 创建、修改和删除分类后使快照失效。
+ * 每个分类保存物化路径（/根ID/.../自身ID/），祖先和后代查询各只需一次索引查询。
+ */
+@Slf4j
 @Service
 @Transactional
 public class CategoryService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private CategoryTreeCache categoryTreeCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<CategoryResponseDTO> listCategories(String name, int page, int size) {
         // 确保分页参数合理
         page = Math.max(0, page);
         size = Math.max(1, size);
         
         Pageable pageable = PageRequest.of(page, size);
-        List<Category> categories;
+        CategoryTreeCache.Snapshot tree = categoryTreeCache.snapshot();
+        List<CategoryTreeCache.CategoryNode> categories;
         
         if (name != null && !name.isEmpty()) {
-            categories = categoryRepository.findByNameContaining(name, pageable).getContent();
+            categories = page(tree.search(name), pageable).getContent();
         } else {
-            categories = categoryRepository.findByParentCategoryIsNull(pageable).getContent();
+            categories = page(tree.roots(), pageable).getContent();
         }
         
         return categories.stream()
-            .map(this::convertToDTO)
+            .map(node -> convertToDTO(tree, node, 1))
             .collect(Collectors.toList());
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<CategoryResponseDTO> getChildCategories(Long parentId, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
-        Category parentCategory = categoryRepository.findById(parentId)
-                .orElseThrow(() -> new RuntimeException("父分类不存在"));
-        List<Category> categories = categoryRepository.findByParentCategory(parentCategory, pageable).getContent();
+        CategoryTreeCache.Snapshot tree = categoryTreeCache.snapshot();
+        if (tree.get(parentId) == null) {
+            throw new RuntimeException("父分类不存在");
+        }
+        List<CategoryTreeCache.CategoryNode> categories = page(tree.children(parentId), pageable).getContent();
         
         return categories.stream()
-            .map(this::convertToDTO)
+            .map(node -> convertToDTO(tree, node, 1))
             .collect(Collectors.toList());
     }
 
@@ -85,17 +115,49 @@ public class CategoryService {
         return dto;
     }
 
+    private CategoryResponseDTO convertToDTO(CategoryTreeCache.Snapshot tree, CategoryTreeCache.CategoryNode node, int depth) {
+        CategoryResponseDTO dto = new CategoryResponseDTO();
+        dto.setId(node.id());
+        dto.setName(node.name());
+        dto.setHandle(node.handle());
+        dto.setDescription(node.description());
+        dto.setIsInternal(node.isInternal());
+        dto.setIsActive(node.isActive());
+        dto.setRank(node.rank());
+        dto.setParent_category_id(node.parentId());
+        dto.setCreated_at(node.createdAt());
+        dto.setUpdated_at(node.updatedAt());
+        // 快照中的元数据不可修改，DTO 拿到的是副本
+        dto.setMetadata(new HashMap<>(node.metadata()));
+
+        List<CategoryTreeCache.CategoryNode> children = tree.children(node.id());
+        if (depth > 0 && !children.isEmpty()) {
+            dto.setChildren(children.stream()
+                .map(child -> convertToDTO(tree, child, depth - 1))
+                .collect(Collectors.toList()));
+        } else {
+            dto.setChildren(null);
+        }
+
+        return dto;
+    }
+
+    @Transactional(propagation = Propagation.SUPPORTS)
     public long countCategories(String name) {
+        CategoryTreeCache.Snapshot tree = categoryTreeCache.snapshot();
         if (name != null && !name.isEmpty()) {
-            return categoryRepository.countByNameContaining(name);
+            return tree.search(name).size();
         }
-        return categoryRepository.count();
+        return tree.size();
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS)
     public long countChildCategories(Long parentId) {
-        Category parentCategory = categoryRepository.findById(parentId)
-                .orElseThrow(() -> new RuntimeException("父分类不存在"));
-        return categoryRepository.countByParentCategory(parentCategory);
+        CategoryTreeCache.Snapshot tree = categoryTreeCache.snapshot();
+        if (tree.get(parentId) == null) {
+            throw new RuntimeException("父分类不存在");
+        }
+        return tree.children(parentId).size();
     }
 
     @Transactional
@@ -121,7 +183,11 @@ public class CategoryService {
             category.setParentCategory(parentCategory);
         }
 
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        // ID 由数据库生成，保存后才能确定路径
+        saved.setPath(pathOf(saved.getParentCategory()) + saved.getId() + "/");
+        categoryTreeCache.invalidate();
+        return saved;
     }
 
     public Category getCategory(Long id) {
@@ -129,17 +195,37 @@ public class CategoryService {
             .orElseThrow(() -> new ResourceNotFoundException("Product category", "id", id.toString()));
     }
 
-    public Page<Category> getTopLevelCategories(Pageable pageable) {
-        return categoryRepository.findByParentCategoryIsNull(pageable);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<CategoryTreeCache.CategoryNode> getTopLevelCategories(Pageable pageable) {
+        return page(categoryTreeCache.snapshot().roots(), pageable);
     }
 
-    public Page<Category> getCategoriesByParent(Long parentId, Pageable pageable) {
-        Category parentCategory = getCategory(parentId);
-        return categoryRepository.findByParentCategory(parentCategory, pageable);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<CategoryTreeCache.CategoryNode> getCategoriesByParent(Long parentId, Pageable pageable) {
+        CategoryTreeCache.Snapshot tree = categoryTreeCache.snapshot();
+        if (tree.get(parentId) == null) {
+            throw new ResourceNotFoundException("Product category", "id", parentId.toString());
+        }
+        return page(tree.children(parentId), pageable);
     }
 
-    public Page<Category> searchCategories(String name, Pageable pageable) {
-        return categoryRepository.findByNameContaining(name, pageable);
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Page<CategoryTreeCache.CategoryNode> searchCategories(String name, Pageable pageable) {
+        return page(categoryTreeCache.snapshot().search(name), pageable);
+    }
+
+    /**
+     * 分类树快照，供控制器读取父分类和子分类信息。
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CategoryTreeCache.Snapshot getCategoryTree() {
+        return categoryTreeCache.snapshot();
+    }
+
+    private static Page<CategoryTreeCache.CategoryNode> page(List<CategoryTreeCache.CategoryNode> nodes, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), nodes.size());
+        int to = Math.min(from + pageable.getPageSize(), nodes.size());
+        return new PageImpl<>(nodes.subList(from, to), pageable, nodes.size());
     }
 
     @Transactional
@@ -176,22 +262,113 @@ public class CategoryService {
         }
 
         // 更新父分类
+        Long previousParentId = category.getParentCategoryId();
         if (request.getParentCategoryId() != null) {
             if (!request.getParentCategoryId().equals(category.getParentCategoryId())) {
                 Category parentCategory = categoryRepository.findById(request.getParentCategoryId())
                         .orElseThrow(() -> new RuntimeException("父分类不存在"));
+                if (pathOf(parentCategory).startsWith(pathOf(category))) {
+                    throw new RuntimeException("不能将分类移动到自身或其子分类下");
+                }
                 category.setParentCategory(parentCategory);
             }
         } else {
             category.setParentCategory(null);
         }
+        String previousPath = category.getPath();
+        if (!Objects.equals(previousParentId, category.getParentCategoryId()) || previousPath == null) {
+            category.setPath(pathOf(category.getParentCategory()) + category.getId() + "/");
+        }
 
-        return categoryRepository.save(category);
+        Category saved = categoryRepository.save(category);
+        if (previousPath != null && !previousPath.equals(saved.getPath())) {
+            // 批量替换整棵子树的路径前缀；该更新会清空持久化上下文，重新加载分类
+            categoryRepository.replacePathPrefix(previousPath, saved.getPath());
+            saved = getCategory(id);
+        }
+        categoryTreeCache.invalidate();
+        return saved;
+    }
+
+    /**
+     * 面包屑：从顶级分类到当前分类。
+     */
+    @Transactional(readOnly = true)
+    public List<Category> getBreadcrumb(Long id) {
+        Category category = getCategory(id);
+        List<Long> ids = pathIds(pathOf(category));
+        Map<Long, Category> byId = categoryRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(Category::getId, Function.identity()));
+        return ids.stream()
+            .map(byId::get)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+    }
+
+    @Transactional(readOnly = true)
+    public List<Category> getAncestors(Long id) {
+        List<Category> breadcrumb = getBreadcrumb(id);
+        return breadcrumb.subList(0, Math.max(0, breadcrumb.size() - 1));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Category> getDescendants(Long id) {
+        return categoryRepository.findDescendantsByPath(pathOf(getCategory(id)));
+    }
+
+    /**
+     * 分类及其全部后代的 ID，用于按分类（含子分类）筛选。
+     */
+    @Transactional(readOnly = true)
+    public List<Long> getSubtreeIds(Long id) {
+        return categoryRepository.findSubtreeIdsByPath(pathOf(getCategory(id)));
+    }
+
+    // 为还没有物化路径的历史数据补齐路径，不修改 updated_at
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillPaths() {
+        if (categoryRepository.countByPathIsNull() == 0) {
+            return;
+        }
+        CategoryTreeCache.Snapshot tree = categoryTreeCache.snapshot();
+        List<Object[]> batch = new ArrayList<>();
+        Deque<CategoryTreeCache.CategoryNode> pending = new ArrayDeque<>(tree.roots());
+        Map<Long, String> paths = new HashMap<>();
+        while (!pending.isEmpty()) {
+            CategoryTreeCache.CategoryNode node = pending.poll();
+            String path = paths.getOrDefault(node.parentId(), "/") + node.id() + "/";
+            paths.put(node.id(), path);
+            batch.add(new Object[] {path, node.id()});
+            pending.addAll(tree.children(node.id()));
+        }
+        jdbcTemplate.batchUpdate("update categories set path = ? where id = ?", batch);
+        log.info("Backfilled materialized paths for {} categories", batch.size());
+    }
+
+    private static String pathOf(Category category) {
+        if (category == null) {
+            return "/";
+        }
+        if (category.getPath() != null) {
+            return category.getPath();
+        }
+        return pathOf(category.getParentCategory()) + category.getId() + "/";
+    }
+
+    private static List<Long> pathIds(String path) {
+        List<Long> ids = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                ids.add(Long.valueOf(segment));
+            }
+        }
+        return ids;
     }
 
     @Transactional
     public void deleteCategory(Long id) {
         Category category = getCategory(id);
         categoryRepository.delete(category);
+        categoryTreeCache.invalidate();
     }
 }
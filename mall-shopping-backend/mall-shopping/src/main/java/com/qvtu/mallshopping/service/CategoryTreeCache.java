@@ -0,0 +1,194 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.model.Category;
+import com.qvtu.mallshopping.repository.CategoryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分类树的进程内读穿透缓存。
+ * 整棵分类树一次性加载为不可变快照，列表、子分类和搜索都直接读取快照；
+ * 分类被创建、修改或删除后快照失效，下一次读取时重新加载并整体替换。
+ */
+@Slf4j
+@Component
+public class CategoryTreeCache {
+    // 同级分类按 rank、id 排序
+    private static final Comparator<CategoryNode> ORDER = Comparator
+        .comparing((CategoryNode node) -> node.rank() != null ? node.rank() : 0)
+        .thenComparing(CategoryNode::id);
+
+    private final CategoryRepository categoryRepository;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    public CategoryTreeCache(CategoryRepository categoryRepository) {
+        this.categoryRepository = categoryRepository;
+    }
+
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        return rebuild();
+    }
+
+    /**
+     * 使快照失效。在事务中调用时，提交或回滚后会再次失效，
+     * 避免事务提交前其他请求用旧数据重建的快照被继续使用。
+     */
+    public void invalidate() {
+        invalidateSnapshot();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateSnapshot();
+                }
+            });
+        }
+    }
+
+    private synchronized Snapshot rebuild() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        // 重建期间如果发生了失效，本次结果只用于当前请求，不发布为快照
+        long expectedGeneration = generation.get();
+        Snapshot loaded = load();
+        if (generation.get() == expectedGeneration) {
+            snapshot = loaded;
+        }
+        log.debug("Loaded category tree with {} categories", loaded.size());
+        return loaded;
+    }
+
+    private void invalidateSnapshot() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot load() {
+        List<Category> categories = categoryRepository.findAllWithMetadata();
+        Map<Long, CategoryNode> byId = new HashMap<>();
+        Map<Long, List<CategoryNode>> childrenByParent = new HashMap<>();
+        List<CategoryNode> roots = new ArrayList<>();
+        for (Category category : categories) {
+            CategoryNode node = CategoryNode.of(category);
+            if (byId.putIfAbsent(node.id(), node) != null) {
+                continue;
+            }
+            if (node.parentId() == null) {
+                roots.add(node);
+            } else {
+                childrenByParent.computeIfAbsent(node.parentId(), id -> new ArrayList<>()).add(node);
+            }
+        }
+
+        roots.sort(ORDER);
+        Map<Long, List<CategoryNode>> children = new HashMap<>();
+        childrenByParent.forEach((parentId, nodes) -> {
+            nodes.sort(ORDER);
+            children.put(parentId, List.copyOf(nodes));
+        });
+        List<CategoryNode> all = new ArrayList<>(byId.values());
+        all.sort(ORDER);
+        return new Snapshot(Map.copyOf(byId), List.copyOf(roots), Map.copyOf(children), List.copyOf(all));
+    }
+
+    /**
+     * 分类树的不可变快照。
+     */
+    public static final class Snapshot {
+        private final Map<Long, CategoryNode> byId;
+        private final List<CategoryNode> roots;
+        private final Map<Long, List<CategoryNode>> children;
+        private final List<CategoryNode> all;
+
+        Snapshot(Map<Long, CategoryNode> byId, List<CategoryNode> roots,
+                 Map<Long, List<CategoryNode>> children, List<CategoryNode> all) {
+            this.byId = byId;
+            this.roots = roots;
+            this.children = children;
+            this.all = all;
+        }
+
+        public CategoryNode get(Long id) {
+            return id != null ? byId.get(id) : null;
+        }
+
+        public List<CategoryNode> roots() {
+            return roots;
+        }
+
+        public List<CategoryNode> children(Long parentId) {
+            return children.getOrDefault(parentId, List.of());
+        }
+
+        // 与原来的 findByNameContaining 一致，按名称子串匹配（区分大小写）
+        public List<CategoryNode> search(String name) {
+            List<CategoryNode> matches = new ArrayList<>();
+            for (CategoryNode node : all) {
+                if (node.name() != null && node.name().contains(name)) {
+                    matches.add(node);
+                }
+            }
+            return matches;
+        }
+
+        public int size() {
+            return byId.size();
+        }
+    }
+
+    /**
+     * 快照中的单个分类，不引用任何实体对象。
+     */
+    public record CategoryNode(
+        Long id,
+        String name,
+        String handle,
+        String description,
+        Boolean isInternal,
+        Boolean isActive,
+        Integer rank,
+        Long parentId,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        Map<String, String> metadata
+    ) {
+        static CategoryNode of(Category category) {
+            Map<String, String> metadata = category.getMetadata() != null
+                ? Collections.unmodifiableMap(new LinkedHashMap<>(category.getMetadata()))
+                : Map.of();
+            return new CategoryNode(
+                category.getId(),
+                category.getName(),
+                category.getHandle(),
+                category.getDescription(),
+                category.getIsInternal(),
+                category.getIsActive(),
+                category.getRank(),
+                category.getParentCategoryId(),
+                category.getCreatedAt(),
+                category.getUpdatedAt(),
+                metadata
+            );
+        }
+    }
+}
@@ -12,6 +12,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -19,10 +20,15 @@ import java.util.List;
 public class CollectionService {
     private final CollectionRepository collectionRepository;
     private final ProductRepository productRepository;
+    private final ProductCardService productCardService;
+    private final EmbeddedProductIndex embeddedProductIndex;
 
-    public CollectionService(CollectionRepository collectionRepository, ProductRepository productRepository) {
+    public CollectionService(CollectionRepository collectionRepository, ProductRepository productRepository,
+                             ProductCardService productCardService, EmbeddedProductIndex embeddedProductIndex) {
         this.collectionRepository = collectionRepository;
         this.productRepository = productRepository;
+        this.productCardService = productCardService;
+        this.embeddedProductIndex = embeddedProductIndex;
     }
 
     public Collection createCollection(CollectionCreateRequest request) {
@@ -85,7 +91,12 @@ public class CollectionService {
             collection.setMetadata(request.getMetadata());
         }
 
-        return collectionRepository.save(collection);
+        Collection saved = collectionRepository.save(collection);
+        // 商品卡片和进程内索引中冗余了系列的标题和 handle
+        List<Long> productIds = productRepository.findIdsByCollectionId(id);
+        productCardService.refreshAll(productIds);
+        embeddedProductIndex.reindexAfterCommit(productIds);
+        return saved;
     }
 
     @Transactional
@@ -96,15 +107,19 @@ public class CollectionService {
                 .orElseThrow(() -> new ResourceNotFoundException("系列不存在: " + id));
 
             // 解除系列与产品的关联
+            List<Long> productIds = new ArrayList<>();
             if (collection.getProducts() != null) {
                 collection.getProducts().forEach(product -> {
                     product.setCollection(null);
                     productRepository.save(product);
+                    productIds.add(product.getId());
                 });
             }
 
             // 删除系列
             collectionRepository.delete(collection);
+            productCardService.refreshAll(productIds);
+            embeddedProductIndex.reindexAfterCommit(productIds);
 
         } catch (Exception e) {
             throw new RuntimeException("删除系列失败: " + e.getMessage(), e);
@@ -134,6 +149,8 @@ public class CollectionService {
             }
 
             Collection savedCollection = collectionRepository.save(collection);
+            productCardService.refreshAll(productIds);
+            embeddedProductIndex.reindexAfterCommit(productIds);
             System.out.println("保存系列成功: " + savedCollection);
             return savedCollection;
             
@@ -152,6 +169,9 @@ public class CollectionService {
             collection.removeProduct(product);
         }
 
-        return collectionRepository.save(collection);
+        Collection savedCollection = collectionRepository.save(collection);
+        productCardService.refreshAll(productIds);
+        embeddedProductIndex.reindexAfterCommit(productIds);
+        return savedCollection;
     }
 }
\ No newline at end of file
@@ -4,7 +4,7 @@ import com.qvtu.mallshopping.dto.CustomerAuthRequest;
 import com.qvtu.mallshopping.dto.CustomerAuthResponse;
 import com.qvtu.mallshopping.model.Customer;
 import com.qvtu.mallshopping.repository.CustomerRepository;
-import com.qvtu.mallshopping.util.JwtUtil;
+import com.qvtu.mallshopping.security.JwtTokenProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -19,7 +19,7 @@ public class CustomerAuthService {
     private PasswordEncoder passwordEncoder;
     
     @Autowired
-    private JwtUtil jwtUtil;
+    private JwtTokenProvider jwtTokenProvider;
     
     public String authenticate(CustomerAuthRequest request) {
         Customer customer = customerRepository.findByEmail(request.getEmail())
@@ -29,6 +29,6 @@ public class CustomerAuthService {
             throw new RuntimeException("Invalid email or password");
         }
         
-        return jwtUtil.generateToken(customer);
+        return jwtTokenProvider.generateToken(customer.getId());
     }
 } 
\ No newline at end of file
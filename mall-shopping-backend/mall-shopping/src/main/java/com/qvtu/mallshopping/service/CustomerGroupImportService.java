@@ -0,0 +1,247 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.util.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 客户群组成员批量导入。上传的客户 ID 以 COPY 流式写入临时表，不在内存中保存整份名单，
+ * 再在同一事务中用两条集合运算 SQL 把群组成员调整为上传的名单：删除名单外的成员，加入尚未加入的客户。
+ * 不存在的客户 ID 计数后跳过。同一群组同时只允许一个导入。
+ * 名单中没有有效 ID 时拒绝导入，除非调用方明确要求清空群组；有无法解析的行时即使要求清空也拒绝。
+ */
+@Slf4j
+@Service
+public class CustomerGroupImportService {
+    public static final String CSV = "text/csv";
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final long PROGRESS_LOG_INTERVAL = 100_000;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonCodec jsonCodec;
+    private final Map<Long, Progress> running = new ConcurrentHashMap<>();
+
+    public CustomerGroupImportService(
+        DataSource dataSource,
+        JdbcTemplate jdbcTemplate,
+        TransactionTemplate transactionTemplate,
+        JsonCodec jsonCodec
+    ) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.jsonCodec = jsonCodec;
+    }
+
+    /**
+     * 导入进度，供导入过程中查询。
+     */
+    public static final class Progress {
+        private final Long groupId;
+        private final long startedAt = System.currentTimeMillis();
+        private final AtomicLong lines = new AtomicLong();
+        private final AtomicLong invalid = new AtomicLong();
+        private volatile String phase = "staging";
+
+        private Progress(Long groupId) {
+            this.groupId = groupId;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("group_id", groupId.toString());
+            map.put("phase", phase);
+            map.put("lines", lines.get());
+            map.put("invalid", invalid.get());
+            map.put("elapsed_ms", System.currentTimeMillis() - startedAt);
+            return map;
+        }
+    }
+
+    public Map<String, Object> getProgress(Long groupId) {
+        Progress progress = running.get(groupId);
+        return progress != null ? progress.toMap() : null;
+    }
+
+    /**
+     * 按上传的名单替换群组成员，返回导入结果。格式为 CSV（第一列是客户 ID，可以有表头）
+     * 或 NDJSON（每行一个含 customer_id 或 id 的对象）。allowEmpty 为 true 时空名单清空群组。
+     */
+    public Map<String, Object> importMembers(Long groupId, String contentType, InputStream input, boolean allowEmpty) {
+        boolean ndjson = isFormat(contentType, NDJSON);
+        if (!ndjson && !isFormat(contentType, CSV)) {
+            throw new IllegalArgumentException("Content type must be " + CSV + " or " + NDJSON);
+        }
+        Progress progress = new Progress(groupId);
+        if (running.putIfAbsent(groupId, progress) != null) {
+            throw new IllegalStateException("An import is already running for this customer group");
+        }
+        try {
+            Map<String, Object> result = transactionTemplate.execute(status -> apply(groupId, ndjson, input, allowEmpty, progress));
+            log.info("Customer group {} import finished: {}", groupId, result);
+            return result;
+        } finally {
+            running.remove(groupId);
+        }
+    }
+
+    private Map<String, Object> apply(Long groupId, boolean ndjson, InputStream input, boolean allowEmpty, Progress progress) {
+        // 锁住群组，多个实例对同一群组的导入依次执行
+        List<Long> locked = jdbcTemplate.queryForList("select id from customer_groups where id = ? for update", Long.class, groupId);
+        if (locked.isEmpty()) {
+            throw new ResourceNotFoundException("Customer group not found");
+        }
+
+        jdbcTemplate.execute("create temp table customer_group_import (customer_id bigint not null) on commit drop");
+        long copied = stage(ndjson, input, progress);
+        jdbcTemplate.execute("create index on customer_group_import (customer_id)");
+        jdbcTemplate.execute("analyze customer_group_import");
+
+        progress.phase = "applying";
+        Long staged = jdbcTemplate.queryForObject("select count(distinct customer_id) from customer_group_import", Long.class);
+        // 抛出异常时事务回滚，群组成员不变
+        if (staged == 0 && progress.invalid.get() > 0) {
+            throw new IllegalArgumentException("Import contains no valid customer ids (" + progress.invalid.get() + " invalid lines)");
+        }
+        if (staged == 0 && !allowEmpty) {
+            throw new IllegalArgumentException("Import is empty; set allow_empty=true to remove all members");
+        }
+        Long unknown = jdbcTemplate.queryForObject("select count(distinct s.customer_id) from customer_group_import s "
+            + "where not exists (select 1 from customers c where c.id = s.customer_id)", Long.class);
+        int removed = jdbcTemplate.update("delete from customer_group_members m where m.group_id = ? "
+            + "and not exists (select 1 from customer_group_import s where s.customer_id = m.customer_id)", groupId);
+        int added = jdbcTemplate.update("insert into customer_group_members (group_id, customer_id) "
+            + "select distinct ?, s.customer_id from customer_group_import s join customers c on c.id = s.customer_id "
+            + "on conflict (group_id, customer_id) do nothing", groupId);
+        Long members = jdbcTemplate.queryForObject(
+            "select count(*) from customer_group_members where group_id = ?", Long.class, groupId);
+        progress.phase = "done";
+
+        Map<String, Object> result = progress.toMap();
+        result.put("copied", copied);
+        result.put("staged", staged);
+        result.put("unknown", unknown);
+        result.put("added", added);
+        result.put("removed", removed);
+        result.put("member_count", members);
+        return result;
+    }
+
+    // 逐行解析上传内容，把有效的客户 ID 按 COPY 文本格式分块写入临时表，返回写入的行数
+    private long stage(boolean ndjson, InputStream input, Progress progress) {
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("copy customer_group_import (customer_id) from stdin");
+            try {
+                StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE + 32);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    long number = progress.lines.incrementAndGet();
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Long customerId = ndjson ? parseNdjson(line) : parseCsv(line);
+                    if (customerId == null) {
+                        // CSV 第一行无法解析时视为表头
+                        if (ndjson || number > 1) {
+                            progress.invalid.incrementAndGet();
+                        }
+                        continue;
+                    }
+                    buffer.append(customerId).append('\n');
+                    if (buffer.length() >= COPY_BUFFER_SIZE) {
+                        write(copy, buffer);
+                    }
+                    if (number % PROGRESS_LOG_INTERVAL == 0) {
+                        log.info("Customer group {} import: {} lines read", progress.groupId, number);
+                    }
+                }
+                write(copy, buffer);
+                return copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        } catch (SQLException e) {
+            // 不用 IllegalStateException：控制器把它当作导入冲突返回 409
+            throw new UncategorizedSQLException("Stage customer group import", "copy customer_group_import", e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static void write(CopyIn copy, StringBuilder buffer) throws SQLException {
+        if (buffer.length() == 0) {
+            return;
+        }
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        buffer.setLength(0);
+    }
+
+    private static Long parseCsv(String line) {
+        int comma = line.indexOf(',');
+        String value = (comma >= 0 ? line.substring(0, comma) : line).trim();
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1).trim();
+        }
+        return parseId(value);
+    }
+
+    private Long parseNdjson(String line) {
+        try {
+            JsonNode node = jsonCodec.readTree(line);
+            JsonNode id = node.has("customer_id") ? node.get("customer_id") : node.get("id");
+            return id != null && !id.isNull() ? parseId(id.asText()) : null;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static Long parseId(String value) {
+        try {
+            long id = Long.parseLong(value);
+            return id > 0 ? id : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isFormat(String contentType, String format) {
+        return contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(format);
+    }
+}
@@ -0,0 +1,97 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 直接读写 customer_group_members 关联表的客户群组成员操作。
+ * 批量增删成员只执行一两条 SQL，不加载群组的成员列表，也不逐个修改、保存客户实体。
+ */
+@Slf4j
+@Service
+public class CustomerGroupMembershipService {
+    private final JdbcTemplate jdbcTemplate;
+
+    public CustomerGroupMembershipService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSchema() {
+        // 关联表由 Hibernate 生成，没有主键；建唯一索引前先去掉重复的成员关系
+        Boolean indexed = jdbcTemplate.queryForObject(
+            "select to_regclass('uk_customer_group_members') is not null", Boolean.class);
+        if (!Boolean.TRUE.equals(indexed)) {
+            int duplicates = jdbcTemplate.update("delete from customer_group_members a using customer_group_members b "
+                + "where a.ctid < b.ctid and a.group_id = b.group_id and a.customer_id = b.customer_id");
+            if (duplicates > 0) {
+                log.warn("Removed {} duplicate customer group memberships", duplicates);
+            }
+            jdbcTemplate.execute("create unique index if not exists uk_customer_group_members "
+                + "on customer_group_members (group_id, customer_id)");
+        }
+        jdbcTemplate.execute("create index if not exists idx_customer_group_members_customer_id "
+            + "on customer_group_members (customer_id)");
+    }
+
+    public boolean groupExists(Long groupId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+            "select exists (select 1 from customer_groups where id = ?)", Boolean.class, groupId));
+    }
+
+    // 只读关联表上的唯一索引
+    public long countMembers(Long groupId) {
+        Long count = jdbcTemplate.queryForObject(
+            "select count(*) from customer_group_members where group_id = ?", Long.class, groupId);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * 把客户加入群组，已在群组中的客户跳过，返回新加入的数量。任一客户不存在时不做修改。
+     */
+    @Transactional
+    public int addMembers(Long groupId, Collection<Long> customerIds) {
+        Long[] ids = requireCustomers(groupId, customerIds);
+        return jdbcTemplate.update("insert into customer_group_members (group_id, customer_id) "
+            + "select ?, id from unnest(?) as t(id) on conflict (group_id, customer_id) do nothing", groupId, ids);
+    }
+
+    /**
+     * 从群组中移除客户，返回实际移除的数量。任一客户不存在时不做修改。
+     */
+    @Transactional
+    public int removeMembers(Long groupId, Collection<Long> customerIds) {
+        Long[] ids = requireCustomers(groupId, customerIds);
+        return jdbcTemplate.update("delete from customer_group_members where group_id = ? and customer_id = any(?)",
+            groupId, ids);
+    }
+
+    @Transactional
+    public int removeAllMembers(Long groupId) {
+        return jdbcTemplate.update("delete from customer_group_members where group_id = ?", groupId);
+    }
+
+    private Long[] requireCustomers(Long groupId, Collection<Long> customerIds) {
+        if (!groupExists(groupId)) {
+            throw new ResourceNotFoundException("Customer group not found");
+        }
+        Long[] ids = new HashSet<>(customerIds).toArray(new Long[0]);
+        List<Long> found = jdbcTemplate.queryForList("select id from customers where id = any(?)", Long.class, (Object) ids);
+        if (found.size() < ids.length) {
+            Set<Long> missing = new HashSet<>(customerIds);
+            found.forEach(missing::remove);
+            throw new ResourceNotFoundException("Customer not found: " + missing.iterator().next());
+        }
+        return ids;
+    }
+}
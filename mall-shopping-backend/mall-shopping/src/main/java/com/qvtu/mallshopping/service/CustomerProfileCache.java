@@ -0,0 +1,58 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.util.ExpiringLruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 商城前台当前客户资料的短期缓存，缓存的是已格式化的响应。
+ * 客户信息或地址被修改时失效；其余情况下最多过期 ttl-ms 后重新加载。
+ */
+@Component
+public class CustomerProfileCache {
+    private final long ttlMillis;
+    private final ExpiringLruCache<Long, Map<String, Object>> profiles;
+
+    public CustomerProfileCache(
+        @Value("${customer.profile-cache.ttl-ms:30000}") long ttlMillis,
+        @Value("${customer.profile-cache.max-entries:10000}") int maxEntries
+    ) {
+        this.ttlMillis = ttlMillis;
+        this.profiles = new ExpiringLruCache<>(maxEntries);
+    }
+
+    public Map<String, Object> get(Long customerId, Function<Long, Map<String, Object>> loader) {
+        long now = System.currentTimeMillis();
+        Map<String, Object> profile = profiles.get(customerId, now);
+        if (profile != null) {
+            return profile;
+        }
+        profile = Collections.unmodifiableMap(loader.apply(customerId));
+        if (ttlMillis > 0) {
+            profiles.put(customerId, profile, now + ttlMillis);
+        }
+        return profile;
+    }
+
+    /**
+     * 使客户资料失效。在事务中调用时，提交或回滚后会再次失效，
+     * 避免事务提交前其他请求读到并缓存旧资料。
+     */
+    public void invalidate(Long customerId) {
+        profiles.remove(customerId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    profiles.remove(customerId);
+                }
+            });
+        }
+    }
+}
@@ -27,6 +27,8 @@ import com.qvtu.mallshopping.model.CustomerGroup;
 import com.qvtu.mallshopping.repository.CustomerGroupRepository;
 import com.qvtu.mallshopping.dto.CustomerGroupCreateRequest;
 import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.util.KeysetCursor;
+import com.qvtu.mallshopping.util.KeysetPage;
 import com.qvtu.mallshopping.dto.CustomerGroupUpdateRequest;
 import java.util.Collections;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -52,6 +54,12 @@ public class CustomerService {
     @Autowired
     private CustomerGroupRepository customerGroupRepository;
 
+    @Autowired
+    private CustomerGroupMembershipService customerGroupMembershipService;
+
+    @Autowired
+    private CustomerProfileCache customerProfileCache;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -64,9 +72,7 @@ public class CustomerService {
         Pageable pageable = PageRequest.of(page, size);
         Page<Customer> customerPage = customerRepository.findAll(pageable);
         
-        List<Map<String, Object>> formattedCustomers = customerPage.getContent().stream()
-            .map(this::formatCustomerResponse)
-            .collect(Collectors.toList());
+        List<Map<String, Object>> formattedCustomers = formatCustomerPage(customerPage.getContent());
 
         Map<String, Object> response = new HashMap<>();
         response.put("customers", formattedCustomers);
@@ -77,7 +83,42 @@ public class CustomerService {
         return response;
     }
 
+    // 游标分页：按 (created_at, id) 倒序，用估算行数代替 count(*)
+    public Map<String, Object> listCustomersByCursor(String cursor, int size) {
+        log.info("按游标获取客户列表, cursor: {}, 每页数量: {}", cursor, size);
+
+        KeysetPage<Customer> page = KeysetPage.fetch(cursor, size,
+            customerRepository::findKeysetPage, customerRepository::findKeysetPageAfter, customerRepository::findUndatedPageBefore,
+            c -> new KeysetCursor(c.getCreatedAt(), c.getId()));
+        List<Customer> customers = page.getItems();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("customers", formatCustomerPage(customers));
+        response.put("estimated_count", customerRepository.estimateCount());
+        response.put("limit", page.getLimit());
+        response.put("next_cursor", page.getNextCursor());
+
+        return response;
+    }
+
+    // 一页客户的地址用一条查询加载，不逐个初始化客户的地址集合
+    private List<Map<String, Object>> formatCustomerPage(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<Address>> addressesByCustomer = addressRepository.findByCustomerIdIn(
+                customers.stream().map(Customer::getId).collect(Collectors.toList())).stream()
+            .collect(Collectors.groupingBy(a -> a.getCustomer().getId()));
+        return customers.stream()
+            .map(c -> formatCustomerResponse(c, addressesByCustomer.getOrDefault(c.getId(), Collections.emptyList())))
+            .collect(Collectors.toList());
+    }
+
     private Map<String, Object> formatCustomerResponse(Customer customer) {
+        return formatCustomerResponse(customer, customer.getAddresses());
+    }
+
+    private Map<String, Object> formatCustomerResponse(Customer customer, List<Address> addresses) {
         Map<String, Object> formatted = new HashMap<>();
         formatted.put("id", customer.getId().toString());
         formatted.put("has_account", customer.getHasAccount());
@@ -99,7 +140,7 @@ public class CustomerService {
         formatted.put("first_name", customer.getFirstName());
         formatted.put("last_name", customer.getLastName());
 
-        List<Map<String, Object>> formattedAddresses = customer.getAddresses().stream()
+        List<Map<String, Object>> formattedAddresses = addresses.stream()
             .map(this::formatAddressResponse)
             .collect(Collectors.toList());
         formatted.put("addresses", formattedAddresses);
@@ -232,9 +273,7 @@ public class CustomerService {
 
         // 如果提供了新的电话号码，更新或创建默认地址
         if (request.getPhone() != null) {
-            Address defaultAddress = customer.getAddresses().stream()
-                .filter(addr -> Boolean.TRUE.equals(addr.isDefaultBilling()))
-                .findFirst()
+            Address defaultAddress = addressRepository.findDefaultBillingByCustomerId(customer.getId())
                 .orElse(Address.builder()
                     .customer(customer)
                     .isDefaultShipping(true)
@@ -247,10 +286,11 @@ public class CustomerService {
             defaultAddress.setFirstName(customer.getFirstName());
             defaultAddress.setLastName(customer.getLastName());
             defaultAddress.setCompany(customer.getCompanyName());
+            boolean created = defaultAddress.getId() == null;
             
             defaultAddress = addressRepository.save(defaultAddress);
 
-            if (!customer.getAddresses().contains(defaultAddress)) {
+            if (created) {
                 customer.getAddresses().add(defaultAddress);
                 customer.setDefaultBillingAddress(defaultAddress);
                 customer.setDefaultShippingAddress(defaultAddress);
@@ -258,6 +298,7 @@ public class CustomerService {
         }
 
         customer = customerRepository.save(customer);
+        customerProfileCache.invalidate(id);
         log.info("客户信息更新成功, ID: {}", customer.getId());
 
         Map<String, Object> response = new HashMap<>();
@@ -275,6 +316,7 @@ public class CustomerService {
 
         // 删除客户
         customerRepository.delete(customer);
+        customerProfileCache.invalidate(id);
         log.info("客户删除成功, ID: {}", id);
 
         // 格式化响应
@@ -487,6 +529,18 @@ public class CustomerService {
         }
     }
 
+    // 不含成员列表的群组信息，成员数从关联表统计
+    private Map<String, Object> formatCustomerGroupSummary(CustomerGroup group) {
+        Map<String, Object> formatted = new HashMap<>();
+        formatted.put("id", group.getId().toString());
+        formatted.put("name", group.getName());
+        formatted.put("metadata", group.getMetadata());
+        formatted.put("customer_count", customerGroupMembershipService.countMembers(group.getId()));
+        formatted.put("created_at", group.getCreatedAt());
+        formatted.put("updated_at", group.getUpdatedAt());
+        return formatted;
+    }
+
     private Map<String, Object> formatCustomerGroupResponse(CustomerGroup group) {
         Map<String, Object> formatted = new HashMap<>();
         formatted.put("id", group.getId().toString());
@@ -687,46 +741,16 @@ public class CustomerService {
         log.info("开始向客户群组添加客户, 群组ID: {}, 客户IDs: {}", groupId, customerIds);
         
         try {
-            // 查找客户群组
+            // 直接批量写入关联表
+            int added = customerGroupMembershipService.addMembers(groupId, parseCustomerIds(customerIds));
+            log.info("成功向客户群组添加 {} 个客户", added);
+            
             CustomerGroup group = customerGroupRepository.findById(groupId)
                 .orElseThrow(() -> new ResourceNotFoundException("Customer group not found"));
             
-            List<Customer> addedCustomers = new ArrayList<>();
-            
-            // 添加客户到群组
-            for (String customerId : customerIds) {
-                try {
-                    Long id = Long.parseLong(customerId);
-                    Customer customer = customerRepository.findById(id)
-                        .orElseThrow(() -> new ResourceNotFoundException("Customer not found: " + id));
-                    
-                    // 检查客户是否已在群组中
-                    if (!group.getCustomers().contains(customer)) {
-                        group.getCustomers().add(customer);
-                        
-                        // 更新客户的群组列表
-                        if (customer.getCustomerGroups() == null) {
-                            customer.setCustomerGroups(new ArrayList<>());
-                        }
-                        if (!customer.getCustomerGroups().contains(group)) {
-                            customer.getCustomerGroups().add(group);
-                            customerRepository.save(customer);
-                        }
-                        
-                        addedCustomers.add(customer);
-                    }
-                } catch (NumberFormatException e) {
-                    log.warn("无效的客户ID格式: {}", customerId);
-                }
-            }
-            
-            // 保存更新后的群组
-            group = customerGroupRepository.save(group);
-            log.info("成功向客户群组添加 {} 个客户", addedCustomers.size());
-            
-            // 格式化响应
+            // 格式化响应，群组成员通过 GET /groups/{id}/customers 分页获取
             Map<String, Object> response = new HashMap<>();
-            response.put("customer_group", formatCustomerGroupResponse(group));
+            response.put("customer_group", formatCustomerGroupSummary(group));
             
             return response;
         } catch (ResourceNotFoundException e) {
@@ -742,36 +766,8 @@ public class CustomerService {
         log.info("开始从客户群组移除客户, 群组ID: {}, 客户IDs: {}", groupId, customerIds);
         
         try {
-            // 查找客户群组
-            CustomerGroup group = customerGroupRepository.findById(groupId)
-                .orElseThrow(() -> new ResourceNotFoundException("Customer group not found"));
-            
-            int removedCount = 0;
-            
-            // 从群组中移除客户
-            for (String customerId : customerIds) {
-                try {
-                    Long id = Long.parseLong(customerId);
-                    Customer customer = customerRepository.findById(id)
-                        .orElseThrow(() -> new ResourceNotFoundException("Customer not found: " + id));
-                    
-                    // 从群组中移除客户
-                    if (group.getCustomers().remove(customer)) {
-                        removedCount++;
-                        
-                        // 从客户的群组列表中移除此群组
-                        if (customer.getCustomerGroups() != null) {
-                            customer.getCustomerGroups().remove(group);
-                            customerRepository.save(customer);
-                        }
-                    }
-                } catch (NumberFormatException e) {
-                    log.warn("无效的客户ID格式: {}", customerId);
-                }
-            }
-            
-            // 保存更新后的群组
-            customerGroupRepository.save(group);
+            // 直接从关联表批量删除
+            int removedCount = customerGroupMembershipService.removeMembers(groupId, parseCustomerIds(customerIds));
             log.info("成功从客户群组移除 {} 个客户", removedCount);
         } catch (ResourceNotFoundException e) {
             log.error("客户群组不存在, ID: {}", groupId);
@@ -791,12 +787,7 @@ public class CustomerService {
                 .orElseThrow(() -> new ResourceNotFoundException("Customer group not found"));
             
             // 从所有关联的客户中移除此群组
-            for (Customer customer : group.getCustomers()) {
-                if (customer.getCustomerGroups() != null) {
-                    customer.getCustomerGroups().remove(group);
-                    customerRepository.save(customer);
-                }
-            }
+            customerGroupMembershipService.removeAllMembers(id);
             
             // 删除客户群组
             customerGroupRepository.delete(group);
@@ -822,33 +813,20 @@ public class CustomerService {
         log.info("获取客户群组中的客户列表, 群组ID: {}, 页码: {}, 每页数量: {}", groupId, page, size);
         
         try {
-            // 查找客户群组
-            CustomerGroup group = customerGroupRepository.findById(groupId)
-                .orElseThrow(() -> new ResourceNotFoundException("Customer group not found"));
-            
-            // 获取群组中的客户
-            List<Customer> customers = group.getCustomers();
-            
-            // 分页处理
-            int start = page * size;
-            int end = Math.min(start + size, customers.size());
-            
-            List<Customer> pagedCustomers;
-            if (start < customers.size()) {
-                pagedCustomers = customers.subList(start, end);
-            } else {
-                pagedCustomers = new ArrayList<>();
+            if (!customerGroupMembershipService.groupExists(groupId)) {
+                throw new ResourceNotFoundException("Customer group not found");
             }
             
+            // 在数据库中分页，只加载当前页的客户
+            List<Customer> pagedCustomers = customerRepository.findPageInGroup(groupId, PageRequest.of(page, size));
+            
             // 格式化客户列表
-            List<Map<String, Object>> formattedCustomers = pagedCustomers.stream()
-                .map(this::formatCustomerResponse)
-                .collect(Collectors.toList());
+            List<Map<String, Object>> formattedCustomers = formatCustomerPage(pagedCustomers);
             
             // 构建响应
             Map<String, Object> response = new HashMap<>();
             response.put("customers", formattedCustomers);
-            response.put("count", customers.size());
+            response.put("count", customerGroupMembershipService.countMembers(groupId));
             response.put("offset", page * size);
             response.put("limit", size);
             
@@ -862,6 +840,41 @@ public class CustomerService {
         }
     }
 
+    // 群组成员的游标分页：按 (created_at, id) 倒序，总数只统计关联表
+    public Map<String, Object> listCustomersInGroupByCursor(Long groupId, String cursor, int size) {
+        log.info("按游标获取客户群组中的客户列表, 群组ID: {}, cursor: {}, 每页数量: {}", groupId, cursor, size);
+
+        if (!customerGroupMembershipService.groupExists(groupId)) {
+            throw new ResourceNotFoundException("Customer group not found");
+        }
+        KeysetPage<Customer> page = KeysetPage.fetch(cursor, size,
+            pageable -> customerRepository.findDatedPageInGroup(groupId, pageable),
+            (createdAt, id, pageable) -> customerRepository.findPageInGroupAfter(groupId, createdAt, id, pageable),
+            (id, pageable) -> customerRepository.findUndatedPageInGroupBefore(groupId, id, pageable),
+            c -> new KeysetCursor(c.getCreatedAt(), c.getId()));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("customers", formatCustomerPage(page.getItems()));
+        response.put("count", customerGroupMembershipService.countMembers(groupId));
+        response.put("limit", page.getLimit());
+        response.put("next_cursor", page.getNextCursor());
+
+        return response;
+    }
+
+    // 无效的客户 ID 跳过
+    private List<Long> parseCustomerIds(List<String> customerIds) {
+        List<Long> ids = new ArrayList<>(customerIds.size());
+        for (String customerId : customerIds) {
+            try {
+                ids.add(Long.parseLong(customerId));
+            } catch (NumberFormatException e) {
+                log.warn("无效的客户ID格式: {}", customerId);
+            }
+        }
+        return ids;
+    }
+
     @Transactional
     public Customer registerCustomer(CustomerRegisterRequest request) {
         // 检查邮箱是否已被注册
@@ -1096,6 +1109,7 @@ public class CustomerService {
         // 获取客户
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
+        customerProfileCache.invalidate(customerId);
         
         // 更新客户信息（仅更新非null字段）
         if (companyName != null) {
@@ -1136,25 +1150,15 @@ public class CustomerService {
      * @return 地址列表及分页信息
      */
     public Map<String, Object> getCustomerAddresses(Long customerId, int limit, int offset) {
-        // 获取客户
-        Customer customer = customerRepository.findById(customerId)
-                .orElseThrow(() -> new RuntimeException("Customer not found"));
-        
-        // 获取所有地址
-        List<Address> addresses = customer.getAddresses();
-        
-        // 计算总数
-        int count = addresses.size();
-        
-        // 应用分页
-        List<Address> pagedAddresses;
-        if (offset < count) {
-            int endIndex = Math.min(offset + limit, count);
-            pagedAddresses = addresses.subList(offset, endIndex);
-        } else {
-            pagedAddresses = new ArrayList<>();
+        // 检查客户是否存在
+        if (!customerRepository.existsById(customerId)) {
+            throw new RuntimeException("Customer not found");
         }
         
+        // 在数据库中分页，只加载当前页的地址
+        List<Address> pagedAddresses = addressRepository.findPageByCustomerId(customerId, limit, offset);
+        long count = addressRepository.countByCustomerId(customerId);
+        
         // 格式化响应
         List<Map<String, Object>> formattedAddresses = pagedAddresses.stream()
                 .map(this::formatAddressResponse)
@@ -1198,6 +1202,7 @@ public class CustomerService {
         // 获取客户
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
+        customerProfileCache.invalidate(customerId);
         
         // 创建新地址
         Address address = new Address();
@@ -1220,7 +1225,7 @@ public class CustomerService {
         }
         
         // 如果是客户的第一个地址，则设置为默认地址
-        if (customer.getAddresses() == null || customer.getAddresses().isEmpty()) {
+        if (!addressRepository.existsByCustomerId(customerId)) {
             address.setDefaultShipping(true);
             address.setDefaultBilling(true);
             customer.setDefaultShippingAddress(address);
@@ -1305,6 +1310,7 @@ public class CustomerService {
         // 获取客户
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found"));
+        customerProfileCache.invalidate(customerId);
         
         // 获取地址
         Address address = addressRepository.findById(addressId)
@@ -1362,8 +1368,13 @@ public class CustomerService {
         // 保存更新后的地址
         addressRepository.save(address);
         
-        // 处理默认地址设置
+        // 处理默认地址设置，原默认地址的标记同时清除，保证每个客户最多一个默认地址
         if (isDefaultShipping != null) {
+            if (isDefaultShipping) {
+                addressRepository.findDefaultShippingByCustomerId(customerId)
+                    .filter(previous -> !previous.getId().equals(addressId))
+                    .ifPresent(previous -> previous.setDefaultShipping(false));
+            }
             address.setDefaultShipping(isDefaultShipping);
             if (isDefaultShipping) {
                 customer.setDefaultShippingAddress(address);
@@ -1374,6 +1385,11 @@ public class CustomerService {
         }
 
         if (isDefaultBilling != null) {
+            if (isDefaultBilling) {
+                addressRepository.findDefaultBillingByCustomerId(customerId)
+                    .filter(previous -> !previous.getId().equals(addressId))
+                    .ifPresent(previous -> previous.setDefaultBilling(false));
+            }
             address.setDefaultBilling(isDefaultBilling);
             if (isDefaultBilling) {
                 customer.setDefaultBillingAddress(address);
@@ -1400,6 +1416,7 @@ public class CustomerService {
         // 获取客户
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("客户不存在"));
+        customerProfileCache.invalidate(customerId);
         
         // 获取地址
         Address address = addressRepository.findById(addressId)
@@ -1444,6 +1461,7 @@ public class CustomerService {
     public List<Address> generateRandomAddresses(Long customerId, int count) {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("客户不存在"));
+        customerProfileCache.invalidate(customerId);
         
         Faker faker = new Faker(new Locale("zh", "CN"));
         List<Address> addresses = new ArrayList<>();
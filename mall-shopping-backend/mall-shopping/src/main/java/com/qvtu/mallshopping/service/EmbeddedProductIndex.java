@@ -0,0 +1,449 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.ProductStatus;
+import com.qvtu.mallshopping.model.Product;
+import com.qvtu.mallshopping.model.ProductVariant;
+import com.qvtu.mallshopping.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内的商品倒排索引，用于没有调优 PostgreSQL 的单节点门店部署。
+ * 启动时从 ProductRepository 全量构建，之后由 ProductService / CollectionService 在修改商品的事务中调用
+ * indexAfterCommit / removeAfterCommit，事务提交后增量更新，
+ * 搜索、状态/商品系列分面统计和 top-k 排序都不访问数据库。
+ * 词典按字典序保存，查询词按前缀匹配；倒排表使用 int 文档号和 float 权重的数组，控制内存占用。
+ */
+@Slf4j
+@Service
+public class EmbeddedProductIndex {
+    // 各字段命中时的权重，完全匹配的词另外加权
+    static final float TITLE_WEIGHT = 3f;
+    static final float SKU_WEIGHT = 3f;
+    static final float SUBTITLE_WEIGHT = 2f;
+    static final float HANDLE_WEIGHT = 2f;
+    static final float COLLECTION_WEIGHT = 1.5f;
+    static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float EXACT_TERM_BOOST = 1.5f;
+
+    private final ProductRepository productRepository;
+    private final boolean enabled;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final List<Document> documents = new ArrayList<>();
+    private final Map<Long, Integer> docIdsByProduct = new HashMap<>();
+    private final List<Integer> freeDocIds = new ArrayList<>();
+
+    // 得分高的在前，同分时商品 ID 小的在前
+    private final Comparator<Map.Entry<Integer, Float>> ranking = Comparator
+        .comparing((Map.Entry<Integer, Float> entry) -> entry.getValue())
+        .thenComparing(entry -> -documents.get(entry.getKey()).productId);
+
+    public EmbeddedProductIndex(
+        ProductRepository productRepository,
+        @Value("${product.search.embedded.enabled:false}") boolean enabled
+    ) {
+        this.productRepository = productRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        List<ProductDocument> loaded = new ArrayList<>();
+        for (Product product : productRepository.findAllForIndex()) {
+            loaded.add(ProductDocument.of(product));
+        }
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            documents.clear();
+            docIdsByProduct.clear();
+            freeDocIds.clear();
+            loaded.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Built embedded product index with {} products and {} terms in {} ms",
+            loaded.size(), termCount(), System.currentTimeMillis() - start);
+    }
+
+    public void index(ProductDocument document) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(document.productId());
+            add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 在事务内组装商品的索引文档，提交后写入索引；事务回滚时索引不变。
+     * 变体是 Product 的反向关联，只修改变体时实体回调不会触发，因此由修改商品的服务显式调用。
+     */
+    public void indexAfterCommit(Product product) {
+        if (!enabled) {
+            return;
+        }
+        ProductDocument document = ProductDocument.of(product);
+        afterCommit(() -> index(document));
+    }
+
+    // 商品系列变更时按 ID 在提交后重新读取商品，已被删除的商品从索引中移除
+    public void reindexAfterCommit(List<Long> productIds) {
+        if (!enabled || productIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(productIds);
+        afterCommit(() -> ids.forEach(productId -> productRepository.findForIndexById(productId)
+            .ifPresentOrElse(product -> index(ProductDocument.of(product)), () -> remove(productId))));
+    }
+
+    public void removeAfterCommit(Long productId) {
+        if (!enabled) {
+            return;
+        }
+        afterCommit(() -> remove(productId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docIdsByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 搜索商品：每个查询词按前缀匹配，所有词都命中的商品才算结果。
+     * 分面统计基于文本命中的全部商品，不受 status/collectionId 筛选影响。
+     */
+    public ProductSearchService.SearchResult search(String text, ProductStatus status, Long collectionId, int offset, int limit) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return new ProductSearchService.SearchResult(List.of(), 0);
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Float> scores = match(tokens);
+
+            Map<String, Long> statusFacet = new TreeMap<>();
+            Map<String, Long> collectionFacet = new TreeMap<>();
+            PriorityQueue<Map.Entry<Integer, Float>> top = new PriorityQueue<>(ranking);
+            int k = offset + limit;
+            long count = 0;
+            for (Map.Entry<Integer, Float> entry : scores.entrySet()) {
+                Document document = documents.get(entry.getKey());
+                statusFacet.merge(document.status, 1L, Long::sum);
+                if (document.collectionId != null) {
+                    collectionFacet.merge(String.valueOf(document.collectionId), 1L, Long::sum);
+                }
+                if (status != null && !status.name().equals(document.status)) {
+                    continue;
+                }
+                if (collectionId != null && !collectionId.equals(document.collectionId)) {
+                    continue;
+                }
+                count++;
+                // 最小堆只保留得分最高的 k 个
+                if (top.size() < k) {
+                    top.add(entry);
+                } else if (k > 0 && ranking.compare(entry, top.peek()) > 0) {
+                    top.poll();
+                    top.add(entry);
+                }
+            }
+
+            List<Map.Entry<Integer, Float>> ranked = new ArrayList<>(top);
+            ranked.sort(ranking.reversed());
+            List<ProductSearchService.SearchHit> hits = new ArrayList<>();
+            for (int i = offset; i < ranked.size(); i++) {
+                Document document = documents.get(ranked.get(i).getKey());
+                hits.add(new ProductSearchService.SearchHit(document.productId, document.title, document.subtitle,
+                    document.handle, document.thumbnail, document.status, ranked.get(i).getValue()));
+            }
+
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            facets.put("status", statusFacet);
+            facets.put("collection_id", collectionFacet);
+            return new ProductSearchService.SearchResult(hits, count, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // 先处理命中文档最少的查询词，后面的词只在已有的候选中累加得分
+    private Map<Integer, Float> match(List<String> tokens) {
+        List<TokenRange> ranges = new ArrayList<>();
+        for (String token : tokens) {
+            SortedMap<String, Postings> range = terms.subMap(token, token + Character.MAX_VALUE);
+            if (range.isEmpty()) {
+                return Map.of();
+            }
+            ranges.add(new TokenRange(token, range, postingCount(range)));
+        }
+        ranges.sort(Comparator.comparingLong(TokenRange::postings));
+
+        Map<Integer, Float> candidates = null;
+        for (TokenRange tokenRange : ranges) {
+            Map<Integer, Float> tokenScores = new HashMap<>();
+            for (Map.Entry<String, Postings> term : tokenRange.range().entrySet()) {
+                float boost = term.getKey().equals(tokenRange.token()) ? EXACT_TERM_BOOST : 1f;
+                Postings postings = term.getValue();
+                for (int p = 0; p < postings.size; p++) {
+                    int docId = postings.docs[p];
+                    if (candidates == null || candidates.containsKey(docId)) {
+                        tokenScores.merge(docId, postings.weights[p] * boost, Math::max);
+                    }
+                }
+            }
+            if (candidates != null) {
+                Map<Integer, Float> previous = candidates;
+                tokenScores.replaceAll((docId, score) -> score + previous.get(docId));
+            }
+            candidates = tokenScores;
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private record TokenRange(String token, SortedMap<String, Postings> range, long postings) {
+    }
+
+    private static long postingCount(SortedMap<String, Postings> range) {
+        long count = 0;
+        for (Postings postings : range.values()) {
+            count += postings.size;
+        }
+        return count;
+    }
+
+    private void add(ProductDocument source) {
+        Map<String, Float> weights = new HashMap<>();
+        addTerms(weights, source.title(), TITLE_WEIGHT);
+        addTerms(weights, source.subtitle(), SUBTITLE_WEIGHT);
+        addTerms(weights, source.handle(), HANDLE_WEIGHT);
+        addTerms(weights, source.description(), DESCRIPTION_WEIGHT);
+        addTerms(weights, source.collectionTitle(), COLLECTION_WEIGHT);
+        for (String sku : source.skus()) {
+            addTerms(weights, sku, SKU_WEIGHT);
+            // SKU 整体也作为一个词，支持输入完整的 SKU 前缀
+            if (sku != null && !sku.isBlank()) {
+                weights.merge(sku.trim().toLowerCase(Locale.ROOT), SKU_WEIGHT, Math::max);
+            }
+        }
+
+        int docId = freeDocIds.isEmpty() ? documents.size() : freeDocIds.remove(freeDocIds.size() - 1);
+        String[] documentTerms = weights.keySet().toArray(new String[0]);
+        Document document = new Document(source, documentTerms);
+        if (docId == documents.size()) {
+            documents.add(document);
+        } else {
+            documents.set(docId, document);
+        }
+        docIdsByProduct.put(source.productId(), docId);
+        for (Map.Entry<String, Float> entry : weights.entrySet()) {
+            terms.computeIfAbsent(entry.getKey(), term -> new Postings()).add(docId, entry.getValue());
+        }
+    }
+
+    private void removeDocument(Long productId) {
+        Integer docId = docIdsByProduct.remove(productId);
+        if (docId == null) {
+            return;
+        }
+        for (String term : documents.get(docId).terms) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(docId) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+        documents.set(docId, null);
+        freeDocIds.add(docId);
+    }
+
+    private static void addTerms(Map<String, Float> weights, String text, float weight) {
+        for (String token : tokenize(text)) {
+            weights.merge(token, weight, Math::max);
+        }
+    }
+
+    // 按字母和数字以外的字符切词并转小写，与 ProductSearchService 的查询词规则一致
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            int c = i < lower.length() ? lower.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.appendCodePoint(c);
+                if (Character.isSupplementaryCodePoint(c)) {
+                    i++;
+                }
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * 建索引所需的商品字段，与实体和持久化上下文无关。
+     */
+    public record ProductDocument(
+        Long productId,
+        String title,
+        String subtitle,
+        String handle,
+        String thumbnail,
+        String description,
+        String status,
+        Long collectionId,
+        String collectionTitle,
+        List<String> skus
+    ) {
+        public static ProductDocument of(Product product) {
+            List<String> skus = new ArrayList<>();
+            if (product.getVariants() != null) {
+                for (ProductVariant variant : product.getVariants()) {
+                    if (variant.getSku() != null) {
+                        skus.add(variant.getSku());
+                    }
+                }
+            }
+            return new ProductDocument(
+                product.getId(),
+                product.getTitle(),
+                product.getSubtitle(),
+                product.getHandle(),
+                product.getThumbnail(),
+                product.getDescription(),
+                product.getStatus() != null ? product.getStatus().name() : null,
+                product.getCollection() != null ? product.getCollection().getId() : null,
+                product.getCollection() != null ? product.getCollection().getTitle() : null,
+                skus
+            );
+        }
+    }
+
+    // 搜索结果只需要展示字段，描述和 SKU 只参与建索引，不保留原文
+    private static final class Document {
+        final long productId;
+        final String title;
+        final String subtitle;
+        final String handle;
+        final String thumbnail;
+        final String status;
+        final Long collectionId;
+        final String[] terms;
+
+        Document(ProductDocument source, String[] terms) {
+            this.productId = source.productId();
+            this.title = source.title();
+            this.subtitle = source.subtitle();
+            this.handle = source.handle();
+            this.thumbnail = source.thumbnail();
+            this.status = source.status();
+            this.collectionId = source.collectionId();
+            this.terms = terms;
+        }
+    }
+
+    // 单个词的倒排表，无序；删除时用最后一项填补空位
+    private static final class Postings {
+        int[] docs = new int[2];
+        float[] weights = new float[2];
+        int size;
+
+        void add(int docId, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = docId;
+            weights[size] = weight;
+            size++;
+        }
+
+        boolean remove(int docId) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == docId) {
+                    size--;
+                    docs[i] = docs[size];
+                    weights[i] = weights[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
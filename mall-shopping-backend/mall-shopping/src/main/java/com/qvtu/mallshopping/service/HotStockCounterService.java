@@ -0,0 +1,264 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.exception.InsufficientInventoryException;
+import com.qvtu.mallshopping.model.InventoryLevel;
+import com.qvtu.mallshopping.repository.InventoryLevelRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 热门商品的进程内库存计数器。
+ * 配置的库存项目在内存中完成预留的准入判断，预留数量的变化定时批量写回 inventory_levels，
+ * 并定期以数据库为准校正计数器。计数器只在单个实例内有效，多实例部署时不要开启。
+ */
+@Slf4j
+@Service
+public class HotStockCounterService {
+    // InventoryLevel 的数量字段没有指定列名，沿用物理命名策略生成的列名
+    private static final String FLUSH_SQL =
+        "update inventory_levels set reservedQuantity = greatest(coalesce(reservedQuantity, 0) + ?, 0), "
+            + "updatedAt = ? where id = ?";
+
+    private final InventoryLevelRepository inventoryLevelRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Set<Long> hotInventoryItemIds;
+
+    private final Map<LevelKey, Counter> counters = new ConcurrentHashMap<>();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    public HotStockCounterService(
+        InventoryLevelRepository inventoryLevelRepository,
+        JdbcTemplate jdbcTemplate,
+        @Value("${inventory.hot-counters.enabled:false}") boolean enabled,
+        @Value("${inventory.hot-counters.inventory-item-ids:}") List<Long> hotInventoryItemIds
+    ) {
+        this.inventoryLevelRepository = inventoryLevelRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.hotInventoryItemIds = new HashSet<>(hotInventoryItemIds);
+    }
+
+    public boolean isHot(Long inventoryItemId) {
+        return enabled && hotInventoryItemIds.contains(inventoryItemId);
+    }
+
+    /**
+     * 在内存中预留库存。返回 false 表示该库存水平没有计数器，调用方应走数据库路径。
+     */
+    public boolean reserve(Long inventoryItemId, Long locationId, int quantity) {
+        Counter counter = counters.get(new LevelKey(inventoryItemId, locationId));
+        if (counter == null) {
+            return false;
+        }
+        if (!counter.tryReserve(quantity)) {
+            rejected.increment();
+            throw new InsufficientInventoryException(inventoryItemId, locationId, quantity);
+        }
+        admitted.increment();
+        // 外层事务回滚时归还内存中的预留
+        afterRollback(() -> counter.release(quantity));
+        return true;
+    }
+
+    public boolean release(Long inventoryItemId, Long locationId, int quantity) {
+        Counter counter = counters.get(new LevelKey(inventoryItemId, locationId));
+        if (counter == null) {
+            return false;
+        }
+        counter.release(quantity);
+        afterRollback(() -> counter.forceReserve(quantity));
+        return true;
+    }
+
+    // 将累计的预留变化批量写回数据库
+    @Scheduled(fixedDelayString = "${inventory.hot-counters.flush-interval-ms:200}")
+    public synchronized void flush() {
+        if (!enabled || counters.isEmpty()) {
+            return;
+        }
+        List<Counter> flushed = new ArrayList<>();
+        List<Object[]> batch = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (Counter counter : counters.values()) {
+            long delta = counter.drainPending();
+            if (delta != 0) {
+                flushed.add(counter);
+                batch.add(new Object[] {delta, now, counter.levelId});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+            log.debug("Flushed {} hot stock counters, admitted: {}, rejected: {}",
+                batch.size(), admitted.sum(), rejected.sum());
+        } catch (RuntimeException e) {
+            // 写回失败时把变化量放回计数器，下次重试
+            for (int i = 0; i < flushed.size(); i++) {
+                flushed.get(i).restorePending((Long) batch.get(i)[0]);
+            }
+            log.error("Failed to flush hot stock counters: {}", e.getMessage());
+        }
+    }
+
+    // 以数据库为准校正计数器，同时加载新增的库存水平
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${inventory.hot-counters.reconcile-interval-ms:60000}",
+               initialDelayString = "${inventory.hot-counters.reconcile-interval-ms:60000}")
+    public synchronized void reconcile() {
+        if (!enabled || hotInventoryItemIds.isEmpty()) {
+            return;
+        }
+        flush();
+
+        Set<LevelKey> live = new HashSet<>();
+        for (InventoryLevel level : inventoryLevelRepository.findByInventoryIdInAndDeletedAtIsNull(hotInventoryItemIds)) {
+            LevelKey key = new LevelKey(level.getInventory().getId(), level.getLocation().getId());
+            long available = (long) nullToZero(level.getStockedQuantity()) - nullToZero(level.getReservedQuantity());
+            live.add(key);
+
+            Counter existing = counters.putIfAbsent(key, new Counter(level.getId(), available));
+            if (existing != null) {
+                long drift = existing.reconcile(available);
+                if (drift != 0) {
+                    log.warn("Corrected hot stock counter for level {} by {}", level.getId(), drift);
+                }
+            }
+        }
+        counters.keySet().retainAll(live);
+    }
+
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    private static int nullToZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private static void afterRollback(Runnable compensation) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    compensation.run();
+                }
+            }
+        });
+    }
+
+    private record LevelKey(Long inventoryItemId, Long locationId) {
+    }
+
+    /**
+     * 单个库存水平的计数器：可用数量通过 CAS 扣减，未写回的预留变化累计在 LongAdder 中。
+     * 扣减可用数量和记录变化量是两步操作，预留、释放之间共享读锁可以并发执行；
+     * 校正需要两者一致的快照，持有写锁，避免覆盖一次已扣减但尚未记入变化量的预留。
+     */
+    static final class Counter {
+        final Long levelId;
+        private final AtomicLong available;
+        private final LongAdder pendingDelta = new LongAdder();
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+        Counter(Long levelId, long available) {
+            this.levelId = levelId;
+            this.available = new AtomicLong(available);
+        }
+
+        boolean tryReserve(int quantity) {
+            lock.readLock().lock();
+            try {
+                long current;
+                do {
+                    current = available.get();
+                    if (current < quantity) {
+                        return false;
+                    }
+                } while (!available.compareAndSet(current, current - quantity));
+                pendingDelta.add(quantity);
+                return true;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void forceReserve(int quantity) {
+            lock.readLock().lock();
+            try {
+                available.addAndGet(-quantity);
+                pendingDelta.add(quantity);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void release(int quantity) {
+            lock.readLock().lock();
+            try {
+                available.addAndGet(quantity);
+                pendingDelta.add(-quantity);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // sumThenReset 与并发的 add 不是原子的，取走变化量时同样持有写锁
+        long drainPending() {
+            lock.writeLock().lock();
+            try {
+                return pendingDelta.sumThenReset();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void restorePending(long delta) {
+            pendingDelta.add(delta);
+        }
+
+        long available() {
+            return available.get();
+        }
+
+        // 数据库中的可用数量减去尚未写回的预留即为当前应有的可用数量，返回校正的差值
+        long reconcile(long databaseAvailable) {
+            lock.writeLock().lock();
+            try {
+                long corrected = databaseAvailable - pendingDelta.sum();
+                return corrected - available.getAndSet(corrected);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+}
@@ -13,6 +13,8 @@ import com.qvtu.mallshopping.model.Location;
 import com.qvtu.mallshopping.repository.InventoryLevelRepository;
 import com.qvtu.mallshopping.repository.InventoryRepository;
 import com.qvtu.mallshopping.repository.LocationRepository;
+import com.qvtu.mallshopping.util.KeysetCursor;
+import com.qvtu.mallshopping.util.KeysetPage;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -33,12 +35,14 @@ public class InventoryService {
     private final InventoryRepository inventoryRepository;
     private final LocationRepository locationRepository;
     private final InventoryLevelRepository inventoryLevelRepository;
+    private final OutboxService outboxService;
 
     @Autowired
-    public InventoryService(InventoryRepository inventoryRepository, LocationRepository locationRepository, InventoryLevelRepository inventoryLevelRepository) {
+    public InventoryService(InventoryRepository inventoryRepository, LocationRepository locationRepository, InventoryLevelRepository inventoryLevelRepository, OutboxService outboxService) {
         this.inventoryRepository = inventoryRepository;
         this.locationRepository = locationRepository;
         this.inventoryLevelRepository = inventoryLevelRepository;
+        this.outboxService = outboxService;
     }
 
     @Transactional
@@ -101,33 +105,7 @@ public class InventoryService {
         
         List<Map<String, Object>> items = inventoryPage.getContent()
             .stream()
-            .map(inventory -> {
-                Map<String, Object> item = new HashMap<>();
-                item.put("id", inventory.getId().toString());
-                item.put("sku", inventory.getSku());
-                item.put("height", inventory.getHeight());
-                item.put("width", inventory.getWidth());
-                item.put("length", inventory.getLength());
-                item.put("weight", inventory.getWeight());
-                item.put("mid_code", inventory.getMidCode());
-                item.put("hs_code", inventory.getHsCode());
-                item.put("origin_country", inventory.getOriginCountry());
-                item.put("quantity", inventory.getQuantity());
-                item.put("allowBackorder", inventory.getAllowBackorder());
-                item.put("manageInventory", inventory.getManageInventory());
-                item.put("metadata", inventory.getMetadata() != null ? inventory.getMetadata() : new HashMap<>());
-                item.put("createdAt", inventory.getCreatedAt());
-                item.put("updatedAt", inventory.getUpdatedAt());
-                
-                if (inventory.getLocation() != null) {
-                    Map<String, Object> location = new HashMap<>();
-                    location.put("id", inventory.getLocation().getId());
-                    location.put("name", inventory.getLocation().getName());
-                    item.put("location", location);
-                }
-                
-                return item;
-            })
+            .map(this::formatInventoryItem)
             .collect(Collectors.toList());
         
         // 构造符合 Medusa 格式的响应数据
@@ -140,6 +118,52 @@ public class InventoryService {
         return response;
     }
 
+    // 游标分页：按 (created_at, id) 倒序，用估算行数代替 count(*)
+    public Map<String, Object> listInventoriesByCursor(String cursor, Integer limit) {
+        KeysetPage<Inventory> page = KeysetPage.fetch(cursor, limit,
+            inventoryRepository::findKeysetPage, inventoryRepository::findKeysetPageAfter, inventoryRepository::findUndatedPageBefore,
+            i -> new KeysetCursor(i.getCreatedAt(), i.getId()));
+        List<Inventory> inventories = page.getItems();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("inventory_items", inventories.stream()
+            .map(this::formatInventoryItem)
+            .collect(Collectors.toList()));
+        response.put("estimated_count", inventoryRepository.estimateCount());
+        response.put("limit", page.getLimit());
+        response.put("next_cursor", page.getNextCursor());
+
+        return response;
+    }
+
+    private Map<String, Object> formatInventoryItem(Inventory inventory) {
+        Map<String, Object> item = new HashMap<>();
+        item.put("id", inventory.getId().toString());
+        item.put("sku", inventory.getSku());
+        item.put("height", inventory.getHeight());
+        item.put("width", inventory.getWidth());
+        item.put("length", inventory.getLength());
+        item.put("weight", inventory.getWeight());
+        item.put("mid_code", inventory.getMidCode());
+        item.put("hs_code", inventory.getHsCode());
+        item.put("origin_country", inventory.getOriginCountry());
+        item.put("quantity", inventory.getQuantity());
+        item.put("allowBackorder", inventory.getAllowBackorder());
+        item.put("manageInventory", inventory.getManageInventory());
+        item.put("metadata", inventory.getMetadata() != null ? inventory.getMetadata() : new HashMap<>());
+        item.put("createdAt", inventory.getCreatedAt());
+        item.put("updatedAt", inventory.getUpdatedAt());
+        
+        if (inventory.getLocation() != null) {
+            Map<String, Object> location = new HashMap<>();
+            location.put("id", inventory.getLocation().getId());
+            location.put("name", inventory.getLocation().getName());
+            item.put("location", location);
+        }
+        
+        return item;
+    }
+
     @Transactional
     public List<Map<String, Object>> updateLocationLevels(List<LocationLevelDTO> locationLevels) {
         List<Map<String, Object>> results = new ArrayList<>();
@@ -160,6 +184,8 @@ public class InventoryService {
                 
                 // 保存更新
                 inventory = inventoryRepository.save(inventory);
+                outboxService.publish("inventory", inventory.getId(), "inventory.stock_updated",
+                    stockMessage(location.getId(), inventory.getQuantity()));
                 
                 // 构造响应
                 Map<String, Object> result = new HashMap<>();
@@ -359,12 +385,20 @@ public class InventoryService {
         level = inventoryLevelRepository.save(level);
         log.info("Saved inventory level: {}", level);
 
-        // 更新库存项目的总库存数量
-        Integer oldQuantity = inventory.getQuantity();
-        inventory.setQuantity(oldQuantity + level.getStockedQuantity());
-        inventoryRepository.save(inventory);
-        log.info("Updated inventory quantity from {} to {}", oldQuantity, inventory.getQuantity());
+        // 原子更新库存项目的总库存数量
+        inventoryRepository.adjustQuantity(inventory.getId(), level.getStockedQuantity(), LocalDateTime.now());
+        log.info("Added {} to inventory {} quantity", level.getStockedQuantity(), inventory.getId());
+        outboxService.publish("inventory", inventory.getId(), "inventory.level_created",
+            stockMessage(location.getId(), level.getStockedQuantity()));
 
         return convertLevelToMap(level);
     }
-} 
\ No newline at end of file
+
+    // 发件箱消息内容
+    private static Map<String, Object> stockMessage(Long locationId, Integer stockedQuantity) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("location_id", locationId);
+        payload.put("stocked_quantity", stockedQuantity);
+        return payload;
+    }
+}
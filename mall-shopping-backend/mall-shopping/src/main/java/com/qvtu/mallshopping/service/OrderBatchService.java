@@ -0,0 +1,171 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 批量订单状态变更。订单按批加锁读取，在内存中校验状态，再用 JDBC 批量更新订单并追加订单事件；
+ * 校验规则由 OrderStateMachine 提供，每批在一个事务中提交，提交后把每个订单的结果交给调用方，不再逐个重新加载和格式化订单。
+ */
+@Slf4j
+@Service
+public class OrderBatchService {
+    public static final int MAX_ORDERS = 100_000;
+
+    private static final Set<OrderStateMachine.Transition> BATCH_TRANSITIONS = EnumSet.of(
+        OrderStateMachine.Transition.ARCHIVE, OrderStateMachine.Transition.CANCEL, OrderStateMachine.Transition.COMPLETE);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderEventLog orderEventLog;
+    private final int chunkSize;
+
+    public OrderBatchService(
+        JdbcTemplate jdbcTemplate,
+        TransactionTemplate transactionTemplate,
+        OrderStateMachine orderStateMachine,
+        OrderEventLog orderEventLog,
+        @Value("${order.batch.chunk-size:500}") int chunkSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.orderStateMachine = orderStateMachine;
+        this.orderEventLog = orderEventLog;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 依次处理各批订单，每批提交后把结果按请求顺序交给 results。重复的订单 ID 只处理一次。
+     */
+    public void transition(OrderStateMachine.Transition transition, List<Long> orderIds, Consumer<Map<String, Object>> results) {
+        // 配送需要逐个订单校验订单项，不支持批量
+        if (!BATCH_TRANSITIONS.contains(transition)) {
+            throw new IllegalArgumentException("Batch " + transition.getValue() + " is not supported");
+        }
+        if (orderIds == null || orderIds.isEmpty()) {
+            throw new IllegalArgumentException("order_ids is required");
+        }
+        if (orderIds.size() > MAX_ORDERS) {
+            throw new IllegalArgumentException("At most " + MAX_ORDERS + " orders can be processed per request");
+        }
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(orderIds));
+        ids.remove(null);
+
+        int succeeded = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            List<Map<String, Object>> chunkResults = transactionTemplate.execute(status -> transitionChunk(transition, chunk));
+            for (Map<String, Object> result : chunkResults) {
+                if (Boolean.TRUE.equals(result.get("success"))) {
+                    succeeded++;
+                }
+                results.accept(result);
+            }
+        }
+        log.info("Batch {} finished: {} of {} orders updated", transition.getValue(), succeeded, ids.size());
+    }
+
+    private List<Map<String, Object>> transitionChunk(OrderStateMachine.Transition transition, List<Long> ids) {
+        Map<Long, OrderState> states = new HashMap<>();
+        jdbcTemplate.query(
+            "select id, version, status, payment_status, fulfillment_status from orders where id = any(?) order by id for update",
+            rs -> {
+                states.put(rs.getLong("id"), new OrderState(
+                    (Integer) rs.getObject("version"),
+                    orderStatus(rs.getString("status")),
+                    paymentStatus(rs.getString("payment_status")),
+                    fulfillmentStatus(rs.getString("fulfillment_status"))));
+            },
+            (Object) ids.toArray(new Long[0]));
+
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+        List<Object[]> orderUpdates = new ArrayList<>();
+        List<OrderEventLog.Event> events = new ArrayList<>();
+        List<Map<String, Object>> results = new ArrayList<>(ids.size());
+
+        for (Long id : ids) {
+            OrderState state = states.get(id);
+            if (state == null) {
+                results.add(failure(id, "not_found", "Order not found"));
+                continue;
+            }
+            String error = orderStateMachine.check(transition, state.status, state.paymentStatus, state.fulfillmentStatus);
+            if (error != null) {
+                results.add(failure(id, "not_allowed", error));
+                continue;
+            }
+
+            OrderStatus status = orderStateMachine.targetStatus(transition, state.status);
+            PaymentStatus paymentStatus = orderStateMachine.targetPaymentStatus(transition, state.paymentStatus);
+            FulfillmentStatus fulfillmentStatus = orderStateMachine.targetFulfillmentStatus(transition, state.fulfillmentStatus);
+            orderUpdates.add(new Object[] {status.name(), name(paymentStatus), name(fulfillmentStatus), timestamp, id});
+            events.add(new OrderEventLog.Event(id, transition, state.version, status.name(), name(paymentStatus),
+                name(fulfillmentStatus), "system", now));
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("id", id.toString());
+            result.put("success", true);
+            result.put("status", status.name());
+            result.put("payment_status", name(paymentStatus));
+            result.put("fulfillment_status", name(fulfillmentStatus));
+            results.add(result);
+        }
+
+        if (!orderUpdates.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                "update orders set status = ?, payment_status = ?, fulfillment_status = ?, updated_at = ? where id = ?",
+                orderUpdates);
+            // 变更记录和取消支付集合由 OrderChangeProjector 根据事件异步完成
+            orderEventLog.appendAll(events);
+        }
+        return results;
+    }
+
+    private static Map<String, Object> failure(Long id, String type, String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("id", id.toString());
+        result.put("success", false);
+        result.put("type", type);
+        result.put("message", message);
+        return result;
+    }
+
+    private static OrderStatus orderStatus(String name) {
+        return name != null ? OrderStateMachine.parseOrderStatus(name) : null;
+    }
+
+    private static PaymentStatus paymentStatus(String name) {
+        return name != null ? OrderStateMachine.parsePaymentStatus(name) : null;
+    }
+
+    private static FulfillmentStatus fulfillmentStatus(String name) {
+        return name != null ? OrderStateMachine.parseFulfillmentStatus(name) : null;
+    }
+
+    private static String name(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    private record OrderState(Integer version, OrderStatus status, PaymentStatus paymentStatus,
+                              FulfillmentStatus fulfillmentStatus) {
+    }
+}
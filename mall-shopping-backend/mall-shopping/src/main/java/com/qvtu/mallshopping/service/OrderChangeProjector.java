@@ -0,0 +1,142 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.qvtu.mallshopping.enums.PaymentCollectionStatus;
+import com.qvtu.mallshopping.util.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把 order_events 投影为 order_changes，并执行状态变更的后续处理（取消订单时取消支付集合）。
+ * 至少处理一次：同一事件重复投影时 order_changes 按 event_id 去重，后续处理本身是幂等的。
+ * <p>
+ * 事件 ID 由序列分配，提交顺序可能和 ID 顺序不一致，所以不只按检查点往后读，而是读取检查点之后
+ * 所有尚未投影的事件；检查点只推进到早于 settle-ms 的事件，避免跳过还没提交的事务。
+ */
+@Slf4j
+@Service
+public class OrderChangeProjector {
+    static final String PROJECTION = "order_changes";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonCodec jsonCodec;
+    private final int batchSize;
+    private final long settleMillis;
+
+    public OrderChangeProjector(
+        JdbcTemplate jdbcTemplate,
+        TransactionTemplate transactionTemplate,
+        JsonCodec jsonCodec,
+        @Value("${order.events.batch-size:500}") int batchSize,
+        @Value("${order.events.settle-ms:60000}") long settleMillis
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.jsonCodec = jsonCodec;
+        this.batchSize = batchSize;
+        this.settleMillis = settleMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${order.events.projection-interval-ms:1000}", initialDelayString = "${order.events.projection-interval-ms:1000}")
+    public void project() {
+        int projected;
+        int total = 0;
+        do {
+            projected = projectPending();
+            total += projected;
+        } while (projected == batchSize);
+        if (total > 0) {
+            log.debug("Projected {} order events", total);
+        }
+    }
+
+    /**
+     * 在一个事务中投影一批事件，返回本批事件数。检查点行加锁，多个实例不会同时投影。
+     */
+    public int projectPending() {
+        Integer projected = transactionTemplate.execute(status -> {
+            jdbcTemplate.update("insert into event_projections (name, last_event_id, updated_at) values (?, 0, now()) "
+                + "on conflict (name) do nothing", PROJECTION);
+            long checkpoint = jdbcTemplate.queryForObject(
+                "select last_event_id from event_projections where name = ? for update", Long.class, PROJECTION);
+
+            List<Object[]> changes = new ArrayList<>();
+            List<Long> canceledOrders = new ArrayList<>();
+            jdbcTemplate.query("select e.* from order_events e where e.id > ? "
+                    + "and not exists (select 1 from order_changes c where c.event_id = e.id) order by e.id limit ?",
+                rs -> {
+                    String type = rs.getString("type");
+                    OrderStateMachine.Transition transition = OrderStateMachine.Transition.valueOf(type);
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    changes.add(new Object[] {rs.getLong("order_id"), rs.getObject("version"), rs.getString("status"),
+                        rs.getString("requested_by"), createdAt, createdAt, metadata(transition), createdAt, createdAt,
+                        rs.getLong("id")});
+                    if (transition == OrderStateMachine.Transition.CANCEL) {
+                        canceledOrders.add(rs.getLong("order_id"));
+                    }
+                },
+                checkpoint, batchSize);
+
+            if (!changes.isEmpty()) {
+                jdbcTemplate.batchUpdate("insert into order_changes (order_id, version, status, requested_by, requested_at, "
+                    + "confirmed_by, confirmed_at, metadata, created_at, updated_at, event_id) "
+                    + "values (?, ?, ?, ?, ?, 'system', ?, cast(? as jsonb), ?, ?, ?) on conflict (event_id) do nothing", changes);
+            }
+            if (!canceledOrders.isEmpty()) {
+                jdbcTemplate.update(
+                    "update payment_collections set status = ?, updated_at = ? where order_id = any(?) and status is distinct from ?",
+                    PaymentCollectionStatus.CANCELLED.name(), Timestamp.valueOf(LocalDateTime.now()),
+                    canceledOrders.toArray(new Long[0]), PaymentCollectionStatus.CANCELLED.name());
+            }
+            advanceCheckpoint(checkpoint);
+            return changes.size();
+        });
+        return projected != null ? projected : 0;
+    }
+
+    /**
+     * 从事件日志重建 order_changes：删除投影产生的变更记录并把检查点归零，之后由定时任务重新投影。
+     * 没有事件 ID 的历史变更记录保留不动。
+     */
+    public void rebuild() {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update("delete from order_changes where event_id is not null");
+            jdbcTemplate.update("update event_projections set last_event_id = 0, updated_at = now() where name = ?", PROJECTION);
+        });
+        log.info("Order changes will be rebuilt from the event log");
+    }
+
+    // 检查点推进到第一个未投影事件之前，且不超过已经过了 settle-ms 的最后一个事件
+    private void advanceCheckpoint(long checkpoint) {
+        Long firstPending = jdbcTemplate.queryForObject("select min(e.id) from order_events e where e.id > ? "
+            + "and not exists (select 1 from order_changes c where c.event_id = e.id)", Long.class, checkpoint);
+        Long settled = jdbcTemplate.queryForObject("select max(id) from order_events where id > ? and created_at < ?",
+            Long.class, checkpoint, Timestamp.valueOf(LocalDateTime.now().minusNanos(settleMillis * 1_000_000)));
+        if (settled == null) {
+            return;
+        }
+        long next = firstPending != null ? Math.min(firstPending - 1, settled) : settled;
+        if (next > checkpoint) {
+            jdbcTemplate.update("update event_projections set last_event_id = ?, updated_at = now() where name = ?", next, PROJECTION);
+        }
+    }
+
+    private String metadata(OrderStateMachine.Transition transition) {
+        try {
+            return jsonCodec.write(Map.of("description", transition.getDescription()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
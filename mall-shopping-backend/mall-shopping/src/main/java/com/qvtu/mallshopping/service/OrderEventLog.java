@@ -0,0 +1,88 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.model.Order;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单事件日志。订单状态变更只在自己的事务中向 order_events 追加一行，事件只插入不修改；
+ * 变更记录和后续处理由 OrderChangeProjector 异步完成，需要时可以从日志重放。
+ * 同一事务中向发件箱写入消息，供下游订阅者使用。
+ */
+@Slf4j
+@Service
+public class OrderEventLog {
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxService outboxService;
+
+    public OrderEventLog(JdbcTemplate jdbcTemplate, OutboxService outboxService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.outboxService = outboxService;
+    }
+
+    /**
+     * 一个订单事件，记录变更后的状态。
+     */
+    public record Event(Long orderId, OrderStateMachine.Transition transition, Integer version, String status,
+                        String paymentStatus, String fulfillmentStatus, String requestedBy, LocalDateTime createdAt) {
+
+        public static Event of(Order order, OrderStateMachine.Transition transition, LocalDateTime createdAt) {
+            return new Event(order.getId(), transition, order.getVersion(), name(order.getStatus()),
+                name(order.getPaymentStatus()), name(order.getFulfillmentStatus()), "system", createdAt);
+        }
+
+        private static String name(Enum<?> value) {
+            return value != null ? value.name() : null;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSchema() {
+        jdbcTemplate.execute("create table if not exists order_events ("
+            + "id bigserial primary key, order_id bigint not null, type varchar(32) not null, version integer, "
+            + "status varchar(32), payment_status varchar(32), fulfillment_status varchar(32), "
+            + "requested_by varchar(255), created_at timestamp not null)");
+        jdbcTemplate.execute("create index if not exists idx_order_events_order_id on order_events (order_id, id)");
+        // 投影写入的变更记录带事件 ID，重复投影同一事件时只保留一条
+        jdbcTemplate.execute("alter table order_changes add column if not exists event_id bigint");
+        jdbcTemplate.execute("create unique index if not exists uk_order_changes_event_id on order_changes (event_id)");
+        jdbcTemplate.execute("create table if not exists event_projections ("
+            + "name varchar(64) primary key, last_event_id bigint not null default 0, updated_at timestamp)");
+    }
+
+    public void append(Order order, OrderStateMachine.Transition transition) {
+        appendAll(List.of(Event.of(order, transition, LocalDateTime.now())));
+    }
+
+    // 使用调用方的事务，和订单的修改一起提交
+    public void appendAll(List<Event> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(events.size());
+        List<OutboxService.Message> messages = new ArrayList<>(events.size());
+        for (Event event : events) {
+            rows.add(new Object[] {event.orderId(), event.transition().name(), event.version(), event.status(),
+                event.paymentStatus(), event.fulfillmentStatus(), event.requestedBy(), Timestamp.valueOf(event.createdAt())});
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("version", event.version());
+            payload.put("status", event.status());
+            payload.put("payment_status", event.paymentStatus());
+            payload.put("fulfillment_status", event.fulfillmentStatus());
+            messages.add(OutboxService.Message.of("order", event.orderId(), event.transition().getMessageType(), payload));
+        }
+        jdbcTemplate.batchUpdate("insert into order_events (order_id, type, version, status, payment_status, "
+            + "fulfillment_status, requested_by, created_at) values (?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        outboxService.publishAll(messages);
+    }
+}
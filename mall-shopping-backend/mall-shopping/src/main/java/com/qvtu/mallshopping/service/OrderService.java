@@ -8,7 +8,8 @@ import com.qvtu.mallshopping.repository.OrderChangeRepository;
 import com.qvtu.mallshopping.enums.OrderStatus;
 import com.qvtu.mallshopping.enums.PaymentStatus;
 import com.qvtu.mallshopping.enums.FulfillmentStatus;
-import com.qvtu.mallshopping.enums.PaymentCollectionStatus;
+import com.qvtu.mallshopping.util.KeysetCursor;
+import com.qvtu.mallshopping.util.KeysetPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -16,10 +17,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,30 +32,35 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final ShippingMethodRepository shippingMethodRepository;
     private final OrderChangeRepository orderChangeRepository;
+    private final OrderStateMachine orderStateMachine;
+    private final OrderEventLog orderEventLog;
     
     public OrderService(
         OrderRepository orderRepository,
         ShippingMethodRepository shippingMethodRepository,
-        OrderChangeRepository orderChangeRepository
+        OrderChangeRepository orderChangeRepository,
+        OrderStateMachine orderStateMachine,
+        OrderEventLog orderEventLog
     ) {
         this.orderRepository = orderRepository;
         this.shippingMethodRepository = shippingMethodRepository;
         this.orderChangeRepository = orderChangeRepository;
+        this.orderStateMachine = orderStateMachine;
+        this.orderEventLog = orderEventLog;
     }
     
     @Transactional(readOnly = true)
     public Map<String, Object> listOrders(int offset, int limit) {
         log.debug("Listing orders with offset: {} and limit: {}", offset, limit);
         try {
-            // 获取分页订单数据
-            Page<Order> orderPage = orderRepository.findAll(PageRequest.of(offset/limit, limit));
-            log.debug("Found {} orders", orderPage.getTotalElements());
+            // 先分页获取订单 ID，再按 ID 批量加载订单关联数据，避免 N+1 查询
+            Page<Long> idPage = orderRepository.findPageOfIds(PageRequest.of(offset/limit, limit));
+            log.debug("Found {} orders", idPage.getTotalElements());
             
             // 转换订单列表
-            List<Map<String, Object>> formattedOrders = orderPage.getContent().stream()
+            List<Map<String, Object>> formattedOrders = loadOrderGraphs(idPage.getContent()).stream()
                 .map(order -> {
                     try {
-                        log.debug("Formatting order: {}", order.getId());
                         return formatOrderResponse(order);
                     } catch (Exception e) {
                         log.error("Error formatting order {}: {}", order.getId(), e.getMessage());
@@ -65,7 +72,7 @@ public class OrderService {
             // 构建响应
             Map<String, Object> response = new HashMap<>();
             response.put("orders", formattedOrders);
-            response.put("count", orderPage.getTotalElements());
+            response.put("count", idPage.getTotalElements());
             response.put("offset", offset);
             response.put("limit", limit);
             
@@ -76,6 +83,57 @@ public class OrderService {
         }
     }
     
+    // 游标分页：按 (created_at, id) 倒序，用估算行数代替 count(*)
+    @Transactional(readOnly = true)
+    public Map<String, Object> listOrdersByCursor(String cursor, Integer limit) {
+        log.debug("Listing orders with cursor: {} and limit: {}", cursor, limit);
+        // 游标取自 ID 查询的最后一个键，两次查询之间被删除的订单不会让游标回退
+        KeysetPage<KeysetCursor> page = KeysetPage.fetch(cursor, limit,
+            orderRepository::findKeysetIds, orderRepository::findKeysetIdsAfter, orderRepository::findUndatedIdsBefore,
+            Function.identity());
+        List<Order> orders = loadOrderGraphs(page.getItems().stream().map(KeysetCursor::getId).collect(Collectors.toList()));
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("orders", orders.stream().map(this::formatOrderResponse).collect(Collectors.toList()));
+        response.put("estimated_count", orderRepository.estimateCount());
+        response.put("limit", page.getLimit());
+        response.put("next_cursor", page.getNextCursor());
+        return response;
+    }
+
+    // 按 ID 批量加载订单及其订单项、配送方式、支付集合和支付提供商，结果保持传入 ID 的顺序
+    private List<Order> loadOrderGraphs(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Order> byId = new HashMap<>();
+        for (Order order : orderRepository.findWithItemsByIdIn(ids)) {
+            byId.put(order.getId(), order);
+        }
+        orderRepository.fetchShippingMethodsByIdIn(ids);
+        orderRepository.fetchPaymentCollectionsByIdIn(ids);
+        orderRepository.fetchPaymentProvidersByOrderIdIn(ids);
+
+        List<Order> orders = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Order order = byId.get(id);
+            if (order != null) {
+                orders.add(order);
+            }
+        }
+        return orders;
+    }
+
+    private Order loadOrderGraph(Long id) {
+        Order order = orderRepository.findWithItemsById(id)
+            .orElseThrow(() -> new RuntimeException("Order not found"));
+        List<Long> ids = List.of(id);
+        orderRepository.fetchShippingMethodsByIdIn(ids);
+        orderRepository.fetchPaymentCollectionsByIdIn(ids);
+        orderRepository.fetchPaymentProvidersByOrderIdIn(ids);
+        return order;
+    }
+
     private Map<String, Object> formatOrderItem(OrderItem item) {
         Map<String, Object> formatted = new HashMap<>();
         formatted.put("id", item.getId());
@@ -127,22 +185,18 @@ public class OrderService {
     }
 
     private Map<String, Object> formatOrderResponse(Order order) {
-        log.debug("Formatting order response for order ID: {}", order.getId());
         try {
             Map<String, Object> formatted = new HashMap<>();
             formatted.put("id", order.getId());
             
-            // 添加状态前的日志和空值检查
+            // 状态可能为空，格式化前做空值检查；每个订单都会经过这里，只在 TRACE 级别记录
             OrderStatus status = order.getStatus();
-            log.debug("Order {} status before formatting: {}", order.getId(), status);
-            formatted.put("status", status != null ? status.name() : null);
-            
             PaymentStatus paymentStatus = order.getPaymentStatus();
-            log.debug("Order {} payment status before formatting: {}", order.getId(), paymentStatus);
-            formatted.put("payment_status", paymentStatus != null ? paymentStatus.name() : null);
-            
             FulfillmentStatus fulfillmentStatus = order.getFulfillmentStatus();
-            log.debug("Order {} fulfillment status before formatting: {}", order.getId(), fulfillmentStatus);
+            log.trace("Formatting order {}, status: {}, payment status: {}, fulfillment status: {}",
+                order.getId(), status, paymentStatus, fulfillmentStatus);
+            formatted.put("status", status != null ? status.name() : null);
+            formatted.put("payment_status", paymentStatus != null ? paymentStatus.name() : null);
             formatted.put("fulfillment_status", fulfillmentStatus != null ? fulfillmentStatus.name() : null);
             
             formatted.put("customer_id", order.getCustomerId());
@@ -230,13 +284,9 @@ public class OrderService {
         order.setPaymentStatus(PaymentStatus.PENDING);
         order.setFulfillmentStatus(FulfillmentStatus.not_fulfilled);
         
-        // 设置初始金额
-        order.setItemTotal(BigDecimal.ZERO);
-        order.setSubtotal(BigDecimal.ZERO);
-        order.setTaxTotal(BigDecimal.ZERO);
-        order.setShippingTotal(BigDecimal.ZERO);
-        order.setDiscountTotal(BigDecimal.ZERO);
-        order.setTotal(BigDecimal.ZERO);
+        // 草稿订单还没有商品，金额由 OrderTotals 计算，保存配送方式后再计入运费
+        OrderTotals totals = new OrderTotals();
+        totals.writeTo(order);
         
         // 设置时间
         LocalDateTime now = LocalDateTime.now();
@@ -259,11 +309,54 @@ public class OrderService {
                 .collect(Collectors.toList());
             
             shippingMethodRepository.saveAll(shippingMethods);
+            shippingMethods.forEach(sm -> totals.addShipping(PromotionRuleEngine.toCents(sm.getAmount())));
+            totals.writeTo(savedOrder);
         }
         
         return savedOrder;
     }
 
+    /**
+     * 购物车下单：购物车只存在于内存中，到这里才一次写入订单和订单项。
+     */
+    @Transactional
+    public Order createOrderFromCart(Cart cart) {
+        Order order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setEmail(cart.getEmail());
+        order.setCustomerId(cart.getCustomerId() != null ? cart.getCustomerId().toString() : null);
+        order.setRegionId(cart.getRegionId());
+        order.setCurrencyCode(cart.getCurrencyCode());
+        order.setMetadata(cart.getMetadata());
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setFulfillmentStatus(FulfillmentStatus.not_fulfilled);
+
+        LocalDateTime now = LocalDateTime.now();
+        OrderTotals totals = cart.totals();
+        List<OrderItem> items = new ArrayList<>(cart.getItems().size());
+        for (Cart.LineItem line : cart.getItems()) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setTitle(line.getProductTitle());
+            item.setThumbnail(line.getThumbnail());
+            item.setVariantId(line.getVariantId().toString());
+            item.setProductId(Cart.productIdOf(line));
+            item.setProductTitle(line.getProductTitle());
+            item.setVariantTitle(line.getTitle());
+            item.setQuantity(line.getQuantity());
+            item.setRequiresShipping(true);
+            totals.writeTo(line.getId(), item);
+            item.setCreatedAt(now);
+            item.setUpdatedAt(now);
+            items.add(item);
+        }
+        order.setItems(items);
+        order.setShippingMethods(new ArrayList<>());
+        order.setPaymentCollections(new ArrayList<>());
+        totals.writeTo(order);
+        return orderRepository.save(order);
+    }
+
     @Transactional(readOnly = true)
     public OrderDTO getDraftOrder(Long id) {
         Order order = orderRepository.findById(id)
@@ -355,13 +448,11 @@ public class OrderService {
     public Map<String, Object> getOrder(Long id) {
         log.debug("Getting order with ID: {}", id);
         try {
-            Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
+            Order order = loadOrderGraph(id);
             
-            log.debug("Found order: {}", order);
-            log.debug("Order status: {}", order.getStatus());
-            log.debug("Order payment status: {}", order.getPaymentStatus());
-            log.debug("Order fulfillment status: {}", order.getFulfillmentStatus());
+            // 不直接打印 order：toString 会遍历关联集合
+            log.debug("Found order {}, status: {}, payment status: {}, fulfillment status: {}",
+                order.getId(), order.getStatus(), order.getPaymentStatus(), order.getFulfillmentStatus());
             
             return formatOrderResponse(order);
         } catch (Exception e) {
@@ -375,74 +466,29 @@ public class OrderService {
         Order order = orderRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        System.out.println("============ DEBUG INFO ============");
-        System.out.println("Order ID: " + order.getId());
-        System.out.println("Current order status: " + order.getStatus());
-        System.out.println("Current payment status: " + order.getPaymentStatus());
-        System.out.println("Current fulfillment status: " + order.getFulfillmentStatus());
-        System.out.println("Request content: " + request);
+        log.debug("Updating order {}, status: {}, payment status: {}, fulfillment status: {}, request: {}",
+            order.getId(), order.getStatus(), order.getPaymentStatus(), order.getFulfillmentStatus(), request);
         
         if (request != null) {
             if (request.getPaymentStatus() != null) {
-                try {
-                    System.out.println("\nProcessing payment status update:");
-                    System.out.println("Raw payment status from request: " + request.getPaymentStatus());
-                    String paymentStatusStr = request.getPaymentStatus().toLowerCase();
-                    System.out.println("Converted to lowercase: " + paymentStatusStr);
-                    System.out.println("Available payment statuses: " + Arrays.toString(PaymentStatus.values()));
-                    PaymentStatus newPaymentStatus = PaymentStatus.valueOf(paymentStatusStr);
-                    System.out.println("Successfully converted to enum: " + newPaymentStatus);
-                    
-                    System.out.println("Before setting payment status: " + order.getPaymentStatus());
-                    order.setPaymentStatus(newPaymentStatus);
-                    System.out.println("After setting payment status: " + order.getPaymentStatus());
-                } catch (Exception e) {
-                    System.out.println("Failed to update payment status: " + e.getMessage());
-                    e.printStackTrace();
-                    throw new RuntimeException("Invalid payment status: " + request.getPaymentStatus() 
-                        + ". Available values are: " + Arrays.toString(PaymentStatus.values()));
-                }
+                order.setPaymentStatus(OrderStateMachine.parsePaymentStatus(request.getPaymentStatus()));
             }
             
             if (request.getFulfillmentStatus() != null) {
-                try {
-                    System.out.println("\nProcessing fulfillment status update:");
-                    System.out.println("Raw fulfillment status from request: " + request.getFulfillmentStatus());
-                    String fulfillmentStatusStr = request.getFulfillmentStatus().toLowerCase();
-                    System.out.println("Converted to lowercase: " + fulfillmentStatusStr);
-                    System.out.println("Available fulfillment statuses: " + Arrays.toString(FulfillmentStatus.values()));
-                    FulfillmentStatus newFulfillmentStatus = FulfillmentStatus.valueOf(fulfillmentStatusStr);
-                    System.out.println("Successfully converted to enum: " + newFulfillmentStatus);
-                    order.setFulfillmentStatus(newFulfillmentStatus);
-                    System.out.println("New fulfillment status set: " + order.getFulfillmentStatus());
-                } catch (IllegalArgumentException e) {
-                    System.out.println("Failed to update fulfillment status: " + e.getMessage());
-                    System.out.println("Available fulfillment statuses: " + Arrays.toString(FulfillmentStatus.values()));
-                    throw new RuntimeException("Invalid fulfillment status: " + request.getFulfillmentStatus() 
-                        + ". Available values are: " + Arrays.toString(FulfillmentStatus.values()));
-                }
+                order.setFulfillmentStatus(OrderStateMachine.parseFulfillmentStatus(request.getFulfillmentStatus()));
             }
             
             order.setUpdatedAt(LocalDateTime.now());
             try {
-                System.out.println("\nSaving order to database...");
-                System.out.println("Payment status before save: " + order.getPaymentStatus());
                 order = orderRepository.save(order);
-                System.out.println("Order saved successfully");
-                System.out.println("Payment status after save: " + order.getPaymentStatus());
-                
-                Order savedOrder = orderRepository.findById(order.getId()).orElse(null);
-                if (savedOrder != null) {
-                    System.out.println("Re-fetched order payment status: " + savedOrder.getPaymentStatus());
-                }
+                log.debug("Order {} saved, payment status: {}, fulfillment status: {}",
+                    order.getId(), order.getPaymentStatus(), order.getFulfillmentStatus());
             } catch (Exception e) {
-                System.out.println("Failed to save order: " + e.getMessage());
-                e.printStackTrace();
+                log.error("Failed to save order {}", id, e);
                 throw e;
             }
         }
         
-        System.out.println("============ END DEBUG INFO ============");
         return getOrder(id);
     }
 
@@ -457,24 +503,12 @@ public class OrderService {
         Order order = orderRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        // 检查订单状态是否允许存档
-        if (order.getStatus() == OrderStatus.ARCHIVED) {
-            throw new RuntimeException("Order is already archived");
-        }
-        
-        // 验证订单是否可以被存档（例如：已完成的订单）
-        if (order.getStatus() != OrderStatus.COMPLETED && 
-            order.getStatus() != OrderStatus.CANCELLED) {
-            throw new RuntimeException("Only completed or canceled orders can be archived");
-        }
-        
-        // 更新订单状态
-        OrderStatus originalStatus = order.getStatus();
-        order.setStatus(OrderStatus.ARCHIVED);
+        // 只有已完成或已取消的订单可以存档
+        orderStateMachine.apply(OrderStateMachine.Transition.ARCHIVE, order);
         order.setUpdatedAt(LocalDateTime.now());
         
-        // 创建变更记录
-        createOrderChange(order, "Order archived");
+        // 追加订单事件，变更记录由 OrderChangeProjector 异步生成
+        orderEventLog.append(order, OrderStateMachine.Transition.ARCHIVE);
         
         // 保存更新
         order = orderRepository.save(order);
@@ -489,36 +523,12 @@ public class OrderService {
         Order order = orderRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        // 检查订单状态是否允许取消
-        if (order.getStatus() == OrderStatus.CANCELLED) {
-            throw new RuntimeException("Order is already canceled");
-        }
-        
-        // 验证订单是否可以被取消（例如：不能取消已完成的订单）
-        if (order.getStatus() == OrderStatus.COMPLETED || 
-            order.getStatus() == OrderStatus.ARCHIVED) {
-            throw new RuntimeException("Completed or archived orders cannot be canceled");
-        }
-        
-        // 更新订单状态
-        OrderStatus originalStatus = order.getStatus();
-        order.setStatus(OrderStatus.CANCELLED);
-        order.setPaymentStatus(PaymentStatus.CANCELLED);
-        order.setFulfillmentStatus(FulfillmentStatus.canceled);
+        // 已完成或已存档的订单不能取消，取消时支付和配送状态一并取消
+        orderStateMachine.apply(OrderStateMachine.Transition.CANCEL, order);
         order.setUpdatedAt(LocalDateTime.now());
         
-        // 创建变更记录
-        createOrderChange(order, "Order canceled");
-        
-        // 取消相关的支付集合
-        if (order.getPaymentCollections() != null) {
-            order.getPaymentCollections().forEach(pc -> {
-                if (pc.getStatus() != PaymentCollectionStatus.CANCELLED) {
-                    pc.setStatus(PaymentCollectionStatus.CANCELLED);
-                    pc.setUpdatedAt(LocalDateTime.now());
-                }
-            });
-        }
+        // 追加订单事件，变更记录和取消支付集合由 OrderChangeProjector 异步完成
+        orderEventLog.append(order, OrderStateMachine.Transition.CANCEL);
         
         // 保存更新
         order = orderRepository.save(order);
@@ -531,7 +541,35 @@ public class OrderService {
     public List<Map<String, Object>> getOrderChanges(Long orderId) {
         // 获取订单变更历史
         List<OrderChange> changes = orderChangeRepository.findByOrderIdOrderByCreatedAtDesc(orderId);
-        
+        return formatOrderChanges(orderId, changes);
+    }
+
+    // 分页获取订单变更历史
+    @Transactional(readOnly = true)
+    public Map<String, Object> getOrderChanges(Long orderId, int offset, int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
+        if (limit < 1 || limit > KeysetPage.MAX_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1 and " + KeysetPage.MAX_LIMIT);
+        }
+        List<OrderChange> changes = orderChangeRepository.findPageByOrderId(orderId, offset, limit);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("order_changes", formatOrderChanges(orderId, changes));
+        response.put("count", orderChangeRepository.countByOrderId(orderId));
+        response.put("offset", offset);
+        response.put("limit", limit);
+        return response;
+    }
+
+    // 所有变更记录属于同一订单，订单只加载和格式化一次
+    private List<Map<String, Object>> formatOrderChanges(Long orderId, List<OrderChange> changes) {
+        if (changes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<String, Object> order = formatOrderResponse(loadOrderGraph(orderId));
+
         // 转换为响应格式
         return changes.stream().map(change -> {
             Map<String, Object> changeMap = new HashMap<>();
@@ -554,75 +592,23 @@ public class OrderService {
             changeMap.put("metadata", change.getMetadata());
             changeMap.put("created_at", change.getCreatedAt());
             changeMap.put("updated_at", change.getUpdatedAt());
-            
-            // 如果需要，可以添加关联的订单、退货、换货等信息
-            if (change.getOrderId() != null) {
-                changeMap.put("order", getOrder(change.getOrderId()));
-            }
-            
+            changeMap.put("order", order);
             return changeMap;
         }).collect(Collectors.toList());
     }
 
-    // 创建订单变更记录的辅助方法
-    private OrderChange createOrderChange(Order order, String description) {
-        OrderChange change = new OrderChange();
-        change.setOrderId(order.getId());
-        change.setVersion(order.getVersion());
-        change.setStatus(order.getStatus().toString());
-        change.setRequestedBy("system"); // 可以从认证上下文中获取当前用户
-        change.setRequestedAt(LocalDateTime.now());
-        change.setConfirmedBy("system");
-        change.setConfirmedAt(LocalDateTime.now());
-        
-        // 设置元数据
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("description", description);
-        change.setMetadata(metadata);
-        
-        // 设置时间戳
-        LocalDateTime now = LocalDateTime.now();
-        change.setCreatedAt(now);
-        change.setUpdatedAt(now);
-        
-        // 保存变更记录
-        return orderChangeRepository.save(change);
-    }
-
     @Transactional
     public Map<String, Object> completeOrder(Long id, CompleteOrderRequest request) {
         // 获取订单
         Order order = orderRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Order not found"));
         
-        // 检查订单状态是否允许完成
-        if (order.getStatus() == OrderStatus.COMPLETED) {
-            throw new RuntimeException("Order is already completed");
-        }
-        
-        // 验证订单是否可以被完成
-        if (order.getStatus() == OrderStatus.ARCHIVED || 
-            order.getStatus() == OrderStatus.CANCELLED) {
-            throw new RuntimeException("Archived or canceled orders cannot be completed");
-        }
-        
-        // 检查支付状态
-        if (order.getPaymentStatus() != PaymentStatus.PAID) {
-            throw new RuntimeException("Cannot complete order with unpaid payment status");
-        }
-        
-        // 检查配送状态
-        if (order.getFulfillmentStatus() != FulfillmentStatus.fulfilled) {
-            throw new RuntimeException("Cannot complete order with unfulfilled status");
-        }
-        
-        // 更新订单状态
-        OrderStatus originalStatus = order.getStatus();
-        order.setStatus(OrderStatus.COMPLETED);
+        // 已支付且已配送的订单才能完成
+        orderStateMachine.apply(OrderStateMachine.Transition.COMPLETE, order);
         order.setUpdatedAt(LocalDateTime.now());
         
-        // 创建变更记录
-        createOrderChange(order, "Order completed");
+        // 追加订单事件，变更记录由 OrderChangeProjector 异步生成
+        orderEventLog.append(order, OrderStateMachine.Transition.COMPLETE);
         
         // 保存更新
         order = orderRepository.save(order);
@@ -636,19 +622,17 @@ public class OrderService {
         log.info("Testing enum conversion...");
         
         try {
-            PaymentStatus ps = PaymentStatus.valueOf(paymentStatus.toLowerCase());
+            PaymentStatus ps = OrderStateMachine.parsePaymentStatus(paymentStatus);
             log.info("Successfully converted payment status: {} -> {}", paymentStatus, ps);
         } catch (IllegalArgumentException e) {
-            log.error("Failed to convert payment status: {}", paymentStatus);
-            log.error("Available payment statuses: {}", Arrays.toString(PaymentStatus.values()));
+            log.error(e.getMessage());
         }
         
         try {
-            FulfillmentStatus fs = FulfillmentStatus.valueOf(fulfillmentStatus.toLowerCase());
+            FulfillmentStatus fs = OrderStateMachine.parseFulfillmentStatus(fulfillmentStatus);
             log.info("Successfully converted fulfillment status: {} -> {}", fulfillmentStatus, fs);
         } catch (IllegalArgumentException e) {
-            log.error("Failed to convert fulfillment status: {}", fulfillmentStatus);
-            log.error("Available fulfillment statuses: {}", Arrays.toString(FulfillmentStatus.values()));
+            log.error(e.getMessage());
         }
     }
 
@@ -659,12 +643,10 @@ public class OrderService {
             .orElseThrow(() -> new RuntimeException("Order not found"));
         
         // 验证订单状态
-        if (order.getFulfillmentStatus() == FulfillmentStatus.fulfilled) {
-            throw new RuntimeException("Order is already fulfilled");
-        }
-        
-        if (order.getFulfillmentStatus() == FulfillmentStatus.canceled) {
-            throw new RuntimeException("Cannot fulfill canceled order");
+        String rejected = orderStateMachine.check(OrderStateMachine.Transition.FULFILL,
+            order.getStatus(), order.getPaymentStatus(), order.getFulfillmentStatus());
+        if (rejected != null) {
+            throw new IllegalStateException(rejected);
         }
         
         // 验证请求项
@@ -687,7 +669,7 @@ public class OrderService {
         }
         
         // 更新订单配送状态
-        order.setFulfillmentStatus(FulfillmentStatus.fulfilled);
+        orderStateMachine.apply(OrderStateMachine.Transition.FULFILL, order);
         order.setUpdatedAt(LocalDateTime.now());
         
         // 如果有元数据，更新订单元数据
@@ -699,8 +681,8 @@ public class OrderService {
             }
         }
         
-        // 创建订单变更记录
-        createOrderChange(order, "Order fulfilled");
+        // 追加订单事件，变更记录由 OrderChangeProjector 异步生成
+        orderEventLog.append(order, OrderStateMachine.Transition.FULFILL);
         
         // 保存订单
         order = orderRepository.save(order);
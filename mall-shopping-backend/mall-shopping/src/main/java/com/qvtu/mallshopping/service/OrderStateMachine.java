@@ -0,0 +1,219 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import com.qvtu.mallshopping.model.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 订单状态机。每种状态变更允许的来源状态、附加条件和目标状态在启动时编成 EnumMap 表，
+ * 校验只查表和比较枚举，不分配对象，批量校验成千上万个订单时也不需要反射或按字符串查找枚举。
+ * 校验失败返回的错误信息都是常量。
+ */
+@Component
+public class OrderStateMachine {
+
+    public enum Transition {
+        ARCHIVE("archive", "Order archived", "order.archived"),
+        CANCEL("cancel", "Order canceled", "order.canceled"),
+        COMPLETE("complete", "Order completed", "order.completed"),
+        FULFILL("fulfill", "Order fulfilled", "order.fulfilled");
+
+        private final String value;
+        private final String description;
+        private final String messageType;
+
+        Transition(String value, String description, String messageType) {
+            this.value = value;
+            this.description = description;
+            this.messageType = messageType;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        // 写入变更记录的说明
+        public String getDescription() {
+            return description;
+        }
+
+        // 写入发件箱的消息类型
+        public String getMessageType() {
+            return messageType;
+        }
+    }
+
+    /**
+     * 附加条件，满足时返回 null，否则返回错误信息。
+     */
+    @FunctionalInterface
+    interface Guard {
+        String reject(PaymentStatus paymentStatus, FulfillmentStatus fulfillmentStatus);
+    }
+
+    private static final class Rule {
+        // 不允许的来源状态及对应的错误信息，不在表中的状态都允许
+        private final EnumMap<OrderStatus, String> rejectedFrom = new EnumMap<>(OrderStatus.class);
+        private String rejectedWithoutStatus;
+        private Guard[] guards = new Guard[0];
+        private OrderStatus status;
+        private PaymentStatus paymentStatus;
+        private FulfillmentStatus fulfillmentStatus;
+
+        private Rule reject(Set<OrderStatus> statuses, String message) {
+            statuses.forEach(status -> rejectedFrom.put(status, message));
+            return this;
+        }
+    }
+
+    private static final Map<String, PaymentStatus> PAYMENT_STATUSES = lookup(PaymentStatus.values(), PaymentStatus::getValue);
+    private static final Map<String, FulfillmentStatus> FULFILLMENT_STATUSES = lookup(FulfillmentStatus.values(), Enum::name);
+    private static final Map<String, OrderStatus> ORDER_STATUSES = lookup(OrderStatus.values(), OrderStatus::getValue);
+    private static final String PAYMENT_STATUS_VALUES = Arrays.toString(PaymentStatus.values());
+    private static final String FULFILLMENT_STATUS_VALUES = Arrays.toString(FulfillmentStatus.values());
+
+    private final EnumMap<Transition, Rule> rules = new EnumMap<>(Transition.class);
+
+    public OrderStateMachine() {
+        Rule archive = new Rule()
+            .reject(EnumSet.complementOf(EnumSet.of(OrderStatus.COMPLETED, OrderStatus.CANCELLED)),
+                "Only completed or canceled orders can be archived")
+            .reject(EnumSet.of(OrderStatus.ARCHIVED), "Order is already archived");
+        archive.rejectedWithoutStatus = "Only completed or canceled orders can be archived";
+        archive.status = OrderStatus.ARCHIVED;
+        rules.put(Transition.ARCHIVE, archive);
+
+        Rule cancel = new Rule()
+            .reject(EnumSet.of(OrderStatus.COMPLETED, OrderStatus.ARCHIVED), "Completed or archived orders cannot be canceled")
+            .reject(EnumSet.of(OrderStatus.CANCELLED), "Order is already canceled");
+        cancel.status = OrderStatus.CANCELLED;
+        cancel.paymentStatus = PaymentStatus.CANCELLED;
+        cancel.fulfillmentStatus = FulfillmentStatus.canceled;
+        rules.put(Transition.CANCEL, cancel);
+
+        Rule complete = new Rule()
+            .reject(EnumSet.of(OrderStatus.ARCHIVED, OrderStatus.CANCELLED), "Archived or canceled orders cannot be completed")
+            .reject(EnumSet.of(OrderStatus.COMPLETED), "Order is already completed");
+        complete.guards = new Guard[] {
+            (payment, fulfillment) -> payment != PaymentStatus.PAID ? "Cannot complete order with unpaid payment status" : null,
+            (payment, fulfillment) -> fulfillment != FulfillmentStatus.fulfilled ? "Cannot complete order with unfulfilled status" : null
+        };
+        complete.status = OrderStatus.COMPLETED;
+        rules.put(Transition.COMPLETE, complete);
+
+        Rule fulfill = new Rule();
+        fulfill.guards = new Guard[] {
+            (payment, fulfillment) -> fulfillment == FulfillmentStatus.fulfilled ? "Order is already fulfilled" : null,
+            (payment, fulfillment) -> fulfillment == FulfillmentStatus.canceled ? "Cannot fulfill canceled order" : null
+        };
+        fulfill.fulfillmentStatus = FulfillmentStatus.fulfilled;
+        rules.put(Transition.FULFILL, fulfill);
+    }
+
+    /**
+     * 校验状态变更，允许时返回 null，否则返回错误信息。
+     */
+    public String check(Transition transition, OrderStatus status, PaymentStatus paymentStatus,
+                        FulfillmentStatus fulfillmentStatus) {
+        Rule rule = rules.get(transition);
+        String rejected = status != null ? rule.rejectedFrom.get(status) : rule.rejectedWithoutStatus;
+        if (rejected != null) {
+            return rejected;
+        }
+        for (Guard guard : rule.guards) {
+            rejected = guard.reject(paymentStatus, fulfillmentStatus);
+            if (rejected != null) {
+                return rejected;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 校验并把目标状态写入订单，不允许时抛出 IllegalStateException。
+     */
+    public void apply(Transition transition, Order order) {
+        String rejected = check(transition, order.getStatus(), order.getPaymentStatus(), order.getFulfillmentStatus());
+        if (rejected != null) {
+            throw new IllegalStateException(rejected);
+        }
+        order.setStatus(targetStatus(transition, order.getStatus()));
+        order.setPaymentStatus(targetPaymentStatus(transition, order.getPaymentStatus()));
+        order.setFulfillmentStatus(targetFulfillmentStatus(transition, order.getFulfillmentStatus()));
+    }
+
+    // 状态变更不涉及的状态保持不变
+    public OrderStatus targetStatus(Transition transition, OrderStatus current) {
+        OrderStatus target = rules.get(transition).status;
+        return target != null ? target : current;
+    }
+
+    public PaymentStatus targetPaymentStatus(Transition transition, PaymentStatus current) {
+        PaymentStatus target = rules.get(transition).paymentStatus;
+        return target != null ? target : current;
+    }
+
+    public FulfillmentStatus targetFulfillmentStatus(Transition transition, FulfillmentStatus current) {
+        FulfillmentStatus target = rules.get(transition).fulfillmentStatus;
+        return target != null ? target : current;
+    }
+
+    /**
+     * 解析支付状态，枚举名和值都接受，不区分大小写。
+     */
+    public static PaymentStatus parsePaymentStatus(String value) {
+        PaymentStatus status = find(PAYMENT_STATUSES, value);
+        if (status == null) {
+            throw new IllegalArgumentException("Invalid payment status: " + value
+                + ". Available values are: " + PAYMENT_STATUS_VALUES);
+        }
+        return status;
+    }
+
+    public static FulfillmentStatus parseFulfillmentStatus(String value) {
+        FulfillmentStatus status = find(FULFILLMENT_STATUSES, value);
+        if (status == null) {
+            throw new IllegalArgumentException("Invalid fulfillment status: " + value
+                + ". Available values are: " + FULFILLMENT_STATUS_VALUES);
+        }
+        return status;
+    }
+
+    public static OrderStatus parseOrderStatus(String value) {
+        OrderStatus status = find(ORDER_STATUSES, value);
+        if (status == null) {
+            throw new IllegalArgumentException("Invalid order status: " + value);
+        }
+        return status;
+    }
+
+    // 先按原样查找（数据库中保存的是枚举名），找不到再转小写
+    private static <E> E find(Map<String, E> statuses, String value) {
+        if (value == null) {
+            return null;
+        }
+        E status = statuses.get(value);
+        return status != null ? status : statuses.get(value.toLowerCase(Locale.ROOT));
+    }
+
+    private static <E extends Enum<E>> Map<String, E> lookup(E[] values, Function<E, String> valueOf) {
+        Map<String, E> lookup = new HashMap<>();
+        for (E value : values) {
+            lookup.put(value.name(), value);
+            lookup.put(value.name().toLowerCase(Locale.ROOT), value);
+            lookup.put(valueOf.apply(value).toLowerCase(Locale.ROOT), value);
+        }
+        return Map.copyOf(lookup);
+    }
+}
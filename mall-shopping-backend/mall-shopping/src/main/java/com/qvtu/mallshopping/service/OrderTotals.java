@@ -0,0 +1,229 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.model.OrderItem;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 订单金额计算。金额以分为单位的 long 保存，加购、改数量、删行时只按差额更新合计，不重新累加整单；
+ * 促销折扣在商品或促销变化后第一次读取时才重新评估。写入订单和订单项时才转换为 BigDecimal。
+ * 本类不是线程安全的，购物车上的修改由 CartStore 串行执行。
+ */
+public final class OrderTotals {
+    private final Map<String, Line> lines = new LinkedHashMap<>();
+    private long itemTotal;
+    private long shippingTotal;
+
+    private List<PromotionRuleEngine.CompiledPromotion> promotions = List.of();
+    private Collection<String> customerGroupIds = List.of();
+    private boolean discountsStale;
+    private long discountTotal;
+    private boolean freeShipping;
+    private boolean discounted;
+
+    private static final class Line {
+        private final String productId;
+        private final Collection<String> categoryIds;
+        private long unitPrice;
+        private long quantity;
+        private long discount;
+        // 评估促销用的商品行，数量或价格变化后重建
+        private PromotionRuleEngine.CartLine cartLine;
+
+        private Line(String productId, Collection<String> categoryIds, long unitPrice, long quantity) {
+            this.productId = productId;
+            this.categoryIds = categoryIds;
+            this.unitPrice = unitPrice;
+            this.quantity = quantity;
+        }
+
+        private long total() {
+            return unitPrice * quantity;
+        }
+    }
+
+    /**
+     * 新增或替换一行，合计按这一行的差额更新。
+     */
+    public void putLine(String lineId, String productId, Collection<String> categoryIds, long unitPrice, long quantity) {
+        Line previous = lines.put(lineId, new Line(productId, categoryIds, unitPrice, quantity));
+        itemTotal += unitPrice * quantity - (previous != null ? previous.total() : 0);
+        discountsStale = true;
+    }
+
+    public void updateLine(String lineId, long unitPrice, long quantity) {
+        Line line = line(lineId);
+        itemTotal += unitPrice * quantity - line.total();
+        line.unitPrice = unitPrice;
+        line.quantity = quantity;
+        line.cartLine = null;
+        discountsStale = true;
+    }
+
+    public void setQuantity(String lineId, long quantity) {
+        Line line = line(lineId);
+        updateLine(lineId, line.unitPrice, quantity);
+    }
+
+    public void removeLine(String lineId) {
+        Line removed = lines.remove(lineId);
+        if (removed != null) {
+            itemTotal -= removed.total();
+            discountsStale = true;
+        }
+    }
+
+    public void addShipping(long amount) {
+        shippingTotal += amount;
+    }
+
+    /**
+     * 设置参与评估的自动促销。促销快照和客户群组都没有变化时沿用上次的评估结果。
+     */
+    public void applyPromotions(List<PromotionRuleEngine.CompiledPromotion> promotions, Collection<String> customerGroupIds) {
+        Collection<String> groups = customerGroupIds != null ? customerGroupIds : List.of();
+        if (promotions != this.promotions || !Objects.equals(groups, this.customerGroupIds)) {
+            this.promotions = promotions;
+            this.customerGroupIds = groups;
+            discountsStale = true;
+        }
+    }
+
+    public long getItemTotal() {
+        return itemTotal;
+    }
+
+    public long getShippingTotal() {
+        evaluateDiscounts();
+        return freeShipping ? 0 : shippingTotal;
+    }
+
+    public long getDiscountTotal() {
+        evaluateDiscounts();
+        return discountTotal;
+    }
+
+    // 暂未接入税率，税额为 0
+    public long getTaxTotal() {
+        return 0;
+    }
+
+    public long getTotal() {
+        return itemTotal - getDiscountTotal() + getShippingTotal() + getTaxTotal();
+    }
+
+    public long getLineTotal(String lineId) {
+        return line(lineId).total();
+    }
+
+    public long getLineDiscount(String lineId) {
+        evaluateDiscounts();
+        return line(lineId).discount;
+    }
+
+    /**
+     * 把合计写入订单，金额在这里才转换为 BigDecimal。
+     */
+    public void writeTo(Order order) {
+        order.setItemTotal(PromotionRuleEngine.fromCents(itemTotal));
+        order.setSubtotal(PromotionRuleEngine.fromCents(itemTotal));
+        order.setTaxTotal(PromotionRuleEngine.fromCents(getTaxTotal()));
+        order.setShippingTotal(PromotionRuleEngine.fromCents(getShippingTotal()));
+        order.setDiscountTotal(PromotionRuleEngine.fromCents(getDiscountTotal()));
+        order.setTotal(PromotionRuleEngine.fromCents(getTotal()));
+    }
+
+    public void writeTo(String lineId, OrderItem item) {
+        Line line = line(lineId);
+        long discount = getLineDiscount(lineId);
+        item.setUnitPrice(PromotionRuleEngine.fromCents(line.unitPrice));
+        item.setSubtotal(PromotionRuleEngine.fromCents(line.total()));
+        item.setTaxTotal(BigDecimal.ZERO);
+        item.setDiscountTotal(PromotionRuleEngine.fromCents(discount));
+        item.setTotal(PromotionRuleEngine.fromCents(line.total() - discount));
+    }
+
+    public OrderTotals copy() {
+        OrderTotals copy = new OrderTotals();
+        lines.forEach((id, line) -> {
+            Line lineCopy = new Line(line.productId, line.categoryIds, line.unitPrice, line.quantity);
+            lineCopy.discount = line.discount;
+            lineCopy.cartLine = line.cartLine;
+            copy.lines.put(id, lineCopy);
+        });
+        copy.itemTotal = itemTotal;
+        copy.shippingTotal = shippingTotal;
+        copy.promotions = promotions;
+        copy.customerGroupIds = customerGroupIds;
+        copy.discountsStale = discountsStale;
+        copy.discountTotal = discountTotal;
+        copy.freeShipping = freeShipping;
+        copy.discounted = discounted;
+        return copy;
+    }
+
+    // 促销的条件和分摊依赖整单，折扣只能整体重新评估；多个促销叠加时每行和整单的折扣都不超过金额
+    private void evaluateDiscounts() {
+        if (!discountsStale) {
+            return;
+        }
+        discountsStale = false;
+        // 没有促销时只在上次有折扣的情况下清零，合计仍然是 O(1)
+        if (promotions.isEmpty() && !discounted) {
+            return;
+        }
+        discountTotal = 0;
+        freeShipping = false;
+        discounted = false;
+        Line[] evaluated = lines.values().toArray(new Line[0]);
+        for (Line line : evaluated) {
+            line.discount = 0;
+        }
+        if (promotions.isEmpty() || evaluated.length == 0) {
+            return;
+        }
+
+        List<PromotionRuleEngine.CartLine> cartLines = new ArrayList<>(evaluated.length);
+        for (Line line : evaluated) {
+            if (line.cartLine == null) {
+                line.cartLine = new PromotionRuleEngine.CartLine(line.productId, line.categoryIds, line.quantity, line.unitPrice);
+            }
+            cartLines.add(line.cartLine);
+        }
+        PromotionRuleEngine.Cart cart = new PromotionRuleEngine.Cart(cartLines, customerGroupIds);
+        long orderDiscount = 0;
+        for (PromotionRuleEngine.AppliedPromotion applied : PromotionRuleEngine.evaluate(promotions, cart)) {
+            freeShipping |= applied.freeShipping();
+            long[] lineDiscounts = applied.lineDiscountCents();
+            if (lineDiscounts == null) {
+                orderDiscount += applied.discountCents();
+                continue;
+            }
+            for (int i = 0; i < evaluated.length; i++) {
+                Line line = evaluated[i];
+                line.discount = Math.min(line.discount + lineDiscounts[i], line.total());
+            }
+        }
+        long lineDiscountTotal = 0;
+        for (Line line : evaluated) {
+            lineDiscountTotal += line.discount;
+        }
+        discountTotal = Math.min(lineDiscountTotal + orderDiscount, itemTotal);
+        discounted = discountTotal > 0 || freeShipping || lineDiscountTotal > 0;
+    }
+
+    private Line line(String lineId) {
+        Line line = lines.get(lineId);
+        if (line == null) {
+            throw new IllegalArgumentException("Unknown line " + lineId);
+        }
+        return line;
+    }
+}
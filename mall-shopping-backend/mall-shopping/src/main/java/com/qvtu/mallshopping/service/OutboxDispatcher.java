@@ -0,0 +1,257 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.qvtu.mallshopping.util.JsonCodec;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 发件箱投递。单个后台线程按批读取到期的消息（for update skip locked，多实例不会重复领取），
+ * 同步交给订阅者，成功后删除，失败则按重试次数推迟。
+ * <p>
+ * 发布事务提交后唤醒投递线程，定时轮询兜底处理其他实例写入的消息和到期的重试。唤醒请求最多排队一个，
+ * 投递线程忙时多余的唤醒直接合并；下一批只在订阅者处理完上一批后读取，消息积压在表中而不是内存里，
+ * 订阅者变慢只会拖慢投递，不影响发布消息的请求。
+ * <p>
+ * 没有订阅者时不投递，消息留在表中等之后部署的订阅者补投，超过 retention-hours 仍未投递的消息会被清理。
+ */
+@Slf4j
+@Service
+public class OutboxDispatcher {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final JsonCodec jsonCodec;
+    private final ObjectProvider<OutboxSubscriber> subscriberProvider;
+    private final List<OutboxSubscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long retryDelayMillis;
+    private final long retentionHours;
+    private final ThreadPoolExecutor executor;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder dispatchNanos = new LongAdder();
+    private volatile boolean started;
+
+    public OutboxDispatcher(
+        JdbcTemplate jdbcTemplate,
+        TransactionTemplate transactionTemplate,
+        JsonCodec jsonCodec,
+        ObjectProvider<OutboxSubscriber> subscriberProvider,
+        @Value("${outbox.dispatcher.enabled:true}") boolean enabled,
+        @Value("${outbox.dispatcher.batch-size:200}") int batchSize,
+        @Value("${outbox.dispatcher.max-batches-per-run:50}") int maxBatchesPerRun,
+        @Value("${outbox.dispatcher.retry-delay-ms:1000}") long retryDelayMillis,
+        @Value("${outbox.retention-hours:168}") long retentionHours
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.jsonCodec = jsonCodec;
+        this.subscriberProvider = subscriberProvider;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.retryDelayMillis = retryDelayMillis;
+        this.retentionHours = retentionHours;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1),
+            runnable -> {
+                Thread thread = new Thread(runnable, "outbox-dispatcher");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    // OutboxService 建表后调用，订阅者此时都已初始化
+    void start() {
+        subscriberProvider.orderedStream().forEach(subscribers::add);
+        started = enabled;
+        log.info("Outbox dispatcher {} with {} subscribers", enabled ? "started" : "disabled", subscribers.size());
+        wakeUp();
+    }
+
+    @PreDestroy
+    public void stop() {
+        started = false;
+        executor.shutdown();
+    }
+
+    public void subscribe(OutboxSubscriber subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(OutboxSubscriber subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    public void wakeUp() {
+        if (started) {
+            executor.execute(this::dispatch);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.dispatcher.poll-interval-ms:1000}")
+    public void poll() {
+        wakeUp();
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.purge-interval-ms:3600000}", initialDelayString = "${outbox.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        if (!started) {
+            return;
+        }
+        int purged = jdbcTemplate.update("delete from outbox_messages where available_at < ?",
+            Timestamp.valueOf(LocalDateTime.now().minusHours(retentionHours)));
+        if (purged > 0) {
+            log.warn("Purged {} outbox messages not delivered within {} hours", purged, retentionHours);
+        }
+    }
+
+    /**
+     * 连续投递直到没有到期的消息，单次最多 max-batches-per-run 批，返回投递成功的消息数。
+     */
+    public int dispatch() {
+        if (subscribers.isEmpty()) {
+            return 0;
+        }
+        int total = 0;
+        try {
+            for (int i = 0; i < maxBatchesPerRun; i++) {
+                int fetched = dispatchBatch();
+                if (fetched < 0) {
+                    break;
+                }
+                total += fetched;
+                if (fetched < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Outbox dispatch failed", e);
+        }
+        return total;
+    }
+
+    // 返回本批投递成功的消息数，投递失败时返回 -1
+    private int dispatchBatch() {
+        Integer result = transactionTemplate.execute(status -> {
+            List<OutboxService.Message> messages = new ArrayList<>();
+            jdbcTemplate.query("select * from outbox_messages where available_at <= ? order by id limit ? for update skip locked",
+                rs -> {
+                    messages.add(new OutboxService.Message(rs.getLong("id"), rs.getString("aggregate_type"),
+                        rs.getString("aggregate_id"), rs.getString("type"), payload(rs.getString("payload")),
+                        rs.getInt("attempts"), rs.getTimestamp("created_at").toLocalDateTime()));
+                },
+                Timestamp.valueOf(LocalDateTime.now()), batchSize);
+            if (messages.isEmpty()) {
+                return 0;
+            }
+
+            long start = System.nanoTime();
+            boolean succeeded = deliver(messages);
+            Long[] ids = messages.stream().map(OutboxService.Message::id).toArray(Long[]::new);
+            if (succeeded) {
+                jdbcTemplate.update("delete from outbox_messages where id = any(?)", (Object) ids);
+                delivered.add(messages.size());
+            } else {
+                // 按重试次数指数推迟，最长约一小时
+                jdbcTemplate.update("update outbox_messages set attempts = attempts + 1, "
+                        + "available_at = cast(? as timestamp) + cast(? as bigint) * power(2, least(attempts, 12)) * interval '1 millisecond' "
+                        + "where id = any(?)",
+                    Timestamp.valueOf(LocalDateTime.now()), retryDelayMillis, ids);
+                failed.add(messages.size());
+            }
+            batches.increment();
+            dispatchNanos.add(System.nanoTime() - start);
+            return succeeded ? messages.size() : -1;
+        });
+        return result != null ? result : 0;
+    }
+
+    private boolean deliver(List<OutboxService.Message> messages) {
+        boolean succeeded = true;
+        for (OutboxSubscriber subscriber : subscribers) {
+            List<OutboxService.Message> accepted = new ArrayList<>(messages.size());
+            for (OutboxService.Message message : messages) {
+                if (subscriber.accepts(message.type())) {
+                    accepted.add(message);
+                }
+            }
+            if (accepted.isEmpty()) {
+                continue;
+            }
+            try {
+                subscriber.deliver(accepted);
+            } catch (Exception e) {
+                log.warn("Outbox subscriber {} failed on {} messages", subscriber.getClass().getName(), accepted.size(), e);
+                succeeded = false;
+            }
+        }
+        return succeeded;
+    }
+
+    private Map<String, Object> payload(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return jsonCodec.readMap(json);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void recordPublished(int count) {
+        published.add(count);
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * 投递统计：累计数量、待投递数量和订阅者处理消息的吞吐量（条/秒）。
+     */
+    public Map<String, Object> getStats() {
+        long deliveredCount = delivered.sum();
+        long nanos = dispatchNanos.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("published", published.sum());
+        stats.put("delivered", deliveredCount);
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        stats.put("pending", jdbcTemplate.queryForObject("select count(*) from outbox_messages", Long.class));
+        stats.put("delivered_per_second", nanos > 0 ? deliveredCount * 1_000_000_000L / nanos : 0);
+        return stats;
+    }
+}
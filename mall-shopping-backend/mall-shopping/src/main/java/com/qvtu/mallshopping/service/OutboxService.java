@@ -0,0 +1,105 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.qvtu.mallshopping.util.JsonCodec;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 事务性发件箱。业务变更在自己的事务中向 outbox_messages 写入消息，和业务数据一起提交或回滚；
+ * 消息由 OutboxDispatcher 在提交后异步投递给订阅者，请求本身只多一次批量插入。
+ */
+@Service
+public class OutboxService {
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonCodec jsonCodec;
+    private final OutboxDispatcher outboxDispatcher;
+
+    public OutboxService(JdbcTemplate jdbcTemplate, JsonCodec jsonCodec, OutboxDispatcher outboxDispatcher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonCodec = jsonCodec;
+        this.outboxDispatcher = outboxDispatcher;
+    }
+
+    /**
+     * 一条发件箱消息。type 形如 "order.canceled"，aggregateId 是变更对象的 ID。
+     */
+    public record Message(Long id, String aggregateType, String aggregateId, String type, Map<String, Object> payload,
+                          int attempts, LocalDateTime createdAt) {
+
+        public static Message of(String aggregateType, Object aggregateId, String type, Map<String, Object> payload) {
+            return new Message(null, aggregateType, String.valueOf(aggregateId), type, payload, 0, LocalDateTime.now());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSchema() {
+        jdbcTemplate.execute("create table if not exists outbox_messages ("
+            + "id bigserial primary key, aggregate_type varchar(32) not null, aggregate_id varchar(64) not null, "
+            + "type varchar(64) not null, payload jsonb, attempts integer not null default 0, "
+            + "available_at timestamp not null, created_at timestamp not null)");
+        jdbcTemplate.execute("create index if not exists idx_outbox_messages_available_at on outbox_messages (available_at, id)");
+        outboxDispatcher.start();
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, Object aggregateId, String type, Map<String, Object> payload) {
+        publishAll(List.of(Message.of(aggregateType, aggregateId, type, payload)));
+    }
+
+    // 必须在业务事务中调用，提交后唤醒投递线程
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishAll(List<Message> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Timestamp createdAt = Timestamp.valueOf(message.createdAt());
+            rows.add(new Object[] {message.aggregateType(), message.aggregateId(), message.type(),
+                payload(message.payload()), createdAt, createdAt});
+        }
+        jdbcTemplate.batchUpdate("insert into outbox_messages (aggregate_type, aggregate_id, type, payload, available_at, created_at) "
+            + "values (?, ?, ?, cast(? as jsonb), ?, ?)", rows);
+        int published = messages.size();
+        afterCommit(() -> {
+            outboxDispatcher.recordPublished(published);
+            outboxDispatcher.wakeUp();
+        });
+    }
+
+    private String payload(Map<String, Object> payload) {
+        if (payload == null) {
+            return null;
+        }
+        try {
+            return jsonCodec.write(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,17 @@
+package com.qvtu.mallshopping.service;
+
+import java.util.List;
+
+/**
+ * 进程内的发件箱订阅者，注册为 Spring Bean 后由 OutboxDispatcher 按批投递消息，代替消息中间件的消费者。
+ * 投递至少一次：任何订阅者抛出异常时整批消息稍后重新投递，订阅者需要按消息 ID 自行去重。
+ */
+public interface OutboxSubscriber {
+
+    // 只投递返回 true 的消息类型，默认接收全部
+    default boolean accepts(String type) {
+        return true;
+    }
+
+    void deliver(List<OutboxService.Message> messages) throws Exception;
+}
@@ -16,6 +16,8 @@ import java.util.stream.Collectors;
 import java.math.BigDecimal;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Random;
 import com.qvtu.mallshopping.enums.OrderStatus;
 import com.qvtu.mallshopping.enums.PaymentStatus;
@@ -27,15 +29,18 @@ public class PaymentCollectionService {
     private final PaymentCollectionRepository paymentCollectionRepository;
     private final OrderRepository orderRepository;
     private final PaymentProviderRepository paymentProviderRepository;
+    private final OutboxService outboxService;
     
     public PaymentCollectionService(
         PaymentCollectionRepository paymentCollectionRepository,
         OrderRepository orderRepository,
-        PaymentProviderRepository paymentProviderRepository
+        PaymentProviderRepository paymentProviderRepository,
+        OutboxService outboxService
     ) {
         this.paymentCollectionRepository = paymentCollectionRepository;
         this.orderRepository = orderRepository;
         this.paymentProviderRepository = paymentProviderRepository;
+        this.outboxService = outboxService;
     }
     
     @Transactional
@@ -241,6 +246,13 @@ public class PaymentCollectionService {
         // 保存更新
         paymentCollection = paymentCollectionRepository.save(paymentCollection);
         
+        // 在同一事务中写入发件箱消息
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("order_id", paymentCollectionOrderId);
+        payload.put("amount", paymentCollection.getAmount());
+        payload.put("currency_code", paymentCollection.getCurrencyCode());
+        outboxService.publish("payment_collection", paymentCollection.getId(), "payment_collection.paid", payload);
+        
         // 返回更新后的DTO
         return convertToDTO(paymentCollection);
     }
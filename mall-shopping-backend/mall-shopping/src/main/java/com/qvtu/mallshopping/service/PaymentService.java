@@ -17,8 +17,11 @@ import com.qvtu.mallshopping.dto.PaymentProviderDTO;
 import com.qvtu.mallshopping.model.PaymentCapture;
 import com.qvtu.mallshopping.repository.PaymentCaptureRepository;
 import java.time.LocalDateTime;
+import java.math.BigDecimal;
 import com.qvtu.mallshopping.model.PaymentRefund;
 import com.qvtu.mallshopping.repository.PaymentRefundRepository;
+import com.qvtu.mallshopping.util.KeysetCursor;
+import com.qvtu.mallshopping.util.KeysetPage;
 
 @Service
 public class PaymentService {
@@ -26,17 +29,20 @@ public class PaymentService {
     private final PaymentProviderRepository paymentProviderRepository;
     private final PaymentCaptureRepository paymentCaptureRepository;
     private final PaymentRefundRepository paymentRefundRepository;
+    private final OutboxService outboxService;
     
     public PaymentService(
         PaymentRepository paymentRepository,
         PaymentProviderRepository paymentProviderRepository,
         PaymentCaptureRepository paymentCaptureRepository,
-        PaymentRefundRepository paymentRefundRepository
+        PaymentRefundRepository paymentRefundRepository,
+        OutboxService outboxService
     ) {
         this.paymentRepository = paymentRepository;
         this.paymentProviderRepository = paymentProviderRepository;
         this.paymentCaptureRepository = paymentCaptureRepository;
         this.paymentRefundRepository = paymentRefundRepository;
+        this.outboxService = outboxService;
     }
     
     @Transactional(readOnly = true)
@@ -61,6 +67,25 @@ public class PaymentService {
         return response;
     }
     
+    // 游标分页：按 (created_at, id) 倒序，用估算行数代替 count(*)
+    @Transactional(readOnly = true)
+    public Map<String, Object> listPaymentsByCursor(String cursor, Integer limit) {
+        KeysetPage<Payment> page = KeysetPage.fetch(cursor, limit,
+            paymentRepository::findKeysetPage, paymentRepository::findKeysetPageAfter, paymentRepository::findUndatedPageBefore,
+            p -> new KeysetCursor(p.getCreatedAt(), p.getId()));
+        List<Payment> payments = page.getItems();
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("payments", payments.stream()
+            .map(this::convertToDTO)
+            .collect(Collectors.toList()));
+        response.put("estimated_count", paymentRepository.estimateCount());
+        response.put("limit", page.getLimit());
+        response.put("next_cursor", page.getNextCursor());
+
+        return response;
+    }
+
     private PaymentDTO convertToDTO(Payment payment) {
         PaymentDTO dto = new PaymentDTO();
         dto.setId(payment.getId().toString());
@@ -133,6 +158,7 @@ public class PaymentService {
         
         // 保存更新后的支付记录
         payment = paymentRepository.save(payment);
+        outboxService.publish("payment", payment.getId(), "payment.captured", paymentMessage(payment, payment.getCapturedAmount()));
         
         return convertToDTO(payment);
     }
@@ -168,7 +194,18 @@ public class PaymentService {
         
         // 保存更新后的支付记录
         payment = paymentRepository.save(payment);
+        outboxService.publish("payment", payment.getId(), "payment.refunded", paymentMessage(payment, refund.getAmount()));
         
         return convertToDTO(payment);
     }
+
+    // 发件箱消息内容
+    private Map<String, Object> paymentMessage(Payment payment, BigDecimal amount) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("amount", amount);
+        payload.put("currency_code", payment.getCurrencyCode());
+        payload.put("payment_collection_id",
+            payment.getPaymentCollection() != null ? payment.getPaymentCollection().getId() : null);
+        return payload;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,194 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.ProductStatus;
+import com.qvtu.mallshopping.model.Collection;
+import com.qvtu.mallshopping.model.Product;
+import com.qvtu.mallshopping.model.ProductCard;
+import com.qvtu.mallshopping.model.ProductOption;
+import com.qvtu.mallshopping.model.ProductVariant;
+import com.qvtu.mallshopping.repository.ProductCardRepository;
+import com.qvtu.mallshopping.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 维护商城前台的商品卡片读模型（product_cards）。
+ * 商品、变体或所属商品系列变更时，由 ProductService / CollectionService 在同一事务中调用 refresh，
+ * 前台列表和详情只按索引读取已组装好的卡片 JSON，不再加载商品的延迟关联，也不经过实体映射。
+ */
+@Slf4j
+@Service
+@Transactional
+public class ProductCardService {
+    private final ProductCardRepository productCardRepository;
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final String currencyCode;
+
+    public ProductCardService(
+        ProductCardRepository productCardRepository,
+        ProductRepository productRepository,
+        JdbcTemplate jdbcTemplate,
+        @Value("${store.currency-code:cny}") String currencyCode
+    ) {
+        this.productCardRepository = productCardRepository;
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.currencyCode = currencyCode;
+    }
+
+    /**
+     * 重新组装单个商品的卡片；商品已删除时删除卡片。
+     */
+    public void refresh(Long productId) {
+        Optional<Product> product = productRepository.findForIndexById(productId);
+        if (product.isEmpty()) {
+            remove(productId);
+            return;
+        }
+        ProductCard card = productCardRepository.findById(productId).orElseGet(ProductCard::new);
+        card.setProductId(productId);
+        card.setHandle(product.get().getHandle());
+        card.setStatus(product.get().getStatus());
+        card.setCollectionId(product.get().getCollection() != null ? product.get().getCollection().getId() : null);
+        card.setCard(buildCard(product.get(), currencyCode));
+        card.setRefreshedAt(LocalDateTime.now());
+        productCardRepository.save(card);
+    }
+
+    public void refreshAll(List<Long> productIds) {
+        productIds.forEach(this::refresh);
+    }
+
+    public void remove(Long productId) {
+        if (productCardRepository.existsById(productId)) {
+            productCardRepository.deleteById(productId);
+        }
+    }
+
+    /**
+     * 按 handle 读取已发布商品的卡片 JSON 原文。读路径不开启事务，也不反序列化，由控制器直接输出。
+     */
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Optional<String> getPublishedCard(String handle) {
+        List<String> cards = jdbcTemplate.queryForList(
+            "select card from product_cards where handle = ? and status = ?", String.class,
+            handle, ProductStatus.PUBLISHED.name());
+        return cards.stream().findFirst();
+    }
+
+    // 列表和总数在同一条查询中返回，偏移超过结果数时才单独计数
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public CardPage listPublishedCards(Long collectionId, int offset, int limit) {
+        String where = collectionId != null ? " where status = ? and collection_id = ?" : " where status = ?";
+        Object[] filters = collectionId != null
+            ? new Object[] {ProductStatus.PUBLISHED.name(), collectionId}
+            : new Object[] {ProductStatus.PUBLISHED.name()};
+
+        List<Object> args = new ArrayList<>(List.of(filters));
+        args.add(limit);
+        args.add(offset);
+        long[] total = {offset == 0 ? 0 : -1};
+        List<String> cards = jdbcTemplate.query(
+            "select card, count(*) over () as total from product_cards" + where
+                + " order by product_id desc limit ? offset ?",
+            (rs, rowNum) -> {
+                total[0] = rs.getLong("total");
+                return rs.getString("card");
+            }, args.toArray());
+        if (total[0] < 0) {
+            Long count = jdbcTemplate.queryForObject("select count(*) from product_cards" + where, Long.class, filters);
+            total[0] = count != null ? count : 0;
+        }
+        return new CardPage(cards, total[0]);
+    }
+
+    public record CardPage(List<String> products, long count) {
+    }
+
+    // 为还没有卡片的商品（历史数据或直接写库的数据）补齐读模型
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillCards() {
+        List<Long> missing = productCardRepository.findProductIdsWithoutCard();
+        if (missing.isEmpty()) {
+            return;
+        }
+        refreshAll(missing);
+        log.info("Built product cards for {} products", missing.size());
+    }
+
+    // 字段与 Medusa store API 的商品结构保持一致，前台 SDK 可以直接使用
+    static Map<String, Object> buildCard(Product product, String currencyCode) {
+        Map<String, Object> card = new LinkedHashMap<>();
+        card.put("id", product.getId());
+        card.put("title", product.getTitle());
+        card.put("subtitle", product.getSubtitle());
+        card.put("description", product.getDescription());
+        card.put("handle", product.getHandle());
+        card.put("thumbnail", product.getThumbnail());
+        card.put("status", product.getStatus() != null ? product.getStatus().name().toLowerCase() : null);
+        card.put("weight", product.getWeight());
+        card.put("length", product.getLength());
+        card.put("height", product.getHeight());
+        card.put("width", product.getWidth());
+
+        Collection collection = product.getCollection();
+        card.put("collection_id", collection != null ? collection.getId() : null);
+        if (collection != null) {
+            Map<String, Object> collectionCard = new LinkedHashMap<>();
+            collectionCard.put("id", collection.getId());
+            collectionCard.put("title", collection.getTitle());
+            collectionCard.put("handle", collection.getHandle());
+            card.put("collection", collectionCard);
+        } else {
+            card.put("collection", null);
+        }
+
+        List<Map<String, Object>> options = new ArrayList<>();
+        for (ProductOption option : product.getOptions()) {
+            Map<String, Object> optionCard = new LinkedHashMap<>();
+            optionCard.put("id", option.getId());
+            optionCard.put("title", option.getTitle());
+            options.add(optionCard);
+        }
+        card.put("options", options);
+
+        List<Map<String, Object>> variants = new ArrayList<>();
+        for (ProductVariant variant : product.getVariants()) {
+            Map<String, Object> variantCard = new LinkedHashMap<>();
+            variantCard.put("id", variant.getId());
+            variantCard.put("title", variant.getTitle());
+            variantCard.put("sku", variant.getSku());
+            variantCard.put("manage_inventory", variant.getManagedInventory());
+            variantCard.put("allow_backorder", variant.getAllowBackorder());
+            if (variant.getPrice() != null) {
+                Map<String, Object> price = new HashMap<>();
+                price.put("calculated_amount", variant.getPrice());
+                price.put("original_amount", variant.getPrice());
+                price.put("currency_code", currencyCode);
+                variantCard.put("calculated_price", price);
+            } else {
+                variantCard.put("calculated_price", null);
+            }
+            variants.add(variantCard);
+        }
+        card.put("variants", variants);
+        card.put("created_at", product.getCreatedAt() != null ? product.getCreatedAt().toString() : null);
+        card.put("updated_at", product.getUpdatedAt() != null ? product.getUpdatedAt().toString() : null);
+        return card;
+    }
+}
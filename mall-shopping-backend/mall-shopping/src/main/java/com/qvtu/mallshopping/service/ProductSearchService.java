@@ -0,0 +1,213 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.ProductStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 基于 PostgreSQL 全文检索的商品搜索。
+ * products.search_vector 由标题、变体 SKU（权重 A）、副标题（B）和描述（C）组成，使用 GIN 索引，
+ * 查询词按前缀匹配，可直接用于输入联想；全文检索没有结果时再按标题子串匹配（pg_trgm 索引）。
+ * search_vector 不映射到实体，由本服务在启动时建列并回填，商品变更后由 ProductService 调用 index 更新。
+ */
+@Slf4j
+@Service
+public class ProductSearchService {
+    private static final String CONFIG = "simple";
+
+    private static final String VECTOR_SQL =
+        "setweight(to_tsvector('simple', coalesce(p.title, '')), 'A') || "
+            + "setweight(to_tsvector('simple', coalesce((select string_agg(v.sku, ' ') from product_variants v "
+            + "where v.product_id = p.id), '')), 'A') || "
+            + "setweight(to_tsvector('simple', coalesce(p.subtitle, '')), 'B') || "
+            + "setweight(to_tsvector('simple', coalesce(p.description, '')), 'C')";
+
+    // 全文匹配的相关度，加上标题完全相同或以查询开头时的加分
+    private static final String SEARCH_SQL =
+        "select p.id, p.title, p.subtitle, p.handle, p.thumbnail, p.status, "
+            + "ts_rank_cd(p.search_vector, q.query) "
+            + "+ case when lower(p.title) = ? then 1.0 when lower(p.title) like ? then 0.5 else 0 end as score, "
+            + "count(*) over () as total "
+            + "from products p, to_tsquery('" + CONFIG + "', ?) q(query) "
+            + "where p.search_vector @@ q.query";
+
+    // 全文检索没有结果时（词中间的片段、拼写不完整）按标题子串匹配，走 pg_trgm 索引
+    private static final String SUBSTRING_SQL =
+        "select p.id, p.title, p.subtitle, p.handle, p.thumbnail, p.status, "
+            + "case when lower(p.title) like ? then 0.5 else 0 end as score, "
+            + "count(*) over () as total "
+            + "from products p where lower(p.title) like ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EmbeddedProductIndex embeddedProductIndex;
+
+    public ProductSearchService(JdbcTemplate jdbcTemplate, EmbeddedProductIndex embeddedProductIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.embeddedProductIndex = embeddedProductIndex;
+    }
+
+    /**
+     * 建立搜索列和索引，并为还没有 search_vector 的商品回填。语句都是幂等的。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeSchema() {
+        jdbcTemplate.execute("alter table products add column if not exists search_vector tsvector");
+        jdbcTemplate.execute("create index if not exists idx_products_search_vector on products using gin (search_vector)");
+        jdbcTemplate.execute("create index if not exists idx_products_status on products (status)");
+        jdbcTemplate.execute("create index if not exists idx_product_variants_product_id on product_variants (product_id)");
+        try {
+            jdbcTemplate.execute("create extension if not exists pg_trgm");
+            jdbcTemplate.execute("create index if not exists idx_products_title_trgm on products using gin (lower(title) gin_trgm_ops)");
+            // 后台列表的 title 筛选是区分大小写的 title like '%x%'，单独建一个不转小写的索引
+            jdbcTemplate.execute("create index if not exists idx_products_title_like on products using gin (title gin_trgm_ops)");
+        } catch (DataAccessException e) {
+            // 没有权限安装扩展时，标题子串匹配退化为顺序扫描
+            log.warn("pg_trgm is not available, title substring search will not be indexed: {}", e.getMessage());
+        }
+        int backfilled = reindexMissing();
+        if (backfilled > 0) {
+            log.info("Built search vectors for {} products", backfilled);
+        }
+    }
+
+    public int reindexMissing() {
+        return jdbcTemplate.update("update products p set search_vector = " + VECTOR_SQL + " where p.search_vector is null");
+    }
+
+    /**
+     * 重新计算单个商品的搜索向量。调用前需要先 flush，使商品和变体已写入数据库。
+     */
+    public void index(Long productId) {
+        jdbcTemplate.update("update products p set search_vector = " + VECTOR_SQL + " where p.id = ?", productId);
+    }
+
+    public SearchResult search(String text, ProductStatus status, int offset, int limit) {
+        return search(text, status, null, offset, limit);
+    }
+
+    /**
+     * 按相关度搜索商品，总数与结果在同一条查询中返回。
+     * 开启 product.search.embedded.enabled 时改用进程内索引，不访问数据库，并附带分面统计。
+     */
+    public SearchResult search(String text, ProductStatus status, Long collectionId, int offset, int limit) {
+        if (embeddedProductIndex.isEnabled()) {
+            return embeddedProductIndex.search(text, status, collectionId, offset, limit);
+        }
+        String normalized = text != null ? text.trim().toLowerCase(Locale.ROOT) : "";
+        String tsQuery = toPrefixQuery(normalized);
+        if (tsQuery.isEmpty()) {
+            return new SearchResult(List.of(), 0);
+        }
+        String prefix = escapeLike(normalized) + "%";
+        String substring = "%" + prefix;
+
+        // 偏移超过结果数时窗口函数拿不到总数，只有这时才单独计数
+        SearchResult result = query(SEARCH_SQL, status, collectionId, offset, limit, normalized, prefix, tsQuery);
+        if (result.count() < 0) {
+            result = new SearchResult(result.hits(), count("select count(*) from products p, to_tsquery('"
+                + CONFIG + "', ?) q(query) where p.search_vector @@ q.query", status, collectionId, tsQuery));
+        }
+        if (result.count() == 0) {
+            result = query(SUBSTRING_SQL, status, collectionId, offset, limit, prefix, substring);
+            if (result.count() < 0) {
+                result = new SearchResult(result.hits(),
+                    count("select count(*) from products p where lower(p.title) like ?", status, collectionId, substring));
+            }
+        }
+        return result;
+    }
+
+    // 返回的 count 为 -1 表示本页没有数据，总数未知
+    private SearchResult query(String baseSql, ProductStatus status, Long collectionId, int offset, int limit,
+                               Object... params) {
+        StringBuilder sql = new StringBuilder(baseSql);
+        List<Object> args = new ArrayList<>(List.of(params));
+        appendFilters(sql, args, status, collectionId);
+        sql.append(" order by score desc, p.id limit ? offset ?");
+        args.add(limit);
+        args.add(offset);
+
+        long[] total = {offset == 0 ? 0 : -1};
+        List<SearchHit> hits = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            total[0] = rs.getLong("total");
+            return new SearchHit(
+                rs.getLong("id"),
+                rs.getString("title"),
+                rs.getString("subtitle"),
+                rs.getString("handle"),
+                rs.getString("thumbnail"),
+                rs.getString("status"),
+                rs.getDouble("score")
+            );
+        }, args.toArray());
+        return new SearchResult(hits, total[0]);
+    }
+
+    private long count(String baseSql, ProductStatus status, Long collectionId, Object param) {
+        StringBuilder sql = new StringBuilder(baseSql);
+        List<Object> args = new ArrayList<>();
+        args.add(param);
+        appendFilters(sql, args, status, collectionId);
+        Long count = jdbcTemplate.queryForObject(sql.toString(), Long.class, args.toArray());
+        return count != null ? count : 0;
+    }
+
+    private static void appendFilters(StringBuilder sql, List<Object> args, ProductStatus status, Long collectionId) {
+        if (status != null) {
+            sql.append(" and p.status = ?");
+            args.add(status.name());
+        }
+        if (collectionId != null) {
+            sql.append(" and p.collection_id = ?");
+            args.add(collectionId);
+        }
+    }
+
+    // 只保留字母和数字组成的词，每个词按前缀匹配并用 & 连接，避免拼出非法的 tsquery
+    static String toPrefixQuery(String text) {
+        StringBuilder query = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            int c = i < text.length() ? text.codePointAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.appendCodePoint(c);
+                if (Character.isSupplementaryCodePoint(c)) {
+                    i++;
+                }
+            } else if (token.length() > 0) {
+                if (query.length() > 0) {
+                    query.append(" & ");
+                }
+                query.append(token).append(":*");
+                token.setLength(0);
+            }
+        }
+        return query.toString();
+    }
+
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public record SearchHit(Long id, String title, String subtitle, String handle, String thumbnail,
+                            String status, double score) {
+    }
+
+    /**
+     * 搜索结果。facets 只有进程内索引会计算，数据库检索时为空。
+     */
+    public record SearchResult(List<SearchHit> hits, long count, Map<String, Map<String, Long>> facets) {
+        public SearchResult(List<SearchHit> hits, long count) {
+            this(hits, count, Map.of());
+        }
+    }
+}
@@ -2,10 +2,12 @@ package com.qvtu.mallshopping.service;
 
 import com.qvtu.mallshopping.dto.*;
 import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.model.Category;
 import com.qvtu.mallshopping.model.Product;
 import com.qvtu.mallshopping.model.ProductOption;
 import com.qvtu.mallshopping.enums.ProductStatus;
 import com.qvtu.mallshopping.model.ProductVariant;
+import com.qvtu.mallshopping.repository.CategoryRepository;
 import com.qvtu.mallshopping.repository.ProductRepository;
 import org.springframework.beans.BeanUtils;
 import org.springframework.data.domain.PageRequest;
@@ -16,16 +18,31 @@ import org.springframework.web.bind.annotation.DeleteMapping;
 
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 
 @Service
 @Transactional
 public class ProductService {
     private final ProductRepository productRepository;
-
-    public ProductService(ProductRepository productRepository) {
+    private final ProductSearchService productSearchService;
+    private final ProductCardService productCardService;
+    private final EmbeddedProductIndex embeddedProductIndex;
+    private final CategoryRepository categoryRepository;
+
+    public ProductService(ProductRepository productRepository, ProductSearchService productSearchService,
+                          ProductCardService productCardService, EmbeddedProductIndex embeddedProductIndex,
+                          CategoryRepository categoryRepository) {
         this.productRepository = productRepository;
+        this.productSearchService = productSearchService;
+        this.productCardService = productCardService;
+        this.embeddedProductIndex = embeddedProductIndex;
+        this.categoryRepository = categoryRepository;
     }
 
     public Product createProduct(ProductRequest request) {
@@ -37,9 +54,10 @@ public class ProductService {
         BeanUtils.copyProperties(request, product);
         product.setStatus(ProductStatus.DRAFT); // 新创建的商品默认为草稿状态
 
-        return productRepository.save(product);
+        return saveAndIndex(product);
     }
 
+    // title 只按标题子串筛选（区分大小写），走 idx_products_title_like 三元组索引；全文检索见 searchProducts
     public List<Product> listProducts(String title, ProductStatus status, int page, int size) {
         Pageable pageable = PageRequest.of(page, size);
 
@@ -66,6 +84,24 @@ public class ProductService {
         }
     }
 
+    /**
+     * 全文检索商品，返回按相关度排序的商品实体和总数。
+     */
+    public ProductSearchResult searchProducts(String text, ProductStatus status, int page, int size) {
+        ProductSearchService.SearchResult result = productSearchService.search(text, status, page * size, size);
+        List<Long> ids = result.hits().stream().map(ProductSearchService.SearchHit::id).collect(Collectors.toList());
+        Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<Product> products = ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return new ProductSearchResult(products, result.count());
+    }
+
+    public record ProductSearchResult(List<Product> products, long count) {
+    }
+
     public Product updateProduct(Long id, ProductUpdateRequest request) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("商品不存在"));
@@ -95,7 +131,7 @@ public class ProductService {
         }
         
         // 保存更新
-        return productRepository.save(product);
+        return saveAndIndex(product);
     }
 
     public Product getProduct(Long id) {
@@ -134,7 +170,25 @@ public class ProductService {
                 product.getVariants().add(variant);
             }
         }
-        return productRepository.save(product);
+
+        // 处理分类
+        if (request.getCategoryIds() != null) {
+            List<Category> categories = categoryRepository.findAllById(request.getCategoryIds());
+            if (categories.size() != new HashSet<>(request.getCategoryIds()).size()) {
+                throw new ResourceNotFoundException("分类不存在: " + request.getCategoryIds());
+            }
+            product.setCategories(categories);
+        }
+        return saveAndIndex(product);
+    }
+
+    // 商品和变体写入数据库后再更新搜索向量、前台商品卡片和进程内索引
+    private Product saveAndIndex(Product product) {
+        Product saved = productRepository.saveAndFlush(product);
+        productSearchService.index(saved.getId());
+        productCardService.refresh(saved.getId());
+        embeddedProductIndex.indexAfterCommit(saved);
+        return saved;
     }
 
     public void deleteProduct(Long id) {
@@ -144,6 +198,8 @@ public class ProductService {
 
         // 直接物理删除
         productRepository.delete(product);
+        productCardService.remove(id);
+        embeddedProductIndex.removeAfterCommit(id);
     }
 
 
@@ -160,7 +216,7 @@ public class ProductService {
             product.setStatus(newStatus);
 
             // 保存更新
-            return productRepository.save(product);
+            return saveAndIndex(product);
 
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("无效的商品状态： " + status);
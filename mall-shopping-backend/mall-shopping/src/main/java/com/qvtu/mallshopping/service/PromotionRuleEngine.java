@@ -0,0 +1,603 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.qvtu.mallshopping.model.Promotion;
+import com.qvtu.mallshopping.repository.PromotionRepository;
+import com.qvtu.mallshopping.util.JsonCodec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 促销规则引擎。
+ * 促销活动的规则和应用方法以 JSON 字符串保存，这里把它们编译成不可变的判断树，
+ * 按促销 ID 缓存并以更新时间和原始 JSON 校验版本；自动促销的编译结果另外保存一份快照，
+ * 评估购物车时只遍历快照，不再访问数据库或解析 JSON。
+ */
+@Slf4j
+@Service
+public class PromotionRuleEngine {
+    private final PromotionRepository promotionRepository;
+    private final JsonCodec jsonCodec;
+    private final long snapshotTtlMillis;
+
+    private final Map<Long, CompiledPromotion> compiled = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot activeSnapshot;
+
+    public PromotionRuleEngine(
+        PromotionRepository promotionRepository,
+        JsonCodec jsonCodec,
+        @Value("${promotion.engine.snapshot-ttl-ms:30000}") long snapshotTtlMillis
+    ) {
+        this.promotionRepository = promotionRepository;
+        this.jsonCodec = jsonCodec;
+        this.snapshotTtlMillis = snapshotTtlMillis;
+    }
+
+    /**
+     * 获取促销活动的编译结果，促销被修改后会重新编译。
+     */
+    public CompiledPromotion compiled(Promotion promotion) {
+        if (promotion.getId() == null) {
+            return compile(promotion);
+        }
+        CompiledPromotion cached = compiled.get(promotion.getId());
+        if (cached != null && cached.isCompiledFrom(promotion)) {
+            return cached;
+        }
+        CompiledPromotion fresh = compile(promotion);
+        compiled.put(promotion.getId(), fresh);
+        return fresh;
+    }
+
+    public void invalidate(Long promotionId) {
+        if (promotionId != null) {
+            compiled.remove(promotionId);
+        }
+        invalidateSnapshot();
+    }
+
+    public void invalidateAll() {
+        compiled.clear();
+        invalidateSnapshot();
+    }
+
+    /**
+     * 对购物车评估所有生效中的自动促销，返回可以应用的促销及其折扣。
+     */
+    public List<AppliedPromotion> evaluateAutomatic(Cart cart) {
+        return evaluate(activePromotions(), cart);
+    }
+
+    /**
+     * 生效中的自动促销快照。快照未过期时返回同一个列表实例，调用方可以据此判断是否需要重新评估。
+     */
+    public List<CompiledPromotion> activeAutomatic() {
+        return activePromotions();
+    }
+
+    public static List<AppliedPromotion> evaluate(List<CompiledPromotion> promotions, Cart cart) {
+        List<AppliedPromotion> applied = new ArrayList<>();
+        for (CompiledPromotion promotion : promotions) {
+            AppliedPromotion result = promotion.apply(cart);
+            if (result != null) {
+                applied.add(result);
+            }
+        }
+        return applied;
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact() : 0L;
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private List<CompiledPromotion> activePromotions() {
+        Snapshot snapshot = activeSnapshot;
+        long now = System.currentTimeMillis();
+        if (snapshot != null && now - snapshot.loadedAt < snapshotTtlMillis) {
+            return snapshot.promotions;
+        }
+        // 重建期间如果发生了失效，本次结果只用于当前请求，不发布为快照
+        long expectedGeneration = generation.get();
+        List<CompiledPromotion> promotions = new ArrayList<>();
+        for (Promotion promotion : promotionRepository.findActiveAutomatic()) {
+            promotions.add(compiled(promotion));
+        }
+        snapshot = new Snapshot(Collections.unmodifiableList(promotions), now);
+        if (generation.get() == expectedGeneration) {
+            activeSnapshot = snapshot;
+        }
+        log.debug("Loaded {} active automatic promotions", promotions.size());
+        return snapshot.promotions;
+    }
+
+    private void invalidateSnapshot() {
+        generation.incrementAndGet();
+        activeSnapshot = null;
+    }
+
+    CompiledPromotion compile(Promotion promotion) {
+        boolean valid = true;
+        List<Map<String, Object>> rules = null;
+        Map<String, Object> applicationMethod = null;
+        try {
+            if (hasText(promotion.getRules())) {
+                rules = jsonCodec.readListOfMaps(promotion.getRules());
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Invalid rules on promotion {}: {}", promotion.getId(), e.getOriginalMessage());
+            valid = false;
+        }
+        try {
+            if (hasText(promotion.getApplicationMethod())) {
+                applicationMethod = jsonCodec.readMap(promotion.getApplicationMethod());
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Invalid application method on promotion {}: {}", promotion.getId(), e.getOriginalMessage());
+            valid = false;
+        }
+        return new CompiledPromotion(promotion, rules, applicationMethod, valid);
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isEmpty();
+    }
+
+    private record Snapshot(List<CompiledPromotion> promotions, long loadedAt) {
+    }
+
+    /**
+     * 单条规则编译后的判断。line 为 null 时表示在整个购物车上判断。
+     */
+    @FunctionalInterface
+    interface Condition {
+        Condition NEVER = (cart, line) -> false;
+
+        boolean test(Cart cart, CartLine line);
+    }
+
+    /**
+     * 编译后的促销活动，创建后不可变，可以在线程间共享。
+     */
+    public static final class CompiledPromotion {
+        private final Long id;
+        private final String code;
+        private final LocalDateTime updatedAt;
+        private final String rulesSource;
+        private final String applicationMethodSource;
+        private final List<Map<String, Object>> rules;
+        private final Map<String, Object> applicationMethod;
+        private final boolean valid;
+
+        private final Condition[] cartConditions;
+        private final Condition[] buyConditions;
+        private final Condition[] targetConditions;
+        private final String discountType;
+        private final String targetType;
+        private final String allocation;
+        private final long valueCents;
+        private final long basisPoints;
+        private final Integer maxQuantity;
+        private final Integer applyToQuantity;
+        private final int buyRulesMinQuantity;
+
+        @SuppressWarnings("unchecked")
+        CompiledPromotion(Promotion promotion, List<Map<String, Object>> rules,
+                          Map<String, Object> applicationMethod, boolean valid) {
+            this.id = promotion.getId();
+            this.code = promotion.getCode();
+            this.updatedAt = promotion.getUpdatedAt();
+            this.rulesSource = promotion.getRules();
+            this.applicationMethodSource = promotion.getApplicationMethod();
+            this.rules = rules != null ? (List<Map<String, Object>>) freeze(rules) : null;
+            this.applicationMethod = applicationMethod != null ? (Map<String, Object>) freeze(applicationMethod) : null;
+
+            Map<String, Object> method = this.applicationMethod != null ? this.applicationMethod : Map.of();
+            this.discountType = stringValue(method.get("type"));
+            this.targetType = stringValue(method.get("target_type"));
+            this.allocation = stringValue(method.get("allocation"));
+            this.maxQuantity = intValue(method.get("max_quantity"));
+            this.applyToQuantity = intValue(method.get("apply_to_quantity"));
+            Integer minQuantity = intValue(method.get("buy_rules_min_quantity"));
+            this.buyRulesMinQuantity = minQuantity != null ? Math.max(minQuantity, 1) : 1;
+
+            BigDecimal value = decimalValue(method.get("value"));
+            this.valueCents = value != null ? toCents(value) : 0L;
+            this.basisPoints = value != null ? value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0L;
+
+            this.cartConditions = compileConditions(id, this.rules);
+            this.buyConditions = compileConditions(id, method.get("buy_rules"));
+            this.targetConditions = compileConditions(id, method.get("target_rules"));
+            // 没有应用方法或折扣值的促销不参与评估
+            this.valid = valid && (value != null || "free_shipping".equals(discountType));
+        }
+
+        boolean isCompiledFrom(Promotion promotion) {
+            return Objects.equals(updatedAt, promotion.getUpdatedAt())
+                && Objects.equals(code, promotion.getCode())
+                && Objects.equals(rulesSource, promotion.getRules())
+                && Objects.equals(applicationMethodSource, promotion.getApplicationMethod());
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        // 解析后的规则，只读；规则为空或无法解析时返回 null
+        public List<Map<String, Object>> getRules() {
+            return rules;
+        }
+
+        // 解析后的应用方法，只读；为空或无法解析时返回 null
+        public Map<String, Object> getApplicationMethod() {
+            return applicationMethod;
+        }
+
+        /**
+         * 在购物车上评估本促销，不满足条件时返回 null。
+         */
+        AppliedPromotion apply(Cart cart) {
+            if (!valid || !matchesAll(cartConditions, cart, null)) {
+                return null;
+            }
+            if (buyConditions.length > 0) {
+                long bought = 0;
+                for (CartLine line : cart.lines) {
+                    if (matchesAll(buyConditions, cart, line)) {
+                        bought += line.quantity;
+                    }
+                }
+                if (bought < buyRulesMinQuantity) {
+                    return null;
+                }
+            }
+
+            if ("free_shipping".equals(discountType) || "shipping".equals(targetType)) {
+                return new AppliedPromotion(id, code, 0L, true, null);
+            }
+            if ("order".equals(targetType)) {
+                long discount = discountOn(cart.subtotalCents, 1);
+                return discount > 0 ? new AppliedPromotion(id, code, discount, false, null) : null;
+            }
+
+            long[] lineDiscounts = new long[cart.lines.length];
+            long[] lineBases = new long[cart.lines.length];
+            long remainingUnits = applyToQuantity != null ? applyToQuantity : Long.MAX_VALUE;
+            long targetTotal = 0;
+            for (int i = 0; i < cart.lines.length && remainingUnits > 0; i++) {
+                CartLine line = cart.lines[i];
+                if (!matchesAll(targetConditions, cart, line)) {
+                    continue;
+                }
+                long units = maxQuantity != null ? Math.min(line.quantity, maxQuantity) : line.quantity;
+                units = Math.min(units, remainingUnits);
+                if (units <= 0) {
+                    continue;
+                }
+                remainingUnits -= units;
+                lineBases[i] = units * line.unitPriceCents;
+                targetTotal += lineBases[i];
+                if (!"across".equals(allocation) || "percentage".equals(discountType)) {
+                    lineDiscounts[i] = discountOn(lineBases[i], units);
+                }
+            }
+            if (targetTotal == 0) {
+                return null;
+            }
+
+            long total;
+            if ("across".equals(allocation) && !"percentage".equals(discountType)) {
+                // 固定金额分摊到所有目标商品，按金额比例分配，余数计入最后一个目标商品
+                total = Math.min(valueCents, targetTotal);
+                long allocated = 0;
+                int last = -1;
+                for (int i = 0; i < lineBases.length; i++) {
+                    if (lineBases[i] > 0) {
+                        lineDiscounts[i] = total * lineBases[i] / targetTotal;
+                        allocated += lineDiscounts[i];
+                        last = i;
+                    }
+                }
+                lineDiscounts[last] += total - allocated;
+            } else {
+                total = 0;
+                for (long lineDiscount : lineDiscounts) {
+                    total += lineDiscount;
+                }
+            }
+            return total > 0 ? new AppliedPromotion(id, code, total, false, lineDiscounts) : null;
+        }
+
+        // 固定金额按件计算，百分比按金额计算，折扣不超过基数
+        private long discountOn(long baseCents, long units) {
+            long discount = "percentage".equals(discountType)
+                ? baseCents * basisPoints / 10_000
+                : valueCents * units;
+            return Math.max(0, Math.min(discount, baseCents));
+        }
+
+        private static boolean matchesAll(Condition[] conditions, Cart cart, CartLine line) {
+            for (Condition condition : conditions) {
+                if (!condition.test(cart, line)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static Condition[] compileConditions(Long promotionId, Object rules) {
+        if (!(rules instanceof List<?> list) || list.isEmpty()) {
+            return new Condition[0];
+        }
+        Condition[] conditions = new Condition[list.size()];
+        for (int i = 0; i < list.size(); i++) {
+            conditions[i] = list.get(i) instanceof Map<?, ?> rule
+                ? compileCondition(promotionId, rule)
+                : Condition.NEVER;
+        }
+        return conditions;
+    }
+
+    // 未知的属性或操作符编译为永不满足，避免错误配置的促销被误用
+    private static Condition compileCondition(Long promotionId, Map<?, ?> rule) {
+        String attribute = stringValue(rule.get("attribute"));
+        String operator = stringValue(rule.get("operator"));
+        List<String> values = stringValues(rule.get("values"));
+        try {
+            switch (attribute != null ? attribute : "") {
+                case "order_total": {
+                    LongPredicate test = numeric(operator, values, true);
+                    return (cart, line) -> test.test(cart.subtotalCents);
+                }
+                case "item_quantity": {
+                    LongPredicate test = numeric(operator, values, false);
+                    return (cart, line) -> test.test(line != null ? line.quantity : cart.totalQuantity);
+                }
+                case "customer_group": {
+                    SetMatcher matcher = SetMatcher.of(operator, values);
+                    return (cart, line) -> matcher.test(cart.customerGroupIds);
+                }
+                case "product_id": {
+                    SetMatcher matcher = SetMatcher.of(operator, values);
+                    return (cart, line) -> line != null ? matcher.test(line.productIds) : cart.anyLine(l -> matcher.test(l.productIds));
+                }
+                case "product_category": {
+                    SetMatcher matcher = SetMatcher.of(operator, values);
+                    return (cart, line) -> line != null ? matcher.test(line.categoryIds) : cart.anyLine(l -> matcher.test(l.categoryIds));
+                }
+                default:
+                    log.warn("Unsupported rule attribute {} on promotion {}", attribute, promotionId);
+                    return Condition.NEVER;
+            }
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            log.warn("Invalid rule {} {} {} on promotion {}", attribute, operator, values, promotionId);
+            return Condition.NEVER;
+        }
+    }
+
+    private static LongPredicate numeric(String operator, List<String> values, boolean money) {
+        if ("exists".equals(operator)) {
+            return value -> true;
+        }
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException("Missing rule value");
+        }
+        long expected = money ? toCents(new BigDecimal(values.get(0))) : new BigDecimal(values.get(0)).longValueExact();
+        switch (operator != null ? operator : "") {
+            case "gt": return value -> value > expected;
+            case "gte": return value -> value >= expected;
+            case "lt": return value -> value < expected;
+            case "lte": return value -> value <= expected;
+            case "eq": return value -> value == expected;
+            case "ne": return value -> value != expected;
+            case "in":
+            case "nin": {
+                Set<Long> expectedValues = new HashSet<>();
+                for (String v : values) {
+                    expectedValues.add(money ? toCents(new BigDecimal(v)) : new BigDecimal(v).longValueExact());
+                }
+                boolean in = "in".equals(operator);
+                return value -> expectedValues.contains(value) == in;
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported operator " + operator);
+        }
+    }
+
+    /**
+     * 集合属性（客户群组、商品、商品类别）的匹配：in/eq 要求有交集，nin/ne 要求没有交集。
+     */
+    private static final class SetMatcher {
+        private final Set<String> expected;
+        private final boolean negate;
+        private final boolean existsOnly;
+
+        private SetMatcher(Set<String> expected, boolean negate, boolean existsOnly) {
+            this.expected = expected;
+            this.negate = negate;
+            this.existsOnly = existsOnly;
+        }
+
+        static SetMatcher of(String operator, List<String> values) {
+            switch (operator != null ? operator : "") {
+                case "in":
+                case "eq":
+                    return new SetMatcher(toSet(values), false, false);
+                case "nin":
+                case "ne":
+                    return new SetMatcher(toSet(values), true, false);
+                case "exists":
+                    return new SetMatcher(Set.of(), false, true);
+                default:
+                    throw new IllegalArgumentException("Unsupported operator " + operator);
+            }
+        }
+
+        boolean test(Set<String> actual) {
+            if (existsOnly) {
+                return !actual.isEmpty();
+            }
+            boolean intersects = false;
+            for (String value : actual) {
+                if (expected.contains(value)) {
+                    intersects = true;
+                    break;
+                }
+            }
+            return intersects != negate;
+        }
+    }
+
+    /**
+     * 待评估的购物车，构造时计算好小计和总数量。
+     */
+    public static final class Cart {
+        private final CartLine[] lines;
+        private final Set<String> customerGroupIds;
+        private final long subtotalCents;
+        private final long totalQuantity;
+
+        public Cart(List<CartLine> lines, Collection<String> customerGroupIds) {
+            this.lines = lines.toArray(new CartLine[0]);
+            this.customerGroupIds = toSet(customerGroupIds);
+            long subtotal = 0;
+            long quantity = 0;
+            for (CartLine line : this.lines) {
+                subtotal += line.quantity * line.unitPriceCents;
+                quantity += line.quantity;
+            }
+            this.subtotalCents = subtotal;
+            this.totalQuantity = quantity;
+        }
+
+        public long getSubtotalCents() {
+            return subtotalCents;
+        }
+
+        public int size() {
+            return lines.length;
+        }
+
+        private boolean anyLine(Predicate<CartLine> predicate) {
+            for (CartLine line : lines) {
+                if (predicate.test(line)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static final class CartLine {
+        private final Set<String> productIds;
+        private final Set<String> categoryIds;
+        private final long quantity;
+        private final long unitPriceCents;
+
+        public CartLine(String productId, Collection<String> categoryIds, long quantity, long unitPriceCents) {
+            this.productIds = productId != null ? Set.of(productId) : Set.of();
+            this.categoryIds = toSet(categoryIds);
+            this.quantity = quantity;
+            this.unitPriceCents = unitPriceCents;
+        }
+    }
+
+    /**
+     * 可应用的促销。lineDiscountCents 与购物车商品一一对应，整单或运费促销时为 null。
+     */
+    public record AppliedPromotion(Long promotionId, String code, long discountCents,
+                                   boolean freeShipping, long[] lineDiscountCents) {
+    }
+
+    private static Object freeze(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            map.forEach((k, v) -> copy.put(String.valueOf(k), freeze(v)));
+            return Collections.unmodifiableMap(copy);
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object item : list) {
+                copy.add(freeze(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+
+    private static String stringValue(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static Integer intValue(Object value) {
+        BigDecimal decimal = decimalValue(value);
+        return decimal != null ? decimal.intValue() : null;
+    }
+
+    private static BigDecimal decimalValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Set<String> toSet(Collection<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> set = new HashSet<>();
+        for (String value : values) {
+            if (value != null) {
+                set.add(value);
+            }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    private static List<String> stringValues(Object value) {
+        if (value == null) {
+            return List.of();
+        }
+        if (value instanceof Collection<?> collection) {
+            List<String> values = new ArrayList<>(collection.size());
+            for (Object item : collection) {
+                if (item != null) {
+                    values.add(item.toString());
+                }
+            }
+            return values;
+        }
+        return List.of(value.toString());
+    }
+}
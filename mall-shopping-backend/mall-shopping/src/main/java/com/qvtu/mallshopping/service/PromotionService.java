@@ -10,13 +10,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.qvtu.mallshopping.dto.PromotionCreateRequest.ApplicationMethod;
 import java.time.LocalDateTime;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -24,6 +24,7 @@ import com.github.javafaker.Faker;
 import java.util.Locale;
 import java.util.Random;
 import com.qvtu.mallshopping.generator.PromotionDataGenerator;
+import com.qvtu.mallshopping.util.JsonCodec;
 
 @Service
 @Slf4j
@@ -31,6 +32,12 @@ public class PromotionService {
     @Autowired
     private PromotionRepository promotionRepository;
 
+    @Autowired
+    private PromotionRuleEngine promotionRuleEngine;
+
+    @Autowired
+    private JsonCodec jsonCodec;
+
     public Map<String, Object> listPromotions(int page, int size) {
         log.info("获取促销活动列表, 页码: {}, 每页数量: {}", page, size);
         
@@ -62,20 +69,13 @@ public class PromotionService {
         formatted.put("updated_at", promotion.getUpdatedAt());
         formatted.put("deleted_at", promotion.getDeletedAt());
         
-        // 解析规则和应用方法
-        try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            
-            if (promotion.getRules() != null && !promotion.getRules().isEmpty()) {
-                formatted.put("rules", objectMapper.readValue(promotion.getRules(), 
-                    objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class)));
-            }
-            
-            if (promotion.getApplicationMethod() != null && !promotion.getApplicationMethod().isEmpty()) {
-                formatted.put("application_method", objectMapper.readValue(promotion.getApplicationMethod(), Map.class));
-            }
-        } catch (Exception e) {
-            log.error("解析促销活动规则或应用方法失败", e);
+        // 规则和应用方法使用规则引擎缓存的解析结果
+        PromotionRuleEngine.CompiledPromotion compiled = promotionRuleEngine.compiled(promotion);
+        if (compiled.getRules() != null) {
+            formatted.put("rules", compiled.getRules());
+        }
+        if (compiled.getApplicationMethod() != null) {
+            formatted.put("application_method", compiled.getApplicationMethod());
         }
         
         return formatted;
@@ -90,8 +90,6 @@ public class PromotionService {
                 throw new RuntimeException("Promotion with this code already exists");
             }
             
-            ObjectMapper objectMapper = new ObjectMapper();
-            
             // 创建新促销活动
             Promotion promotion = Promotion.builder()
                 .code(request.getCode())
@@ -99,11 +97,12 @@ public class PromotionService {
                 .isAutomatic(request.isAutomatic())
                 .campaignId(request.getCampaignId())
                 .status(request.getStatus() != null ? request.getStatus() : "draft")
-                .rules(request.getRules() != null ? objectMapper.writeValueAsString(request.getRules()) : null)
-                .applicationMethod(request.getApplicationMethod() != null ? objectMapper.writeValueAsString(request.getApplicationMethod()) : null)
+                .rules(request.getRules() != null ? jsonCodec.write(request.getRules()) : null)
+                .applicationMethod(request.getApplicationMethod() != null ? jsonCodec.write(request.getApplicationMethod()) : null)
                 .build();
             
             promotion = promotionRepository.save(promotion);
+            promotionRuleEngine.invalidate(promotion.getId());
             log.info("促销活动创建成功, ID: {}", promotion.getId());
             
             // 格式化响应
@@ -122,8 +121,6 @@ public class PromotionService {
         
         try {
             List<Promotion> promotions = new ArrayList<>();
-            ObjectMapper objectMapper = new ObjectMapper();
-            
             // 示例1: 固定金额折扣
             ApplicationMethod fixedDiscount = new ApplicationMethod();
             fixedDiscount.setDescription("满100元减10元");
@@ -138,7 +135,7 @@ public class PromotionService {
                 .type("standard")
                 .isAutomatic(false)
                 .status("active")
-                .applicationMethod(objectMapper.writeValueAsString(fixedDiscount))
+                .applicationMethod(jsonCodec.write(fixedDiscount))
                 .build();
             
             promotions.add(promotionRepository.save(promotion1));
@@ -156,7 +153,7 @@ public class PromotionService {
                 .type("standard")
                 .isAutomatic(true)
                 .status("active")
-                .applicationMethod(objectMapper.writeValueAsString(percentageDiscount))
+                .applicationMethod(jsonCodec.write(percentageDiscount))
                 .build();
             
             promotions.add(promotionRepository.save(promotion2));
@@ -175,10 +172,11 @@ public class PromotionService {
                 .type("buy_x_get_y")
                 .isAutomatic(false)
                 .status("draft")
-                .applicationMethod(objectMapper.writeValueAsString(buyXGetY))
+                .applicationMethod(jsonCodec.write(buyXGetY))
                 .build();
             
             promotions.add(promotionRepository.save(promotion3));
+            promotionRuleEngine.invalidateAll();
             
             // 格式化响应
             List<Map<String, Object>> formattedPromotions = promotions.stream()
@@ -197,6 +195,61 @@ public class PromotionService {
         }
     }
 
+    /**
+     * 对购物车评估所有自动促销
+     */
+    public Map<String, Object> evaluatePromotions(PromotionEvaluationRequest request) {
+        List<PromotionEvaluationRequest.Item> items = request.getItems() != null ? request.getItems() : List.of();
+        log.info("评估自动促销, 商品行数: {}", items.size());
+        
+        List<PromotionRuleEngine.CartLine> lines = new ArrayList<>(items.size());
+        for (PromotionEvaluationRequest.Item item : items) {
+            int quantity = item.getQuantity() != null ? item.getQuantity() : 0;
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Item quantity must not be negative");
+            }
+            lines.add(new PromotionRuleEngine.CartLine(item.getProductId(), item.getCategoryIds(),
+                quantity, PromotionRuleEngine.toCents(item.getUnitPrice())));
+        }
+        PromotionRuleEngine.Cart cart = new PromotionRuleEngine.Cart(lines, request.getCustomerGroupIds());
+        
+        List<Map<String, Object>> formattedPromotions = new ArrayList<>();
+        long discountTotal = 0;
+        for (PromotionRuleEngine.AppliedPromotion applied : promotionRuleEngine.evaluateAutomatic(cart)) {
+            Map<String, Object> formatted = new HashMap<>();
+            formatted.put("id", applied.promotionId().toString());
+            formatted.put("code", applied.code());
+            formatted.put("discount_total", PromotionRuleEngine.fromCents(applied.discountCents()));
+            formatted.put("free_shipping", applied.freeShipping());
+            
+            if (applied.lineDiscountCents() != null) {
+                List<Map<String, Object>> itemDiscounts = new ArrayList<>();
+                long[] lineDiscounts = applied.lineDiscountCents();
+                for (int i = 0; i < lineDiscounts.length; i++) {
+                    if (lineDiscounts[i] > 0) {
+                        Map<String, Object> itemDiscount = new HashMap<>();
+                        itemDiscount.put("index", i);
+                        itemDiscount.put("product_id", items.get(i).getProductId());
+                        itemDiscount.put("discount", PromotionRuleEngine.fromCents(lineDiscounts[i]));
+                        itemDiscounts.add(itemDiscount);
+                    }
+                }
+                formatted.put("items", itemDiscounts);
+            }
+            
+            formattedPromotions.add(formatted);
+            discountTotal += applied.discountCents();
+        }
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("promotions", formattedPromotions);
+        response.put("subtotal", PromotionRuleEngine.fromCents(cart.getSubtotalCents()));
+        // 多个促销叠加时折扣总额不超过小计
+        response.put("discount_total", PromotionRuleEngine.fromCents(Math.min(discountTotal, cart.getSubtotalCents())));
+        
+        return response;
+    }
+
     /**
      * 列出潜在规则属性
      */
@@ -296,9 +349,13 @@ public class PromotionService {
             return new ArrayList<>();
         }
         
-        ObjectMapper objectMapper = new ObjectMapper();
-        List<Map<String, Object>> rulesMap = objectMapper.readValue(promotion.getRules(), 
-            objectMapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+        List<Map<String, Object>> rulesMap = promotionRuleEngine.compiled(promotion).getRules();
+        if (rulesMap == null) {
+            if (!promotion.getRules().isEmpty()) {
+                throw new Exception("Invalid promotion rules");
+            }
+            return new ArrayList<>();
+        }
         
         List<RuleDTO> rules = new ArrayList<>();
         for (Map<String, Object> ruleMap : rulesMap) {
@@ -329,11 +386,12 @@ public class PromotionService {
         Promotion promotion = promotionRepository.findById(promotionId)
             .orElseThrow(() -> new Exception("Promotion not found"));
         
-        ObjectMapper objectMapper = new ObjectMapper();
-        String rulesJson = objectMapper.writeValueAsString(request.getRules());
+        String rulesJson = jsonCodec.write(request.getRules());
         promotion.setRules(rulesJson);
         
-        return promotionRepository.save(promotion);
+        promotion = promotionRepository.save(promotion);
+        promotionRuleEngine.invalidate(promotionId);
+        return promotion;
     }
 
     /**
@@ -349,12 +407,18 @@ public class PromotionService {
             throw new Exception("Promotion does not have application method");
         }
         
-        ObjectMapper objectMapper = new ObjectMapper();
-        Map<String, Object> applicationMethod = objectMapper.readValue(promotion.getApplicationMethod(), Map.class);
+        Map<String, Object> cachedMethod = promotionRuleEngine.compiled(promotion).getApplicationMethod();
+        if (cachedMethod == null) {
+            throw new Exception("Invalid promotion application method");
+        }
+        // 缓存的解析结果只读，修改前先复制
+        Map<String, Object> applicationMethod = new LinkedHashMap<>(cachedMethod);
         applicationMethod.put("buy_rules", request.getRules());
         
-        promotion.setApplicationMethod(objectMapper.writeValueAsString(applicationMethod));
-        return promotionRepository.save(promotion);
+        promotion.setApplicationMethod(jsonCodec.write(applicationMethod));
+        promotion = promotionRepository.save(promotion);
+        promotionRuleEngine.invalidate(promotionId);
+        return promotion;
     }
 
     /**
@@ -370,12 +434,18 @@ public class PromotionService {
             throw new Exception("Promotion does not have application method");
         }
         
-        ObjectMapper objectMapper = new ObjectMapper();
-        Map<String, Object> applicationMethod = objectMapper.readValue(promotion.getApplicationMethod(), Map.class);
+        Map<String, Object> cachedMethod = promotionRuleEngine.compiled(promotion).getApplicationMethod();
+        if (cachedMethod == null) {
+            throw new Exception("Invalid promotion application method");
+        }
+        // 缓存的解析结果只读，修改前先复制
+        Map<String, Object> applicationMethod = new LinkedHashMap<>(cachedMethod);
         applicationMethod.put("target_rules", request.getRules());
         
-        promotion.setApplicationMethod(objectMapper.writeValueAsString(applicationMethod));
-        return promotionRepository.save(promotion);
+        promotion.setApplicationMethod(jsonCodec.write(applicationMethod));
+        promotion = promotionRepository.save(promotion);
+        promotionRuleEngine.invalidate(promotionId);
+        return promotion;
     }
 
     /**
@@ -388,7 +458,6 @@ public class PromotionService {
             // 首先清理可能存在的重复数据
             cleanupDuplicatePromotions();
             
-            ObjectMapper objectMapper = new ObjectMapper();
             List<Promotion> updatedPromotions = new ArrayList<>();
             
             // 1. 为第一个促销活动添加标准规则
@@ -412,7 +481,7 @@ public class PromotionService {
                 .values(List.of("1"))
                 .build());
             
-            promotion1.setRules(objectMapper.writeValueAsString(standardRules));
+            promotion1.setRules(jsonCodec.write(standardRules));
             updatedPromotions.add(promotionRepository.save(promotion1));
             
             // 2. 为第二个促销活动添加购买规则和目标规则
@@ -420,8 +489,7 @@ public class PromotionService {
                 .orElseThrow(() -> new RuntimeException("Promotion PERCENT20 not found"));
             
             // 解析现有的应用方法
-            Map<String, Object> applicationMethod = objectMapper.readValue(
-                promotion2.getApplicationMethod(), Map.class);
+            Map<String, Object> applicationMethod = jsonCodec.readMap(promotion2.getApplicationMethod());
             
             // 添加购买规则
             List<RuleDTO> buyRules = new ArrayList<>();
@@ -448,7 +516,7 @@ public class PromotionService {
             applicationMethod.put("target_rules", targetRules);
             
             // 更新应用方法
-            promotion2.setApplicationMethod(objectMapper.writeValueAsString(applicationMethod));
+            promotion2.setApplicationMethod(jsonCodec.write(applicationMethod));
             updatedPromotions.add(promotionRepository.save(promotion2));
             
             // 3. 为第三个促销活动添加复杂规则组合
@@ -465,11 +533,10 @@ public class PromotionService {
                 .values(List.of("2"))
                 .build());
             
-            promotion3.setRules(objectMapper.writeValueAsString(complexRules));
+            promotion3.setRules(jsonCodec.write(complexRules));
             
             // 解析现有的应用方法
-            Map<String, Object> complexApplicationMethod = objectMapper.readValue(
-                promotion3.getApplicationMethod(), Map.class);
+            Map<String, Object> complexApplicationMethod = jsonCodec.readMap(promotion3.getApplicationMethod());
             
             // 添加购买规则
             List<RuleDTO> complexBuyRules = new ArrayList<>();
@@ -496,8 +563,9 @@ public class PromotionService {
             complexApplicationMethod.put("target_rules", complexTargetRules);
             
             // 更新应用方法
-            promotion3.setApplicationMethod(objectMapper.writeValueAsString(complexApplicationMethod));
+            promotion3.setApplicationMethod(jsonCodec.write(complexApplicationMethod));
             updatedPromotions.add(promotionRepository.save(promotion3));
+            promotionRuleEngine.invalidateAll();
             
             // 格式化响应
             List<Map<String, Object>> formattedPromotions = updatedPromotions.stream()
@@ -550,6 +618,7 @@ public class PromotionService {
         log.info("清理所有促销活动数据");
         promotionRepository.deleteAll();
         promotionRepository.flush();
+        promotionRuleEngine.invalidateAll();
     }
 
     /**
@@ -605,15 +674,15 @@ public class PromotionService {
             }
             
             // 更新规则和应用方法
-            ObjectMapper objectMapper = new ObjectMapper();
             if (request.getRules() != null) {
-                promotion.setRules(objectMapper.writeValueAsString(request.getRules()));
+                promotion.setRules(jsonCodec.write(request.getRules()));
             }
             if (request.getApplicationMethod() != null) {
-                promotion.setApplicationMethod(objectMapper.writeValueAsString(request.getApplicationMethod()));
+                promotion.setApplicationMethod(jsonCodec.write(request.getApplicationMethod()));
             }
             
             promotion = promotionRepository.save(promotion);
+            promotionRuleEngine.invalidate(id);
             log.info("促销活动更新成功, ID: {}", promotion.getId());
             
             Map<String, Object> response = new HashMap<>();
@@ -633,9 +702,10 @@ public class PromotionService {
         log.info("开始生成随机促销活动");
         
         try {
-            PromotionDataGenerator generator = new PromotionDataGenerator();
+            PromotionDataGenerator generator = new PromotionDataGenerator(jsonCodec);
             Promotion promotion = generator.generatePromotion();
             promotion = promotionRepository.save(promotion);
+            promotionRuleEngine.invalidate(promotion.getId());
             
             log.info("随机促销活动生成成功, ID: {}", promotion.getId());
             
@@ -656,9 +726,10 @@ public class PromotionService {
         log.info("开始生成随机促销活动, 数量: {}", count);
         
         try {
-            PromotionDataGenerator generator = new PromotionDataGenerator();
+            PromotionDataGenerator generator = new PromotionDataGenerator(jsonCodec);
             List<Promotion> promotions = generator.generatePromotions(count);
             promotions = promotionRepository.saveAll(promotions);
+            promotionRuleEngine.invalidateAll();
             
             List<Map<String, Object>> formattedPromotions = promotions.stream()
                 .map(this::formatPromotionResponse)
@@ -688,6 +759,7 @@ public class PromotionService {
             // 软删除：设置删除时间而不是真正删除记录
             promotion.setDeletedAt(LocalDateTime.now());
             promotionRepository.save(promotion);
+            promotionRuleEngine.invalidate(id);
             
             log.info("促销活动删除成功, ID: {}", id);
             
@@ -9,6 +9,8 @@ import com.qvtu.mallshopping.model.Location;
 import com.qvtu.mallshopping.repository.ReservationRepository;
 import com.qvtu.mallshopping.repository.InventoryRepository;
 import com.qvtu.mallshopping.repository.LocationRepository;
+import com.qvtu.mallshopping.util.KeysetCursor;
+import com.qvtu.mallshopping.util.KeysetPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
@@ -18,6 +20,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.LinkedHashMap;
 
@@ -27,15 +30,18 @@ public class ReservationService {
     private final ReservationRepository reservationRepository;
     private final InventoryRepository inventoryRepository;
     private final LocationRepository locationRepository;
+    private final StockReservationService stockReservationService;
 
     public ReservationService(
         ReservationRepository reservationRepository,
         InventoryRepository inventoryRepository,
-        LocationRepository locationRepository
+        LocationRepository locationRepository,
+        StockReservationService stockReservationService
     ) {
         this.reservationRepository = reservationRepository;
         this.inventoryRepository = inventoryRepository;
         this.locationRepository = locationRepository;
+        this.stockReservationService = stockReservationService;
     }
 
     @Transactional
@@ -48,6 +54,13 @@ public class ReservationService {
         Location location = locationRepository.findById(Long.parseLong(request.getLocationId()))
             .orElseThrow(() -> new ResourceNotFoundException("Location not found"));
 
+        if (request.getQuantity() == null || request.getQuantity() <= 0) {
+            throw new IllegalArgumentException("Reservation quantity must be positive");
+        }
+
+        // 原子占用库存，库存不足时抛出 InsufficientInventoryException
+        stockReservationService.reserve(inventoryItem, location.getId(), request.getQuantity());
+
         // 创建预定
         Reservation reservation = new Reservation();
         reservation.setLineItemId(request.getLineItemId());
@@ -87,6 +100,24 @@ public class ReservationService {
         return response;
     }
 
+    // 游标分页：按 (created_at, id) 倒序，用估算行数代替 count(*)
+    public Map<String, Object> listReservationsByCursor(String cursor, Integer limit) {
+        KeysetPage<Reservation> page = KeysetPage.fetch(cursor, limit,
+            reservationRepository::findKeysetPage, reservationRepository::findKeysetPageAfter, reservationRepository::findUndatedPageBefore,
+            r -> new KeysetCursor(r.getCreatedAt(), r.getId()));
+        List<Reservation> reservations = page.getItems();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("limit", page.getLimit());
+        response.put("next_cursor", page.getNextCursor());
+        response.put("estimated_count", reservationRepository.estimateCount());
+        response.put("reservations", reservations.stream()
+            .map(this::convertToMap)
+            .toList());
+
+        return response;
+    }
+
     private Map<String, Object> convertToMap(Reservation reservation) {
         Map<String, Object> result = new LinkedHashMap<>();
         result.put("id", reservation.getId().toString());
@@ -103,9 +134,16 @@ public class ReservationService {
     public void deleteReservation(Long id) {
         Reservation reservation = reservationRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Reservation not found"));
-            
-        reservation.setDeletedAt(LocalDateTime.now());
-        reservationRepository.save(reservation);
+
+        // 只有真正完成软删除的请求才释放库存
+        if (reservationRepository.markDeleted(id, LocalDateTime.now()) == 0) {
+            return;
+        }
+        stockReservationService.release(
+            reservation.getInventoryItem(),
+            reservation.getLocation().getId(),
+            reservation.getQuantity() != null ? reservation.getQuantity() : 0
+        );
     }
 
     @Transactional
@@ -0,0 +1,89 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.exception.InsufficientInventoryException;
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.model.Inventory;
+import com.qvtu.mallshopping.repository.InventoryLevelRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 库存预留：通过对 inventory_levels 的条件 UPDATE 原子地增减预留数量，
+ * 不在应用层读-改-写，因此并发下不会超卖。预留和释放在同一事务中写入发件箱消息。
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+    private final InventoryLevelRepository inventoryLevelRepository;
+    private final HotStockCounterService hotStockCounterService;
+    private final OutboxService outboxService;
+
+    public StockReservationService(
+        InventoryLevelRepository inventoryLevelRepository,
+        HotStockCounterService hotStockCounterService,
+        OutboxService outboxService
+    ) {
+        this.inventoryLevelRepository = inventoryLevelRepository;
+        this.hotStockCounterService = hotStockCounterService;
+        this.outboxService = outboxService;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Inventory inventory, Long locationId, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Reservation quantity must be positive");
+        }
+        // 不管理库存的商品不占用库存
+        if (Boolean.FALSE.equals(inventory.getManageInventory())) {
+            return;
+        }
+
+        boolean backorder = Boolean.TRUE.equals(inventory.getAllowBackorder());
+        // 热门商品先在内存计数器中准入，预留数量由计数器批量写回
+        if (!backorder && hotStockCounterService.isHot(inventory.getId())
+                && hotStockCounterService.reserve(inventory.getId(), locationId, quantity)) {
+            publish(inventory, "inventory.reserved", locationId, quantity);
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int updated = backorder
+            ? inventoryLevelRepository.reserveWithBackorder(inventory.getId(), locationId, quantity, now)
+            : inventoryLevelRepository.reserve(inventory.getId(), locationId, quantity, now);
+
+        if (updated == 0) {
+            if (!inventoryLevelRepository.existsByInventoryIdAndLocationIdAndDeletedAtIsNull(inventory.getId(), locationId)) {
+                throw new ResourceNotFoundException("Inventory level not found");
+            }
+            throw new InsufficientInventoryException(inventory.getId(), locationId, quantity);
+        }
+        publish(inventory, "inventory.reserved", locationId, quantity);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void release(Inventory inventory, Long locationId, int quantity) {
+        if (quantity <= 0 || Boolean.FALSE.equals(inventory.getManageInventory())) {
+            return;
+        }
+        if (hotStockCounterService.isHot(inventory.getId())
+                && hotStockCounterService.release(inventory.getId(), locationId, quantity)) {
+            publish(inventory, "inventory.released", locationId, quantity);
+            return;
+        }
+        int updated = inventoryLevelRepository.release(inventory.getId(), locationId, quantity, LocalDateTime.now());
+        if (updated == 0) {
+            log.warn("No inventory level to release for item {} at location {}", inventory.getId(), locationId);
+            return;
+        }
+        publish(inventory, "inventory.released", locationId, quantity);
+    }
+
+    private void publish(Inventory inventory, String type, Long locationId, int quantity) {
+        outboxService.publish("inventory", inventory.getId(), type, Map.of("location_id", locationId, "quantity", quantity));
+    }
+}
@@ -13,6 +13,11 @@ import java.util.concurrent.TimeUnit;
 
 public class CampaignDataGenerator {
     private final Faker faker = new Faker(new Locale("zh_CN"));
+    private final JsonCodec jsonCodec;
+
+    public CampaignDataGenerator(JsonCodec jsonCodec) {
+        this.jsonCodec = jsonCodec;
+    }
 
     public List<Campaign> generateCampaigns(int count) {
         List<Campaign> campaigns = new ArrayList<>();
@@ -67,7 +72,7 @@ public class CampaignDataGenerator {
         budget.setUsed(0.0);
         
         try {
-            return new com.fasterxml.jackson.databind.ObjectMapper().writeValueAsString(budget);
+            return jsonCodec.write(budget);
         } catch (Exception e) {
             return null;
         }
@@ -0,0 +1,73 @@
+package com.qvtu.mallshopping.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.qvtu.mallshopping.dto.Budget;
+import com.qvtu.mallshopping.dto.PromotionCreateRequest.ApplicationMethod;
+import com.qvtu.mallshopping.model.Cart;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 全局共享的 JSON 编解码器。
+ * 基于 Spring 配置好的 ObjectMapper，为常用的结构预先创建 ObjectReader/ObjectWriter，
+ * 它们不可变且线程安全，避免在每次调用时重新创建 ObjectMapper 和解析类型。
+ */
+@Component
+public class JsonCodec {
+    private final ObjectMapper objectMapper;
+    private final ObjectReader mapReader;
+    private final ObjectReader listOfMapsReader;
+    private final ObjectReader budgetReader;
+    private final ObjectReader applicationMethodReader;
+    private final ObjectReader cartReader;
+    private final ObjectWriter writer;
+
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.mapReader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {});
+        this.listOfMapsReader = objectMapper.readerFor(new TypeReference<List<Map<String, Object>>>() {});
+        this.budgetReader = objectMapper.readerFor(Budget.class);
+        this.applicationMethodReader = objectMapper.readerFor(ApplicationMethod.class);
+        this.cartReader = objectMapper.readerFor(Cart.class);
+        this.writer = objectMapper.writer();
+    }
+
+    public Map<String, Object> readMap(String json) throws JsonProcessingException {
+        return mapReader.readValue(json);
+    }
+
+    public List<Map<String, Object>> readListOfMaps(String json) throws JsonProcessingException {
+        return listOfMapsReader.readValue(json);
+    }
+
+    public Budget readBudget(String json) throws JsonProcessingException {
+        return budgetReader.readValue(json);
+    }
+
+    public ApplicationMethod readApplicationMethod(String json) throws JsonProcessingException {
+        return applicationMethodReader.readValue(json);
+    }
+
+    public Cart readCart(String json) throws JsonProcessingException {
+        return cartReader.readValue(json);
+    }
+
+    public JsonNode readTree(String json) throws JsonProcessingException {
+        return objectMapper.readTree(json);
+    }
+
+    public String write(Object value) throws JsonProcessingException {
+        return writer.writeValueAsString(value);
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+}
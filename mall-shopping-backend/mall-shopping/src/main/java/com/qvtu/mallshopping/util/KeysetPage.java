@@ -0,0 +1,105 @@
+package com.qvtu.mallshopping.util;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 按 (created_at, id) 倒序的一页游标分页结果。
+ * 多取一行判断是否还有下一页，下一页游标取自本页最后一个键，每页条数限制在 1..100。
+ * created_at 为空的行排在最后、按 id 倒序，有 created_at 的行取完后由单独的查询接着读，两段都能按 (created_at, id) 索引扫描。
+ */
+public final class KeysetPage<T> {
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    private final List<T> items;
+    private final int limit;
+    private final String nextCursor;
+
+    private KeysetPage(List<T> items, int limit, String nextCursor) {
+        this.items = items;
+        this.limit = limit;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public static int clampLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(Math.max(1, limit), MAX_LIMIT);
+    }
+
+    /**
+     * @param firstPage   第一页的查询，只包含 created_at 不为空的行
+     * @param afterPage   从游标位置之后继续的查询
+     * @param undatedPage created_at 为空、id 小于给定值的行，按 id 倒序
+     * @param keyOf       取出每一行的 (created_at, id)
+     */
+    public static <T> KeysetPage<T> fetch(
+        String cursor,
+        Integer limit,
+        Function<Pageable, List<T>> firstPage,
+        AfterQuery<T> afterPage,
+        UndatedQuery<T> undatedPage,
+        Function<T, KeysetCursor> keyOf
+    ) {
+        int pageSize = clampLimit(limit);
+        Pageable pageable = PageRequest.of(0, pageSize + 1);
+        List<T> rows;
+        if (KeysetCursor.isFirstPage(cursor)) {
+            rows = firstPage.apply(pageable);
+        } else {
+            KeysetCursor position = KeysetCursor.decode(cursor);
+            if (position.getCreatedAt() == null) {
+                // 游标已经位于 created_at 为空的行中
+                return page(undatedPage.find(position.getId(), pageable), pageSize, keyOf);
+            }
+            rows = afterPage.find(position.getCreatedAt(), position.getId(), pageable);
+        }
+        // 有 created_at 的行不足一页时接着读 created_at 为空的行
+        if (rows.size() <= pageSize) {
+            List<T> undated = undatedPage.find(Long.MAX_VALUE, PageRequest.of(0, pageSize + 1 - rows.size()));
+            if (!undated.isEmpty()) {
+                rows = new ArrayList<>(rows);
+                rows.addAll(undated);
+            }
+        }
+        return page(rows, pageSize, keyOf);
+    }
+
+    private static <T> KeysetPage<T> page(List<T> rows, int pageSize, Function<T, KeysetCursor> keyOf) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, pageSize, null);
+        }
+        List<T> page = rows.subList(0, pageSize);
+        KeysetCursor last = keyOf.apply(page.get(pageSize - 1));
+        return new KeysetPage<>(page, pageSize, KeysetCursor.encode(last.getCreatedAt(), last.getId()));
+    }
+
+    @FunctionalInterface
+    public interface AfterQuery<T> {
+        List<T> find(LocalDateTime createdAt, Long id, Pageable pageable);
+    }
+
+    @FunctionalInterface
+    public interface UndatedQuery<T> {
+        List<T> find(Long beforeId, Pageable pageable);
+    }
+}
@@ -0,0 +1,106 @@
+package com.qvtu.mallshopping.config;
+
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import com.qvtu.mallshopping.model.Inventory;
+import com.qvtu.mallshopping.model.Order;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class JsonMapTypeUpdateCountTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void unchangedMetadataDoesNotTriggerUpdates() {
+        List<Long> inventoryIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            inventoryIds.add(persistInventory(i).getId());
+        }
+        Long orderId = persistOrder().getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        for (Long id : inventoryIds) {
+            entityManager.find(Inventory.class, id).getMetadata().get("tags");
+        }
+        entityManager.find(Order.class, orderId).getMetadata().get("source");
+        entityManager.flush();
+
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    void nestedMetadataChangeIsDetected() {
+        Long id = persistInventory(0).getId();
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        Inventory inventory = entityManager.find(Inventory.class, id);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> dimensions = (Map<String, Object>) inventory.getMetadata().get("dimensions");
+        dimensions.put("height", 42);
+        entityManager.flush();
+
+        assertEquals(1, statistics.getEntityUpdateCount());
+    }
+
+    private Statistics statistics() {
+        return entityManager.getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+    }
+
+    private Inventory persistInventory(int index) {
+        Map<String, Object> dimensions = new HashMap<>();
+        dimensions.put("height", 10);
+        dimensions.put("weight", 1.5);
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("tags", List.of("hot", "sale"));
+        metadata.put("dimensions", dimensions);
+
+        Inventory inventory = new Inventory();
+        inventory.setSku("json-map-type-" + index + "-" + System.nanoTime());
+        inventory.setQuantity(1);
+        inventory.setMetadata(metadata);
+        inventory.setCreatedAt(LocalDateTime.now());
+        entityManager.persist(inventory);
+        return inventory;
+    }
+
+    private Order persistOrder() {
+        Order order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setFulfillmentStatus(FulfillmentStatus.not_fulfilled);
+        order.setEmail("json-map-type@example.com");
+        order.setCurrencyCode("usd");
+        order.setMetadata(Map.of("source", "test", "flags", Map.of("gift", true)));
+        entityManager.persist(order);
+        return order;
+    }
+}
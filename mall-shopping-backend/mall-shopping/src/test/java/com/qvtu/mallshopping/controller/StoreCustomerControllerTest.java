@@ -0,0 +1,122 @@
+package com.qvtu.mallshopping.controller;
+
+import com.qvtu.mallshopping.model.Customer;
+import com.qvtu.mallshopping.repository.CustomerRepository;
+import com.qvtu.mallshopping.security.JwtTokenProvider;
+import com.qvtu.mallshopping.security.TokenClaimsCache;
+import com.qvtu.mallshopping.util.JsonCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 不加 @Transactional：请求由内嵌服务器的线程处理，数据需要真正提交
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StoreCustomerControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenClaimsCache tokenClaimsCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JsonCodec jsonCodec;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<Long> createdCustomers = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        createdCustomers.forEach(id -> {
+            jdbcTemplate.update("update customers set default_billing_address_id = null, "
+                + "default_shipping_address_id = null where id = ?", id);
+            jdbcTemplate.update("delete from addresses where customer_id = ?", id);
+            jdbcTemplate.update("delete from customers where id = ?", id);
+        });
+    }
+
+    @Test
+    void rejectsMissingOrInvalidToken() throws Exception {
+        assertEquals(401, send("GET", "/store/customers/me", null, null).statusCode());
+        assertEquals(401, send("GET", "/store/customers/me", "not-a-token", null).statusCode());
+        assertEquals(401, send("GET", "/store/customers/me/addresses", "not-a-token", null).statusCode());
+    }
+
+    @Test
+    void profileIsCachedUntilCustomerChanges() throws Exception {
+        Long customerId = createCustomer("Alice");
+        String token = jwtTokenProvider.generateToken(customerId);
+
+        long misses = tokenClaimsCache.getMissCount();
+        assertEquals("Alice", firstName(send("GET", "/store/customers/me", token, null)));
+
+        // 绕过服务直接修改数据库，缓存的资料不变，令牌也不再重新验证
+        jdbcTemplate.update("update customers set first_name = 'Changed' where id = ?", customerId);
+        assertEquals("Alice", firstName(send("GET", "/store/customers/me", token, null)));
+        assertEquals(misses + 1, tokenClaimsCache.getMissCount());
+
+        // 通过接口修改后资料立即失效
+        send("POST", "/store/customers/me", token, "{\"first_name\":\"Bob\"}");
+        assertEquals("Bob", firstName(send("GET", "/store/customers/me", token, null)));
+
+        send("POST", "/store/customers/me/addresses", token, "{\"address_1\":\"Street 1\",\"city\":\"Hangzhou\"}");
+        Map<String, Object> customer = customer(send("GET", "/store/customers/me", token, null));
+        assertEquals(1, ((List<?>) customer.get("addresses")).size());
+    }
+
+    private Long createCustomer(String firstName) {
+        Customer customer = new Customer();
+        customer.setEmail(UUID.randomUUID() + "@example.com");
+        customer.setPassword("x");
+        customer.setFirstName(firstName);
+        Long id = customerRepository.save(customer).getId();
+        createdCustomers.add(id);
+        return id;
+    }
+
+    private String firstName(HttpResponse<String> response) throws Exception {
+        return (String) customer(response).get("first_name");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> customer(HttpResponse<String> response) throws Exception {
+        assertEquals(200, response.statusCode(), response.body());
+        return (Map<String, Object>) jsonCodec.readMap(response.body()).get("customer");
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String json) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header("x-publishable-api-key", "pk_test")
+            .method(method, json != null ? HttpRequest.BodyPublishers.ofString(json) : HttpRequest.BodyPublishers.noBody());
+        if (json != null) {
+            request.header("Content-Type", "application/json");
+        }
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,220 @@
+package com.qvtu.mallshopping.controller;
+
+import com.qvtu.mallshopping.dto.CollectionCreateRequest;
+import com.qvtu.mallshopping.dto.ProductCreateRequest;
+import com.qvtu.mallshopping.dto.ProductVariantDTO;
+import com.qvtu.mallshopping.model.Collection;
+import com.qvtu.mallshopping.model.Product;
+import com.qvtu.mallshopping.service.CollectionService;
+import com.qvtu.mallshopping.service.ProductCardService;
+import com.qvtu.mallshopping.service.ProductService;
+import com.qvtu.mallshopping.util.JsonCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 不加 @Transactional：请求由内嵌服务器的线程处理，数据需要真正提交
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class StoreProductControllerTest {
+    private static final Logger log = LoggerFactory.getLogger(StoreProductControllerTest.class);
+
+    // 压测只在指定 -Dstore.load.rps 时运行，例如 -Dstore.load.rps=5000 -Dstore.load.seconds=3 -Dspring.profiles.active=prod
+    private static final int TARGET_RPS = Integer.getInteger("store.load.rps", 5_000);
+    private static final int SECONDS = Integer.getInteger("store.load.seconds", 3);
+    private static final int PRODUCTS = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CollectionService collectionService;
+
+    @Autowired
+    private ProductCardService productCardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JsonCodec jsonCodec;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<Long> createdProducts = new ArrayList<>();
+    private final List<Long> createdCollections = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        createdProducts.forEach(id -> {
+            try {
+                productService.deleteProduct(id);
+            } catch (RuntimeException ignored) {
+                // 已在测试中删除
+            }
+        });
+        createdCollections.forEach(id -> jdbcTemplate.update("delete from collections where id = ?", id));
+    }
+
+    @Test
+    void cardsFollowProductAndCollectionChanges() throws Exception {
+        String marker = "card-" + UUID.randomUUID();
+        Product product = createProduct(marker, "PUBLISHED");
+        Product draft = createProduct(marker + "-draft", "DRAFT");
+
+        String body = get("/store/products/" + product.getHandle()).body();
+        assertTrue(body.contains("\"handle\":\"" + product.getHandle() + "\""));
+        assertTrue(body.contains("\"sku\":\"" + marker.toUpperCase() + "\""));
+        assertEquals(404, get("/store/products/" + draft.getHandle()).statusCode());
+
+        CollectionCreateRequest collectionRequest = new CollectionCreateRequest();
+        collectionRequest.setTitle("Summer " + marker);
+        collectionRequest.setHandle(marker + "-summer");
+        Collection collection = collectionService.createCollection(collectionRequest);
+        createdCollections.add(collection.getId());
+        collectionService.addProductsToCollection(collection.getId(), List.of(product.getId()));
+
+        String listed = get("/store/products?collection_id=" + collection.getId()).body();
+        assertTrue(listed.contains("\"count\":1"));
+        assertTrue(listed.contains("Summer " + marker));
+
+        // 修改系列标题后，卡片中冗余的标题同步更新
+        collectionRequest.setTitle("Autumn " + marker);
+        collectionRequest.setHandle(null);
+        collectionService.updateCollection(collection.getId(), collectionRequest);
+        assertTrue(get("/store/products/" + product.getHandle()).body().contains("Autumn " + marker));
+
+        productService.updateProductStatus(product.getId(), "draft");
+        assertEquals(404, get("/store/products/" + product.getHandle()).statusCode());
+
+        productService.deleteProduct(draft.getId());
+        assertEquals(0, jdbcTemplate.queryForObject(
+            "select count(*) from product_cards where product_id = ?", Integer.class, draft.getId()));
+    }
+
+    @Test
+    void cardCarriesVariantPrices() throws Exception {
+        String marker = "card-" + UUID.randomUUID();
+        Product product = createProduct(marker, "PUBLISHED");
+        jdbcTemplate.update("update product_variants set price = 129.90 where product_id = ?", product.getId());
+        productCardService.refresh(product.getId());
+
+        Map<String, Object> card = jsonCodec.readMap(productCardService.getPublishedCard(product.getHandle()).orElseThrow());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> variant = ((List<Map<String, Object>>) card.get("variants")).get(0);
+        @SuppressWarnings("unchecked")
+        Map<String, Object> price = (Map<String, Object>) variant.get("calculated_price");
+        assertEquals(129.9, ((Number) price.get("calculated_amount")).doubleValue(), 0.001);
+        assertEquals("cny", price.get("currency_code"));
+    }
+
+    // 没有引入压测工具：按固定速率发起请求（开环），延迟从计划发送时间算起，八成详情、两成列表
+    @Test
+    @EnabledIfSystemProperty(named = "store.load.rps", matches = "\\d+")
+    void catalogReadsUnderLoad() throws Exception {
+        String marker = "load-" + UUID.randomUUID();
+        List<String> handles = new ArrayList<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            handles.add(createProduct(marker + "-" + i, "PUBLISHED").getHandle());
+        }
+
+        run(handles, TARGET_RPS, 1);
+        LoadResult result = run(handles, TARGET_RPS, SECONDS);
+
+        log.info("Store catalog at {} rps for {} s: achieved {} rps, {} errors, p50 {} ms, p99 {} ms, max {} ms",
+            TARGET_RPS, SECONDS, Math.round(result.throughput()), result.errors(), String.format("%.2f", result.percentile(50)),
+            String.format("%.2f", result.percentile(99)), String.format("%.2f", result.percentile(100)));
+        assertEquals(0, result.errors());
+    }
+
+    private LoadResult run(List<String> handles, int rps, int seconds) throws InterruptedException {
+        int total = rps * seconds;
+        long intervalNanos = 1_000_000_000L / rps;
+        long[] latencies = new long[total];
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong errors = new AtomicLong();
+        ExecutorService workers = Executors.newFixedThreadPool(64);
+        long start = System.nanoTime();
+        for (int w = 0; w < 64; w++) {
+            workers.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < total) {
+                    long scheduled = start + i * intervalNanos;
+                    long wait = scheduled - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    String path = i % 5 == 0
+                        ? "/store/products?offset=" + (i % 10) * 12 + "&limit=12"
+                        : "/store/products/" + handles.get(i % handles.size());
+                    try {
+                        if (get(path).statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - scheduled;
+                }
+                return null;
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(5, TimeUnit.MINUTES);
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        return new LoadResult(latencies, errors.get(), total / elapsed);
+    }
+
+    private record LoadResult(long[] latencies, long errors, double throughput) {
+        double percentile(int p) {
+            int index = Math.min(latencies.length - 1, (int) Math.ceil(latencies.length * p / 100.0) - 1);
+            return latencies[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Product createProduct(String handle, String status) {
+        ProductVariantDTO variant = new ProductVariantDTO();
+        variant.setTitle("Default");
+        variant.setSku(handle.toUpperCase());
+
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setTitle("Card " + handle);
+        request.setStatus(status);
+        request.setHandle(handle);
+        request.setVariants(List.of(variant));
+        Product product = productService.createProduct(request);
+        createdProducts.add(product.getId());
+        return product;
+    }
+}
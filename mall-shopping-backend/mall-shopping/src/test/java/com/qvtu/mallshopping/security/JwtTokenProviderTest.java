@@ -0,0 +1,122 @@
+package com.qvtu.mallshopping.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JwtTokenProviderTest {
+    private static final Logger log = LoggerFactory.getLogger(JwtTokenProviderTest.class);
+
+    private static final String SECRET = "test-secret-0123456789012345678901234567890123456789012345678901234";
+
+    private final JwtTokenProvider provider = new JwtTokenProvider(SECRET, 3600);
+
+    @Test
+    void roundTripsUserId() {
+        String token = provider.generateToken(42L);
+        assertEquals(42L, provider.parseUserId(token));
+        assertEquals("42", provider.parseClaims(token).getSubject());
+    }
+
+    @Test
+    void rejectsForgedExpiredAndMalformedTokens() {
+        String token = provider.generateToken(42L);
+        JwtTokenProvider other = new JwtTokenProvider(SECRET.replace('0', 'x'), 3600);
+        assertNull(other.parseUserId(token));
+        assertNull(provider.parseUserId(token.substring(0, token.length() - 2) + "AA"));
+        assertNull(provider.parseUserId("not-a-token"));
+        assertNull(provider.parseUserId(""));
+
+        String expired = Jwts.builder()
+            .setSubject("42")
+            .setExpiration(new Date(System.currentTimeMillis() - 1000))
+            .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+            .compact();
+        assertNull(provider.parseUserId(expired));
+
+        // 主题不是用户 ID 的令牌同样无效
+        String emailSubject = Jwts.builder()
+            .setSubject("someone@example.com")
+            .signWith(Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8)), SignatureAlgorithm.HS512)
+            .compact();
+        assertNull(provider.parseUserId(emailSubject));
+    }
+
+    @Test
+    void rejectsSecretTooShortForHs512() {
+        assertThrows(IllegalStateException.class, () -> new JwtTokenProvider("short-secret", 3600));
+    }
+
+    @Test
+    void claimsCacheVerifiesEachTokenOnce() {
+        TokenClaimsCache cache = new TokenClaimsCache(provider, 100);
+        String token = provider.generateToken(7L);
+        assertEquals(7L, cache.resolveCustomerId(token));
+        assertEquals(7L, cache.resolveCustomerId(token));
+        assertNull(cache.resolveCustomerId("not-a-token"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    // 单线程验证吞吐量（约等于每核每秒验证数）：每次重新计算密钥和解析器、复用解析器、命中声明缓存
+    @Test
+    void verificationThroughput() {
+        int tokens = 1_000;
+        String[] issued = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            issued[i] = provider.generateToken((long) i);
+        }
+        byte[] secret = SECRET.getBytes(StandardCharsets.UTF_8);
+        TokenClaimsCache cache = new TokenClaimsCache(provider, tokens);
+        int iterations = 20_000;
+        // 每次重建解析器慢一个数量级以上，只跑十分之一
+        int rebuiltIterations = iterations / 10;
+
+        // 预热
+        for (int i = 0; i < iterations; i++) {
+            if (i < rebuiltIterations) {
+                Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(secret)).build().parseClaimsJws(issued[i % tokens]);
+            }
+            provider.parseUserId(issued[i % tokens]);
+            cache.resolveCustomerId(issued[i % tokens]);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < rebuiltIterations; i++) {
+            Jwts.parserBuilder().setSigningKey(Keys.hmacShaKeyFor(secret)).build().parseClaimsJws(issued[i % tokens]);
+        }
+        long rebuilt = System.nanoTime() - start;
+
+        long verified = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            verified += provider.parseUserId(issued[i % tokens]);
+        }
+        long reused = System.nanoTime() - start;
+
+        long resolved = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            resolved += cache.resolveCustomerId(issued[i % tokens]);
+        }
+        long cached = System.nanoTime() - start;
+
+        log.info("JWT verifications per second on one thread: rebuilt key and parser {}, shared parser {}, claims cache {}",
+            perSecond(rebuiltIterations, rebuilt), perSecond(iterations, reused), perSecond(iterations, cached));
+        assertEquals(verified, resolved);
+    }
+
+    private static long perSecond(int count, long nanos) {
+        return Math.round(count / (nanos / 1e9));
+    }
+}
@@ -0,0 +1,271 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.CreateDraftOrderRequest;
+import com.qvtu.mallshopping.dto.ProductCreateRequest;
+import com.qvtu.mallshopping.dto.ProductVariantDTO;
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.model.Cart;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.model.OrderItem;
+import com.qvtu.mallshopping.model.Product;
+import com.qvtu.mallshopping.model.Promotion;
+import com.qvtu.mallshopping.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 不加 @Transactional：需要比较每次加购真正提交的开销，数据在 cleanUp 中删除
+@SpringBootTest
+class CartServiceTest {
+    private static final Logger log = LoggerFactory.getLogger(CartServiceTest.class);
+
+    private static final int ADDS = 200;
+
+    @Autowired
+    private CartService cartService;
+
+    @Autowired
+    private CartStore cartStore;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PromotionRuleEngine promotionRuleEngine;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdProducts = new ArrayList<>();
+    private final List<Long> createdOrders = new ArrayList<>();
+    private final List<Long> createdCategories = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        createdOrders.forEach(id -> {
+            jdbcTemplate.update("delete from order_items where order_id = ?", id);
+            jdbcTemplate.update("delete from orders where id = ?", id);
+        });
+        createdProducts.forEach(productService::deleteProduct);
+        createdCategories.forEach(id -> jdbcTemplate.update("delete from categories where id = ?", id));
+    }
+
+    @Test
+    void cartLifecycleEndsInOneOrder() {
+        Long variantId = createVariant("19.90");
+        Cart cart = cartService.createCart("reg_1", "buyer@example.com", null);
+
+        cartService.addLineItem(cart.getId(), variantId, 1);
+        Cart merged = cartService.addLineItem(cart.getId(), variantId, 2);
+        assertEquals(1, merged.getItems().size());
+        assertEquals(3, merged.getItems().get(0).getQuantity());
+        assertEquals(1990, merged.getItems().get(0).getUnitPrice());
+
+        String lineId = merged.getItems().get(0).getId();
+        assertEquals(5, cartService.updateLineItem(cart.getId(), lineId, 5).getItems().get(0).getQuantity());
+        assertThrows(IllegalArgumentException.class, () -> cartService.updateLineItem(cart.getId(), lineId, -1));
+
+        // 移出内存后从 carts 表恢复
+        cartStore.evictIdleBefore(Long.MAX_VALUE);
+        assertEquals(5, cartService.getCart(cart.getId()).getItems().get(0).getQuantity());
+
+        Order order = cartService.completeCart(cart.getId());
+        createdOrders.add(order.getId());
+        Map<String, Object> formatted = orderService.getOrder(order.getId());
+        assertEquals(1, ((List<?>) formatted.get("items")).size());
+        assertEquals(0, new BigDecimal("99.50").compareTo(order.getTotal()));
+
+        assertThrows(ResourceNotFoundException.class, () -> cartService.completeCart(cart.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject("select count(*) from carts where id = ?", Integer.class, cart.getId()));
+    }
+
+    // 按分类的促销匹配加购的商品行，从快照恢复后重建的合计同样匹配
+    @Test
+    void categoryPromotionMatchesCartLines() {
+        Long categoryId = jdbcTemplate.queryForObject("insert into categories (name, created_at, updated_at) "
+            + "values (?, now(), now()) returning id", Long.class, "cart-" + UUID.randomUUID());
+        createdCategories.add(categoryId);
+        Long variantId = createVariant("20.00", List.of(categoryId));
+        Long otherVariantId = createVariant("10.00");
+        PromotionRuleEngine.CompiledPromotion promotion = promotionRuleEngine.compiled(Promotion.builder()
+            .id(-1L)
+            .code("CATEGORY10")
+            .isAutomatic(true)
+            .status("active")
+            .applicationMethod("{\"type\":\"percentage\",\"value\":10,\"target_type\":\"items\",\"allocation\":\"each\","
+                + "\"target_rules\":[{\"attribute\":\"product_category\",\"operator\":\"in\",\"values\":[\"" + categoryId + "\"]}]}")
+            .updatedAt(LocalDateTime.now())
+            .build());
+
+        Cart cart = cartService.createCart("reg_1", null, null);
+        cartService.addLineItem(cart.getId(), otherVariantId, 1);
+        Cart added = cartService.addLineItem(cart.getId(), variantId, 1);
+        assertEquals(List.of(categoryId.toString()), added.getItems().get(1).getCategoryIds());
+        added.totals().applyPromotions(List.of(promotion), List.of());
+        assertEquals(200, added.totals().getDiscountTotal());
+
+        cartStore.evictIdleBefore(Long.MAX_VALUE);
+        Cart restored = cartStore.find(cart.getId()).orElseThrow();
+        restored.totals().applyPromotions(List.of(promotion), List.of());
+        assertEquals(200, restored.totals().getDiscountTotal());
+        cartStore.remove(cart.getId());
+    }
+
+    // 购物车移出内存后只剩快照，并发下单也只能生成一个订单
+    @Test
+    void concurrentCompletionOfEvictedCartCreatesOneOrder() throws Exception {
+        Long variantId = createVariant("5.00");
+        Cart cart = cartService.createCart("reg_1", null, null);
+        cartService.addLineItem(cart.getId(), variantId, 1);
+        cartStore.evictIdleBefore(Long.MAX_VALUE);
+
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Order>> attempts = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            attempts.add(pool.submit(() -> {
+                start.await();
+                return cartService.completeCart(cart.getId());
+            }));
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+
+        int notFound = 0;
+        for (Future<Order> attempt : attempts) {
+            try {
+                createdOrders.add(attempt.get().getId());
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof ResourceNotFoundException, e.getCause().toString());
+                notFound++;
+            }
+        }
+        assertEquals(1, createdOrders.size());
+        assertEquals(threads - 1, notFound);
+    }
+
+    // 没有引入 JMH：对比加购写内存购物车与原先每次加购都写草稿订单和订单项的耗时
+    @Test
+    void addToCartLatencyAgainstDraftOrderWrites() {
+        Long variantId = createVariant("9.90");
+        List<Long> variants = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            variants.add(createVariant("1" + i + ".00"));
+        }
+        variants.add(variantId);
+
+        Cart cart = cartService.createCart("reg_1", null, null);
+        long[] cartLatencies = new long[ADDS];
+        for (int i = 0; i < ADDS; i++) {
+            long start = System.nanoTime();
+            cartService.addLineItem(cart.getId(), variants.get(i % variants.size()), 1);
+            cartLatencies[i] = System.nanoTime() - start;
+        }
+
+        CreateDraftOrderRequest request = new CreateDraftOrderRequest();
+        request.setCurrencyCode("cny");
+        Order draft = orderService.createDraftOrder(request);
+        createdOrders.add(draft.getId());
+        long[] draftLatencies = new long[ADDS];
+        for (int i = 0; i < ADDS; i++) {
+            Long variant = variants.get(i % variants.size());
+            long start = System.nanoTime();
+            transactionTemplate.executeWithoutResult(status -> addToDraftOrder(draft.getId(), variant));
+            draftLatencies[i] = System.nanoTime() - start;
+        }
+
+        log.info("Add to cart over {} adds: in-memory cart p50 {} ms, p99 {} ms; draft order writes p50 {} ms, p99 {} ms",
+            ADDS, millis(cartLatencies, 50), millis(cartLatencies, 99), millis(draftLatencies, 50), millis(draftLatencies, 99));
+        assertEquals(ADDS, cartService.getCart(cart.getId()).getItems().stream().mapToInt(Cart.LineItem::getQuantity).sum());
+        assertTrue(percentile(cartLatencies, 50) < percentile(draftLatencies, 50));
+    }
+
+    // 原先的加购方式：在草稿订单上追加或合并订单项并更新订单
+    private void addToDraftOrder(Long orderId, Long variantId) {
+        Order order = orderRepository.findWithItemsById(orderId).orElseThrow();
+        OrderItem existing = order.getItems().stream()
+            .filter(item -> item.getVariantId().equals(variantId.toString()))
+            .findFirst()
+            .orElse(null);
+        BigDecimal price = jdbcTemplate.queryForObject("select price from product_variants where id = ?", BigDecimal.class, variantId);
+        if (existing != null) {
+            existing.setQuantity(existing.getQuantity() + 1);
+        } else {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setVariantId(variantId.toString());
+            item.setUnitPrice(price);
+            item.setQuantity(1);
+            item.setCreatedAt(LocalDateTime.now());
+            order.getItems().add(item);
+        }
+        order.setUpdatedAt(LocalDateTime.now());
+        orderRepository.save(order);
+    }
+
+    private Long createVariant(String price) {
+        return createVariant(price, null);
+    }
+
+    private Long createVariant(String price, List<Long> categoryIds) {
+        String handle = "cart-" + UUID.randomUUID();
+        ProductVariantDTO variant = new ProductVariantDTO();
+        variant.setTitle("Default");
+        variant.setSku(handle.toUpperCase());
+
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setTitle("Cart " + handle);
+        request.setStatus("PUBLISHED");
+        request.setHandle(handle);
+        request.setVariants(List.of(variant));
+        request.setCategoryIds(categoryIds);
+        Product product = productService.createProduct(request);
+        createdProducts.add(product.getId());
+        jdbcTemplate.update("update product_variants set price = ? where product_id = ?", new BigDecimal(price), product.getId());
+        return jdbcTemplate.queryForObject("select id from product_variants where product_id = ?", Long.class, product.getId());
+    }
+
+    private static long percentile(long[] latencies, int p) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * p / 100.0) - 1)];
+    }
+
+    private static String millis(long[] latencies, int p) {
+        return String.format("%.3f", percentile(latencies, p) / 1e6);
+    }
+}
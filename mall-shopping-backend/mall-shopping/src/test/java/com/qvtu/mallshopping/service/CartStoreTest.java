@@ -0,0 +1,75 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.model.Cart;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 不开启持久化，只验证内存中的上限、过期和并发修改
+class CartStoreTest {
+
+    @Test
+    void staysWithinCapacityAndKeepsRecentlyUsedCarts() {
+        CartStore store = new CartStore(null, null, 100, 30, false, 30);
+        store.create(cart("cart_hot"));
+        for (int i = 0; i < 500; i++) {
+            store.create(cart("cart_" + i));
+            // 一直被访问的购物车不会因为超出上限被移出
+            assertTrue(store.find("cart_hot").isPresent());
+        }
+        assertTrue(store.size() <= 100);
+        assertTrue(store.find("cart_499").isPresent());
+        assertTrue(store.find("cart_0").isEmpty());
+    }
+
+    @Test
+    void evictsIdleCartsAndReturnsCopies() {
+        CartStore store = new CartStore(null, null, 100, 30, false, 30);
+        store.create(cart("cart_idle"));
+
+        Cart copy = store.find("cart_idle").orElseThrow();
+        copy.getItems().add(new Cart.LineItem());
+        assertTrue(store.find("cart_idle").orElseThrow().getItems().isEmpty());
+
+        assertEquals(0, store.evictIdleBefore(System.nanoTime() - TimeUnit.MINUTES.toNanos(1)));
+        assertEquals(1, store.evictIdleBefore(System.nanoTime() + 1));
+        assertTrue(store.find("cart_idle").isEmpty());
+    }
+
+    @Test
+    void concurrentUpdatesToOneCartAreSerialized() throws InterruptedException {
+        CartStore store = new CartStore(null, null, 100, 30, false, 30);
+        Cart.LineItem item = new Cart.LineItem();
+        item.setId("cali_1");
+        Cart cart = cart("cart_shared");
+        cart.getItems().add(item);
+        store.create(cart);
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    store.update("cart_shared", c -> c.getItems().get(0).setQuantity(c.getItems().get(0).getQuantity() + 1));
+                }
+            });
+        }
+        tasks.forEach(pool::submit);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(80_000, store.find("cart_shared").orElseThrow().getItems().get(0).getQuantity());
+    }
+
+    private static Cart cart(String id) {
+        Cart cart = new Cart();
+        cart.setId(id);
+        return cart;
+    }
+}
@@ -0,0 +1,173 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.controller.CategoryController;
+import com.qvtu.mallshopping.dto.CategoryCreateRequest;
+import com.qvtu.mallshopping.model.Category;
+import com.qvtu.mallshopping.repository.CategoryRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class CategoryPathTest {
+    private static final Logger log = LoggerFactory.getLogger(CategoryPathTest.class);
+
+    private static final int NODES = 10_000;
+    private static final int DEPTH = 8;
+    private static final int FAN_OUT = 4;
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CategoryController categoryController;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // 没有引入 JMH：在 10000 个节点、8 层的分类树上比较逐层遍历与按路径前缀一次查询
+    @Test
+    void descendantQueryOnLargeTree() {
+        List<List<Long>> levels = insertTree();
+        Long subtreeRoot = levels.get(2).get(0);
+
+        List<Long> walked = null;
+        List<Long> byPath = null;
+        for (int i = 0; i < 3; i++) {
+            walked = walkLevelByLevel(subtreeRoot);
+            byPath = categoryService.getSubtreeIds(subtreeRoot);
+        }
+
+        long start = System.nanoTime();
+        walkLevelByLevel(subtreeRoot);
+        long walkMicros = (System.nanoTime() - start) / 1_000;
+
+        start = System.nanoTime();
+        int rounds = 20;
+        for (int i = 0; i < rounds; i++) {
+            categoryService.getSubtreeIds(subtreeRoot);
+        }
+        long pathMicros = (System.nanoTime() - start) / rounds / 1_000;
+
+        log.info("Subtree of {} categories: level-by-level {} us, materialized path {} us",
+            walked.size(), walkMicros, pathMicros);
+        assertEquals(walked.size(), byPath.size());
+        assertTrue(byPath.containsAll(walked));
+        assertEquals(NODES, categoryService.getSubtreeIds(levels.get(0).get(0)).size());
+
+        Long leaf = levels.get(DEPTH - 1).get(levels.get(DEPTH - 1).size() - 1);
+        List<Category> breadcrumb = categoryService.getBreadcrumb(leaf);
+        assertEquals(DEPTH, breadcrumb.size());
+        assertEquals(levels.get(0).get(0), breadcrumb.get(0).getId());
+        assertEquals(leaf, breadcrumb.get(DEPTH - 1).getId());
+    }
+
+    @Test
+    void reparentingMovesTheWholeSubtree() {
+        Category electronics = categoryService.createCategory(request("Electronics", null));
+        Category phones = categoryService.createCategory(request("Phones", electronics.getId()));
+        Category android = categoryService.createCategory(request("Android", phones.getId()));
+        Category home = categoryService.createCategory(request("Home", null));
+
+        assertEquals("/" + electronics.getId() + "/" + phones.getId() + "/" + android.getId() + "/", android.getPath());
+        assertEquals(2, categoryService.getDescendants(electronics.getId()).size());
+
+        categoryService.updateCategory(phones.getId(), request("Phones", home.getId()));
+
+        assertTrue(categoryService.getDescendants(electronics.getId()).isEmpty());
+        assertEquals(List.of(home.getId(), phones.getId(), android.getId()),
+            categoryService.getBreadcrumb(android.getId()).stream().map(Category::getId).toList());
+        assertEquals(List.of(home.getId(), phones.getId()),
+            categoryService.getAncestors(android.getId()).stream().map(Category::getId).toList());
+
+        ResponseEntity<Map<String, Object>> ancestors = categoryController.getAncestors(android.getId());
+        assertEquals(2, ancestors.getBody().get("count"));
+        assertEquals(0, categoryController.getAncestors(home.getId()).getBody().get("count"));
+        assertEquals(HttpStatus.NOT_FOUND, categoryController.getAncestors(-1L).getStatusCode());
+
+        assertThrows(RuntimeException.class,
+            () -> categoryService.updateCategory(home.getId(), request("Home", android.getId())));
+    }
+
+    // 直接用 JDBC 批量插入，逐层生成，每个节点最多 FAN_OUT 个子节点
+    private List<List<Long>> insertTree() {
+        long nextId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from categories", Long.class) + 1_000_000;
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<List<Long>> levels = new ArrayList<>();
+        List<String> parentPaths = List.of("/");
+        List<Long> parents = new ArrayList<>();
+        parents.add(null);
+        int inserted = 0;
+        for (int depth = 0; depth < DEPTH && inserted < NODES; depth++) {
+            List<Long> ids = new ArrayList<>();
+            List<String> paths = new ArrayList<>();
+            List<Object[]> batch = new ArrayList<>();
+            int perParent = depth == 0 ? 1 : FAN_OUT;
+            // 最后一层填满剩余的节点数
+            if (depth == DEPTH - 1) {
+                perParent = (NODES - inserted + parents.size() - 1) / parents.size();
+            }
+            for (int p = 0; p < parents.size() && inserted < NODES; p++) {
+                for (int c = 0; c < perParent && inserted < NODES; c++) {
+                    long id = nextId++;
+                    String path = parentPaths.get(p) + id + "/";
+                    ids.add(id);
+                    paths.add(path);
+                    batch.add(new Object[] {id, "bench-" + id, parents.get(p), path, now, now});
+                    inserted++;
+                }
+            }
+            jdbcTemplate.batchUpdate("insert into categories (id, name, is_internal, is_active, rank, "
+                + "parent_category_id, path, created_at, updated_at) values (?, ?, false, true, 0, ?, ?, ?, ?)", batch);
+            levels.add(ids);
+            parents = ids;
+            parentPaths = paths;
+        }
+        assertEquals(NODES, inserted);
+        return levels;
+    }
+
+    private List<Long> walkLevelByLevel(Long rootId) {
+        List<Long> ids = new ArrayList<>();
+        Deque<Long> pending = new ArrayDeque<>();
+        pending.add(rootId);
+        while (!pending.isEmpty()) {
+            Long id = pending.poll();
+            ids.add(id);
+            for (Category child : categoryRepository.findByParentCategory(categoryRepository.getReferenceById(id), Pageable.unpaged())) {
+                pending.add(child.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static CategoryCreateRequest request(String name, Long parentId) {
+        CategoryCreateRequest request = new CategoryCreateRequest();
+        request.setName(name);
+        request.setParentCategoryId(parentId);
+        return request;
+    }
+}
@@ -0,0 +1,74 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.CategoryCreateRequest;
+import com.qvtu.mallshopping.dto.CategoryResponseDTO;
+import com.qvtu.mallshopping.model.Category;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 不加 @Transactional：快照在事务提交后才失效，需要真正提交
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CategoryTreeCacheTest {
+
+    @Autowired
+    private CategoryService categoryService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void readsAreServedFromSnapshotUntilMutation() {
+        String prefix = "tree-cache-" + UUID.randomUUID();
+        Category root = categoryService.createCategory(request(prefix + "-root", null, 0));
+        try {
+            categoryService.createCategory(request(prefix + "-b", root.getId(), 2));
+            categoryService.createCategory(request(prefix + "-a", root.getId(), 1));
+
+            List<CategoryResponseDTO> found = categoryService.listCategories(prefix + "-root", 0, 10);
+            assertEquals(1, found.size());
+            assertEquals(List.of(prefix + "-a", prefix + "-b"),
+                found.get(0).getChildren().stream().map(CategoryResponseDTO::getName).toList());
+
+            Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            statistics.clear();
+            for (int i = 0; i < 100; i++) {
+                categoryService.listCategories(null, 0, 20);
+                categoryService.getChildCategories(root.getId(), 0, 20);
+                categoryService.searchCategories(prefix, PageRequest.of(0, 20));
+            }
+            assertEquals(0, statistics.getPrepareStatementCount());
+
+            CategoryCreateRequest rename = request(prefix + "-renamed", null, 0);
+            categoryService.updateCategory(root.getId(), rename);
+
+            assertTrue(categoryService.listCategories(prefix + "-root", 0, 10).isEmpty());
+            assertEquals(1, categoryService.listCategories(prefix + "-renamed", 0, 10).size());
+            assertEquals(2, categoryService.countChildCategories(root.getId()));
+        } finally {
+            categoryService.deleteCategory(root.getId());
+        }
+        assertTrue(categoryService.listCategories(prefix, 0, 10).isEmpty());
+    }
+
+    private static CategoryCreateRequest request(String name, Long parentId, int rank) {
+        CategoryCreateRequest request = new CategoryCreateRequest();
+        request.setName(name);
+        request.setRank(rank);
+        request.setParentCategoryId(parentId);
+        request.setMetadata(new HashMap<>(Map.of("source", "test")));
+        return request;
+    }
+}
@@ -0,0 +1,129 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.CustomerUpdateRequest;
+import com.qvtu.mallshopping.model.Address;
+import com.qvtu.mallshopping.model.Customer;
+import com.qvtu.mallshopping.repository.AddressRepository;
+import com.qvtu.mallshopping.repository.CustomerRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class CustomerAddressQueryTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AddressRepository addressRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void pagesAddressesInSql() {
+        Long customerId = createCustomer();
+        List<Long> addressIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            addressIds.add(addAddress(customerId, "addr-" + i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<String, Object> page = customerService.getCustomerAddresses(customerId, 2, 3);
+        List<?> addresses = (List<?>) page.get("addresses");
+        assertEquals(5L, page.get("count"));
+        assertEquals(2, addresses.size());
+        assertEquals(addressIds.get(3).toString(), ((Map<?, ?>) addresses.get(0)).get("id"));
+        assertTrue(((List<?>) customerService.getCustomerAddresses(customerId, 2, 10).get("addresses")).isEmpty());
+    }
+
+    @Test
+    void defaultAddressLookupFollowsUpdates() {
+        Long customerId = createCustomer();
+        Long first = addAddress(customerId, "first");
+        Long second = addAddress(customerId, "second");
+        assertEquals(first, addressRepository.findDefaultBillingByCustomerId(customerId).orElseThrow().getId());
+
+        customerService.updateCustomerAddress(customerId, second, null, null, null, null, null, null, null, null,
+            null, null, null, null, true, true);
+        entityManager.flush();
+        assertEquals(second, addressRepository.findDefaultBillingByCustomerId(customerId).orElseThrow().getId());
+        assertEquals(second, addressRepository.findDefaultShippingByCustomerId(customerId).orElseThrow().getId());
+        assertFalse(addressRepository.findById(first).orElseThrow().isDefaultBilling());
+
+        // 更新电话时修改默认账单地址，不新建地址
+        CustomerUpdateRequest request = new CustomerUpdateRequest();
+        request.setPhone("13800000000");
+        customerService.updateCustomer(customerId, request);
+        assertEquals("13800000000", addressRepository.findById(second).orElseThrow().getPhone());
+        assertEquals(2, addressRepository.countByCustomerId(customerId));
+    }
+
+    // 估算总数 + 客户分页 + 一次加载这一页客户的地址。多建一个客户让这一页是满的，不需要再读 created_at 为空的客户
+    @Test
+    void customerPageLoadsAddressesInOneQuery() {
+        List<Long> customerIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Long customerId = createCustomer();
+            addAddress(customerId, "a");
+            addAddress(customerId, "b");
+            customerIds.add(customerId);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+        statistics.clear();
+
+        Map<String, Object> response = customerService.listCustomersByCursor(null, 5);
+
+        assertTrue(statistics.getPrepareStatementCount() <= 3,
+            "Expected at most 3 statements but was " + statistics.getPrepareStatementCount());
+        for (Object customer : (List<?>) response.get("customers")) {
+            Map<?, ?> formatted = (Map<?, ?>) customer;
+            assertTrue(customerIds.contains(Long.valueOf((String) formatted.get("id"))));
+            assertEquals(2, ((List<?>) formatted.get("addresses")).size());
+        }
+    }
+
+    private Long createCustomer() {
+        Customer customer = new Customer();
+        customer.setEmail(UUID.randomUUID() + "@example.com");
+        customer.setPassword("x");
+        customer.setFirstName("Address");
+        customer.setLastName("Test");
+        return customerRepository.save(customer).getId();
+    }
+
+    private Long addAddress(Long customerId, String name) {
+        Customer customer = customerService.addCustomerAddress(customerId, "Address", "Test", null, null,
+            name, null, "City", "CN", null, null, name, null);
+        entityManager.flush();
+        return addressRepository.findPageByCustomerId(customerId, 100, 0).stream()
+            .filter(a -> name.equals(a.getAddressName()))
+            .map(Address::getId)
+            .findFirst()
+            .orElseThrow(() -> new IllegalStateException("Address not saved for " + customer.getId()));
+    }
+}
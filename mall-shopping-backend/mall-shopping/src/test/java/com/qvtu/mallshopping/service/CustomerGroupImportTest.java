@@ -0,0 +1,155 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// 不加 @Transactional：导入在自己的事务中执行，测试数据在 @AfterEach 中清理
+@SpringBootTest
+class CustomerGroupImportTest {
+    private static final Logger log = LoggerFactory.getLogger(CustomerGroupImportTest.class);
+
+    @Autowired
+    private CustomerGroupImportService customerGroupImportService;
+
+    @Autowired
+    private CustomerGroupMembershipService customerGroupMembershipService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> groupIds = new ArrayList<>();
+    private final List<Long> customerIds = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        for (Long groupId : groupIds) {
+            jdbcTemplate.update("delete from customer_group_members where group_id = ?", groupId);
+            jdbcTemplate.update("delete from customer_groups where id = ?", groupId);
+        }
+        jdbcTemplate.update("delete from customers where id = any(?)", (Object) customerIds.toArray(new Long[0]));
+    }
+
+    @Test
+    void csvImportReplacesMembership() {
+        Long groupId = createGroup();
+        List<Long> ids = createCustomers(10);
+        customerGroupMembershipService.addMembers(groupId, ids.subList(0, 6));
+
+        // 保留 4..5，移除 0..3，加入 6..9；重复、无效和不存在的 ID 不影响结果
+        StringBuilder csv = new StringBuilder("customer_id,note\n");
+        for (Long id : ids.subList(4, 10)) {
+            csv.append(id).append(",x\n");
+        }
+        csv.append(ids.get(9)).append('\n').append("abc\n").append("\"").append(ids.get(5)).append("\"\n").append("-1\n")
+            .append(Long.MAX_VALUE).append('\n');
+
+        Map<String, Object> result = customerGroupImportService.importMembers(groupId, "text/csv; charset=utf-8", stream(csv), false);
+
+        assertEquals(4, result.get("removed"));
+        assertEquals(4, result.get("added"));
+        assertEquals(1L, result.get("unknown"));
+        assertEquals(2L, result.get("invalid"));
+        assertEquals(6L, result.get("member_count"));
+        assertEquals(new HashSet<>(ids.subList(4, 10)), new HashSet<>(members(groupId)));
+        assertNull(customerGroupImportService.getProgress(groupId));
+    }
+
+    @Test
+    void ndjsonImportAndEmptyUpload() {
+        Long groupId = createGroup();
+        List<Long> ids = createCustomers(3);
+        String ndjson = "{\"customer_id\":\"" + ids.get(0) + "\"}\n{\"id\":" + ids.get(1) + "}\n{\"name\":\"x\"}\nnot json\n";
+
+        Map<String, Object> result = customerGroupImportService.importMembers(groupId, CustomerGroupImportService.NDJSON,
+            stream(ndjson), false);
+        assertEquals(2, result.get("added"));
+        assertEquals(2L, result.get("invalid"));
+
+        // 空名单或全部无效的名单被拒绝，群组成员不变
+        assertThrows(IllegalArgumentException.class,
+            () -> customerGroupImportService.importMembers(groupId, CustomerGroupImportService.CSV, stream(""), false));
+        assertThrows(IllegalArgumentException.class,
+            () -> customerGroupImportService.importMembers(groupId, CustomerGroupImportService.CSV, stream("id\nabc\n"), true));
+        assertEquals(2, customerGroupMembershipService.countMembers(groupId));
+
+        // 明确要求时空名单清空群组
+        result = customerGroupImportService.importMembers(groupId, CustomerGroupImportService.CSV, stream(""), true);
+        assertEquals(2, result.get("removed"));
+        assertEquals(0, customerGroupMembershipService.countMembers(groupId));
+    }
+
+    @Test
+    void rejectsUnknownGroupAndFormat() {
+        assertThrows(ResourceNotFoundException.class,
+            () -> customerGroupImportService.importMembers(-1L, CustomerGroupImportService.CSV, stream("1\n"), false));
+        assertThrows(IllegalArgumentException.class,
+            () -> customerGroupImportService.importMembers(-1L, "application/json", stream("[]"), false));
+    }
+
+    // 与逐个 ID 调用批量加入接口相比，COPY 导入的耗时记录在日志中
+    @Test
+    void importThroughput() {
+        Long groupId = createGroup();
+        List<Long> ids = createCustomers(5000);
+        StringBuilder csv = new StringBuilder();
+        ids.forEach(id -> csv.append(id).append('\n'));
+
+        long start = System.nanoTime();
+        Map<String, Object> result = customerGroupImportService.importMembers(groupId, CustomerGroupImportService.CSV, stream(csv), false);
+        long importNanos = System.nanoTime() - start;
+
+        customerGroupMembershipService.removeAllMembers(groupId);
+        start = System.nanoTime();
+        for (Long id : ids) {
+            customerGroupMembershipService.addMembers(groupId, List.of(id));
+        }
+        long perIdNanos = System.nanoTime() - start;
+
+        log.info("Customer group import of {} ids: COPY {} ms, per-id inserts {} ms", ids.size(),
+            importNanos / 1_000_000, perIdNanos / 1_000_000);
+        assertEquals(5000, result.get("added"));
+        assertEquals(5000L, result.get("member_count"));
+    }
+
+    private Long createGroup() {
+        Long id = jdbcTemplate.queryForObject("insert into customer_groups (name, created_at, updated_at) "
+            + "values (?, now(), now()) returning id", Long.class, "import-" + UUID.randomUUID());
+        groupIds.add(id);
+        return id;
+    }
+
+    private List<Long> createCustomers(int count) {
+        List<Long> ids = jdbcTemplate.queryForList("insert into customers (email, password, first_name, last_name, "
+            + "has_account, created_at, updated_at) select 'import-' || gen_random_uuid() || '@example.com', 'x', "
+            + "'Import', g::text, false, now(), now() from generate_series(1, ?) g returning id", Long.class, count);
+        customerIds.addAll(ids);
+        return ids;
+    }
+
+    private List<Long> members(Long groupId) {
+        return jdbcTemplate.queryForList("select customer_id from customer_group_members where group_id = ?", Long.class, groupId);
+    }
+
+    private static InputStream stream(CharSequence content) {
+        return new ByteArrayInputStream(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
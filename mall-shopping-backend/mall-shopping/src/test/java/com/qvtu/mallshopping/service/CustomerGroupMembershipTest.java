@@ -0,0 +1,134 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.exception.ResourceNotFoundException;
+import com.qvtu.mallshopping.model.Customer;
+import com.qvtu.mallshopping.model.CustomerGroup;
+import com.qvtu.mallshopping.repository.CustomerGroupRepository;
+import com.qvtu.mallshopping.repository.CustomerRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@Transactional
+class CustomerGroupMembershipTest {
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private CustomerGroupMembershipService customerGroupMembershipService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerGroupRepository customerGroupRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void addsAndRemovesMembersInBulk() {
+        Long groupId = createGroup();
+        List<String> ids = createCustomers(25);
+        List<String> request = new ArrayList<>(ids);
+        request.add(ids.get(0));
+        request.add("not-a-number");
+
+        Map<String, Object> response = customerService.addCustomersToGroup(groupId, request);
+        assertEquals(25L, ((Map<?, ?>) response.get("customer_group")).get("customer_count"));
+        // 已在群组中的客户跳过
+        assertEquals(0, customerGroupMembershipService.addMembers(groupId, List.of(Long.parseLong(ids.get(1)))));
+
+        customerService.removeCustomersFromGroup(groupId, ids.subList(0, 5));
+        assertEquals(20, customerGroupMembershipService.countMembers(groupId));
+    }
+
+    @Test
+    void unknownCustomerLeavesMembershipUnchanged() {
+        Long groupId = createGroup();
+        List<String> ids = createCustomers(3);
+        customerService.addCustomersToGroup(groupId, ids.subList(0, 1));
+
+        List<String> request = new ArrayList<>(ids);
+        request.add("-1");
+        assertThrows(ResourceNotFoundException.class, () -> customerService.addCustomersToGroup(groupId, request));
+        assertEquals(1, customerGroupMembershipService.countMembers(groupId));
+        assertThrows(ResourceNotFoundException.class, () -> customerService.listCustomersInGroup(-1L, 0, 10));
+    }
+
+    @Test
+    void pagesMembersWithOffsetAndCursor() {
+        Long groupId = createGroup();
+        List<String> ids = createCustomers(25);
+        customerService.addCustomersToGroup(groupId, ids);
+        // 不属于该群组的客户不出现在结果中
+        createCustomers(5);
+        // created_at 为空的成员排在最后，第二页的最后一行就是其中之一
+        entityManager.flush();
+        jdbcTemplate.update("update customers set created_at = null where id = any(?)",
+            (Object) ids.subList(0, 6).stream().map(Long::valueOf).toArray(Long[]::new));
+        entityManager.clear();
+
+        Map<String, Object> lastPage = customerService.listCustomersInGroup(groupId, 2, 10);
+        assertEquals(5, ((List<?>) lastPage.get("customers")).size());
+        assertEquals(25L, lastPage.get("count"));
+
+        Set<Object> seen = new HashSet<>();
+        String cursor = "";
+        int pages = 0;
+        do {
+            Map<String, Object> page = customerService.listCustomersInGroupByCursor(groupId, cursor, 10);
+            for (Object customer : (List<?>) page.get("customers")) {
+                seen.add(((Map<?, ?>) customer).get("id"));
+            }
+            cursor = (String) page.get("next_cursor");
+            pages++;
+        } while (cursor != null);
+        assertEquals(3, pages);
+        assertEquals(new HashSet<Object>(ids), seen);
+
+        customerService.deleteCustomerGroup(groupId);
+        assertEquals(0, customerGroupMembershipService.countMembers(groupId));
+        assertNull(customerGroupRepository.findById(groupId).orElse(null));
+    }
+
+    private Long createGroup() {
+        CustomerGroup group = CustomerGroup.builder()
+            .name("group-" + UUID.randomUUID())
+            .customers(new ArrayList<>())
+            .build();
+        return customerGroupRepository.save(group).getId();
+    }
+
+    private List<String> createCustomers(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer();
+            customer.setEmail(UUID.randomUUID() + "@example.com");
+            customer.setPassword("x");
+            customer.setFirstName("Member");
+            customer.setLastName(String.valueOf(i));
+            ids.add(customerRepository.save(customer).getId().toString());
+        }
+        return ids;
+    }
+}
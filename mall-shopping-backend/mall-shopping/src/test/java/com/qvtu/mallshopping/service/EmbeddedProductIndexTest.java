@@ -0,0 +1,156 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.ProductStatus;
+import com.qvtu.mallshopping.service.EmbeddedProductIndex.ProductDocument;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddedProductIndexTest {
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedProductIndexTest.class);
+
+    private static final String[] ADJECTIVES = {"Wireless", "Organic", "Vintage", "Smart", "Compact", "Premium", "Classic", "Rugged"};
+    private static final String[] NOUNS = {"headphones", "tea", "jacket", "watch", "camera", "backpack", "lamp", "kettle", "sneakers", "blender"};
+
+    @Test
+    void matchesPrefixesAndRanksTitleAboveDescription() {
+        EmbeddedProductIndex index = new EmbeddedProductIndex(null, true);
+        index.index(document(1L, "Smart Watch", "Tracks steps", "PUBLISHED", 10L, "SW-100"));
+        index.index(document(2L, "Watch strap", "Fits the smart watch", "PUBLISHED", 10L, "ST-1"));
+        index.index(document(3L, "Smart Watch prototype", null, "DRAFT", 20L, "SW-PROTO"));
+
+        ProductSearchService.SearchResult all = index.search("smart wat", null, null, 0, 10);
+        assertEquals(3, all.count());
+        assertEquals(List.of(1L, 3L, 2L), ids(all));
+
+        ProductSearchService.SearchResult published = index.search("smart wat", ProductStatus.PUBLISHED, null, 0, 10);
+        assertEquals(List.of(1L, 2L), ids(published));
+
+        assertEquals(List.of(1L), ids(index.search("sw-10", null, null, 0, 10)));
+        assertTrue(index.search("camera", null, null, 0, 10).hits().isEmpty());
+        assertTrue(index.search("!!!", null, null, 0, 10).hits().isEmpty());
+    }
+
+    @Test
+    void facetsCountTextMatchesBeforeFilters() {
+        EmbeddedProductIndex index = new EmbeddedProductIndex(null, true);
+        index.index(document(1L, "Smart Watch", null, "PUBLISHED", 10L, null));
+        index.index(document(2L, "Smart Lamp", null, "PUBLISHED", 20L, null));
+        index.index(document(3L, "Smart Kettle", null, "DRAFT", 20L, null));
+        index.index(document(4L, "Classic Lamp", null, "PUBLISHED", 20L, null));
+
+        ProductSearchService.SearchResult result = index.search("smart", null, 20L, 0, 10);
+        assertEquals(List.of(2L, 3L), ids(result));
+        assertEquals(2, result.facets().get("status").get("PUBLISHED"));
+        assertEquals(1, result.facets().get("status").get("DRAFT"));
+        assertEquals(1, result.facets().get("collection_id").get("10"));
+        assertEquals(2, result.facets().get("collection_id").get("20"));
+    }
+
+    @Test
+    void topKPagesMatchFullSort() {
+        EmbeddedProductIndex index = new EmbeddedProductIndex(null, true);
+        for (long id = 1; id <= 500; id++) {
+            // 一部分商品只在描述中命中，得分较低
+            String title = id % 3 == 0 ? "Kettle " + id : "Smart kettle " + id;
+            index.index(document(id, title, "smart home", "PUBLISHED", null, null));
+        }
+
+        ProductSearchService.SearchResult firstPage = index.search("smart", null, null, 0, 20);
+        ProductSearchService.SearchResult secondPage = index.search("smart", null, null, 20, 20);
+        assertEquals(500, firstPage.count());
+        assertEquals(20, firstPage.hits().size());
+        assertEquals(1L, firstPage.hits().get(0).id());
+        assertTrue(firstPage.hits().stream().allMatch(hit -> hit.title().startsWith("Smart")));
+        List<Long> fullSort = ids(index.search("smart", null, null, 0, 500));
+        assertEquals(fullSort.subList(0, 20), ids(firstPage));
+        assertEquals(fullSort.subList(20, 40), ids(secondPage));
+        assertTrue(index.search("smart", null, null, 1000, 20).hits().isEmpty());
+    }
+
+    @Test
+    void updatesAndRemovalsReplacePostings() {
+        EmbeddedProductIndex index = new EmbeddedProductIndex(null, true);
+        index.index(document(1L, "Vintage jacket", null, "PUBLISHED", null, "VJ-1"));
+        index.index(document(2L, "Vintage lamp", null, "PUBLISHED", null, "VL-1"));
+
+        index.index(document(1L, "Rugged jacket", null, "PUBLISHED", null, "RJ-1"));
+        assertEquals(List.of(2L), ids(index.search("vintage", null, null, 0, 10)));
+        assertEquals(List.of(1L), ids(index.search("rugged", null, null, 0, 10)));
+        assertTrue(index.search("vj", null, null, 0, 10).hits().isEmpty());
+
+        index.remove(2L);
+        assertEquals(1, index.size());
+        assertTrue(index.search("vintage", null, null, 0, 10).hits().isEmpty());
+
+        // 删除后空出的文档号被复用
+        index.index(document(3L, "Vintage kettle", null, "DRAFT", null, null));
+        assertEquals(List.of(3L), ids(index.search("vin", null, null, 0, 10)));
+        assertEquals(2, index.size());
+    }
+
+    // 没有引入 JMH 和对象大小工具，用 GC 后的堆增量估算十万商品的内存占用，并记录查询耗时
+    @Test
+    void memoryFootprintForLargeCatalog() {
+        int size = Integer.getInteger("product.search.benchmark.size", 100_000);
+        Runtime runtime = Runtime.getRuntime();
+        long before = usedHeap(runtime);
+
+        EmbeddedProductIndex index = new EmbeddedProductIndex(null, true);
+        long start = System.nanoTime();
+        for (long i = 1; i <= size; i++) {
+            index.index(document(i,
+                ADJECTIVES[(int) (i % 8)] + " " + NOUNS[(int) (i % 10)] + " " + i,
+                "Item number " + i + " in the benchmark catalog",
+                i % 4 == 0 ? "DRAFT" : "PUBLISHED",
+                i % 50,
+                "SKU-" + i));
+        }
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        long after = usedHeap(runtime);
+
+        int rounds = 20;
+        ProductSearchService.SearchResult broad = null;
+        ProductSearchService.SearchResult narrow = null;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            broad = index.search("smart wat", ProductStatus.PUBLISHED, null, 0, 10);
+        }
+        long broadMicros = (System.nanoTime() - start) / rounds / 1_000;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            narrow = index.search("smart watch 123", ProductStatus.PUBLISHED, null, 0, 10);
+        }
+        long narrowMicros = (System.nanoTime() - start) / rounds / 1_000;
+
+        log.info("Embedded index of {} products, {} terms: built in {} ms, ~{} MB heap; 'smart wat' {} us ({} matches), "
+            + "'smart watch 123' {} us ({} matches)", index.size(), index.termCount(), buildMillis,
+            (after - before) / (1024 * 1024), broadMicros, broad.count(), narrowMicros, narrow.count());
+        assertEquals(size, index.size());
+        assertEquals(10, broad.hits().size());
+        assertTrue(narrow.hits().stream().allMatch(hit -> hit.title().startsWith("Smart watch 123")));
+    }
+
+    private static long usedHeap(Runtime runtime) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Long> ids(ProductSearchService.SearchResult result) {
+        return result.hits().stream().map(ProductSearchService.SearchHit::id).toList();
+    }
+
+    private static ProductDocument document(Long id, String title, String description, String status,
+                                            Long collectionId, String sku) {
+        return new ProductDocument(id, title, null, "product-" + id, null, description, status,
+            collectionId, collectionId != null ? "Collection " + collectionId : null,
+            sku != null ? List.of(sku) : List.of());
+    }
+}
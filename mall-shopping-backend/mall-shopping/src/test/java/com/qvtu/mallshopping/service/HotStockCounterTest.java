@@ -0,0 +1,220 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.model.Inventory;
+import com.qvtu.mallshopping.model.InventoryLevel;
+import com.qvtu.mallshopping.model.Location;
+import com.qvtu.mallshopping.repository.InventoryLevelRepository;
+import com.qvtu.mallshopping.repository.InventoryRepository;
+import com.qvtu.mallshopping.repository.LocationRepository;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 计数器本身的测试不需要 Spring 上下文；对比数据库路径的测试需要真实的 inventory_levels
+@SpringBootTest
+class HotStockCounterTest {
+    private static final Logger log = LoggerFactory.getLogger(HotStockCounterTest.class);
+
+    private static final int THREADS = 16;
+    private static final int RESERVATIONS = 2_000;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryLevelRepository inventoryLevelRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void concurrentReservationsAdmitExactlyTheAvailableStock() throws Exception {
+        HotStockCounterService.Counter counter = new HotStockCounterService.Counter(1L, 1_000);
+        AtomicInteger admitted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+
+        for (int i = 0; i < 5_000; i++) {
+            executor.submit(() -> {
+                start.await();
+                if (counter.tryReserve(1)) {
+                    admitted.incrementAndGet();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1_000, admitted.get());
+        assertEquals(0, counter.available());
+        assertEquals(1_000, counter.drainPending());
+        assertEquals(0, counter.drainPending());
+    }
+
+    @Test
+    void releaseReturnsStockAndOffsetsPendingDelta() {
+        HotStockCounterService.Counter counter = new HotStockCounterService.Counter(1L, 5);
+
+        assertTrue(counter.tryReserve(5));
+        assertFalse(counter.tryReserve(1));
+        counter.release(2);
+
+        assertEquals(2, counter.available());
+        assertEquals(3, counter.drainPending());
+    }
+
+    @Test
+    void reconcileSubtractsUnflushedReservationsFromDatabaseValue() {
+        HotStockCounterService.Counter counter = new HotStockCounterService.Counter(1L, 10);
+        assertTrue(counter.tryReserve(4));
+
+        // 数据库中尚未包含这 4 个预留，另有 1 个库存在外部被调整
+        long drift = counter.reconcile(9);
+
+        assertEquals(-1, drift);
+        assertEquals(5, counter.available());
+    }
+
+    // 校正与预留并发：预留已扣减可用数量但还没计入未写回变化时，校正不能把这次扣减覆盖掉
+    @Test
+    void reconcileDuringReservationsNeverOversells() throws Exception {
+        int stock = 20_000;
+        HotStockCounterService.Counter counter = new HotStockCounterService.Counter(1L, stock);
+        AtomicInteger admitted = new AtomicInteger();
+        AtomicBoolean reserving = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        Future<?> reconciler = executor.submit(() -> {
+            // 没有写回，数据库中的可用数量保持不变
+            while (reserving.get()) {
+                counter.reconcile(stock);
+            }
+        });
+        List<Future<?>> reservers = new ArrayList<>();
+        for (int t = 0; t < 7; t++) {
+            reservers.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (counter.tryReserve(1)) {
+                        admitted.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> reserver : reservers) {
+            reserver.get(60, TimeUnit.SECONDS);
+        }
+        reserving.set(false);
+        reconciler.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertEquals(stock, admitted.get());
+        assertEquals(0, counter.reconcile(stock));
+        assertEquals(0, counter.available());
+    }
+
+    // 没有引入 JMH：同样的并发预留分别走内存计数器和数据库路径（每次预留一个事务，条件 UPDATE 锁住同一行）
+    @Test
+    void counterAdmitsReservationsFasterThanRowLockedUpdates() throws Exception {
+        Location location = new Location();
+        location.setName("Hot counter comparison");
+        location = locationRepository.save(location);
+        Inventory inventory = new Inventory();
+        inventory.setSku("HOT-" + UUID.randomUUID());
+        inventory.setQuantity(RESERVATIONS);
+        inventory.setManageInventory(true);
+        inventory.setAllowBackorder(false);
+        inventory.setLocation(location);
+        inventory = inventoryRepository.save(inventory);
+        InventoryLevel level = new InventoryLevel();
+        level.setInventory(inventory);
+        level.setLocation(location);
+        level.setStockedQuantity(RESERVATIONS);
+        level.setReservedQuantity(0);
+        level.setIncomingQuantity(0);
+        level = inventoryLevelRepository.save(level);
+
+        try {
+            Long inventoryId = inventory.getId();
+            Long locationId = location.getId();
+            HotStockCounterService.Counter counter = new HotStockCounterService.Counter(level.getId(), RESERVATIONS);
+            AtomicInteger counterAdmitted = new AtomicInteger();
+            long counterNanos = reserveConcurrently(() -> {
+                if (counter.tryReserve(1)) {
+                    counterAdmitted.incrementAndGet();
+                }
+            });
+
+            AtomicInteger databaseAdmitted = new AtomicInteger();
+            long databaseNanos = reserveConcurrently(() -> transactionTemplate.executeWithoutResult(status -> {
+                if (inventoryLevelRepository.reserve(inventoryId, locationId, 1, LocalDateTime.now()) > 0) {
+                    databaseAdmitted.incrementAndGet();
+                }
+            }));
+
+            log.info("{} reservations on one SKU with {} threads: in-memory counter {} ms ({} reservations/s), "
+                    + "row-locked update {} ms ({} reservations/s)", RESERVATIONS, THREADS,
+                TimeUnit.NANOSECONDS.toMillis(counterNanos), perSecond(counterNanos),
+                TimeUnit.NANOSECONDS.toMillis(databaseNanos), perSecond(databaseNanos));
+            assertEquals(RESERVATIONS, counterAdmitted.get());
+            assertEquals(RESERVATIONS, databaseAdmitted.get());
+            assertEquals(RESERVATIONS, inventoryLevelRepository.findById(level.getId()).orElseThrow().getReservedQuantity());
+            assertTrue(counterNanos < databaseNanos);
+        } finally {
+            inventoryLevelRepository.deleteById(level.getId());
+            inventoryRepository.deleteById(inventory.getId());
+            locationRepository.deleteById(location.getId());
+        }
+    }
+
+    // 由 THREADS 个线程同时开始执行 RESERVATIONS 次预留，返回耗时
+    private static long reserveConcurrently(Runnable reservation) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < RESERVATIONS / THREADS; i++) {
+                    reservation.run();
+                }
+                return null;
+            }));
+        }
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+        return elapsedNanos;
+    }
+
+    private static String perSecond(long nanos) {
+        return String.format("%.0f", RESERVATIONS / (nanos / 1_000_000_000.0));
+    }
+}
@@ -0,0 +1,147 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.ArchiveOrderRequest;
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 不加 @Transactional：批量变更按批提交，数据在 cleanUp 中删除；变更记录由测试自己投影
+@SpringBootTest(properties = {"order.batch.chunk-size=100", "order.events.projection-interval-ms=3600000"})
+class OrderBatchServiceTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderBatchServiceTest.class);
+
+    @Autowired
+    private OrderBatchService orderBatchService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderChangeProjector orderChangeProjector;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdOrders = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        Long[] ids = createdOrders.toArray(new Long[0]);
+        jdbcTemplate.update("delete from order_events where order_id = any(?)", (Object) ids);
+        jdbcTemplate.update("delete from order_changes where order_id = any(?)", (Object) ids);
+        jdbcTemplate.update("delete from orders where id = any(?)", (Object) ids);
+    }
+
+    @Test
+    void archivesValidOrdersAndReportsTheRest() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            ids.add(createOrder(i % 2 == 0 ? OrderStatus.COMPLETED : OrderStatus.CANCELLED, PaymentStatus.PAID, FulfillmentStatus.fulfilled));
+        }
+        Long pending = createOrder(OrderStatus.PENDING, PaymentStatus.PENDING, FulfillmentStatus.not_fulfilled);
+        ids.add(pending);
+        ids.add(-1L);
+        ids.add(ids.get(0));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        orderBatchService.transition(OrderStateMachine.Transition.ARCHIVE, ids, results::add);
+
+        assertEquals(252, results.size());
+        assertEquals(250, results.stream().filter(r -> Boolean.TRUE.equals(r.get("success"))).count());
+        Map<String, Object> rejected = results.get(250);
+        assertEquals(pending.toString(), rejected.get("id"));
+        assertEquals("Only completed or canceled orders can be archived", rejected.get("message"));
+        assertEquals("not_found", results.get(251).get("type"));
+
+        assertEquals(250, jdbcTemplate.queryForObject(
+            "select count(*) from orders where id = any(?) and status = 'ARCHIVED'", Integer.class, (Object) createdOrders.toArray(new Long[0])));
+        assertEquals(250, jdbcTemplate.queryForObject(
+            "select count(*) from order_events where order_id = any(?) and type = 'ARCHIVE'",
+            Integer.class, (Object) createdOrders.toArray(new Long[0])));
+        orderChangeProjector.project();
+        assertEquals(250, jdbcTemplate.queryForObject(
+            "select count(*) from order_changes where order_id = any(?) and metadata->>'description' = 'Order archived'",
+            Integer.class, (Object) createdOrders.toArray(new Long[0])));
+        assertEquals(OrderStatus.PENDING, orderRepository.findById(pending).orElseThrow().getStatus());
+    }
+
+    @Test
+    void cancelAlsoResetsPaymentAndFulfillment() {
+        Long id = createOrder(OrderStatus.PENDING, PaymentStatus.PENDING, FulfillmentStatus.not_fulfilled);
+        Long completed = createOrder(OrderStatus.COMPLETED, PaymentStatus.PAID, FulfillmentStatus.fulfilled);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        orderBatchService.transition(OrderStateMachine.Transition.CANCEL, List.of(id, completed), results::add);
+
+        assertEquals(true, results.get(0).get("success"));
+        assertEquals(false, results.get(1).get("success"));
+        Order canceled = orderRepository.findById(id).orElseThrow();
+        assertEquals(OrderStatus.CANCELLED, canceled.getStatus());
+        assertEquals(PaymentStatus.CANCELLED, canceled.getPaymentStatus());
+        assertEquals(FulfillmentStatus.canceled, canceled.getFulfillmentStatus());
+    }
+
+    // 对比逐个调用单个订单接口与批量接口存档同样数量的订单
+    @Test
+    void batchArchiveAgainstOneCallPerOrder() {
+        int count = 200;
+        List<Long> single = new ArrayList<>();
+        List<Long> batch = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            single.add(createOrder(OrderStatus.COMPLETED, PaymentStatus.PAID, FulfillmentStatus.fulfilled));
+            batch.add(createOrder(OrderStatus.COMPLETED, PaymentStatus.PAID, FulfillmentStatus.fulfilled));
+        }
+
+        long start = System.nanoTime();
+        for (Long id : single) {
+            ArchiveOrderRequest request = new ArchiveOrderRequest();
+            request.setOrderId(id);
+            orderService.archiveOrder(id, request);
+        }
+        long perOrder = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        List<Map<String, Object>> results = new ArrayList<>();
+        orderBatchService.transition(OrderStateMachine.Transition.ARCHIVE, batch, results::add);
+        long batched = System.nanoTime() - start;
+
+        log.info("Archiving {} orders: one call per order {} ms, batch {} ms", count, perOrder / 1_000_000, batched / 1_000_000);
+        assertTrue(results.stream().allMatch(r -> Boolean.TRUE.equals(r.get("success"))));
+        assertTrue(batched < perOrder);
+    }
+
+    private Long createOrder(OrderStatus status, PaymentStatus paymentStatus, FulfillmentStatus fulfillmentStatus) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setPaymentStatus(paymentStatus);
+        order.setFulfillmentStatus(fulfillmentStatus);
+        order.setCurrencyCode("cny");
+        order.setTotal(BigDecimal.ZERO);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setUpdatedAt(LocalDateTime.now());
+        Long id = orderRepository.save(order).getId();
+        createdOrders.add(id);
+        return id;
+    }
+}
@@ -0,0 +1,127 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.ArchiveOrderRequest;
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentCollectionStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// 不加 @Transactional：事件在订单事务提交后才会被投影，数据在 cleanUp 中删除
+@SpringBootTest(properties = "order.events.projection-interval-ms=3600000")
+class OrderChangeProjectorTest {
+
+    @Autowired
+    private OrderChangeProjector orderChangeProjector;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdOrders = new ArrayList<>();
+
+    @AfterEach
+    void cleanUp() {
+        Long[] ids = createdOrders.toArray(new Long[0]);
+        jdbcTemplate.update("delete from order_events where order_id = any(?)", (Object) ids);
+        jdbcTemplate.update("delete from order_changes where order_id = any(?)", (Object) ids);
+        jdbcTemplate.update("delete from payment_collections where order_id = any(?)", (Object) ids);
+        jdbcTemplate.update("delete from orders where id = any(?)", (Object) ids);
+    }
+
+    @Test
+    void projectsCommittedEventsIntoOrderChanges() {
+        Long id = createOrder(OrderStatus.PENDING, PaymentStatus.PAID, FulfillmentStatus.fulfilled);
+        orderService.completeOrder(id, null);
+
+        assertEquals(1, count("select count(*) from order_events where order_id = ? and type = 'COMPLETE'", id));
+        assertEquals(0, count("select count(*) from order_changes where order_id = ?", id));
+
+        orderChangeProjector.project();
+        assertEquals(1, count("select count(*) from order_changes where order_id = ? and status = 'COMPLETED' "
+            + "and metadata->>'description' = 'Order completed' and event_id is not null", id));
+    }
+
+    @Test
+    void cancelEventCancelsPaymentCollections() {
+        Long id = createOrder(OrderStatus.PENDING, PaymentStatus.PENDING, FulfillmentStatus.not_fulfilled);
+        jdbcTemplate.update("insert into payment_collections (order_id, currency_code, amount, status, created_at, updated_at) "
+            + "values (?, 'cny', 10, ?, now(), now())", id, PaymentCollectionStatus.NOT_PAID.name());
+
+        orderService.cancelOrder(id);
+        assertEquals(PaymentCollectionStatus.NOT_PAID.name(), collectionStatus(id));
+
+        orderChangeProjector.project();
+        assertEquals(PaymentCollectionStatus.CANCELLED.name(), collectionStatus(id));
+        assertEquals(1, count("select count(*) from order_changes where order_id = ? and status = 'CANCELLED'", id));
+    }
+
+    // 重复投影不产生重复记录，重建后从日志得到同样的变更记录
+    @Test
+    void replayIsIdempotentAndRebuildRestoresChanges() {
+        Long id = createOrder(OrderStatus.PENDING, PaymentStatus.PAID, FulfillmentStatus.fulfilled);
+        orderService.completeOrder(id, null);
+        orderService.archiveOrder(id, archiveRequest(id));
+
+        orderChangeProjector.project();
+        orderChangeProjector.project();
+        assertEquals(2, count("select count(*) from order_changes where order_id = ?", id));
+        Long eventId = jdbcTemplate.queryForObject(
+            "select max(event_id) from order_changes where order_id = ? and status = 'ARCHIVED'", Long.class, id);
+        assertNotNull(eventId);
+
+        orderChangeProjector.rebuild();
+        assertEquals(0, count("select count(*) from order_changes where order_id = ?", id));
+        orderChangeProjector.project();
+        assertEquals(2, count("select count(*) from order_changes where order_id = ?", id));
+        assertEquals(eventId, jdbcTemplate.queryForObject(
+            "select max(event_id) from order_changes where order_id = ? and status = 'ARCHIVED'", Long.class, id));
+    }
+
+    private ArchiveOrderRequest archiveRequest(Long id) {
+        ArchiveOrderRequest request = new ArchiveOrderRequest();
+        request.setOrderId(id);
+        return request;
+    }
+
+    private int count(String sql, Long id) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, id);
+    }
+
+    private String collectionStatus(Long orderId) {
+        return jdbcTemplate.queryForObject("select status from payment_collections where order_id = ?", String.class, orderId);
+    }
+
+    private Long createOrder(OrderStatus status, PaymentStatus paymentStatus, FulfillmentStatus fulfillmentStatus) {
+        Order order = new Order();
+        order.setStatus(status);
+        order.setPaymentStatus(paymentStatus);
+        order.setFulfillmentStatus(fulfillmentStatus);
+        order.setCurrencyCode("cny");
+        order.setTotal(BigDecimal.ZERO);
+        order.setCreatedAt(LocalDateTime.now());
+        order.setUpdatedAt(LocalDateTime.now());
+        Long id = orderRepository.save(order).getId();
+        createdOrders.add(id);
+        return id;
+    }
+}
@@ -0,0 +1,169 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.MallShoppingApplication;
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentCollectionStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.model.OrderItem;
+import com.qvtu.mallshopping.model.PaymentCollection;
+import com.qvtu.mallshopping.model.PaymentProvider;
+import com.qvtu.mallshopping.model.ShippingMethod;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * GET /api/orders 背后的订单列表在默认配置和 prod 配置下的吞吐量，记录在日志中。
+ * 两种配置的 show-sql 和日志级别在启动时确定，所以各启动一次应用；没有引入 JMH，用固定请求数粗略计时。
+ * 差距取决于日志写到哪里（终端明显比文件慢），只记录结果，不断言哪种配置更快。
+ */
+class OrderListLoggingThroughputTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderListLoggingThroughputTest.class);
+
+    private static final int ORDERS = 20;
+    private static final int THREADS = 16;
+    private static final int REQUESTS = 480;
+
+    @Test
+    void orderListThroughputByProfile() throws Exception {
+        // JIT 预热对先跑的一方不利，默认配置在 prod 前后各测一次取较快的一次；默认配置最后启动，之后的测试仍使用原来的日志配置
+        double before = measure();
+        double prod = measure("prod");
+        double defaults = Math.max(before, measure());
+
+        log.info("Order list throughput ({} orders per page, {} threads, {} requests): default profile {} req/s, prod profile {} req/s",
+            ORDERS, THREADS, REQUESTS, Math.round(defaults), Math.round(prod));
+    }
+
+    private double measure(String... profiles) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(MallShoppingApplication.class)
+            .profiles(profiles)
+            .web(WebApplicationType.NONE)
+            .run()) {
+            OrderService orderService = context.getBean(OrderService.class);
+            List<Long> orderIds = persistOrders(context);
+            try {
+                // 预热
+                run(orderService, REQUESTS);
+                long start = System.nanoTime();
+                run(orderService, REQUESTS);
+                return REQUESTS / ((System.nanoTime() - start) / 1e9);
+            } finally {
+                deleteOrders(context.getBean(JdbcTemplate.class), orderIds);
+            }
+        }
+    }
+
+    private static void run(OrderService orderService, int requests) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int share = requests / THREADS;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    int listed = 0;
+                    for (int i = 0; i < share; i++) {
+                        Map<String, Object> response = orderService.listOrders(0, ORDERS);
+                        listed += ((List<?>) response.get("orders")).size();
+                    }
+                    return listed;
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(requests / THREADS * ORDERS, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // 列表按创建时间倒序，新建的订单正好占满第一页
+    private static List<Long> persistOrders(ConfigurableApplicationContext context) {
+        EntityManager entityManager = context.getBean(EntityManager.class);
+        return context.getBean(TransactionTemplate.class).execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (int i = 0; i < ORDERS; i++) {
+                ids.add(persistOrder(entityManager, i).getId());
+            }
+            return ids;
+        });
+    }
+
+    private static Order persistOrder(EntityManager entityManager, int index) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Order order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setFulfillmentStatus(FulfillmentStatus.not_fulfilled);
+        order.setEmail("throughput" + index + "@example.com");
+        order.setCurrencyCode("usd");
+        entityManager.persist(order);
+
+        for (int i = 0; i < 3; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setTitle("Item " + i);
+            item.setQuantity(1);
+            item.setUnitPrice(BigDecimal.TEN);
+            entityManager.persist(item);
+        }
+
+        ShippingMethod shippingMethod = new ShippingMethod();
+        shippingMethod.setOrder(order);
+        shippingMethod.setName("Standard");
+        shippingMethod.setAmount(BigDecimal.ONE);
+        entityManager.persist(shippingMethod);
+
+        PaymentCollection paymentCollection = new PaymentCollection();
+        paymentCollection.setOrder(order);
+        paymentCollection.setCurrencyCode("usd");
+        paymentCollection.setAmount(BigDecimal.TEN);
+        paymentCollection.setStatus(PaymentCollectionStatus.NOT_PAID);
+        paymentCollection.setCreatedAt(now);
+        paymentCollection.setUpdatedAt(now);
+        entityManager.persist(paymentCollection);
+
+        PaymentProvider provider = new PaymentProvider();
+        provider.setProviderId("pp_test_" + UUID.randomUUID());
+        provider.setPaymentCollection(paymentCollection);
+        entityManager.persist(provider);
+
+        return order;
+    }
+
+    private static void deleteOrders(JdbcTemplate jdbcTemplate, List<Long> orderIds) {
+        orderIds.forEach(id -> {
+            jdbcTemplate.update("delete from payment_providers where payment_collection_id in "
+                + "(select id from payment_collections where order_id = ?)", id);
+            jdbcTemplate.update("delete from payment_collections where order_id = ?", id);
+            jdbcTemplate.update("delete from shipping_methods where order_id = ?", id);
+            jdbcTemplate.update("delete from order_items where order_id = ?", id);
+            jdbcTemplate.update("delete from orders where id = ?", id);
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentCollectionStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.model.OrderChange;
+import com.qvtu.mallshopping.model.OrderItem;
+import com.qvtu.mallshopping.model.PaymentCollection;
+import com.qvtu.mallshopping.model.PaymentProvider;
+import com.qvtu.mallshopping.model.ShippingMethod;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class OrderServiceQueryCountTest {
+
+    // count + 订单 ID 分页 + 订单项 + 配送方式 + 支付集合 + 支付提供商
+    private static final long MAX_STATEMENTS_PER_PAGE = 6;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void listOrdersIssuesBoundedStatementCount() {
+        for (int i = 0; i < 20; i++) {
+            persistOrder(i);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+        statistics.clear();
+
+        Map<String, Object> response = orderService.listOrders(0, 20);
+
+        List<?> orders = (List<?>) response.get("orders");
+        assertEquals(20, orders.size());
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS_PER_PAGE,
+            "Expected at most " + MAX_STATEMENTS_PER_PAGE + " statements but was "
+                + statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void getOrderIssuesBoundedStatementCount() {
+        Order order = persistOrder(0);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory()
+            .unwrap(SessionFactory.class)
+            .getStatistics();
+        statistics.clear();
+
+        orderService.getOrder(order.getId());
+
+        assertTrue(statistics.getPrepareStatementCount() <= 4,
+            "Expected at most 4 statements but was " + statistics.getPrepareStatementCount());
+    }
+
+    // 偏移量不必是 limit 的整数倍，limit 为 0 时拒绝请求而不是除零
+    @Test
+    void orderChangesPageByArbitraryOffset() {
+        Order order = persistOrder(0);
+        LocalDateTime base = LocalDateTime.now();
+        for (int i = 0; i < 5; i++) {
+            OrderChange change = new OrderChange();
+            change.setOrderId(order.getId());
+            change.setVersion(i);
+            change.setCreatedAt(base.plusMinutes(i));
+            change.setUpdatedAt(base.plusMinutes(i));
+            entityManager.persist(change);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        Map<String, Object> page = orderService.getOrderChanges(order.getId(), 3, 2);
+        List<?> changes = (List<?>) page.get("order_changes");
+        assertEquals(List.of(1, 0), changes.stream().map(change -> ((Map<?, ?>) change).get("version")).toList());
+        assertEquals(5L, page.get("count"));
+
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrderChanges(order.getId(), 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> orderService.getOrderChanges(order.getId(), -1, 10));
+    }
+
+    private Order persistOrder(int index) {
+        LocalDateTime now = LocalDateTime.now();
+
+        Order order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setFulfillmentStatus(FulfillmentStatus.not_fulfilled);
+        order.setEmail("order" + index + "@example.com");
+        order.setCurrencyCode("usd");
+        entityManager.persist(order);
+
+        for (int i = 0; i < 3; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setTitle("Item " + i);
+            item.setQuantity(1);
+            item.setUnitPrice(BigDecimal.TEN);
+            entityManager.persist(item);
+        }
+
+        ShippingMethod shippingMethod = new ShippingMethod();
+        shippingMethod.setOrder(order);
+        shippingMethod.setName("Standard");
+        shippingMethod.setAmount(BigDecimal.ONE);
+        entityManager.persist(shippingMethod);
+
+        PaymentCollection paymentCollection = new PaymentCollection();
+        paymentCollection.setOrder(order);
+        paymentCollection.setCurrencyCode("usd");
+        paymentCollection.setAmount(BigDecimal.TEN);
+        paymentCollection.setStatus(PaymentCollectionStatus.NOT_PAID);
+        paymentCollection.setCreatedAt(now);
+        paymentCollection.setUpdatedAt(now);
+        entityManager.persist(paymentCollection);
+
+        PaymentProvider provider = new PaymentProvider();
+        provider.setProviderId("pp_test_" + UUID.randomUUID());
+        provider.setPaymentCollection(paymentCollection);
+        entityManager.persist(provider);
+
+        return order;
+    }
+}
@@ -0,0 +1,100 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.enums.FulfillmentStatus;
+import com.qvtu.mallshopping.enums.OrderStatus;
+import com.qvtu.mallshopping.enums.PaymentStatus;
+import com.qvtu.mallshopping.model.Order;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderStateMachineTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderStateMachineTest.class);
+
+    private final OrderStateMachine stateMachine = new OrderStateMachine();
+
+    @Test
+    void archiveOnlyFromCompletedOrCanceled() {
+        for (OrderStatus status : OrderStatus.values()) {
+            String rejected = stateMachine.check(OrderStateMachine.Transition.ARCHIVE, status, PaymentStatus.PENDING, FulfillmentStatus.not_fulfilled);
+            if (status == OrderStatus.COMPLETED || status == OrderStatus.CANCELLED) {
+                assertNull(rejected);
+            } else if (status == OrderStatus.ARCHIVED) {
+                assertEquals("Order is already archived", rejected);
+            } else {
+                assertEquals("Only completed or canceled orders can be archived", rejected);
+            }
+        }
+        assertEquals("Only completed or canceled orders can be archived",
+            stateMachine.check(OrderStateMachine.Transition.ARCHIVE, null, null, null));
+    }
+
+    @Test
+    void completeRequiresPaidAndFulfilled() {
+        assertNull(stateMachine.check(OrderStateMachine.Transition.COMPLETE, OrderStatus.PENDING, PaymentStatus.PAID, FulfillmentStatus.fulfilled));
+        assertEquals("Cannot complete order with unpaid payment status",
+            stateMachine.check(OrderStateMachine.Transition.COMPLETE, OrderStatus.PENDING, PaymentStatus.CAPTURED, FulfillmentStatus.fulfilled));
+        assertEquals("Cannot complete order with unfulfilled status",
+            stateMachine.check(OrderStateMachine.Transition.COMPLETE, OrderStatus.PENDING, PaymentStatus.PAID, FulfillmentStatus.shipped));
+        assertEquals("Archived or canceled orders cannot be completed",
+            stateMachine.check(OrderStateMachine.Transition.COMPLETE, OrderStatus.CANCELLED, PaymentStatus.PAID, FulfillmentStatus.fulfilled));
+    }
+
+    @Test
+    void applyWritesTargetStatuses() {
+        Order order = new Order();
+        order.setStatus(OrderStatus.PENDING);
+        order.setPaymentStatus(PaymentStatus.PENDING);
+        order.setFulfillmentStatus(FulfillmentStatus.not_fulfilled);
+
+        stateMachine.apply(OrderStateMachine.Transition.FULFILL, order);
+        assertEquals(OrderStatus.PENDING, order.getStatus());
+        assertEquals(FulfillmentStatus.fulfilled, order.getFulfillmentStatus());
+
+        stateMachine.apply(OrderStateMachine.Transition.CANCEL, order);
+        assertEquals(OrderStatus.CANCELLED, order.getStatus());
+        assertEquals(PaymentStatus.CANCELLED, order.getPaymentStatus());
+        assertEquals(FulfillmentStatus.canceled, order.getFulfillmentStatus());
+
+        IllegalStateException e = assertThrows(IllegalStateException.class,
+            () -> stateMachine.apply(OrderStateMachine.Transition.CANCEL, order));
+        assertEquals("Order is already canceled", e.getMessage());
+    }
+
+    // 支付状态的枚举名是大写，以前先转小写再 valueOf，任何输入都会失败
+    @Test
+    void parsesStatusesByNameOrValue() {
+        assertEquals(PaymentStatus.PAID, OrderStateMachine.parsePaymentStatus("paid"));
+        assertEquals(PaymentStatus.PAID, OrderStateMachine.parsePaymentStatus("PAID"));
+        assertEquals(PaymentStatus.REQUIRES_ACTION, OrderStateMachine.parsePaymentStatus("requires_action"));
+        assertEquals(FulfillmentStatus.partially_shipped, OrderStateMachine.parseFulfillmentStatus("PARTIALLY_SHIPPED"));
+        assertEquals(OrderStatus.CANCELLED, OrderStateMachine.parseOrderStatus("CANCELLED"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> OrderStateMachine.parsePaymentStatus("settled"));
+        assertEquals("Invalid payment status: settled. Available values are: "
+            + "[PENDING, PAID, CAPTURED, REFUNDED, CANCELLED, REQUIRES_ACTION]", e.getMessage());
+    }
+
+    @Test
+    void checksManyOrders() {
+        OrderStatus[] statuses = OrderStatus.values();
+        PaymentStatus[] payments = PaymentStatus.values();
+        FulfillmentStatus[] fulfillments = FulfillmentStatus.values();
+        OrderStateMachine.Transition[] transitions = OrderStateMachine.Transition.values();
+        int checks = 5_000_000;
+        int allowed = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < checks; i++) {
+            if (stateMachine.check(transitions[i % transitions.length], statuses[i % statuses.length],
+                    payments[i % payments.length], fulfillments[i % fulfillments.length]) == null) {
+                allowed++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        log.info("Checked {} transitions in {} ms ({} allowed)", checks, elapsed / 1_000_000, allowed);
+        assertEquals(true, allowed > 0);
+    }
+}
@@ -0,0 +1,179 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qvtu.mallshopping.model.Order;
+import com.qvtu.mallshopping.model.OrderItem;
+import com.qvtu.mallshopping.model.Promotion;
+import com.qvtu.mallshopping.util.JsonCodec;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderTotalsTest {
+    private static final Logger log = LoggerFactory.getLogger(OrderTotalsTest.class);
+
+    private static final int LINES = 200;
+    private static final int CHANGES = 200_000;
+
+    private final PromotionRuleEngine engine = new PromotionRuleEngine(null, new JsonCodec(new ObjectMapper()), 30_000);
+
+    @Test
+    void incrementalTotalsMatchFullRecompute() {
+        OrderTotals totals = new OrderTotals();
+        long[] prices = new long[LINES];
+        long[] quantities = new long[LINES];
+        Random random = new Random(42);
+        for (int i = 0; i < LINES; i++) {
+            prices[i] = 100 + random.nextInt(100_000);
+            quantities[i] = 1 + random.nextInt(5);
+            totals.putLine("line_" + i, "p" + i, null, prices[i], quantities[i]);
+        }
+        for (int n = 0; n < 10_000; n++) {
+            int i = random.nextInt(LINES);
+            if (quantities[i] > 0 && random.nextInt(10) == 0) {
+                totals.removeLine("line_" + i);
+                quantities[i] = 0;
+            } else if (quantities[i] == 0) {
+                quantities[i] = 1 + random.nextInt(5);
+                totals.putLine("line_" + i, "p" + i, null, prices[i], quantities[i]);
+            } else {
+                quantities[i] = 1 + random.nextInt(20);
+                totals.setQuantity("line_" + i, quantities[i]);
+            }
+        }
+
+        long expected = 0;
+        for (int i = 0; i < LINES; i++) {
+            expected += prices[i] * quantities[i];
+        }
+        assertEquals(expected, totals.getItemTotal());
+        assertEquals(expected, totals.getTotal());
+        assertThrows(IllegalArgumentException.class, () -> totals.setQuantity("line_missing", 1));
+    }
+
+    @Test
+    void promotionsAreReevaluatedAfterChanges() {
+        PromotionRuleEngine.CompiledPromotion percentage = engine.compiled(promotion(1, null,
+            "{\"type\":\"percentage\",\"value\":10,\"target_type\":\"items\",\"allocation\":\"each\","
+                + "\"target_rules\":[{\"attribute\":\"product_id\",\"operator\":\"in\",\"values\":[\"p1\"]}]}"));
+        PromotionRuleEngine.CompiledPromotion freeShipping = engine.compiled(promotion(2,
+            "[{\"attribute\":\"order_total\",\"operator\":\"gte\",\"values\":[\"100\"]}]",
+            "{\"type\":\"free_shipping\",\"target_type\":\"shipping\"}"));
+
+        OrderTotals totals = new OrderTotals();
+        totals.applyPromotions(List.of(percentage, freeShipping), null);
+        totals.addShipping(1_000);
+        totals.putLine("line_1", "p1", null, 2_000, 2);
+        totals.putLine("line_2", "p2", null, 3_000, 1);
+
+        assertEquals(7_000, totals.getItemTotal());
+        assertEquals(400, totals.getLineDiscount("line_1"));
+        assertEquals(0, totals.getLineDiscount("line_2"));
+        assertEquals(1_000, totals.getShippingTotal());
+        assertEquals(7_600, totals.getTotal());
+
+        // 小计达到 100 元后免运费，折扣随数量变化
+        totals.setQuantity("line_1", 5);
+        assertEquals(13_000, totals.getItemTotal());
+        assertEquals(1_000, totals.getDiscountTotal());
+        assertEquals(0, totals.getShippingTotal());
+        assertEquals(12_000, totals.getTotal());
+
+        totals.removeLine("line_1");
+        assertEquals(0, totals.getDiscountTotal());
+        assertEquals(4_000, totals.getTotal());
+    }
+
+    @Test
+    void amountsAreMaterializedAsBigDecimal() {
+        PromotionRuleEngine.CompiledPromotion fixed = engine.compiled(promotion(3, null,
+            "{\"type\":\"fixed\",\"value\":1.5,\"target_type\":\"items\",\"allocation\":\"each\"}"));
+        OrderTotals totals = new OrderTotals();
+        totals.applyPromotions(List.of(fixed), List.of());
+        totals.putLine("line_1", "p1", null, 1_990, 3);
+
+        Order order = new Order();
+        totals.writeTo(order);
+        OrderItem item = new OrderItem();
+        totals.writeTo("line_1", item);
+
+        assertEquals(new BigDecimal("59.70"), order.getItemTotal());
+        assertEquals(new BigDecimal("4.50"), order.getDiscountTotal());
+        assertEquals(new BigDecimal("55.20"), order.getTotal());
+        assertEquals(new BigDecimal("19.90"), item.getUnitPrice());
+        assertEquals(new BigDecimal("4.50"), item.getDiscountTotal());
+        assertEquals(new BigDecimal("55.20"), item.getTotal());
+    }
+
+    // 没有引入 JMH：对 200 行的订单反复改数量，对比按差额更新与每次用 BigDecimal 重新累加整单
+    @Test
+    void quantityChangesOnLargeOrder() {
+        OrderTotals totals = new OrderTotals();
+        OrderItem[] items = new OrderItem[LINES];
+        String[] lineIds = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            lineIds[i] = "line_" + i;
+            totals.putLine(lineIds[i], "p" + i, null, 1_000 + i, 1);
+            items[i] = new OrderItem();
+            items[i].setUnitPrice(PromotionRuleEngine.fromCents(1_000 + i));
+            items[i].setQuantity(1);
+        }
+
+        long checksum = 0;
+        long start = System.nanoTime();
+        for (int n = 0; n < CHANGES; n++) {
+            totals.setQuantity(lineIds[n % LINES], 1 + n % 7);
+            checksum += totals.getTotal();
+        }
+        long incremental = System.nanoTime() - start;
+
+        BigDecimal recomputed = BigDecimal.ZERO;
+        start = System.nanoTime();
+        for (int n = 0; n < CHANGES; n++) {
+            items[n % LINES].setQuantity(1 + n % 7);
+            recomputed = BigDecimal.ZERO;
+            for (OrderItem item : items) {
+                recomputed = recomputed.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+        }
+        long full = System.nanoTime() - start;
+        assertEquals(0, PromotionRuleEngine.fromCents(totals.getItemTotal()).compareTo(recomputed));
+
+        PromotionRuleEngine.CompiledPromotion percentage = engine.compiled(promotion(4, null,
+            "{\"type\":\"percentage\",\"value\":5,\"target_type\":\"items\",\"allocation\":\"each\"}"));
+        totals.applyPromotions(List.of(percentage), List.of());
+        int promotedChanges = CHANGES / 20;
+        start = System.nanoTime();
+        for (int n = 0; n < promotedChanges; n++) {
+            totals.setQuantity(lineIds[n % LINES], 1 + n % 7);
+            checksum += totals.getTotal();
+        }
+        long promoted = System.nanoTime() - start;
+
+        log.info("Order totals for {} lines: incremental {} ns/change, BigDecimal re-sum {} ns/change, "
+                + "incremental with promotion {} ns/change (checksum {})",
+            LINES, incremental / CHANGES, full / CHANGES, promoted / promotedChanges, checksum);
+        assertTrue(incremental < full);
+    }
+
+    private static Promotion promotion(long id, String rules, String applicationMethod) {
+        return Promotion.builder()
+            .id(id)
+            .code("TOTALS" + id)
+            .isAutomatic(true)
+            .status("active")
+            .rules(rules)
+            .applicationMethod(applicationMethod)
+            .updatedAt(LocalDateTime.of(2024, 1, 1, 0, 0))
+            .build();
+    }
+}
@@ -0,0 +1,139 @@
+package com.qvtu.mallshopping.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 不加 @Transactional：消息在发布事务提交后才投递；后台投递关闭，由测试调用 dispatch()
+@SpringBootTest(properties = {"outbox.dispatcher.enabled=false", "outbox.dispatcher.batch-size=1000",
+    "outbox.dispatcher.max-batches-per-run=1000"})
+class OutboxDispatcherTest {
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcherTest.class);
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxDispatcher outboxDispatcher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<OutboxService.Message> received = new CopyOnWriteArrayList<>();
+    private final OutboxSubscriber subscriber = new OutboxSubscriber() {
+        @Override
+        public boolean accepts(String type) {
+            return type.startsWith("test.");
+        }
+
+        @Override
+        public void deliver(List<OutboxService.Message> messages) {
+            received.addAll(messages);
+        }
+    };
+
+    @BeforeEach
+    void subscribe() {
+        outboxDispatcher.subscribe(subscriber);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        outboxDispatcher.unsubscribe(subscriber);
+        jdbcTemplate.update("delete from outbox_messages where aggregate_type = 'test'");
+    }
+
+    @Test
+    void deliversOnlyCommittedMessages() {
+        transactionTemplate.executeWithoutResult(status ->
+            outboxService.publish("test", 1L, "test.created", Map.of("name", "committed")));
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            outboxService.publish("test", 2L, "test.created", Map.of("name", "rolled back"));
+            throw new IllegalStateException("rollback");
+        }));
+        // 发布必须在事务中
+        assertThrows(RuntimeException.class, () -> outboxService.publish("test", 3L, "test.created", Map.of()));
+
+        outboxDispatcher.dispatch();
+
+        assertEquals(1, received.size());
+        assertEquals("1", received.get(0).aggregateId());
+        assertEquals("committed", received.get(0).payload().get("name"));
+        assertEquals(0, pending());
+    }
+
+    @Test
+    void failedDeliveryIsRetriedLater() {
+        OutboxSubscriber failing = new OutboxSubscriber() {
+            @Override
+            public boolean accepts(String type) {
+                return type.equals("test.failing");
+            }
+
+            @Override
+            public void deliver(List<OutboxService.Message> messages) {
+                throw new IllegalStateException("subscriber unavailable");
+            }
+        };
+        outboxDispatcher.subscribe(failing);
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                outboxService.publish("test", 1L, "test.failing", Map.of()));
+            outboxDispatcher.dispatch();
+            outboxDispatcher.dispatch();
+        } finally {
+            outboxDispatcher.unsubscribe(failing);
+        }
+
+        assertEquals(1, pending());
+        assertEquals(1, jdbcTemplate.queryForObject(
+            "select attempts from outbox_messages where aggregate_type = 'test'", Integer.class));
+        assertTrue(jdbcTemplate.queryForObject(
+            "select available_at > now() from outbox_messages where aggregate_type = 'test'", Boolean.class));
+    }
+
+    // 发布时只多一次批量插入，投递吞吐量记录在日志中
+    @Test
+    void dispatchThroughput() {
+        int count = 5000;
+        List<OutboxService.Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(OutboxService.Message.of("test", i, "test.created", Map.of("index", i)));
+        }
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> outboxService.publishAll(messages));
+        long publishNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        outboxDispatcher.dispatch();
+        long dispatchNanos = System.nanoTime() - start;
+
+        log.info("Outbox: published {} messages in {} ms, dispatched in {} ms, stats {}", count,
+            publishNanos / 1_000_000, dispatchNanos / 1_000_000, outboxDispatcher.getStats());
+        assertEquals(count, received.size());
+        assertEquals(0, pending());
+        assertTrue(outboxDispatcher.getDeliveredCount() >= count);
+    }
+
+    private int pending() {
+        return jdbcTemplate.queryForObject("select count(*) from outbox_messages where aggregate_type = 'test'", Integer.class);
+    }
+}
@@ -0,0 +1,99 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.CollectionCreateRequest;
+import com.qvtu.mallshopping.dto.ProductCreateRequest;
+import com.qvtu.mallshopping.dto.ProductUpdateRequest;
+import com.qvtu.mallshopping.dto.ProductVariantDTO;
+import com.qvtu.mallshopping.model.Collection;
+import com.qvtu.mallshopping.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 不加 @Transactional：进程内索引在事务提交后才更新
+@SpringBootTest(properties = "product.search.embedded.enabled=true")
+class ProductIndexSyncTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private CollectionService collectionService;
+
+    @Autowired
+    private EmbeddedProductIndex embeddedProductIndex;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void serviceWritesKeepTheIndexInSync() {
+        String marker = "zx" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        Product product = createProduct(marker);
+        Collection collection = null;
+        try {
+            assertEquals(List.of(product.getId()), ids(marker + "-old"));
+
+            // 只修改变体时 Product 本身没有变化，索引依靠服务显式更新
+            transactionTemplate.executeWithoutResult(status -> {
+                productService.getProduct(product.getId()).getVariants().get(0).setSku(marker + "-new");
+                productService.updateProduct(product.getId(), new ProductUpdateRequest());
+            });
+            assertTrue(ids(marker + "-old").isEmpty());
+            assertEquals(List.of(product.getId()), ids(marker + "-new"));
+
+            // 回滚的修改不进入索引
+            transactionTemplate.executeWithoutResult(status -> {
+                ProductUpdateRequest request = new ProductUpdateRequest();
+                request.setTitle("Renamed " + marker + "rolled");
+                productService.updateProduct(product.getId(), request);
+                status.setRollbackOnly();
+            });
+            assertTrue(ids(marker + "rolled").isEmpty());
+
+            CollectionCreateRequest collectionRequest = new CollectionCreateRequest();
+            collectionRequest.setTitle("Collection " + marker + "coll");
+            collectionRequest.setHandle("sync-" + marker);
+            collection = collectionService.createCollection(collectionRequest);
+            collectionService.addProductsToCollection(collection.getId(), List.of(product.getId()));
+            assertEquals(List.of(product.getId()),
+                embeddedProductIndex.search(marker + "coll", null, collection.getId(), 0, 10).hits().stream()
+                    .map(ProductSearchService.SearchHit::id).toList());
+        } finally {
+            productService.deleteProduct(product.getId());
+            if (collection != null) {
+                jdbcTemplate.update("delete from collections where id = ?", collection.getId());
+            }
+        }
+        assertTrue(ids(marker).isEmpty());
+    }
+
+    private List<Long> ids(String query) {
+        return embeddedProductIndex.search(query, null, null, 0, 10).hits().stream()
+            .map(ProductSearchService.SearchHit::id).toList();
+    }
+
+    private Product createProduct(String marker) {
+        ProductVariantDTO variant = new ProductVariantDTO();
+        variant.setTitle("Default");
+        variant.setSku(marker + "-old");
+
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setTitle("Sync " + marker);
+        request.setStatus("PUBLISHED");
+        request.setHandle("sync-" + marker);
+        request.setVariants(List.of(variant));
+        return productService.createProduct(request);
+    }
+}
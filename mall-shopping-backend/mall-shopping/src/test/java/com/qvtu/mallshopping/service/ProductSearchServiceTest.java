@@ -0,0 +1,145 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.ProductCreateRequest;
+import com.qvtu.mallshopping.dto.ProductVariantDTO;
+import com.qvtu.mallshopping.enums.ProductStatus;
+import com.qvtu.mallshopping.model.Product;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class ProductSearchServiceTest {
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchServiceTest.class);
+
+    // 默认规模让测试保持在几秒内，-Dproduct.search.benchmark.size=1000000 可复现百万商品的数据
+    private static final int BENCHMARK_SIZE = Integer.getInteger("product.search.benchmark.size", 20_000);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSearchService productSearchService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void matchesTitleSkuAndDescriptionWithPrefixes() {
+        String marker = "zq" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        Product inTitle = createProduct(marker + " Phone", "Glass back", "PUBLISHED", marker.toUpperCase() + "-RED");
+        Product inDescription = createProduct("Phone case", "Fits the " + marker + " phone", "PUBLISHED", "CASE-1");
+        Product draft = createProduct(marker + " Phone prototype", null, "DRAFT", "PROTO-1");
+
+        ProductSearchService.SearchResult all = productSearchService.search(marker.substring(0, 6), null, 0, 10);
+        assertEquals(3, all.count());
+        // 标题命中的权重高于描述
+        assertTrue(indexOf(all, inTitle) < indexOf(all, inDescription));
+
+        ProductSearchService.SearchResult published = productSearchService.search(marker + " pho", ProductStatus.PUBLISHED, 0, 10);
+        assertEquals(List.of(inTitle.getId(), inDescription.getId()),
+            published.hits().stream().map(ProductSearchService.SearchHit::id).toList());
+
+        assertEquals(inTitle.getId(), productSearchService.search(marker + "-red", null, 0, 10).hits().get(0).id());
+        assertEquals(draft.getId(), productSearchService.search("proto", ProductStatus.DRAFT, 0, 10).hits().stream()
+            .filter(hit -> hit.id().equals(draft.getId())).findFirst().orElseThrow().id());
+
+        // 偏移超过结果数时仍然返回总数
+        assertEquals(3, productSearchService.search(marker, null, 10, 10).count());
+        assertTrue(productSearchService.search("!!!", null, 0, 10).hits().isEmpty());
+    }
+
+    // 后台列表的 title 仍是标题子串筛选：不匹配描述和 SKU，也不做前缀展开
+    @Test
+    void titleFilterOnlyMatchesTitleSubstrings() {
+        String marker = "zt" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        Product inTitle = createProduct("Case-" + marker + "-blue", null, "PUBLISHED", "T-1");
+        createProduct("Phone case", "Fits the " + marker + " phone", "PUBLISHED", marker.toUpperCase());
+
+        assertEquals(List.of(inTitle.getId()),
+            productService.listProducts(marker, null, 0, 10).stream().map(Product::getId).toList());
+        assertEquals(1, productService.countProducts(marker, ProductStatus.PUBLISHED));
+        assertEquals(0, productService.countProducts(marker, ProductStatus.DRAFT));
+        assertEquals(2, productService.searchProducts(marker, null, 0, 10).count());
+    }
+
+    // 没有引入 JMH，比较原来的 LIKE '%x%' 列表加计数与全文检索单条查询的耗时
+    @Test
+    void searchOnLargeCatalog() {
+        jdbcTemplate.update("insert into products (title, subtitle, description, handle, status, createdAt, updatedAt) "
+            + "select (array['Wireless','Organic','Vintage','Smart','Compact','Premium','Classic','Rugged'])[i % 8 + 1] || ' ' "
+            + "|| (array['headphones','tea','jacket','watch','camera','backpack','lamp','kettle','sneakers','blender'])[i % 10 + 1] "
+            + "|| ' ' || i, 'Model ' || (i % 997), 'Item number ' || i || ' in the benchmark catalog', "
+            + "'bench-' || i || '-' || md5(random()::text), "
+            + "case when i % 4 = 0 then 'DRAFT' else 'PUBLISHED' end, now(), now() "
+            + "from generate_series(1, ?) as s(i)", BENCHMARK_SIZE);
+        productSearchService.reindexMissing();
+        jdbcTemplate.execute("analyze products");
+
+        // 宽泛的查询命中 2.5% 的商品，精确的查询只命中少数几个
+        ProductSearchService.SearchResult broad = benchmark("Smart wat", "smart wat");
+        ProductSearchService.SearchResult narrow = benchmark("Smart watch 123", "smart watch 123");
+
+        assertEquals(10, broad.hits().size());
+        assertTrue(broad.hits().get(0).title().startsWith("Smart watch"));
+        assertTrue(narrow.count() > 0);
+        assertTrue(narrow.hits().stream().allMatch(hit -> hit.title().startsWith("Smart watch 123")));
+    }
+
+    private ProductSearchService.SearchResult benchmark(String likeText, String query) {
+        int rounds = 20;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            jdbcTemplate.queryForList("select id, title from products where title like ? and status = 'PUBLISHED' "
+                + "order by id offset 0 limit 10", "%" + likeText + "%");
+            jdbcTemplate.queryForObject("select count(*) from products where title like ? and status = 'PUBLISHED'",
+                Long.class, "%" + likeText + "%");
+        }
+        long likeMicros = (System.nanoTime() - start) / rounds / 1_000;
+
+        ProductSearchService.SearchResult result = null;
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            result = productSearchService.search(query, ProductStatus.PUBLISHED, 0, 10);
+        }
+        long searchMicros = (System.nanoTime() - start) / rounds / 1_000;
+
+        log.info("Catalog of {} products, query '{}': LIKE list + count {} us, full-text search {} us ({} matches)",
+            BENCHMARK_SIZE, query, likeMicros, searchMicros, result.count());
+        return result;
+    }
+
+    private int indexOf(ProductSearchService.SearchResult result, Product product) {
+        for (int i = 0; i < result.hits().size(); i++) {
+            if (result.hits().get(i).id().equals(product.getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private Product createProduct(String title, String description, String status, String sku) {
+        ProductVariantDTO variant = new ProductVariantDTO();
+        variant.setTitle("Default");
+        variant.setSku(sku);
+
+        ProductCreateRequest request = new ProductCreateRequest();
+        request.setTitle(title);
+        request.setDescription(description);
+        request.setStatus(status);
+        request.setHandle("search-" + UUID.randomUUID());
+        request.setVariants(List.of(variant));
+        return productService.createProduct(request);
+    }
+}
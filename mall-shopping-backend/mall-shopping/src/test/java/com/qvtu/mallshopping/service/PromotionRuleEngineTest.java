@@ -0,0 +1,145 @@
+package com.qvtu.mallshopping.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qvtu.mallshopping.model.Promotion;
+import com.qvtu.mallshopping.util.JsonCodec;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromotionRuleEngineTest {
+    private static final Logger log = LoggerFactory.getLogger(PromotionRuleEngineTest.class);
+
+    private final PromotionRuleEngine engine = new PromotionRuleEngine(null, new JsonCodec(new ObjectMapper()), 30_000);
+
+    private static Promotion promotion(long id, String rules, String applicationMethod) {
+        return Promotion.builder()
+            .id(id)
+            .code("PROMO" + id)
+            .isAutomatic(true)
+            .status("active")
+            .rules(rules)
+            .applicationMethod(applicationMethod)
+            .updatedAt(LocalDateTime.of(2024, 1, 1, 0, 0))
+            .build();
+    }
+
+    private static PromotionRuleEngine.Cart cart(List<String> groups, PromotionRuleEngine.CartLine... lines) {
+        return new PromotionRuleEngine.Cart(List.of(lines), groups);
+    }
+
+    private static PromotionRuleEngine.CartLine line(String productId, String category, long quantity, long unitPriceCents) {
+        return new PromotionRuleEngine.CartLine(productId, List.of(category), quantity, unitPriceCents);
+    }
+
+    @Test
+    void cartRulesMustAllMatch() {
+        PromotionRuleEngine.CompiledPromotion compiled = engine.compiled(promotion(1,
+            "[{\"attribute\":\"order_total\",\"operator\":\"gt\",\"values\":[\"100\"]},"
+                + "{\"attribute\":\"customer_group\",\"operator\":\"in\",\"values\":[\"1\"]}]",
+            "{\"type\":\"fixed\",\"value\":10,\"target_type\":\"order\"}"));
+
+        PromotionRuleEngine.Cart vipCart = cart(List.of("1"), line("p1", "c1", 2, 6_000));
+        PromotionRuleEngine.Cart regularCart = cart(List.of("2"), line("p1", "c1", 2, 6_000));
+        PromotionRuleEngine.Cart smallCart = cart(List.of("1"), line("p1", "c1", 1, 6_000));
+
+        List<PromotionRuleEngine.AppliedPromotion> applied = PromotionRuleEngine.evaluate(List.of(compiled), vipCart);
+        assertEquals(1, applied.size());
+        assertEquals(1_000, applied.get(0).discountCents());
+        assertTrue(PromotionRuleEngine.evaluate(List.of(compiled), regularCart).isEmpty());
+        assertTrue(PromotionRuleEngine.evaluate(List.of(compiled), smallCart).isEmpty());
+    }
+
+    @Test
+    void percentageAppliesOnlyToTargetItemsAfterBuyRules() {
+        PromotionRuleEngine.CompiledPromotion compiled = engine.compiled(promotion(2, null,
+            "{\"type\":\"percentage\",\"value\":20,\"target_type\":\"items\",\"allocation\":\"each\","
+                + "\"buy_rules\":[{\"attribute\":\"product_category\",\"operator\":\"in\",\"values\":[\"1\"]}],"
+                + "\"target_rules\":[{\"attribute\":\"product_category\",\"operator\":\"in\",\"values\":[\"2\"]}]}"));
+
+        PromotionRuleEngine.Cart withBuyItem = cart(null, line("p1", "1", 1, 5_000), line("p2", "2", 2, 1_000));
+        PromotionRuleEngine.Cart withoutBuyItem = cart(null, line("p2", "2", 2, 1_000));
+
+        PromotionRuleEngine.AppliedPromotion applied = PromotionRuleEngine.evaluate(List.of(compiled), withBuyItem).get(0);
+        assertEquals(400, applied.discountCents());
+        assertArrayEquals(new long[] {0, 400}, applied.lineDiscountCents());
+        assertTrue(PromotionRuleEngine.evaluate(List.of(compiled), withoutBuyItem).isEmpty());
+    }
+
+    @Test
+    void fixedAcrossIsProratedAndCappedBySubtotal() {
+        PromotionRuleEngine.CompiledPromotion compiled = engine.compiled(promotion(3, null,
+            "{\"type\":\"fixed\",\"value\":30,\"target_type\":\"items\",\"allocation\":\"across\"}"));
+
+        PromotionRuleEngine.AppliedPromotion applied = PromotionRuleEngine.evaluate(List.of(compiled),
+            cart(null, line("p1", "c1", 1, 1_000), line("p2", "c1", 1, 500))).get(0);
+
+        assertEquals(1_500, applied.discountCents());
+        assertArrayEquals(new long[] {1_000, 500}, applied.lineDiscountCents());
+    }
+
+    @Test
+    void unknownAttributesAndInvalidJsonNeverApply() {
+        PromotionRuleEngine.CompiledPromotion unknown = engine.compiled(promotion(4,
+            "[{\"attribute\":\"weather\",\"operator\":\"eq\",\"values\":[\"sunny\"]}]",
+            "{\"type\":\"fixed\",\"value\":5,\"target_type\":\"order\"}"));
+        PromotionRuleEngine.CompiledPromotion broken = engine.compiled(promotion(5, "[{", "{\"type\":\"fixed\",\"value\":5}"));
+
+        PromotionRuleEngine.Cart cart = cart(null, line("p1", "c1", 1, 1_000));
+        assertTrue(PromotionRuleEngine.evaluate(List.of(unknown, broken), cart).isEmpty());
+    }
+
+    @Test
+    void compiledPromotionIsCachedUntilThePromotionChanges() {
+        Promotion promotion = promotion(6, "[]", "{\"type\":\"fixed\",\"value\":5}");
+        PromotionRuleEngine.CompiledPromotion first = engine.compiled(promotion);
+        assertSame(first, engine.compiled(promotion));
+
+        promotion.setUpdatedAt(promotion.getUpdatedAt().plusSeconds(1));
+        PromotionRuleEngine.CompiledPromotion second = engine.compiled(promotion);
+        assertNotSame(first, second);
+        assertThrows(UnsupportedOperationException.class, () -> second.getApplicationMethod().put("value", 1));
+    }
+
+    @Test
+    void evaluatesManyPromotionsAgainstAFullCart() {
+        List<PromotionRuleEngine.CompiledPromotion> promotions = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            promotions.add(engine.compiled(promotion(100 + i,
+                "[{\"attribute\":\"order_total\",\"operator\":\"gte\",\"values\":[\"" + (i % 50) + "\"]},"
+                    + "{\"attribute\":\"customer_group\",\"operator\":\"in\",\"values\":[\"" + (i % 3) + "\"]}]",
+                "{\"type\":\"percentage\",\"value\":5,\"target_type\":\"items\",\"allocation\":\"each\","
+                    + "\"target_rules\":[{\"attribute\":\"product_category\",\"operator\":\"in\",\"values\":[\"c" + (i % 7) + "\"]}]}")));
+        }
+        List<PromotionRuleEngine.CartLine> lines = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            lines.add(line("p" + i, "c" + (i % 7), 1 + i % 3, 1_000 + i * 100L));
+        }
+        PromotionRuleEngine.Cart cart = new PromotionRuleEngine.Cart(lines, List.of("1"));
+
+        int applied = 0;
+        for (int i = 0; i < 200; i++) {
+            applied = PromotionRuleEngine.evaluate(promotions, cart).size();
+        }
+        long start = System.nanoTime();
+        int rounds = 200;
+        for (int i = 0; i < rounds; i++) {
+            PromotionRuleEngine.evaluate(promotions, cart);
+        }
+        long averageMicros = (System.nanoTime() - start) / rounds / 1_000;
+        log.info("Evaluated 1000 promotions against 20 lines in {} us on average", averageMicros);
+
+        assertEquals(333, applied);
+    }
+}
@@ -0,0 +1,142 @@
+package com.qvtu.mallshopping.service;
+
+import com.qvtu.mallshopping.dto.ReservationCreateRequest;
+import com.qvtu.mallshopping.exception.InsufficientInventoryException;
+import com.qvtu.mallshopping.model.Inventory;
+import com.qvtu.mallshopping.model.InventoryLevel;
+import com.qvtu.mallshopping.model.Location;
+import com.qvtu.mallshopping.model.Reservation;
+import com.qvtu.mallshopping.repository.InventoryLevelRepository;
+import com.qvtu.mallshopping.repository.InventoryRepository;
+import com.qvtu.mallshopping.repository.LocationRepository;
+import com.qvtu.mallshopping.repository.ReservationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ReservationConcurrencyTest {
+    private static final Logger log = LoggerFactory.getLogger(ReservationConcurrencyTest.class);
+
+    private static final int STOCK = 100;
+    private static final int THREADS = 200;
+    private static final int ATTEMPTS = 500;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private InventoryLevelRepository inventoryLevelRepository;
+
+    @Autowired
+    private LocationRepository locationRepository;
+
+    private Location location;
+    private Inventory inventory;
+    private InventoryLevel level;
+
+    @BeforeEach
+    void setUp() {
+        location = new Location();
+        location.setName("Hot SKU warehouse");
+        location = locationRepository.save(location);
+
+        inventory = new Inventory();
+        inventory.setSku("HOT-" + UUID.randomUUID());
+        inventory.setQuantity(STOCK);
+        inventory.setManageInventory(true);
+        inventory.setAllowBackorder(false);
+        inventory.setLocation(location);
+        inventory = inventoryRepository.save(inventory);
+
+        level = new InventoryLevel();
+        level.setInventory(inventory);
+        level.setLocation(location);
+        level.setStockedQuantity(STOCK);
+        level.setReservedQuantity(0);
+        level.setIncomingQuantity(0);
+        level = inventoryLevelRepository.save(level);
+    }
+
+    @AfterEach
+    void tearDown() {
+        List<Reservation> reservations = reservationRepository
+            .findByInventoryItemIdAndDeletedAtIsNull(inventory.getId(), PageRequest.of(0, ATTEMPTS))
+            .getContent();
+        reservationRepository.deleteAll(reservationRepository.findAllById(
+            reservations.stream().map(Reservation::getId).toList()));
+        inventoryLevelRepository.deleteById(level.getId());
+        inventoryRepository.deleteById(inventory.getId());
+        locationRepository.deleteById(location.getId());
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < ATTEMPTS; i++) {
+            final int attempt = i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ReservationCreateRequest request = new ReservationCreateRequest();
+                request.setInventoryItemId(inventory.getId().toString());
+                request.setLocationId(location.getId().toString());
+                request.setLineItemId("line-" + attempt);
+                request.setQuantity(1);
+                try {
+                    reservationService.createReservation(request);
+                    accepted.incrementAndGet();
+                } catch (InsufficientInventoryException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+
+        log.info("{} reservation attempts on one SKU with {} threads in {} ms ({} attempts/s)",
+            ATTEMPTS, THREADS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+            String.format("%.0f", ATTEMPTS / (elapsedNanos / 1_000_000_000.0)));
+
+        InventoryLevel reloaded = inventoryLevelRepository.findById(level.getId()).orElseThrow();
+        assertEquals(STOCK, accepted.get());
+        assertEquals(ATTEMPTS - STOCK, rejected.get());
+        assertEquals(STOCK, reloaded.getReservedQuantity());
+        assertTrue(reloaded.getReservedQuantity() <= reloaded.getStockedQuantity());
+    }
+}
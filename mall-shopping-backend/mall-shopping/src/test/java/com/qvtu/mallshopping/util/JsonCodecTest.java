@@ -0,0 +1,64 @@
+package com.qvtu.mallshopping.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qvtu.mallshopping.dto.Budget;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonCodecTest {
+    private static final Logger log = LoggerFactory.getLogger(JsonCodecTest.class);
+
+    private static final String RULES =
+        "[{\"id\":\"rule_1\",\"attribute\":\"order_total\",\"operator\":\"gt\",\"values\":[\"100\"]}]";
+
+    private final JsonCodec jsonCodec = new JsonCodec(new ObjectMapper());
+
+    @Test
+    void readsKnownShapes() throws Exception {
+        List<Map<String, Object>> rules = jsonCodec.readListOfMaps(RULES);
+        assertEquals("order_total", rules.get(0).get("attribute"));
+
+        Budget budget = new Budget();
+        budget.setType("spend");
+        budget.setLimit(1000.0);
+        assertEquals(budget, jsonCodec.readBudget(jsonCodec.write(budget)));
+
+        assertEquals("fixed", jsonCodec.readMap("{\"type\":\"fixed\"}").get("type"));
+    }
+
+    // 没有引入 JMH，用线程分配字节数粗略比较每次调用新建 ObjectMapper 与共享编解码器的内存分配
+    @Test
+    void sharedCodecAllocatesLessPerCallThanNewObjectMapper() throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        int calls = 2_000;
+
+        for (int i = 0; i < calls; i++) {
+            new ObjectMapper().readValue(RULES, List.class);
+            jsonCodec.readListOfMaps(RULES);
+        }
+
+        long start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            new ObjectMapper().readValue(RULES, List.class);
+        }
+        long perCallBefore = (threads.getThreadAllocatedBytes(threadId) - start) / calls;
+
+        start = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            jsonCodec.readListOfMaps(RULES);
+        }
+        long perCallAfter = (threads.getThreadAllocatedBytes(threadId) - start) / calls;
+
+        log.info("Bytes allocated per call, new ObjectMapper: {}, JsonCodec: {}", perCallBefore, perCallAfter);
+        assertTrue(perCallAfter * 2 < perCallBefore);
+    }
+}
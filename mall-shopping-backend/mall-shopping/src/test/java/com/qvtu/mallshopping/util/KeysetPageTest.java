@@ -0,0 +1,89 @@
+package com.qvtu.mallshopping.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class KeysetPageTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    // 250 行，created_at 两两相同，只能靠 id 区分先后；另有 15 行 created_at 为空，排在最后
+    private final List<KeysetCursor> rows = new ArrayList<>();
+
+    {
+        for (long id = 250; id >= 1; id--) {
+            rows.add(new KeysetCursor(NOW.minusSeconds(id / 2), id));
+        }
+        rows.sort((a, b) -> b.getCreatedAt().compareTo(a.getCreatedAt()) != 0
+            ? b.getCreatedAt().compareTo(a.getCreatedAt()) : b.getId().compareTo(a.getId()));
+        for (long id = 300; id > 285; id--) {
+            rows.add(new KeysetCursor(null, id));
+        }
+    }
+
+    @Test
+    void walksEveryRowOnceWithClampedLimit() {
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeysetPage<KeysetCursor> page = fetch(cursor, 1000);
+            assertEquals(KeysetPage.MAX_LIMIT, page.getLimit());
+            page.getItems().forEach(key -> seen.add(key.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(rows.stream().map(KeysetCursor::getId).toList(), seen);
+    }
+
+    // 页尾落在 created_at 为空的行上时，游标仍然可以编码并继续翻页
+    @Test
+    void pagesThroughRowsWithoutCreatedAt() {
+        KeysetCursor decoded = KeysetCursor.decode(KeysetCursor.encode(null, 42L));
+        assertNull(decoded.getCreatedAt());
+        assertEquals(42L, decoded.getId());
+
+        List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            KeysetPage<KeysetCursor> page = fetch(cursor, 7);
+            page.getItems().forEach(key -> seen.add(key.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        assertEquals(rows.stream().map(KeysetCursor::getId).toList(), seen);
+    }
+
+    @Test
+    void clampsLimit() {
+        assertEquals(1, fetch(null, 0).getItems().size());
+        assertEquals(1, fetch(null, -5).getLimit());
+        assertEquals(KeysetPage.DEFAULT_LIMIT, fetch(null, null).getItems().size());
+        assertEquals(KeysetPage.MAX_LIMIT, fetch(null, 250).getItems().size());
+    }
+
+    private KeysetPage<KeysetCursor> fetch(String cursor, Integer limit) {
+        return KeysetPage.fetch(cursor, limit,
+            pageable -> rows.stream()
+                .filter(key -> key.getCreatedAt() != null)
+                .limit(pageable.getPageSize())
+                .toList(),
+            (createdAt, id, pageable) -> rows.stream()
+                .filter(key -> key.getCreatedAt() != null && (key.getCreatedAt().isBefore(createdAt)
+                    || (key.getCreatedAt().equals(createdAt) && key.getId() < id)))
+                .limit(pageable.getPageSize())
+                .toList(),
+            (beforeId, pageable) -> rows.stream()
+                .filter(key -> key.getCreatedAt() == null && key.getId() < beforeId)
+                .limit(pageable.getPageSize())
+                .toList(),
+            Function.identity());
+    }
+}